@@ -0,0 +1,257 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import org.bukkit.configuration.serialization.SerializableAs;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.enchantments.EnchantmentWrapper;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Item meta for the benchmarks, since CraftBukkit's item meta only exists on a running server.
+ * <p>
+ * It holds the parts of item meta that make items expensive to serialize: a display name, lore,
+ * enchantments, flags and, like the block state of a shulker box, other items. It is serialized
+ * with Bukkit's configuration serialization, just like the real item meta.
+ */
+@SerializableAs("PWIBenchmarkMeta")
+public class BenchmarkItemMeta implements ItemMeta {
+
+    private String displayName;
+    private List<String> lore;
+    private Map<Enchantment, Integer> enchants = new LinkedHashMap<>();
+    private Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+    private boolean unbreakable;
+    private List<ItemStack> contents = new ArrayList<>();
+
+    /**
+     * Get the items stored in the item, like the contents of a shulker box.
+     *
+     * @return The stored items
+     */
+    public List<ItemStack> getContents() {
+        return contents;
+    }
+
+    public void setContents(List<ItemStack> contents) {
+        this.contents = new ArrayList<>(contents);
+    }
+
+    @Override
+    public boolean hasDisplayName() {
+        return displayName != null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public void setDisplayName(String name) {
+        this.displayName = name;
+    }
+
+    // Not part of ItemMeta in every version of the API, so these don't have @Override
+    public boolean hasLocalizedName() {
+        return false;
+    }
+
+    public String getLocalizedName() {
+        return null;
+    }
+
+    public void setLocalizedName(String name) {
+    }
+
+    public boolean isUnbreakable() {
+        return unbreakable;
+    }
+
+    public void setUnbreakable(boolean unbreakable) {
+        this.unbreakable = unbreakable;
+    }
+
+    @Override
+    public boolean hasLore() {
+        return lore != null;
+    }
+
+    @Override
+    public List<String> getLore() {
+        return lore == null ? null : new ArrayList<>(lore);
+    }
+
+    @Override
+    public void setLore(List<String> lore) {
+        this.lore = lore == null ? null : new ArrayList<>(lore);
+    }
+
+    @Override
+    public boolean hasEnchants() {
+        return !enchants.isEmpty();
+    }
+
+    @Override
+    public boolean hasEnchant(Enchantment ench) {
+        return enchants.containsKey(ench);
+    }
+
+    @Override
+    public int getEnchantLevel(Enchantment ench) {
+        Integer level = enchants.get(ench);
+        return level == null ? 0 : level;
+    }
+
+    @Override
+    public Map<Enchantment, Integer> getEnchants() {
+        return Collections.unmodifiableMap(enchants);
+    }
+
+    @Override
+    public boolean addEnchant(Enchantment ench, int level, boolean ignoreLevelRestriction) {
+        Integer previous = enchants.put(ench, level);
+        return previous == null || previous != level;
+    }
+
+    @Override
+    public boolean removeEnchant(Enchantment ench) {
+        return enchants.remove(ench) != null;
+    }
+
+    @Override
+    public boolean hasConflictingEnchant(Enchantment ench) {
+        return false;
+    }
+
+    @Override
+    public void addItemFlags(ItemFlag... itemFlags) {
+        Collections.addAll(flags, itemFlags);
+    }
+
+    @Override
+    public void removeItemFlags(ItemFlag... itemFlags) {
+        for (ItemFlag flag : itemFlags) {
+            flags.remove(flag);
+        }
+    }
+
+    @Override
+    public Set<ItemFlag> getItemFlags() {
+        return Collections.unmodifiableSet(flags);
+    }
+
+    @Override
+    public boolean hasItemFlag(ItemFlag flag) {
+        return flags.contains(flag);
+    }
+
+    public Spigot spigot() {
+        return new Spigot();
+    }
+
+    @Override
+    public BenchmarkItemMeta clone() {
+        try {
+            BenchmarkItemMeta clone = (BenchmarkItemMeta) super.clone();
+            clone.lore = lore == null ? null : new ArrayList<>(lore);
+            clone.enchants = new LinkedHashMap<>(enchants);
+            clone.flags = flags.isEmpty() ? EnumSet.noneOf(ItemFlag.class) : EnumSet.copyOf(flags);
+            clone.contents = new ArrayList<>(contents.size());
+            for (ItemStack item : contents) {
+                clone.contents.add(item.clone());
+            }
+            return clone;
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public Map<String, Object> serialize() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (displayName != null)
+            result.put("display-name", displayName);
+        if (lore != null)
+            result.put("lore", lore);
+        if (!enchants.isEmpty()) {
+            // Enchantments only have names on a server, their ids are always known
+            Map<String, Integer> ids = new LinkedHashMap<>();
+            for (Map.Entry<Enchantment, Integer> enchant : enchants.entrySet()) {
+                ids.put(Integer.toString(enchant.getKey().getId()), enchant.getValue());
+            }
+            result.put("enchants", ids);
+        }
+        if (!flags.isEmpty()) {
+            List<String> names = new ArrayList<>();
+            for (ItemFlag flag : flags) {
+                names.add(flag.name());
+            }
+            result.put("flags", names);
+        }
+        if (unbreakable)
+            result.put("unbreakable", true);
+        if (!contents.isEmpty())
+            result.put("contents", contents);
+        return result;
+    }
+
+    /**
+     * Create item meta from the result of {@link #serialize()}. Called by Bukkit's configuration serialization.
+     *
+     * @param args The serialized meta
+     * @return The item meta
+     */
+    @SuppressWarnings("unchecked")
+    public static BenchmarkItemMeta deserialize(Map<String, Object> args) {
+        BenchmarkItemMeta meta = new BenchmarkItemMeta();
+        meta.displayName = (String) args.get("display-name");
+        if (args.containsKey("lore"))
+            meta.lore = new ArrayList<>((List<String>) args.get("lore"));
+        if (args.containsKey("enchants")) {
+            for (Map.Entry<String, Integer> enchant : ((Map<String, Integer>) args.get("enchants")).entrySet()) {
+                meta.enchants.put(new EnchantmentWrapper(Integer.parseInt(enchant.getKey())), enchant.getValue());
+            }
+        }
+        if (args.containsKey("flags")) {
+            for (String flag : (List<String>) args.get("flags")) {
+                meta.flags.add(ItemFlag.valueOf(flag));
+            }
+        }
+        meta.unbreakable = Boolean.TRUE.equals(args.get("unbreakable"));
+        if (args.containsKey("contents"))
+            meta.contents = new ArrayList<>((List<ItemStack>) args.get("contents"));
+        return meta;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        } else if (!(other instanceof BenchmarkItemMeta)) {
+            return false;
+        }
+
+        BenchmarkItemMeta that = (BenchmarkItemMeta) other;
+        return unbreakable == that.unbreakable
+                && Objects.equals(displayName, that.displayName)
+                && Objects.equals(lore, that.lore)
+                && enchants.equals(that.enchants)
+                && flags.equals(that.flags)
+                && contents.equals(that.contents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(displayName, lore, enchants, flags, unbreakable, contents);
+    }
+}
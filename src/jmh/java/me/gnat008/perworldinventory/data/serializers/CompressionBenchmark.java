@@ -0,0 +1,81 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import ch.jalu.injector.Injector;
+import me.gnat008.perworldinventory.util.Compression;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks compressing and decompressing a serialized player with {@link Compression#GZIP}, as the
+ * flat file data source does, for each data format and a few compression levels. The size of the
+ * data before and after compressing is reported with the results, as the uncompressedBytes and
+ * compressedBytes counters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+    @Param({"0", "1", "2", "3"})
+    public int dataFormat;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    private byte[] data;
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() {
+        Injector injector = SerializerFixtures.createInjector(dataFormat, 0);
+        data = SerializerFixtures.serialize(injector, SerializerFixtures.snapshot(injector), dataFormat);
+        compressed = Compression.GZIP.compress(data, level);
+    }
+
+    @Benchmark
+    public byte[] compress(Sizes sizes) {
+        sizes.record(data, compressed);
+        return Compression.GZIP.compress(data, level);
+    }
+
+    @Benchmark
+    public byte[] decompress(Sizes sizes) throws IOException {
+        sizes.record(data, compressed);
+        return Compression.decompress(new ByteArrayInputStream(compressed));
+    }
+
+    /**
+     * The size of the data, reported with the results of each benchmark.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+
+        /** Size of the serialized player. */
+        public long uncompressedBytes;
+        /** Size of the serialized player after compressing it. */
+        public long compressedBytes;
+
+        void record(byte[] data, byte[] compressed) {
+            uncompressedBytes = data.length;
+            compressedBytes = compressed.length;
+        }
+    }
+}
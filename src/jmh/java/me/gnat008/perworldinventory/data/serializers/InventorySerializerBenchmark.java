@@ -0,0 +1,92 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing and deserializing a full inventory with {@link InventorySerializer}, without the
+ * {@link ItemSerializationCache}: a player inventory of 41 slots or an ender chest of 27 slots.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InventorySerializerBenchmark {
+
+    @Param({"41", "27"})
+    public int size;
+
+    private InventorySerializer serializer;
+    private ItemStack[] contents;
+    private byte[] bytes;
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        serializer = SerializerFixtures.createInjector(PlayerSerializer.BINARY_FORMAT, 0).getSingleton(InventorySerializer.class);
+        contents = SerializerFixtures.inventory(size);
+
+        bytes = writeBinary();
+        json = new Gson().toJson(serializer.serializeInventory(contents));
+    }
+
+    @Benchmark
+    public byte[] writeBinary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        serializer.writeInventory(new DataOutputStream(out), contents);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public ItemStack[] readBinary() throws IOException {
+        return serializer.readInventory(new DataInputStream(new ByteArrayInputStream(bytes)), size);
+    }
+
+    @Benchmark
+    public String serializeJson() {
+        return new Gson().toJson(serializer.serializeInventory(contents));
+    }
+
+    /**
+     * Deserialize JSON by parsing it into a tree first, as for data read from a database.
+     */
+    @Benchmark
+    public ItemStack[] deserializeJson() {
+        JsonArray array = new JsonParser().parse(json).getAsJsonArray();
+        return serializer.deserializeInventory(array, size, 2);
+    }
+
+    /**
+     * Deserialize JSON straight from a stream, as for data read from a flat file.
+     */
+    @Benchmark
+    public ItemStack[] readJson() throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return serializer.readInventory(reader, size, 2);
+        }
+    }
+}
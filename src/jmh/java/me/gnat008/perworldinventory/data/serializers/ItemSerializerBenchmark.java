@@ -0,0 +1,81 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import com.google.gson.JsonObject;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing and deserializing a single item with {@link ItemSerializer}, without the
+ * {@link ItemSerializationCache}. The binary format stores the raw bytes, the JSON formats store them as Base64.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemSerializerBenchmark {
+
+    /** An item without meta, an item with lots of meta, or an item holding 27 items with lots of meta. */
+    @Param({"plain", "meta", "shulker"})
+    public String item;
+
+    private ItemSerializer serializer;
+    private ItemStack itemStack;
+    private byte[] bytes;
+    private JsonObject json;
+
+    @Setup
+    public void setUp() {
+        serializer = SerializerFixtures.createInjector(PlayerSerializer.BINARY_FORMAT, 0).getSingleton(ItemSerializer.class);
+        switch (item) {
+            case "plain":
+                itemStack = new ItemStack(Material.COBBLESTONE, 64);
+                break;
+            case "meta":
+                itemStack = SerializerFixtures.item(5);
+                break;
+            case "shulker":
+                itemStack = SerializerFixtures.shulkerBox(1);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown item '" + item + "'");
+        }
+
+        bytes = serializer.serializeItemToBytes(itemStack);
+        json = serializer.serializeItem(itemStack, 0);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return serializer.serializeItemToBytes(itemStack);
+    }
+
+    @Benchmark
+    public ItemStack deserializeBinary() {
+        return serializer.deserializeItem(bytes);
+    }
+
+    @Benchmark
+    public JsonObject serializeJson() {
+        return serializer.serializeItem(itemStack, 0);
+    }
+
+    @Benchmark
+    public ItemStack deserializeJson() {
+        return serializer.deserializeItem(json, 2);
+    }
+}
@@ -0,0 +1,121 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import ch.jalu.injector.Injector;
+import com.google.gson.stream.JsonReader;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing and decoding a whole player with {@link PlayerSerializer}. Serializing is
+ * benchmarked in each data format that is written, decoding also in the legacy formats 0 and 1 that
+ * files of players who did not play for a long time may still be in.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerSerializerBenchmark {
+
+    /**
+     * The serializers of a server that writes the given data format.
+     */
+    @State(Scope.Benchmark)
+    public static class Written {
+
+        @Param({"2", "3"})
+        public int dataFormat;
+
+        private PlayerSerializer serializer;
+        private PlayerSerializer cachingSerializer;
+        private PWIPlayerSnapshot snapshot;
+
+        @Setup
+        public void setUp() {
+            Injector injector = SerializerFixtures.createInjector(dataFormat, 0);
+            serializer = injector.getSingleton(PlayerSerializer.class);
+            cachingSerializer = SerializerFixtures.createInjector(dataFormat, 1024).getSingleton(PlayerSerializer.class);
+            snapshot = SerializerFixtures.snapshot(injector);
+        }
+    }
+
+    /**
+     * The data of a player in the given data format, as it is stored.
+     */
+    @State(Scope.Benchmark)
+    public static class Stored {
+
+        @Param({"0", "1", "2", "3"})
+        public int dataFormat;
+
+        private PlayerSerializer serializer;
+        private Player player;
+        private byte[] data;
+
+        @Setup
+        public void setUp() {
+            Injector injector = SerializerFixtures.createInjector(dataFormat, 0);
+            serializer = injector.getSingleton(PlayerSerializer.class);
+            player = SerializerFixtures.player();
+            data = SerializerFixtures.serialize(injector, SerializerFixtures.snapshot(injector), dataFormat);
+        }
+    }
+
+    /**
+     * Serialize a player whose items all changed since the last save, so every item goes through
+     * Bukkit's serialization.
+     */
+    @Benchmark
+    public byte[] serialize(Written state) {
+        return state.serializer.serializeToBytes(state.snapshot);
+    }
+
+    /**
+     * Serialize a player whose items did not change since the last save, so every item is taken
+     * from the {@link ItemSerializationCache}.
+     */
+    @Benchmark
+    public byte[] serializeWithItemCache(Written state) {
+        return state.cachingSerializer.serializeToBytes(state.snapshot);
+    }
+
+    /**
+     * Decode the data from bytes, as all data sources do for binary data, and the database data sources
+     * also do for JSON.
+     */
+    @Benchmark
+    public PlayerSnapshot decode(Stored state) throws IOException {
+        return state.serializer.decode(state.data, state.player);
+    }
+
+    /**
+     * Decode the data like the flat file data source does, which reads JSON straight from the file.
+     */
+    @Benchmark
+    public PlayerSnapshot decodeFromReader(Stored state) throws IOException {
+        if (PlayerSerializer.isBinaryFormat(state.data)) {
+            return state.serializer.decode(state.data, state.player);
+        }
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(state.data), StandardCharsets.UTF_8))) {
+            return state.serializer.decode(reader, state.player);
+        }
+    }
+}
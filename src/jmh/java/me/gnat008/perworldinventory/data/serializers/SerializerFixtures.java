@@ -0,0 +1,388 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import ch.jalu.configme.properties.Property;
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.PerWorldInventory;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerFactory;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import org.bukkit.Bukkit;
+import org.bukkit.Color;
+import org.bukkit.GameMode;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The data the serializer benchmarks work with: a player with a full inventory of items with
+ * lots of meta, a full ender chest and many potion effects.
+ * <p>
+ * There is no server when benchmarking, so the parts of Bukkit that a server normally provides
+ * are set up here: an item factory that handles {@link BenchmarkItemMeta}, and the potion effect
+ * types.
+ */
+final class SerializerFixtures {
+
+    static final int INVENTORY_SIZE = 41;
+    static final int ENDER_CHEST_SIZE = 27;
+    static final int POTION_EFFECTS = 12;
+
+    private static final Material[] MATERIALS = {
+        Material.DIAMOND_SWORD, Material.BOW, Material.DIAMOND_PICKAXE, Material.DIAMOND_AXE,
+        Material.COOKED_BEEF, Material.GOLDEN_APPLE, Material.ENDER_PEARL, Material.TORCH,
+        Material.POTION, Material.WRITTEN_BOOK, Material.STONE, Material.ARROW
+    };
+    private static final Enchantment[] ENCHANTMENTS = {
+        Enchantment.DAMAGE_ALL, Enchantment.DURABILITY, Enchantment.MENDING, Enchantment.LOOT_BONUS_MOBS,
+        Enchantment.FIRE_ASPECT, Enchantment.KNOCKBACK, Enchantment.PROTECTION_ENVIRONMENTAL
+    };
+
+    private static boolean initialized;
+
+    private SerializerFixtures() {
+    }
+
+    /**
+     * Set up what a server would normally provide. Can be called more than once.
+     */
+    static synchronized void setUpServer() {
+        if (initialized) {
+            return;
+        }
+
+        TestHelper.initMockLogger();
+
+        ItemFactory itemFactory = mock(ItemFactory.class);
+        given(itemFactory.isApplicable(any(ItemMeta.class), any(Material.class))).willReturn(true);
+        given(itemFactory.asMetaFor(any(ItemMeta.class), any(Material.class)))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        given(itemFactory.getItemMeta(any(Material.class))).willAnswer(invocation -> new BenchmarkItemMeta());
+        // Like the server's item factory, empty meta is equal to no meta
+        given(itemFactory.equals(any(), any())).willAnswer(invocation -> {
+            ItemMeta first = invocation.getArgument(0);
+            ItemMeta second = invocation.getArgument(1);
+            return Objects.equals(first == null ? new BenchmarkItemMeta() : first,
+                    second == null ? new BenchmarkItemMeta() : second);
+        });
+        Server server = mock(Server.class);
+        given(server.getItemFactory()).willReturn(itemFactory);
+        TestHelper.setField(Bukkit.class, "server", null, server);
+
+        ConfigurationSerialization.registerClass(BenchmarkItemMeta.class);
+        registerPotionEffectTypes();
+        initialized = true;
+    }
+
+    /**
+     * Create an injector with the serializers, configured like a server that stores data in the given format.
+     *
+     * @param dataFormat The data format to write, see {@link PlayerSerializer#serialize(PWIPlayerSnapshot)}
+     * @param itemCacheSize The number of items the {@link ItemSerializationCache} remembers; 0 to disable it
+     * @return The injector
+     */
+    static Injector createInjector(int dataFormat, int itemCacheSize) {
+        setUpServer();
+
+        Settings settings = mock(Settings.class);
+        given(settings.getProperty(any(Property.class))).willAnswer(invocation -> {
+            Property<?> property = invocation.getArgument(0);
+            if (property == PwiProperties.DATA_FORMAT) {
+                return dataFormat;
+            } else if (property == PwiProperties.ITEM_CACHE_SIZE) {
+                return itemCacheSize;
+            }
+            return property.getDefaultValue();
+        });
+
+        Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory.data").create();
+        injector.register(PerWorldInventory.class, mock(PerWorldInventory.class));
+        injector.register(Settings.class, settings);
+        injector.register(BukkitService.class, mock(BukkitService.class));
+        injector.register(PipelineTimings.class, mock(PipelineTimings.class));
+        return injector;
+    }
+
+    /**
+     * Create a snapshot of the fixture player in which every section is dirty, so that every
+     * serialization of it serializes all sections again.
+     *
+     * @param injector The injector to create the player with
+     * @return The snapshot
+     */
+    static PWIPlayerSnapshot snapshot(Injector injector) {
+        Group group = mockGroup("benchmark");
+        PWIPlayer player = injector.getSingleton(PWIPlayerFactory.class).create(player(), group);
+        return PWIPlayerSnapshot.of(player);
+    }
+
+    /**
+     * Serialize a snapshot like a server that stores data in the given format. Formats 0 and 1
+     * are not written anymore, so their data is made from the JSON of format 2: both store potion
+     * effects as a string, and format 0 stores items as the fields of the old TacoSerialization
+     * methods, without Base64. Items in format 0 have no enchantments, as reading them requires
+     * the enchantments that a server registers.
+     *
+     * @param injector The injector created for the data format
+     * @param snapshot The snapshot to serialize
+     * @param dataFormat The data format, from 0 to {@link PlayerSerializer#BINARY_FORMAT}
+     * @return The data, as it is stored
+     */
+    static byte[] serialize(Injector injector, PWIPlayerSnapshot snapshot, int dataFormat) {
+        PlayerSerializer serializer = injector.getSingleton(PlayerSerializer.class);
+        if (dataFormat >= 2) {
+            return serializer.serializeToBytes(snapshot);
+        }
+
+        JsonObject root = new JsonParser().parse(serializer.serialize(snapshot)).getAsJsonObject();
+        StringBuilder potionEffects = new StringBuilder();
+        for (PotionEffect effect : snapshot.getPotionEffects()) {
+            if (potionEffects.length() > 0) {
+                potionEffects.append(';');
+            }
+            potionEffects.append(effect.getType().getId()).append(':').append(effect.getDuration())
+                    .append(':').append(effect.getAmplifier());
+        }
+        root.getAsJsonObject("stats").addProperty("potion-effects", potionEffects.toString());
+
+        if (dataFormat == 1) {
+            root.addProperty("data-format", 1);
+        } else {
+            // Format 0 has no format number
+            root.remove("data-format");
+            toLegacyItems(root.getAsJsonArray("ender-chest"), snapshot.getEnderChest());
+            toLegacyItems(root.getAsJsonObject("inventory").getAsJsonArray("inventory"), snapshot.getInventory());
+            toLegacyItems(root.getAsJsonObject("inventory").getAsJsonArray("armor"), snapshot.getArmor());
+        }
+        return root.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replace the Base64 items of a serialized inventory with items as format 0 stores them.
+     *
+     * @param inventory The serialized inventory
+     * @param contents The items of the inventory
+     */
+    @SuppressWarnings("deprecation")
+    private static void toLegacyItems(JsonArray inventory, ItemStack[] contents) {
+        for (JsonElement element : inventory) {
+            JsonObject item = element.getAsJsonObject();
+            ItemStack itemStack = contents[item.get("index").getAsInt()];
+            item.remove("item");
+            item.addProperty("id", itemStack.getTypeId());
+            item.addProperty("amount", itemStack.getAmount());
+            item.addProperty("data", itemStack.getDurability());
+
+            ItemMeta meta = itemStack.getItemMeta();
+            if (meta.hasDisplayName()) {
+                item.addProperty("name", meta.getDisplayName());
+            }
+            if (meta.hasLore()) {
+                JsonArray lore = new JsonArray();
+                meta.getLore().forEach(line -> lore.add(new JsonPrimitive(line)));
+                item.add("lore", lore);
+            }
+            JsonArray flags = new JsonArray();
+            meta.getItemFlags().forEach(flag -> flags.add(new JsonPrimitive(flag.name())));
+            item.add("flags", flags);
+        }
+    }
+
+    /**
+     * Create a mock player with the fixture inventories and stats.
+     *
+     * @return The player
+     */
+    static Player player() {
+        PlayerInventory inventory = mock(PlayerInventory.class);
+        ItemStack[] contents = inventory(INVENTORY_SIZE);
+        given(inventory.getContents()).willReturn(contents);
+        given(inventory.getArmorContents()).willReturn(Arrays.copyOfRange(contents, 36, 40));
+        given(inventory.getSize()).willReturn(INVENTORY_SIZE);
+
+        Inventory enderChest = mock(Inventory.class);
+        given(enderChest.getContents()).willReturn(inventory(ENDER_CHEST_SIZE));
+        given(enderChest.getSize()).willReturn(ENDER_CHEST_SIZE);
+
+        Player player = mock(Player.class);
+        given(player.getName()).willReturn("Benchmark");
+        given(player.getUniqueId()).willReturn(UUID.randomUUID());
+        given(player.getDisplayName()).willReturn("§6[§eVIP§6] §fBenchmark");
+        given(player.getInventory()).willReturn(inventory);
+        given(player.getEnderChest()).willReturn(enderChest);
+        given(player.getGameMode()).willReturn(GameMode.SURVIVAL);
+        given(player.getMaxHealth()).willReturn(20.0);
+        given(player.getHealth()).willReturn(17.5);
+        given(player.getFoodLevel()).willReturn(18);
+        given(player.getSaturation()).willReturn(4.5f);
+        given(player.getExhaustion()).willReturn(1.2f);
+        given(player.getLevel()).willReturn(30);
+        given(player.getExp()).willReturn(0.42f);
+        given(player.getMaximumAir()).willReturn(300);
+        given(player.getRemainingAir()).willReturn(300);
+        given(player.getActivePotionEffects()).willReturn(potionEffects());
+        return player;
+    }
+
+    /**
+     * Create a full inventory. Every ninth slot holds a shulker box with a full inventory of its own.
+     *
+     * @param size The number of slots
+     * @return The items
+     */
+    static ItemStack[] inventory(int size) {
+        ItemStack[] items = new ItemStack[size];
+        for (int i = 0; i < size; i++) {
+            items[i] = i % 9 == 8 ? shulkerBox(i) : item(i);
+        }
+        return items;
+    }
+
+    /**
+     * Create an item with a display name, several lines of lore, enchantments and flags.
+     *
+     * @param seed Changes the type and meta of the item, so not all items are the same
+     * @return The item
+     */
+    static ItemStack item(int seed) {
+        ItemStack item = new ItemStack(MATERIALS[seed % MATERIALS.length], 1 + seed % 64, (short) (seed % 7));
+        BenchmarkItemMeta meta = new BenchmarkItemMeta();
+        meta.setDisplayName("§b§lLegendary Item §7#" + seed);
+
+        List<String> lore = new ArrayList<>();
+        for (int line = 0; line < 6; line++) {
+            lore.add("§7A line of lore that is about as long as the ones on custom items, number " + line);
+        }
+        meta.setLore(lore);
+
+        for (int i = 0; i < 1 + seed % ENCHANTMENTS.length; i++) {
+            meta.addEnchant(ENCHANTMENTS[i], 1 + (seed + i) % 5, true);
+        }
+        meta.addItemFlags(ItemFlag.HIDE_ATTRIBUTES, ItemFlag.HIDE_UNBREAKABLE);
+        meta.setUnbreakable(seed % 2 == 0);
+
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    /**
+     * Create an item that holds 27 other items, like a shulker box.
+     *
+     * @param seed Changes the stored items
+     * @return The item
+     */
+    static ItemStack shulkerBox(int seed) {
+        ItemStack item = new ItemStack(Material.PURPLE_SHULKER_BOX);
+        BenchmarkItemMeta meta = new BenchmarkItemMeta();
+        meta.setDisplayName("§dBackpack §7#" + seed);
+
+        List<ItemStack> contents = new ArrayList<>();
+        for (int i = 0; i < 27; i++) {
+            contents.add(item(seed * 27 + i));
+        }
+        meta.setContents(contents);
+
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    /**
+     * Create potion effects of different types.
+     *
+     * @return The potion effects
+     */
+    static Collection<PotionEffect> potionEffects() {
+        List<PotionEffect> effects = new ArrayList<>();
+        for (int id = 1; effects.size() < POTION_EFFECTS; id++) {
+            PotionEffectType type = PotionEffectType.getById(id);
+            if (type != null && !type.isInstant()) {
+                effects.add(new PotionEffect(type, 20 * 60 * id, id % 3, id % 2 == 0, id % 2 == 1, Color.fromRGB(id * 1000)));
+            }
+        }
+        return effects;
+    }
+
+    /**
+     * Register a potion effect type for every constant in {@link PotionEffectType}, as the server would.
+     */
+    private static void registerPotionEffectTypes() {
+        for (Field field : PotionEffectType.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == PotionEffectType.class) {
+                try {
+                    PotionEffectType constant = (PotionEffectType) field.get(null);
+                    if (PotionEffectType.getById(constant.getId()) == null) {
+                        PotionEffectType.registerPotionEffectType(new FixturePotionEffectType(constant.getId(), field.getName()));
+                    }
+                } catch (IllegalAccessException ex) {
+                    throw new IllegalStateException("Could not register potion effect type " + field.getName(), ex);
+                }
+            }
+        }
+    }
+
+    private static final class FixturePotionEffectType extends PotionEffectType {
+
+        private final String name;
+
+        FixturePotionEffectType(int id, String name) {
+            super(id);
+            this.name = name;
+        }
+
+        @Override
+        public double getDurationModifier() {
+            return 1.0;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isInstant() {
+            return "HEAL".equals(name) || "HARM".equals(name) || "SATURATION".equals(name);
+        }
+
+        // Not abstract in every version of the API, so no @Override
+        public Color getColor() {
+            return Color.WHITE;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import ch.jalu.injector.Injector;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import org.bukkit.potion.PotionEffect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing and deserializing the stats of a player with {@link StatSerializer}, and their
+ * potion effects with {@link PotionEffectSerializer}. In JSON, the potion effects are part of the stats.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatSerializerBenchmark {
+
+    private StatSerializer statSerializer;
+    private PWIPlayerSnapshot snapshot;
+    private Collection<PotionEffect> potionEffects;
+
+    private byte[] statBytes;
+    private byte[] potionEffectBytes;
+    private String statJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        Injector injector = SerializerFixtures.createInjector(PlayerSerializer.BINARY_FORMAT, 0);
+        statSerializer = injector.getSingleton(StatSerializer.class);
+        snapshot = SerializerFixtures.snapshot(injector);
+        potionEffects = snapshot.getPotionEffects();
+
+        statBytes = writeStats();
+        potionEffectBytes = writePotionEffects();
+        statJson = serializeStatsJson();
+    }
+
+    @Benchmark
+    public byte[] writeStats() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        StatSerializer.write(new DataOutputStream(out), snapshot);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public PlayerSnapshot readStats() throws IOException {
+        PlayerSnapshot.Builder builder = PlayerSnapshot.builder();
+        StatSerializer.read(new DataInputStream(new ByteArrayInputStream(statBytes)), builder);
+        return builder.build();
+    }
+
+    @Benchmark
+    public byte[] writePotionEffects() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        PotionEffectSerializer.write(new DataOutputStream(out), potionEffects);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public Collection<PotionEffect> readPotionEffects() throws IOException {
+        return PotionEffectSerializer.read(new DataInputStream(new ByteArrayInputStream(potionEffectBytes)));
+    }
+
+    @Benchmark
+    public String serializeStatsJson() {
+        return new Gson().toJson(StatSerializer.serialize(snapshot));
+    }
+
+    @Benchmark
+    public PlayerSnapshot readStatsJson() throws IOException {
+        PlayerSnapshot.Builder builder = PlayerSnapshot.builder();
+        try (JsonReader reader = new JsonReader(new StringReader(statJson))) {
+            statSerializer.read(reader, builder);
+        }
+        return builder.build();
+    }
+}
@@ -2,10 +2,12 @@ package me.gnat008.perworldinventory;
 
 import me.gnat008.perworldinventory.util.Utils;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.bukkit.event.Event;
 import org.bukkit.scheduler.BukkitTask;
 
 import javax.inject.Inject;
+import java.util.Collection;
 
 /**
  * Service for scheduling things with the Bukkit API.
@@ -58,6 +60,19 @@ public class BukkitService {
         return Bukkit.getScheduler().runTaskTimer(plugin, task, delay, period);
     }
 
+    /**
+     * Schedules the given task to repeatedly run asynchronously until cancelled, starting
+     * after the specified number of server ticks.
+     *
+     * @param task The task to run.
+     * @param delay The number of ticks before the task is run for the first time.
+     * @param period The number of ticks between each time the task is run.
+     * @return A BukkitTask with the ID number.
+     */
+    public BukkitTask runRepeatingTaskAsync(Runnable task, long delay, long period) {
+        return Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task, delay, period);
+    }
+
     /**
      * Runs a task on the next server tick, either asynchronously or synchronously.
      *
@@ -100,4 +115,13 @@ public class BukkitService {
     public void callEvent(Event event) {
         Bukkit.getPluginManager().callEvent(event);
     }
+
+    /**
+     * Get all players that are currently online.
+     *
+     * @return The online players.
+     */
+    public Collection<? extends Player> getOnlinePlayers() {
+        return Bukkit.getOnlinePlayers();
+    }
 }
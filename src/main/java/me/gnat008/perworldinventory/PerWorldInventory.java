@@ -218,6 +218,7 @@ public class PerWorldInventory extends JavaPlugin {
         // The PlayerSpawnLocationEvent is only fired in Spigot
         // As of version 1.9.2
         if (Bukkit.getVersion().contains("Spigot") && Utils.checkServerVersion(Bukkit.getVersion(), 1, 9, 2)) {
+            pluginManager.registerEvents(injector.getSingleton(PlayerPreLoginListener.class), this);
             pluginManager.registerEvents(injector.getSingleton(PlayerSpawnLocationListener.class), this);
         }
         getLogger().info("Listeners registered!");
@@ -229,6 +230,7 @@ public class PerWorldInventory extends JavaPlugin {
         commands.put("help", injector.getSingleton(HelpCommand.class));
         commands.put("reload", injector.getSingleton(ReloadCommand.class));
         commands.put("setworlddefault", injector.getSingleton(SetWorldDefaultCommand.class));
+        commands.put("stats", injector.getSingleton(StatsCommand.class));
         commands.put("version", injector.getSingleton(VersionCommand.class));
         getLogger().info("Commands registered!");
     }
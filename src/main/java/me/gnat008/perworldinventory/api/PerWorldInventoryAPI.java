@@ -8,6 +8,7 @@ import me.gnat008.perworldinventory.data.players.PWIPlayerManager;
 import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.groups.GroupManager;
 import me.gnat008.perworldinventory.permission.PermissionManager;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
 
@@ -28,6 +29,8 @@ public class PerWorldInventoryAPI {
     private PWIPlayerManager playerManager;
     @Inject
     private Settings settings;
+    @Inject
+    private PipelineTimings timings;
 
     /**
      * Constructor
@@ -110,4 +113,14 @@ public class PerWorldInventoryAPI {
     public PWIPlayer getCachedPlayer(Group group, Player player) {
         return playerManager.getPlayer(group, player);
     }
+
+    /**
+     * Get the timings of loading player data, which are shown by {@code /pwi stats}. Timings are
+     * only recorded while they are enabled, either in the config.yml or with the command.
+     *
+     * @return The timings of each stage of loading data, for each cause.
+     */
+    public PipelineTimings getTimings() {
+        return timings;
+    }
 }
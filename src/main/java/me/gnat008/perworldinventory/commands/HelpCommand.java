@@ -21,6 +21,7 @@ public class HelpCommand implements ExecutableCommand {
             sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.WHITE + "/perworldinventory convert multiverse" + ChatColor.BLUE + " - " + ChatColor.GRAY + "Convert data from Multiverse-Inventories");
             sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.WHITE + "/perworldinventory help" + ChatColor.BLUE + " - " + ChatColor.GRAY + "Shows this help page");
             sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.WHITE + "/perworldinventory reload" + ChatColor.BLUE + " - " + ChatColor.GRAY + "Reloads all configuration files");
+            sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.WHITE + "/perworldinventory stats [on|off|reset]" + ChatColor.BLUE + " - " + ChatColor.GRAY + "Shows how long loading player data takes");
             sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.WHITE + "/perworldinventory version" + ChatColor.BLUE + " - " + ChatColor.GRAY + "Shows the version and authors of the server");
             sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.WHITE + "/perworldinventory setworlddefault [group|serverDefault]" + ChatColor.BLUE + " - " + ChatColor.GRAY + "Set the default inventory loadout for a world, or the server default." + '\n' + ChatColor.YELLOW + "The group you are standing in will be used if no group is specified.");
             sender.sendMessage(ChatColor.DARK_GRAY + "" + ChatColor.STRIKETHROUGH + "-----------------------------------------------------");
@@ -32,6 +33,7 @@ public class HelpCommand implements ExecutableCommand {
             sender.sendMessage("/perworldinventory help - Displays this help");
             sender.sendMessage("/perworldinventory version - Shows the version of the server");
             sender.sendMessage("/perworldinventory reload - Reload config and world files");
+            sender.sendMessage("/perworldinventory stats [on|off|reset] - Show timings of loading player data");
             sender.sendMessage("-----------------------------------------------------");
         }
     }
@@ -2,9 +2,10 @@ package me.gnat008.perworldinventory.commands;
 
 import me.gnat008.perworldinventory.PerWorldInventory;
 import me.gnat008.perworldinventory.config.Settings;
-import me.gnat008.perworldinventory.groups.GroupManager;
+import me.gnat008.perworldinventory.groups.GroupDiff;
 import me.gnat008.perworldinventory.permission.AdminPermission;
 import me.gnat008.perworldinventory.permission.PermissionNode;
+import me.gnat008.perworldinventory.process.GroupReloadProcess;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 
@@ -16,7 +17,7 @@ public class ReloadCommand implements ExecutableCommand {
     @Inject
     private PerWorldInventory plugin;
     @Inject
-    private GroupManager groupManager;
+    private GroupReloadProcess groupReloadProcess;
     @Inject
     private Settings settings;
 
@@ -25,9 +26,19 @@ public class ReloadCommand implements ExecutableCommand {
     public void executeCommand(CommandSender sender, List<String> args) {
         settings.reload();
         plugin.reload();
-        groupManager.loadGroupsToMemory(plugin.getWorldsConfig());
+        GroupReloadProcess.Result result = groupReloadProcess.reloadGroups(plugin.getWorldsConfig());
 
         sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Configuration files reloaded!");
+
+        GroupDiff diff = result.getDiff();
+        if (!diff.isEmpty()) {
+            sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Groups added: " + ChatColor.WHITE + diff.getAdded()
+                    + ChatColor.GRAY + ", removed: " + ChatColor.WHITE + diff.getRemoved()
+                    + ChatColor.GRAY + ", changed: " + ChatColor.WHITE + diff.getChanged());
+            sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Worlds moved: " + ChatColor.WHITE + diff.getMovedWorlds().size()
+                    + ChatColor.GRAY + ", players moved: " + ChatColor.WHITE + result.getMovedPlayers()
+                    + ChatColor.GRAY + ", cached profiles saved: " + ChatColor.WHITE + result.getFlushedProfiles());
+        }
     }
 
     @Override
@@ -0,0 +1,103 @@
+package me.gnat008.perworldinventory.commands;
+
+import me.gnat008.perworldinventory.data.SaveQueue;
+import me.gnat008.perworldinventory.data.players.PWIPlayerManager;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.permission.AdminPermission;
+import me.gnat008.perworldinventory.permission.PermissionNode;
+import me.gnat008.perworldinventory.timings.LatencyHistogram;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import javax.inject.Inject;
+import java.util.List;
+
+public class StatsCommand implements ExecutableCommand {
+
+    @Inject
+    private PipelineTimings timings;
+    @Inject
+    private PWIPlayerManager playerManager;
+    @Inject
+    private SaveQueue saveQueue;
+
+
+    @Override
+    public void executeCommand(CommandSender sender, List<String> args) {
+        if (!args.isEmpty()) {
+            switch (args.get(0).toLowerCase()) {
+                case "on":
+                    timings.setEnabled(true);
+                    sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Timings enabled!");
+                    return;
+                case "off":
+                    timings.setEnabled(false);
+                    sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Timings disabled!");
+                    return;
+                case "reset":
+                    timings.reset();
+                    sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Timings reset!");
+                    return;
+                default:
+                    sender.sendMessage(ChatColor.DARK_RED + "» " + ChatColor.GRAY + "Usage: /pwi stats [on|off|reset]");
+                    return;
+            }
+        }
+
+        sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Timings are " + ChatColor.WHITE
+                + (timings.isEnabled() ? "enabled" : "disabled") + ChatColor.GRAY + " (p50 / p95 / p99 / max in ms)");
+
+        boolean recorded = false;
+        for (Stage stage : Stage.values()) {
+            recorded |= sendTimings(sender, stage, null);
+            for (DeserializeCause cause : DeserializeCause.values()) {
+                recorded |= sendTimings(sender, stage, cause);
+            }
+        }
+        if (!recorded) {
+            sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Nothing was timed yet.");
+        }
+
+        long uncompressed = timings.getUncompressedBytes();
+        if (uncompressed > 0) {
+            long compressed = timings.getCompressedBytes();
+            sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Compression: " + ChatColor.WHITE
+                    + toKibibytes(uncompressed) + " KiB to " + toKibibytes(compressed) + " KiB ("
+                    + (compressed * 100 / uncompressed) + "%)");
+        }
+
+        sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Player cache: " + ChatColor.WHITE + playerManager.describeCache());
+        sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + "Save queue: " + ChatColor.WHITE
+                + saveQueue.getDepth() + " waiting, " + saveQueue.getCoalescedCount() + " coalesced, drain latency "
+                + saveQueue.getLastDrainLatency() + " ms last / " + String.format("%.1f", saveQueue.getAverageDrainLatency()) + " ms average");
+    }
+
+    private boolean sendTimings(CommandSender sender, Stage stage, DeserializeCause cause) {
+        LatencyHistogram histogram = timings.getHistogram(stage, cause);
+        if (histogram == null || histogram.getCount() == 0) {
+            return false;
+        }
+
+        String name = cause == null ? stage.getDisplayName() : stage.getDisplayName() + " (" + cause.name().toLowerCase() + ")";
+        sender.sendMessage(ChatColor.BLUE + "» " + ChatColor.GRAY + name + ": " + ChatColor.WHITE
+                + histogram.getCount() + "x " + toMillis(histogram.getPercentile(50)) + " / "
+                + toMillis(histogram.getPercentile(95)) + " / " + toMillis(histogram.getPercentile(99)) + " / "
+                + toMillis(histogram.getMax()));
+        return true;
+    }
+
+    private static String toMillis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+
+    private static String toKibibytes(long bytes) {
+        return String.format("%.1f", bytes / 1024.0);
+    }
+
+    @Override
+    public PermissionNode getRequiredPermission() {
+        return AdminPermission.STATS;
+    }
+}
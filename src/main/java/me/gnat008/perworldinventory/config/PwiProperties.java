@@ -145,6 +145,144 @@ public final class PwiProperties implements SettingsHolder {
     public static final Property<Boolean> DISABLE_BYPASS =
             newProperty("disable-bypass", false);
 
+    @Comment({
+        "How player data is stored. Possible values:",
+        "FLATFILE: one file per player, group and gamemode",
+        "LOGSTORE: a single append-only file for all players, compacted in the background",
+        "SQL: a MySQL, MariaDB, SQLite or H2 database, configured below",
+        "BUNDLE: one file per player holding all of their groups and gamemodes",
+        "Existing data is not converted when this is changed. After switching from FLATFILE, data",
+        "that was not saved to the new data source yet is still read from the player files, so keep them",
+        "Data saved with LOGSTORE, SQL or BUNDLE is not read by any other type"})
+    public static final Property<String> DATA_SOURCE_TYPE =
+            newProperty("data-source.type", "FLATFILE");
+
+    @Comment({
+        "Format player data is saved in. Data in any format can always be loaded",
+        "2: JSON, readable but large",
+        "3: compact binary, smaller and faster to save and load",
+        "Only use 3 if you will not go back to an older version of PerWorldInventory, which cannot load it"})
+    public static final Property<Integer> DATA_FORMAT =
+            newProperty("data-source.data-format", 2);
+
+    @Comment({
+        "How safely player data files are written. Possible values:",
+        "NONE: overwrite files in place; a crash during a save can corrupt the file",
+        "FLUSH: write to a temporary file first and swap it in; survives the server crashing",
+        "FSYNC: like FLUSH, but wait for the data to reach the disk; also survives power loss"})
+    public static final Property<String> WRITE_DURABILITY =
+            newProperty("data-source.write-durability", "FLUSH");
+
+    @Comment({
+        "How many serialized items to keep in memory, so unchanged items don't have to be serialized again",
+        "Set to 0 to disable"})
+    public static final Property<Integer> ITEM_CACHE_SIZE =
+            newProperty("data-source.item-cache-size", 2048);
+
+    @Comment({
+        "How the folders of the players are laid out in the data folder. Possible values:",
+        "FLAT: data/<uuid>/, all player folders in the data folder",
+        "SHARDED: data/ab/cd/<uuid>/, spread over subfolders by the start of the UUID; faster with many players",
+        "When this is changed, the player folders are moved to the new layout in the background",
+        "Only used by FLATFILE"})
+    public static final Property<String> FLATFILE_LAYOUT =
+            newProperty("data-source.flatfile.layout", "FLAT");
+
+    @Comment({
+        "How player data files are compressed. Possible values:",
+        "NONE: not compressed",
+        "GZIP: compressed, usually to a fraction of the size, at some CPU cost for every save and load",
+        "Files are read whether they are compressed or not, so this can be changed at any time",
+        "Only used by FLATFILE"})
+    public static final Property<String> FLATFILE_COMPRESSION =
+            newProperty("data-source.flatfile.compression", "NONE");
+
+    @Comment({
+        "How hard GZIP compresses, from 1 (fastest) to 9 (smallest)",
+        "Only used by FLATFILE"})
+    public static final Property<Integer> FLATFILE_COMPRESSION_LEVEL =
+            newProperty("data-source.flatfile.compression-level", 6);
+
+    @Comment({
+        "Percentage of the log file taken up by outdated records before it is compacted",
+        "Only used by LOGSTORE"})
+    public static final Property<Integer> LOG_COMPACTION_THRESHOLD =
+            newProperty("data-source.log.compaction-threshold", 50);
+
+    @Comment({
+        "How often to check if the log file needs compacting, in seconds",
+        "Only used by LOGSTORE"})
+    public static final Property<Integer> LOG_COMPACTION_INTERVAL =
+            newProperty("data-source.log.compaction-interval", 600);
+
+    @Comment({
+        "Maximum number of player files to keep open",
+        "Only used by BUNDLE"})
+    public static final Property<Integer> BUNDLE_OPEN_FILES =
+            newProperty("data-source.bundle.open-files", 256);
+
+    @Comment({
+        "JDBC URL of the database, e.g. jdbc:mysql://localhost:3306/minecraft",
+        "{data-folder} is replaced with the plugin's folder",
+        "Only used by SQL"})
+    public static final Property<String> SQL_URL =
+            newProperty("data-source.sql.url", "jdbc:sqlite:{data-folder}/data/players.db");
+
+    @Comment("User to connect to the database as. Leave empty for SQLite and H2")
+    public static final Property<String> SQL_USERNAME =
+            newProperty("data-source.sql.username", "");
+
+    @Comment("Password of the database user")
+    public static final Property<String> SQL_PASSWORD =
+            newProperty("data-source.sql.password", "");
+
+    @Comment("Prefix for the names of the tables PWI creates")
+    public static final Property<String> SQL_TABLE_PREFIX =
+            newProperty("data-source.sql.table-prefix", "pwi_");
+
+    @Comment("Maximum number of connections to keep open to the database")
+    public static final Property<Integer> SQL_POOL_SIZE =
+            newProperty("data-source.sql.pool-size", 4);
+
+    @Comment({
+        "Number of threads writing player data in the background",
+        "Saves of the same player, group and gamemode that are still waiting are merged"})
+    public static final Property<Integer> SAVE_QUEUE_THREADS =
+            newProperty("save-queue.threads", 2);
+
+    @Comment({
+        "Maximum number of saves a thread takes from the queue at once",
+        "With SQL, they are written to the database in one transaction"})
+    public static final Property<Integer> SAVE_QUEUE_BATCH_SIZE =
+            newProperty("save-queue.batch-size", 20);
+
+    @Comment({"Number of threads writing the data of all players when the server stops",
+            "The server waits until the data is written, so more threads make it stop sooner"})
+    public static final Property<Integer> SHUTDOWN_SAVE_THREADS =
+            newProperty("save-queue.shutdown-threads", 4);
+
+    @Comment({"Maximum number of seconds to wait for the data of all players to be written when the server stops",
+            "Saves still in the queue are given the same time to be written first"})
+    public static final Property<Integer> SHUTDOWN_SAVE_TIMEOUT =
+            newProperty("save-queue.shutdown-timeout", 60);
+
+    @Comment({"Approximate memory the cached data of players may use, in KB",
+            "Data that was not used for the longest time is saved and removed from the cache first",
+            "Set to 0 for no limit"})
+    public static final Property<Integer> PLAYER_CACHE_MAX_SIZE =
+            newProperty("player-cache.max-size", 32768);
+
+    @Comment({"Maximum number of cached players checked for unsaved changes per tick",
+            "The checks are spread across the save interval, this only limits them if there are many players",
+            "Set to 0 for no limit"})
+    public static final Property<Integer> PLAYER_CACHE_FLUSH_BUDGET =
+            newProperty("player-cache.flush-budget", 20);
+
+    @Comment({"Time how long each stage of loading player data takes, see /pwi stats",
+            "Can also be turned on and off with /pwi stats on and /pwi stats off"})
+    public static final Property<Boolean> ENABLE_TIMINGS =
+            newProperty("timings.enabled", false);
+
     private PwiProperties() {
     }
 
@@ -153,6 +291,10 @@ public final class PwiProperties implements SettingsHolder {
         Map<String, String[]> comments = new HashMap<>();
         comments.put("player", new String[]{"All settings for players are here:"});
         comments.put("player.stats", new String[]{"All options for player stats are here:"});
+        comments.put("data-source", new String[]{"Options for storing player data:"});
+        comments.put("save-queue", new String[]{"Options for saving player data in the background:"});
+        comments.put("player-cache", new String[]{"Options for keeping player data in memory:"});
+        comments.put("timings", new String[]{"Options for measuring the performance of the plugin:"});
         return comments;
     }
 }
@@ -0,0 +1,134 @@
+package me.gnat008.perworldinventory.data;
+
+import com.google.gson.JsonParser;
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.data.serializers.LocationSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSnapshot;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Loading shared by the data sources that store the data of a profile, and the logout location,
+ * as bytes under a key: the data is read and decoded in an async task, and only applied on the
+ * main thread. Players without data for a group get the defaults of the {@link FlatFile}, which
+ * also keeps the defaults of the other data sources.
+ * <p>
+ * Data is not migrated when the server switches from flatfile to another data source. Instead,
+ * a profile or logout location that the data source has nothing stored for is read from the
+ * flatfile folders, and it is written to the data source the next time it is saved.
+ */
+abstract class AbstractDataSource implements DataSource {
+
+    protected final BukkitService bukkitService;
+    protected final FlatFile flatFile;
+    protected final PlayerSerializer playerSerializer;
+    protected final PipelineTimings timings;
+
+    AbstractDataSource(BukkitService bukkitService, FlatFile flatFile, PlayerSerializer playerSerializer,
+                       PipelineTimings timings) {
+        this.bukkitService = bukkitService;
+        this.flatFile = flatFile;
+        this.playerSerializer = playerSerializer;
+        this.timings = timings;
+    }
+
+    @Override
+    public void getFromDatabase(Group group, GameMode gamemode, Player player, DeserializeCause cause) {
+        ConsoleLogger.debug("Getting data for player '" + player.getName() + "' for profile '"
+                + FlatFile.getProfileName(gamemode, group) + "'");
+
+        bukkitService.runTaskAsync(() -> {
+            long start = timings.start();
+            PlayerSnapshot snapshot;
+            try {
+                snapshot = readSnapshot(group, gamemode, player);
+                timings.record(Stage.READ, cause, start);
+            } catch (IOException | RuntimeException ex) {
+                ConsoleLogger.severe("Unable to read data for '" + player.getName() + "' for group '" + group.getName() +
+                        "' in gamemode '" + gamemode.toString() + "' for reason:", ex);
+                return;
+            }
+
+            if (snapshot == null) {
+                ConsoleLogger.debug("No data for player '" + player.getName() + "' for group '" + group.getName() + "'. Getting data from default sources");
+                flatFile.getFromDefaults(group, player, cause);
+                return;
+            }
+
+            bukkitService.runTask(() -> playerSerializer.apply(snapshot, player, cause));
+        });
+    }
+
+    @Override
+    public PlayerSnapshot readSnapshot(Group group, GameMode gamemode, Player player) throws IOException {
+        byte[] data = readProfile(player.getUniqueId(), FlatFile.getProfileName(gamemode, group));
+        if (data == null) {
+            // Not saved since the server switched from flatfile, if it did
+            return flatFile.readStoredSnapshot(group, gamemode, player);
+        }
+
+        // Decode here, so the main thread only has to apply the result
+        return playerSerializer.decode(data, player);
+    }
+
+    @Override
+    public Location getLogoutData(Player player) {
+        try {
+            byte[] data = readLogout(player.getUniqueId());
+            if (data == null) {
+                // Player probably logged in for the first time, or was last saved to flatfile
+                return flatFile.getLogoutData(player);
+            }
+
+            String json = new String(data, StandardCharsets.UTF_8);
+            return LocationSerializer.deserialize(new JsonParser().parse(json).getAsJsonObject());
+        } catch (IOException ex) {
+            ConsoleLogger.warning("Unable to get logout location data for '" + player.getName() + "':", ex);
+            return null;
+        }
+    }
+
+    @Override
+    public String getLogoutWorld(UUID uuid) throws IOException {
+        byte[] data = readLogout(uuid);
+        return data == null
+                ? flatFile.getLogoutWorld(uuid)
+                : new JsonParser().parse(new String(data, StandardCharsets.UTF_8)).getAsJsonObject().get("world").getAsString();
+    }
+
+    @Override
+    public void setGroupDefault(Player player, Group group) {
+        // Defaults are shared files, independent of where player data is stored
+        flatFile.setGroupDefault(player, group);
+    }
+
+    /**
+     * Read the newest stored data of a profile of a player.
+     *
+     * @param uuid The UUID of the player.
+     * @param profile The name of the profile, see {@link FlatFile#getProfileName(GameMode, Group)}.
+     * @return The data, or null if nothing is stored for the profile.
+     * @throws IOException If the data could not be read.
+     */
+    protected abstract byte[] readProfile(UUID uuid, String profile) throws IOException;
+
+    /**
+     * Read the newest stored logout location of a player, as JSON.
+     *
+     * @param uuid The UUID of the player.
+     * @return The data, or null if no logout location is stored.
+     * @throws IOException If the data could not be read.
+     */
+    protected abstract byte[] readLogout(UUID uuid) throws IOException;
+}
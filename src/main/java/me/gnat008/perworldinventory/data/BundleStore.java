@@ -0,0 +1,223 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.DataFolder;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.data.serializers.LocationSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSerializer;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.util.WriteDurability;
+import org.bukkit.GameMode;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+/**
+ * Data source which keeps all profiles of a player in a single bundle file, <i>data/bundles/&lt;uuid&gt;.bundle</i>.
+ * <p>
+ * Saves update the profile's segment of the bundle in place, so a player with many groups and
+ * gamemodes has one file instead of one per profile, and exporting or deleting a player's data
+ * is a single file operation. See {@link PlayerBundle} for the layout of the file.
+ * <p>
+ * The bundles of recently used players are kept open, up to the configured number of files.
+ * There is never more than one {@link PlayerBundle} for a file: a bundle is only closed and
+ * dropped once no operation is using it.
+ */
+public class BundleStore extends AbstractDataSource {
+
+    private static final String EXTENSION = ".bundle";
+    private static final String LOGOUT_PROFILE = "last-logout";
+
+    private final File FILE_PATH;
+
+    private final boolean fsync;
+    private final int maxOpen;
+
+    /** Bundles in use or kept open, least recently used first. Guarded by itself, as is {@code closed}. */
+    private final LinkedHashMap<UUID, CachedBundle> bundles = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    @Inject
+    BundleStore(@DataFolder File dataFolder, BukkitService bukkitService, FlatFile flatFile,
+                PlayerSerializer playerSerializer, PipelineTimings timings, Settings settings) {
+        super(bukkitService, flatFile, playerSerializer, timings);
+        this.FILE_PATH = new File(dataFolder, "data/bundles");
+        this.maxOpen = Math.max(1, settings.getProperty(PwiProperties.BUNDLE_OPEN_FILES));
+        this.fsync = WriteDurability.fromSetting(settings.getProperty(PwiProperties.WRITE_DURABILITY)) == WriteDurability.FSYNC;
+    }
+
+    @Override
+    public void saveLogoutData(PWIPlayer player, boolean createTask) {
+        UUID uuid = player.getUuid();
+        byte[] data = LocationSerializer.serialize(player.getLocation()).getBytes(StandardCharsets.UTF_8);
+
+        if (createTask) {
+            bukkitService.runTaskAsync(() -> writeProfile(uuid, LOGOUT_PROFILE, data));
+        } else {
+            writeProfile(uuid, LOGOUT_PROFILE, data);
+        }
+    }
+
+    @Override
+    public void saveToDatabase(Group group, GameMode gamemode, PWIPlayerSnapshot player) {
+        String key = FlatFile.getProfileName(gamemode, group);
+        ConsoleLogger.debug("Writing data for player '" + player.getName() + "' to profile '" + key + "' of their bundle");
+
+        writeProfile(player.getUuid(), key, playerSerializer.serializeToBytes(player));
+    }
+
+    @Override
+    protected byte[] readLogout(UUID uuid) throws IOException {
+        return readProfile(uuid, LOGOUT_PROFILE);
+    }
+
+    /**
+     * Close all bundles. Operations that are still using a bundle fail to read or write, and
+     * the bundle store can not be used anymore afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (bundles) {
+            closed = true;
+            bundles.values().forEach(cached -> cached.bundle.closeChannel());
+            bundles.clear();
+        }
+    }
+
+    /**
+     * Get the file holding all data of a player, e.g. to export it. The file may not exist
+     * if the player has no data.
+     *
+     * @param uuid The UUID of the player.
+     * @return The bundle file of the player.
+     */
+    public File getBundleFile(UUID uuid) {
+        return new File(FILE_PATH, uuid + EXTENSION);
+    }
+
+    /**
+     * Delete all data of a player.
+     *
+     * @param uuid The UUID of the player.
+     * @return True if the player had data.
+     */
+    public boolean deletePlayer(UUID uuid) {
+        PlayerBundle bundle = acquire(uuid);
+        try {
+            return bundle.delete();
+        } catch (IOException ex) {
+            ConsoleLogger.severe("Could not delete bundle '" + bundle.getFile().getPath() + "':", ex);
+            return false;
+        } finally {
+            release(uuid);
+        }
+    }
+
+    /**
+     * Get the number of bundles whose file is currently open.
+     *
+     * @return The number of open bundles.
+     */
+    public int getOpenBundleCount() {
+        synchronized (bundles) {
+            return (int) bundles.values().stream().filter(cached -> cached.bundle.isOpen()).count();
+        }
+    }
+
+    /**
+     * Get the number of bundles that are kept, whether their file is open or not.
+     *
+     * @return The number of bundles kept in memory.
+     */
+    int getCachedBundleCount() {
+        synchronized (bundles) {
+            return bundles.size();
+        }
+    }
+
+    private void writeProfile(UUID uuid, String key, byte[] data) {
+        PlayerBundle bundle = acquire(uuid);
+        try {
+            bundle.write(key, data, fsync);
+        } catch (IOException ex) {
+            ConsoleLogger.severe("Could not write profile '" + key + "' to bundle '" + bundle.getFile().getPath() + "':", ex);
+        } finally {
+            release(uuid);
+        }
+    }
+
+    @Override
+    protected byte[] readProfile(UUID uuid, String key) throws IOException {
+        PlayerBundle bundle = acquire(uuid);
+        try {
+            return bundle.read(key);
+        } finally {
+            release(uuid);
+        }
+    }
+
+    /**
+     * Get the bundle of a player and mark it as in use, so that it is not closed until
+     * {@link #release(UUID)} is called.
+     *
+     * @throws IllegalStateException If the bundle store was closed.
+     */
+    private PlayerBundle acquire(UUID uuid) {
+        synchronized (bundles) {
+            if (closed) {
+                throw new IllegalStateException("Bundle store is closed, cannot use the bundle of '" + uuid + "'");
+            }
+            CachedBundle cached = bundles.computeIfAbsent(uuid, id -> new CachedBundle(new PlayerBundle(getBundleFile(id))));
+            cached.users++;
+            return cached.bundle;
+        }
+    }
+
+    /**
+     * Mark a bundle as no longer in use by the caller, and close and drop the least recently
+     * used bundles that are not in use if too many are kept. Nothing uses those bundles, so
+     * closing them does not have to wait, and a new bundle for the same file can only be
+     * created once the old one is closed.
+     */
+    private void release(UUID uuid) {
+        synchronized (bundles) {
+            CachedBundle cached = bundles.get(uuid);
+            if (cached == null) {
+                // Dropped by close() while in use
+                return;
+            }
+            cached.users--;
+            Iterator<CachedBundle> iterator = bundles.values().iterator();
+            while (bundles.size() > maxOpen && iterator.hasNext()) {
+                CachedBundle eldest = iterator.next();
+                if (eldest.users == 0) {
+                    iterator.remove();
+                    eldest.bundle.closeChannel();
+                }
+            }
+        }
+    }
+
+    /**
+     * A bundle and the number of operations currently using it.
+     */
+    private static final class CachedBundle {
+
+        private final PlayerBundle bundle;
+        private int users;
+
+        CachedBundle(PlayerBundle bundle) {
+            this.bundle = bundle;
+        }
+    }
+}
@@ -17,13 +17,21 @@
 
 package me.gnat008.perworldinventory.data;
 
+import me.gnat008.perworldinventory.ConsoleLogger;
 import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.data.players.ProfileKey;
 import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.data.serializers.PlayerSnapshot;
 import me.gnat008.perworldinventory.groups.Group;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
 public interface DataSource {
 
     /**
@@ -42,9 +50,27 @@ public interface DataSource {
      *
      * @param group The {@link me.gnat008.perworldinventory.groups.Group} the player was in
      * @param gamemode The {@link org.bukkit.GameMode} the player was in
-     * @param player The {@link me.gnat008.perworldinventory.data.players.PWIPlayer} to save
+     * @param player The snapshot of the {@link PWIPlayer} to save
+     */
+    void saveToDatabase(Group group, GameMode gamemode, PWIPlayerSnapshot player);
+
+    /**
+     * Saves the data of several profiles, e.g. a batch taken from the {@link SaveQueue}.
+     * Data sources that can write many profiles at once, like a database, write them together;
+     * by default, every profile is saved on its own and a failed save does not stop the others.
+     *
+     * @param saves The snapshots to save, by the player, group and gamemode they belong to
      */
-    void saveToDatabase(Group group, GameMode gamemode, PWIPlayer player);
+    default void saveToDatabase(Map<ProfileKey, PWIPlayerSnapshot> saves) {
+        for (Map.Entry<ProfileKey, PWIPlayerSnapshot> save : saves.entrySet()) {
+            ProfileKey key = save.getKey();
+            try {
+                saveToDatabase(key.getGroup(), key.getGameMode(), save.getValue());
+            } catch (RuntimeException ex) {
+                ConsoleLogger.severe("Unable to save data with key '" + key + "':", ex);
+            }
+        }
+    }
 
     /**
      * Retrieves a player's data from the database.
@@ -58,6 +84,19 @@ public interface DataSource {
      */
     void getFromDatabase(Group group, GameMode gamemode, Player player, DeserializeCause cause);
 
+    /**
+     * Read and decode a player's data without applying it to the player. Unlike
+     * {@link #getFromDatabase(Group, GameMode, Player, DeserializeCause)}, this does the work
+     * on the calling thread, which should not be the main thread.
+     *
+     * @param group The {@link me.gnat008.perworldinventory.groups.Group} the data is for
+     * @param gamemode The {@link org.bukkit.GameMode} the data is for
+     * @param player The {@link org.bukkit.entity.Player} the data belongs to
+     * @return The decoded data, or null if no data is stored for the player
+     * @throws IOException If the data could not be read
+     */
+    PlayerSnapshot readSnapshot(Group group, GameMode gamemode, Player player) throws IOException;
+
     /**
      * Get the name of the world that a player logged out in.
      * If this is their first time logging in, this method will return null instead of a location.
@@ -67,6 +106,17 @@ public interface DataSource {
      */
     Location getLogoutData(Player player);
 
+    /**
+     * Get the name of the world that a player logged out in, without looking up the world.
+     * Unlike {@link #getLogoutData(Player)}, this can be called before the player has joined,
+     * and off the main thread.
+     *
+     * @param uuid The UUID of the player
+     * @return The name of the world, or null if the player has no logout data
+     * @throws IOException If the logout data could not be read
+     */
+    String getLogoutWorld(UUID uuid) throws IOException;
+
     /**
      * Set the default inventory loadout for a group. This is the inventory that will
      * be given to a player the first time they enter a world in the group.
@@ -79,4 +129,11 @@ public interface DataSource {
      * @param group The group to write the defaults for.
      */
     void setGroupDefault(Player player, Group group);
+
+    /**
+     * Release any resources held by this data source, such as open files or connections.
+     * Called when the plugin is disabled, after all players have been saved.
+     */
+    default void close() {
+    }
 }
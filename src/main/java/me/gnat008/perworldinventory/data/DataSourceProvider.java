@@ -2,6 +2,8 @@ package me.gnat008.perworldinventory.data;
 
 import ch.jalu.injector.Injector;
 import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -14,6 +16,9 @@ public class DataSourceProvider implements Provider<DataSource> {
     @Inject
     private Injector injector;
 
+    @Inject
+    private Settings settings;
+
     DataSourceProvider() {}
 
     @Override
@@ -27,17 +32,36 @@ public class DataSourceProvider implements Provider<DataSource> {
     }
 
     private DataSource createDataSource() {
-        DataSourceType type = DataSourceType.FLATFILE;
+        DataSourceType type = getConfiguredType();
         DataSource dataSource;
 
         switch(type) {
             case FLATFILE:
                 dataSource = injector.getSingleton(FlatFile.class);
                 break;
+            case LOGSTORE:
+                dataSource = injector.getSingleton(LogStore.class);
+                break;
+            case SQL:
+                dataSource = injector.getSingleton(SqlDataSource.class);
+                break;
+            case BUNDLE:
+                dataSource = injector.getSingleton(BundleStore.class);
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown data source type '" + type + "'");
         }
 
+        ConsoleLogger.debug("Using data source of type '" + type + "'");
         return dataSource;
     }
-}
\ No newline at end of file
+
+    private DataSourceType getConfiguredType() {
+        String configured = settings.getProperty(PwiProperties.DATA_SOURCE_TYPE);
+        try {
+            return DataSourceType.valueOf(configured.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new UnsupportedOperationException("Unknown data source type '" + configured + "'", ex);
+        }
+    }
+}
@@ -5,5 +5,15 @@ package me.gnat008.perworldinventory.data;
  */
 public enum DataSourceType {
 
-    FLATFILE
-}
\ No newline at end of file
+    /** One JSON file per player, group and gamemode. */
+    FLATFILE,
+
+    /** A single append-only log file with an in-memory index. */
+    LOGSTORE,
+
+    /** A SQL database accessed through a small connection pool. */
+    SQL,
+
+    /** One file per player holding all of their groups and gamemodes, updated in place. */
+    BUNDLE
+}
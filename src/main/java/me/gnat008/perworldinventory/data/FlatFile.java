@@ -24,91 +24,132 @@ import me.gnat008.perworldinventory.BukkitService;
 import me.gnat008.perworldinventory.ConsoleLogger;
 import me.gnat008.perworldinventory.DataFolder;
 import me.gnat008.perworldinventory.PerWorldInventory;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
 import me.gnat008.perworldinventory.data.players.PWIPlayer;
 import me.gnat008.perworldinventory.data.players.PWIPlayerFactory;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
 import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
 import me.gnat008.perworldinventory.data.serializers.LocationSerializer;
 import me.gnat008.perworldinventory.data.serializers.PlayerSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSnapshot;
 import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
+import me.gnat008.perworldinventory.util.Compression;
+import me.gnat008.perworldinventory.util.WriteDurability;
 import org.bukkit.ChatColor;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import static me.gnat008.perworldinventory.util.FileUtils.createFileIfNotExists;
+import static me.gnat008.perworldinventory.util.FileUtils.readAllBytes;
 import static me.gnat008.perworldinventory.util.FileUtils.writeData;
 import static me.gnat008.perworldinventory.util.Utils.zeroPlayer;
 
 public class FlatFile implements DataSource {
 
+    /** Name of the file in the data folder that records the layout the player folders are in. */
+    private static final String LAYOUT_FILE = "layout.txt";
+    private static final int MIGRATION_LOCKS = 64;
+
     private final File FILE_PATH;
+    private final FlatFileLayout layout;
+    private final WriteDurability writeDurability;
+    private final Compression compression;
+    private final int compressionLevel;
+
+    /**
+     * The layout that player folders are being moved from, or null if all folders are in the
+     * configured layout. While it is set, a player's folder is moved before it is used in an async task.
+     */
+    private volatile FlatFileLayout previousLayout;
+    private final Object[] migrationLocks = new Object[MIGRATION_LOCKS];
 
     private final PerWorldInventory plugin;
     private final BukkitService bukkitService;
     private final PlayerSerializer playerSerializer;
     private final PWIPlayerFactory pwiPlayerFactory;
+    private final PipelineTimings timings;
 
     @Inject
     FlatFile(@DataFolder File dataFolder, PerWorldInventory plugin, BukkitService bukkitService, PlayerSerializer playerSerializer,
-             PWIPlayerFactory pwiPlayerFactory) {
+             PWIPlayerFactory pwiPlayerFactory, PipelineTimings timings, Settings settings) {
         this.FILE_PATH = new File(dataFolder, "data");
         this.plugin = plugin;
         this.bukkitService = bukkitService;
         this.playerSerializer = playerSerializer;
         this.pwiPlayerFactory = pwiPlayerFactory;
+        this.timings = timings;
+        this.layout = FlatFileLayout.fromSetting(settings.getProperty(PwiProperties.FLATFILE_LAYOUT));
+        this.writeDurability = WriteDurability.fromSetting(settings.getProperty(PwiProperties.WRITE_DURABILITY));
+        this.compression = Compression.fromSetting(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION));
+        this.compressionLevel = settings.getProperty(PwiProperties.FLATFILE_COMPRESSION_LEVEL);
+
+        for (int i = 0; i < migrationLocks.length; i++) {
+            migrationLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Start moving the player folders to the configured layout in the background, if the layout
+     * was changed. Player folders that are read or written in async tasks before they are moved
+     * are moved right away; the main thread uses them where they are.
+     */
+    @PostConstruct
+    private void startLayoutMigration() {
+        FlatFileLayout stored = readStoredLayout();
+        if (stored != layout) {
+            previousLayout = stored;
+            bukkitService.runTaskAsync(this::migrateLayout);
+        }
     }
 
     @Override
     public void saveLogoutData(PWIPlayer player, boolean createTask) {
-        File file = new File(getUserFolder(player.getUuid()), "last-logout.json");
-
         if (createTask) {
-            bukkitService.runTaskAsync(() -> saveLogout(file, player));
+            bukkitService.runTaskAsync(() -> saveLogout(new File(getMovedUserFolder(player.getUuid()), "last-logout.json"), player));
         } else {
-            saveLogout(file, player);
+            saveLogout(new File(getUserFolder(player.getUuid()), "last-logout.json"), player);
         }
     }
 
     private void saveLogout(File file, PWIPlayer player) {
-        try {
-            createFileIfNotExists(file);
-        } catch (IOException ex) {
-            if (!(ex instanceof FileAlreadyExistsException)) {
-                ConsoleLogger.severe("Error creating file '" + file.getPath() + "':", ex);
-                return;
-            }
-        }
-
         String data = LocationSerializer.serialize(player.getLocation());
-        writeData(file, data);
+        writeData(file, data, writeDurability);
     }
 
     @Override
-    public void saveToDatabase(Group group, GameMode gamemode, PWIPlayer player) {
-        File file = getFile(gamemode, group, player.getUuid());
+    public void saveToDatabase(Group group, GameMode gamemode, PWIPlayerSnapshot player) {
+        File file = getMovedFile(gamemode, group, player.getUuid());
         ConsoleLogger.debug("Saving data for player '" + player.getName() + "' in file '" + file.getPath() + "'");
 
-        try {
-            createFileIfNotExists(file);
-        } catch (IOException ex) {
-            if (!(ex instanceof FileAlreadyExistsException)) {
-                ConsoleLogger.severe("Error creating file '" + file.getPath() + "':", ex);
-                return;
-            }
-        }
-
-        ConsoleLogger.debug("Writing player data for player '" + player.getName() + "' to file");
-
-        String data = playerSerializer.serialize(player);
-        writeData(file, data);
+        byte[] data = playerSerializer.writesBinaryFormat()
+                ? playerSerializer.serializeToBytes(player)
+                // Same encoding as the FileReader/InputStreamReader the JSON is read back with
+                : playerSerializer.serialize(player).getBytes(Charset.defaultCharset());
+        writeData(file, compress(data), writeDurability);
     }
 
     @Override
@@ -118,26 +159,73 @@ public class FlatFile implements DataSource {
         ConsoleLogger.debug("Getting data for player '" + player.getName() + "' from file '" + file.getPath() + "'");
 
         bukkitService.runTaskAsync(() -> {
-            try (JsonReader reader = new JsonReader(new FileReader(file))) {
-                JsonParser parser = new JsonParser();
-                JsonObject data = parser.parse(reader).getAsJsonObject();
-
-                bukkitService.runTask(() -> playerSerializer.deserialize(data, player, cause));
-            } catch (FileNotFoundException ex) {
-                if (!file.getParentFile().exists()) {
-                    file.getParentFile().mkdir();
-                }
+            long start = timings.start();
+            PlayerSnapshot data;
+            try {
+                data = readSnapshot(group, gamemode, player);
+                timings.record(Stage.READ, cause, start);
+            } catch (IOException | RuntimeException exIO) {
+                ConsoleLogger.severe("Unable to read data for '" + player.getName() + "' for group '" + group.getName() +
+                        "' in gamemode '" + gamemode.toString() + "' for reason:", exIO);
+                return;
+            }
 
+            if (data == null) {
                 ConsoleLogger.debug("File not found for player '" + player.getName() + "' for group '" + group.getName() + "'. Getting data from default sources");
-
                 getFromDefaults(group, player, cause);
-            } catch (IOException exIO) {
-                ConsoleLogger.severe("Unable to read data for '" + player.getName() + "' for group '" + group.getName() +
-                        "' in gamemode '" + gamemode.toString() + "' for reason:", exIO);
+                return;
             }
+
+            bukkitService.runTask(() -> playerSerializer.apply(data, player, cause));
         });
     }
 
+    @Override
+    public PlayerSnapshot readSnapshot(Group group, GameMode gamemode, Player player) throws IOException {
+        File file = getMovedFile(gamemode, group, player.getUniqueId());
+        PlayerSnapshot snapshot = readSnapshot(file, player);
+        if (snapshot == null && !file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Read and decode the data of a profile that was stored in flatfile format, without creating
+     * the player's folder if it does not exist. Used by the other data sources to load data that
+     * was saved before the server switched to them.
+     *
+     * @param group The group the data is for.
+     * @param gamemode The gamemode the data is for.
+     * @param player The player the data belongs to.
+     * @return The decoded data, or null if no file exists for the profile.
+     * @throws IOException If the file could not be read.
+     */
+    PlayerSnapshot readStoredSnapshot(Group group, GameMode gamemode, Player player) throws IOException {
+        return readSnapshot(getMovedFile(gamemode, group, player.getUniqueId()), player);
+    }
+
+    private PlayerSnapshot readSnapshot(File file, Player player) throws IOException {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            byte[] header = readHeader(in);
+            if (Compression.isCompressed(header)) {
+                long start = timings.start();
+                byte[] data = Compression.decompress(in);
+                timings.record(Stage.DECOMPRESS, null, start);
+                return decode(data, player);
+            }
+            if (PlayerSerializer.isBinaryFormat(header)) {
+                return playerSerializer.decode(readAllBytes(in), player);
+            }
+
+            // Same encoding as the FileWriter the JSON was written with
+            JsonReader reader = new JsonReader(new InputStreamReader(in, Charset.defaultCharset()));
+            return playerSerializer.decode(reader, player);
+        } catch (FileNotFoundException ex) {
+            return null;
+        }
+    }
+
     @Override
     public Location getLogoutData(Player player) {
         File file = new File(getUserFolder(player.getUniqueId()), "last-logout.json");
@@ -160,31 +248,50 @@ public class FlatFile implements DataSource {
         return location;
     }
 
-    private void getFromDefaults(Group group, Player player, DeserializeCause cause) {
-        File file = new File(FILE_PATH + File.separator + "defaults", group.getName() + ".json");
+    @Override
+    public String getLogoutWorld(UUID uuid) throws IOException {
+        File file = new File(getMovedUserFolder(uuid), "last-logout.json");
 
         try (JsonReader reader = new JsonReader(new FileReader(file))) {
-            JsonParser parser = new JsonParser();
-            JsonObject data = parser.parse(reader).getAsJsonObject();
+            return new JsonParser().parse(reader).getAsJsonObject().get("world").getAsString();
+        } catch (FileNotFoundException ex) {
+            // Player probably logged in for the first time, not really an error
+            return null;
+        }
+    }
+
+    /**
+     * Load the default loadout for a group and apply it to a player. Falls back to the
+     * server default file if the group has no default of its own.
+     * <p>
+     * Shared with the other data sources, which keep their defaults in the same folder.
+     *
+     * @param group The group to get the defaults for.
+     * @param player The player to apply the defaults to.
+     * @param cause What triggered the load.
+     */
+    void getFromDefaults(Group group, Player player, DeserializeCause cause) {
+        File file = new File(FILE_PATH + File.separator + "defaults", group.getName() + ".json");
 
-            bukkitService.runTask(() -> playerSerializer.deserialize(data, player, cause));
+        try (JsonReader reader = new JsonReader(new FileReader(file))) {
+            PlayerSnapshot data = playerSerializer.decode(reader, player);
+            bukkitService.runTask(() -> playerSerializer.apply(data, player, cause));
         } catch (FileNotFoundException ex) {
             file = new File(FILE_PATH + File.separator + "defaults", "__default.json");
 
             try (JsonReader reader = new JsonReader(new FileReader(file))) {
-                JsonParser parser = new JsonParser();
-                JsonObject data = parser.parse(reader).getAsJsonObject();
-                bukkitService.runTask(() -> playerSerializer.deserialize(data, player, cause));
+                PlayerSnapshot data = playerSerializer.decode(reader, player);
+                bukkitService.runTask(() -> playerSerializer.apply(data, player, cause));
             } catch (FileNotFoundException ex2) {
                 player.sendMessage(ChatColor.RED + "» " + ChatColor.GRAY + "Something went horribly wrong when loading your inventory! " +
                         "Please notify a server administrator!");
                 ConsoleLogger.severe("Unable to find inventory data for player '" + player.getName() +
                         "' for group '" + group.getName() + "':", ex2);
-            } catch (IOException exIO) {
+            } catch (IOException | RuntimeException exIO) {
                 ConsoleLogger.severe("Unable to read data for '" + player.getName() + "' for group '" + group.getName() +
                         "' for reason:", exIO);
             }
-        } catch (IOException exIO) {
+        } catch (IOException | RuntimeException exIO) {
             ConsoleLogger.severe("Unable to read data for '" + player.getName() + "' for group '" + group.getName() +
                     "' for reason:", exIO);
         }
@@ -200,32 +307,233 @@ public class FlatFile implements DataSource {
      * @return The data file to read from or write to.
      */
     public File getFile(GameMode gamemode, Group group, UUID uuid) {
-        File dir = getUserFolder(uuid);
-        File file;
+        return new File(getUserFolder(uuid), getProfileName(gamemode, group) + ".json");
+    }
+
+    /**
+     * Get the data file for a player, like {@link #getFile(GameMode, Group, UUID)}, after moving
+     * the player's folder to the configured layout. Only call this off the main thread.
+     *
+     * @param gamemode The game mode for the group we are looking for.
+     * @param group The group we are looking for.
+     * @param uuid The UUID of the player.
+     *
+     * @return The data file to read from or write to.
+     */
+    private File getMovedFile(GameMode gamemode, Group group, UUID uuid) {
+        return new File(getMovedUserFolder(uuid), getProfileName(gamemode, group) + ".json");
+    }
+
+    /**
+     * Get the name under which a player's data for a group and gamemode is stored,
+     * e.g. <i>group</i> or <i>group_creative</i>.
+     *
+     * @param gamemode The game mode for the group we are looking for.
+     * @param group The group we are looking for.
+     *
+     * @return The name of the stored profile, without extension.
+     */
+    static String getProfileName(GameMode gamemode, Group group) {
         switch(gamemode) {
             case ADVENTURE:
-                file = new File(dir, group.getName() + "_adventure.json");
-                break;
+                return group.getName() + "_adventure";
             case CREATIVE:
             case SPECTATOR:
-                file = new File(dir, group.getName() + "_creative.json");
-                break;
+                return group.getName() + "_creative";
             default:
-                file = new File(dir, group.getName() + ".json");
-                break;
+                return group.getName();
+        }
+    }
+
+    /**
+     * Read the first bytes of a file without consuming them, to tell what format it is in.
+     *
+     * @param in The stream of the file, at its start.
+     * @return The first 4 bytes of the file, or all of them if the file is shorter.
+     * @throws IOException If the stream could not be read.
+     */
+    private static byte[] readHeader(BufferedInputStream in) throws IOException {
+        byte[] header = new byte[4];
+        in.mark(header.length);
+        int read = 0;
+        int len;
+        while (read < header.length && (len = in.read(header, read, header.length - read)) != -1) {
+            read += len;
+        }
+        in.reset();
+
+        return read == header.length ? header : Arrays.copyOf(header, read);
+    }
+
+    private PlayerSnapshot decode(byte[] data, Player player) throws IOException {
+        if (PlayerSerializer.isBinaryFormat(data)) {
+            return playerSerializer.decode(data, player);
+        }
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), Charset.defaultCharset()))) {
+            return playerSerializer.decode(reader, player);
+        }
+    }
+
+    /**
+     * Compress data with the configured compression, if any.
+     *
+     * @param data The data of a player file.
+     * @return The data to write to the file.
+     */
+    private byte[] compress(byte[] data) {
+        if (compression == Compression.NONE) {
+            return data;
         }
 
-        return file;
+        long start = timings.start();
+        byte[] compressed = compression.compress(data, compressionLevel);
+        timings.record(Stage.COMPRESS, null, start);
+        timings.recordCompression(data.length, compressed.length);
+        return compressed;
     }
 
     /**
-     * Return the folder in which data is stored for the player.
+     * Return the folder in which data is stored for the player. While the layout is being
+     * changed, the folder in the old layout is used until the migration has moved it, so
+     * that the main thread never waits for a folder to be moved.
      *
      * @param uuid The player's UUID
      * @return The data folder of the player
      */
     private File getUserFolder(UUID uuid) {
-        return new File(FILE_PATH, uuid.toString());
+        FlatFileLayout previous = previousLayout;
+        if (previous != null) {
+            File folder = previous.getUserFolder(FILE_PATH, uuid);
+            if (folder.isDirectory()) {
+                return folder;
+            }
+        }
+        return layout.getUserFolder(FILE_PATH, uuid);
+    }
+
+    /**
+     * Return the folder in which data is stored for the player. While the layout is being
+     * changed, the player's folder is moved to the new layout first; if that fails, the
+     * folder in the old layout is used. Only call this off the main thread.
+     *
+     * @param uuid The player's UUID
+     * @return The data folder of the player
+     */
+    private File getMovedUserFolder(UUID uuid) {
+        FlatFileLayout previous = previousLayout;
+        if (previous != null && !moveUserFolder(uuid, previous)) {
+            return previous.getUserFolder(FILE_PATH, uuid);
+        }
+        return layout.getUserFolder(FILE_PATH, uuid);
+    }
+
+    /**
+     * Move the folders of all players from the previous layout to the configured one. The layout
+     * is only recorded as changed if every folder was moved, so that a failed move is tried again
+     * when the server starts the next time.
+     */
+    void migrateLayout() {
+        FlatFileLayout previous = previousLayout;
+        if (previous == null) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        List<File> folders = previous.findUserFolders(FILE_PATH);
+        ConsoleLogger.info("Moving " + folders.size() + " player folders from the " + previous + " layout to the " + layout + " layout");
+
+        int failed = 0;
+        for (File folder : folders) {
+            if (!moveUserFolder(UUID.fromString(folder.getName()), previous)) {
+                failed++;
+            }
+        }
+
+        if (failed > 0) {
+            ConsoleLogger.warning("Could not move " + failed + " player folders to the " + layout + " layout. They are still used " +
+                    "from where they are, and will be moved again when the server restarts");
+            return;
+        }
+
+        writeStoredLayout();
+        previousLayout = null;
+        ConsoleLogger.info("Moved " + folders.size() + " player folders to the " + layout + " layout in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Move the folder of a player from the previous layout to the configured one. If there already
+     * is a folder in the configured layout, the files are merged, keeping the newest version of each.
+     *
+     * @param uuid The player's UUID.
+     * @param previous The layout to move the folder from.
+     * @return True if the player has no folder in the previous layout anymore, false if it could not be moved.
+     */
+    private boolean moveUserFolder(UUID uuid, FlatFileLayout previous) {
+        synchronized (migrationLocks[Math.floorMod(uuid.hashCode(), MIGRATION_LOCKS)]) {
+            File from = previous.getUserFolder(FILE_PATH, uuid);
+            if (!from.isDirectory()) {
+                return true;
+            }
+
+            File to = layout.getUserFolder(FILE_PATH, uuid);
+            try {
+                Files.createDirectories(to.getParentFile().toPath());
+                if (to.exists()) {
+                    mergeUserFolder(from, to);
+                } else {
+                    Files.move(from.toPath(), to.toPath());
+                }
+            } catch (IOException ex) {
+                ConsoleLogger.warning("Could not move player folder '" + from + "' to '" + to + "':", ex);
+                return false;
+            }
+
+            // Remove the folders of the previous layout that are empty now
+            for (File parent = from.getParentFile(); !parent.equals(FILE_PATH) && parent.delete(); parent = parent.getParentFile()) {
+                ConsoleLogger.debug("Removed empty folder '" + parent + "'");
+            }
+            return true;
+        }
+    }
+
+    private static void mergeUserFolder(File from, File to) throws IOException {
+        File[] files = from.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                File target = new File(to, file.getName());
+                if (!target.exists() || file.lastModified() > target.lastModified()) {
+                    Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.delete(file.toPath());
+                }
+            }
+        }
+        Files.delete(from.toPath());
+    }
+
+    /**
+     * Get the layout the player folders were in when the server stopped.
+     *
+     * @return The stored layout; {@link FlatFileLayout#FLAT} if none is stored, as that was the only layout before.
+     */
+    private FlatFileLayout readStoredLayout() {
+        File file = new File(FILE_PATH, LAYOUT_FILE);
+        if (!file.exists()) {
+            return FlatFileLayout.FLAT;
+        }
+
+        try {
+            return FlatFileLayout.fromSetting(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            ConsoleLogger.warning("Could not read '" + file + "', assuming the " + FlatFileLayout.FLAT + " layout:", ex);
+            return FlatFileLayout.FLAT;
+        }
+    }
+
+    private void writeStoredLayout() {
+        writeData(new File(FILE_PATH, LAYOUT_FILE), layout.name().getBytes(StandardCharsets.UTF_8), WriteDurability.FSYNC);
     }
 
     @Override
@@ -245,12 +553,12 @@ public class FlatFile implements DataSource {
                 return;
             }
         }
-        Group tempGroup = new Group("tmp", null, null);
-        writeData(tmp, playerSerializer.serialize(pwiPlayerFactory.create(player, tempGroup)));
+        Group tempGroup = new Group("tmp", Collections.emptySet(), null);
+        writeData(tmp, playerSerializer.serialize(PWIPlayerSnapshot.of(pwiPlayerFactory.create(player, tempGroup))));
 
         zeroPlayer(plugin, player, false);
 
-        writeData(file, playerSerializer.serialize(pwiPlayerFactory.create(player, group)));
+        writeData(file, playerSerializer.serialize(PWIPlayerSnapshot.of(pwiPlayerFactory.create(player, group))), writeDurability);
 
         getFromDatabase(tempGroup, GameMode.SURVIVAL, player, DeserializeCause.CHANGED_DEFAULTS);
         tmp.delete();
@@ -0,0 +1,116 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * How the folders of the players are laid out in the data folder of the {@link FlatFile} data source.
+ */
+public enum FlatFileLayout {
+
+    /** Every player folder is directly in the data folder: <i>data/&lt;uuid&gt;/</i>. */
+    FLAT {
+        @Override
+        File getUserFolder(File dataPath, UUID uuid) {
+            return new File(dataPath, uuid.toString());
+        }
+
+        @Override
+        List<File> findUserFolders(File dataPath) {
+            List<File> folders = new ArrayList<>();
+            addUserFolders(dataPath, folders);
+            return folders;
+        }
+    },
+
+    /**
+     * Player folders are spread over two levels of folders named after the first four characters of
+     * the UUID: <i>data/ab/cd/&lt;uuid&gt;/</i>. With many players, no folder gets so big that looking
+     * up, listing or backing it up is slow.
+     */
+    SHARDED {
+        @Override
+        File getUserFolder(File dataPath, UUID uuid) {
+            String name = uuid.toString();
+            File shard = new File(new File(dataPath, name.substring(0, 2)), name.substring(2, 4));
+            return new File(shard, name);
+        }
+
+        @Override
+        List<File> findUserFolders(File dataPath) {
+            List<File> folders = new ArrayList<>();
+            for (File first : listShards(dataPath)) {
+                for (File second : listShards(first)) {
+                    addUserFolders(second, folders);
+                }
+            }
+            return folders;
+        }
+    };
+
+    /**
+     * Get the folder in which the data of a player is stored.
+     *
+     * @param dataPath The data folder of the data source.
+     * @param uuid The UUID of the player.
+     * @return The folder of the player.
+     */
+    abstract File getUserFolder(File dataPath, UUID uuid);
+
+    /**
+     * Find the folders of all players that are stored in this layout.
+     *
+     * @param dataPath The data folder of the data source.
+     * @return The folders of the players, named after their UUID.
+     */
+    abstract List<File> findUserFolders(File dataPath);
+
+    /**
+     * Get the layout for a configured value.
+     *
+     * @param value The configured value, case insensitive.
+     * @return The matching layout, or {@link #FLAT} if the value is missing or unknown.
+     */
+    public static FlatFileLayout fromSetting(String value) {
+        if (value == null) {
+            return FLAT;
+        }
+
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            ConsoleLogger.warning("Unknown flat file layout '" + value + "', using " + FLAT);
+            return FLAT;
+        }
+    }
+
+    private static void addUserFolders(File folder, List<File> folders) {
+        File[] files = folder.listFiles(file -> file.isDirectory() && isUuid(file.getName()));
+        if (files != null) {
+            Collections.addAll(folders, files);
+        }
+    }
+
+    private static File[] listShards(File folder) {
+        File[] shards = folder.listFiles(file -> file.isDirectory() && file.getName().matches("[0-9a-f]{2}"));
+        return shards == null ? new File[0] : shards;
+    }
+
+    private static boolean isUuid(String name) {
+        if (name.length() != 36) {
+            return false;
+        }
+
+        try {
+            UUID.fromString(name);
+            return true;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.DataFolder;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.data.serializers.LocationSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSerializer;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.util.WriteDurability;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.scheduler.BukkitTask;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import static me.gnat008.perworldinventory.BukkitService.TICKS_PER_SECOND;
+
+/**
+ * Data source which keeps all player data in a single append-only log file.
+ * <p>
+ * Every save appends a new record to the end of the file, and an in-memory index
+ * keyed by player, group and gamemode points to the newest record for each key.
+ * Outdated records are removed by compacting the log in the background once they
+ * take up enough of the file.
+ * <p>
+ * Record layout: magic, key length, key, data length, data, CRC32 of the data.
+ * A record that fails its checksum is skipped when the log is opened, and the records
+ * after it are still loaded. A record that is cut off at the end of the file (e.g. after
+ * a crash) is discarded.
+ */
+public class LogStore extends AbstractDataSource {
+
+    private static final int RECORD_MAGIC = 0x50574931; // "PWI1"
+    private static final int HEADER_SIZE = 8; // magic + key length
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private final File FILE_PATH;
+    private final File logFile;
+
+    private final Settings settings;
+    private final boolean fsync;
+
+    private final Map<String, RecordPointer> index = new ConcurrentHashMap<>();
+    private final ReadWriteLock channelLock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+
+    private FileChannel channel;
+    private long appendPosition;
+    private long garbageBytes;
+    private BukkitTask compactionTask;
+
+    @Inject
+    LogStore(@DataFolder File dataFolder, BukkitService bukkitService, FlatFile flatFile,
+             PlayerSerializer playerSerializer, PipelineTimings timings, Settings settings) {
+        super(bukkitService, flatFile, playerSerializer, timings);
+        this.FILE_PATH = new File(dataFolder, "data");
+        this.logFile = new File(FILE_PATH, "profiles.log");
+        this.settings = settings;
+        this.fsync = WriteDurability.fromSetting(settings.getProperty(PwiProperties.WRITE_DURABILITY)) == WriteDurability.FSYNC;
+    }
+
+    @PostConstruct
+    private void open() {
+        try {
+            Files.createDirectories(FILE_PATH.toPath());
+            channel = FileChannel.open(logFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            rebuildIndex();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not open log file '" + logFile.getPath() + "'", ex);
+        }
+
+        long interval = Math.max(1, settings.getProperty(PwiProperties.LOG_COMPACTION_INTERVAL)) * TICKS_PER_SECOND;
+        compactionTask = bukkitService.runRepeatingTaskAsync(this::compactIfNeeded, interval, interval);
+    }
+
+    @Override
+    public void saveLogoutData(PWIPlayer player, boolean createTask) {
+        String key = makeLogoutKey(player.getUuid());
+
+        if (createTask) {
+            bukkitService.runTaskAsync(() -> writeRecord(key, serializeLocation(player)));
+        } else {
+            writeRecord(key, serializeLocation(player));
+        }
+    }
+
+    @Override
+    public void saveToDatabase(Group group, GameMode gamemode, PWIPlayerSnapshot player) {
+        String key = makeKey(player.getUuid(), FlatFile.getProfileName(gamemode, group));
+        ConsoleLogger.debug("Appending data for player '" + player.getName() + "' to log with key '" + key + "'");
+
+        writeRecord(key, playerSerializer.serializeToBytes(player));
+    }
+
+    @Override
+    protected byte[] readProfile(UUID uuid, String profile) throws IOException {
+        return readRecord(makeKey(uuid, profile));
+    }
+
+    @Override
+    protected byte[] readLogout(UUID uuid) throws IOException {
+        return readRecord(makeLogoutKey(uuid));
+    }
+
+    @Override
+    public void close() {
+        if (compactionTask != null) {
+            compactionTask.cancel();
+        }
+
+        channelLock.writeLock().lock();
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException ex) {
+            ConsoleLogger.warning("Unable to close log file '" + logFile.getPath() + "':", ex);
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of keys currently indexed.
+     *
+     * @return The number of live records.
+     */
+    public int getRecordCount() {
+        return index.size();
+    }
+
+    /**
+     * Get the ratio of outdated records to the total size of the log, between 0 and 1.
+     *
+     * @return The fraction of the log that compaction would reclaim.
+     */
+    public double getGarbageRatio() {
+        synchronized (appendLock) {
+            return appendPosition == 0 ? 0 : (double) garbageBytes / appendPosition;
+        }
+    }
+
+    private void writeRecord(String key, byte[] data) {
+        ByteBuffer record = encodeRecord(key, data);
+
+        channelLock.readLock().lock();
+        try {
+            synchronized (appendLock) {
+                long position = appendPosition;
+                int length = record.remaining();
+                while (record.hasRemaining()) {
+                    channel.write(record, position + (length - record.remaining()));
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+                appendPosition += length;
+
+                RecordPointer previous = index.put(key, new RecordPointer(position, length));
+                if (previous != null) {
+                    garbageBytes += previous.length;
+                }
+            }
+        } catch (IOException ex) {
+            ConsoleLogger.severe("Could not append record '" + key + "' to log file '" + logFile.getPath() + "':", ex);
+        } finally {
+            channelLock.readLock().unlock();
+        }
+    }
+
+    private byte[] readRecord(String key) throws IOException {
+        channelLock.readLock().lock();
+        try {
+            RecordPointer pointer = index.get(key);
+            if (pointer == null) {
+                return null;
+            }
+
+            ByteBuffer record = readFully(channel, pointer.offset, pointer.length);
+            return decodeRecord(record, key);
+        } finally {
+            channelLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scan the log from the start and point the index at the newest record of every key.
+     * Corrupt records are skipped up to the next valid record; if there is none, the file
+     * is truncated where the corrupt data starts.
+     */
+    private void rebuildIndex() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        long garbage = 0;
+        long skipped = 0;
+
+        while (position + HEADER_SIZE <= size) {
+            int recordLength = checkRecord(position, size);
+            if (recordLength < 0) {
+                long next = findNextRecord(position + 1, size);
+                if (next < 0) {
+                    break;
+                }
+                skipped += next - position;
+                position = next;
+                continue;
+            }
+
+            ByteBuffer record = readFully(channel, position, recordLength);
+            RecordPointer previous = index.put(peekKey(record), new RecordPointer(position, recordLength));
+            if (previous != null) {
+                garbage += previous.length;
+            }
+            position += recordLength;
+        }
+
+        if (skipped > 0) {
+            ConsoleLogger.warning("Log file '" + logFile.getPath() + "' has " + skipped +
+                    " bytes of corrupt records. Skipped them and loaded the records after them");
+            garbage += skipped;
+        }
+        if (position < size) {
+            ConsoleLogger.warning("Log file '" + logFile.getPath() + "' has " + (size - position) +
+                    " bytes of incomplete data at the end, probably from a crash. Discarding it");
+            channel.truncate(position);
+        }
+
+        synchronized (appendLock) {
+            appendPosition = position;
+            garbageBytes = garbage;
+        }
+        ConsoleLogger.debug("Loaded " + index.size() + " records from log file '" + logFile.getPath() + "'");
+    }
+
+    /**
+     * Check whether a complete record with a valid checksum starts at a position of the log.
+     *
+     * @param position The position in the log.
+     * @param size The size of the log.
+     * @return The length of the record, or -1 if there is no valid record at the position.
+     */
+    private int checkRecord(long position, long size) throws IOException {
+        ByteBuffer header = readFully(channel, position, HEADER_SIZE);
+        if (header.getInt() != RECORD_MAGIC) {
+            return -1;
+        }
+
+        long keyLength = header.getInt();
+        if (keyLength < 0 || position + HEADER_SIZE + keyLength + 4 > size) {
+            return -1;
+        }
+
+        long dataLength = readFully(channel, position + HEADER_SIZE + keyLength, 4).getInt();
+        long recordLength = HEADER_SIZE + keyLength + 4 + dataLength + 8;
+        if (dataLength < 0 || position + recordLength > size) {
+            return -1;
+        }
+
+        ByteBuffer record = readFully(channel, position, (int) recordLength);
+        try {
+            decodeRecord(record, peekKey(record));
+        } catch (IOException ex) {
+            return -1;
+        }
+        return (int) recordLength;
+    }
+
+    /**
+     * Find the next valid record in the log, e.g. after a corrupt one.
+     *
+     * @param from The position to start searching at.
+     * @param size The size of the log.
+     * @return The position of the next valid record, or -1 if there is none.
+     */
+    private long findNextRecord(long from, long size) throws IOException {
+        byte[] magic = ByteBuffer.allocate(4).putInt(RECORD_MAGIC).array();
+        long chunkStart = from;
+        while (chunkStart + HEADER_SIZE <= size) {
+            ByteBuffer chunk = readFully(channel, chunkStart, (int) Math.min(SCAN_BUFFER_SIZE, size - chunkStart));
+            int limit = chunk.limit() - magic.length;
+            for (int i = 0; i <= limit; i++) {
+                if (chunk.get(i) == magic[0] && chunk.get(i + 1) == magic[1]
+                        && chunk.get(i + 2) == magic[2] && chunk.get(i + 3) == magic[3]
+                        && chunkStart + i + HEADER_SIZE <= size && checkRecord(chunkStart + i, size) >= 0) {
+                    return chunkStart + i;
+                }
+            }
+            // The magic may span two chunks
+            chunkStart += limit + 1;
+        }
+        return -1;
+    }
+
+    private void compactIfNeeded() {
+        long garbage;
+        long total;
+        synchronized (appendLock) {
+            garbage = garbageBytes;
+            total = appendPosition;
+        }
+
+        int threshold = settings.getProperty(PwiProperties.LOG_COMPACTION_THRESHOLD);
+        if (total < MIN_COMPACTION_SIZE || garbage * 100 < total * threshold) {
+            return;
+        }
+
+        try {
+            compact();
+        } catch (IOException ex) {
+            ConsoleLogger.severe("Unable to compact log file '" + logFile.getPath() + "':", ex);
+        }
+    }
+
+    /**
+     * Rewrite the log so that it only contains the newest record of every key.
+     * <p>
+     * Records are immutable once written, so the bulk of the copying happens while saves and
+     * loads keep going. Only the records written in the meantime are copied while holding
+     * the exclusive lock, right before the new file replaces the old one. If the new file can
+     * not replace the old one, the old log is kept and opened again.
+     */
+    void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        File compacted = new File(FILE_PATH, "profiles.log.compact");
+        Map<String, RecordPointer> copied = new HashMap<>();
+        Map<String, RecordPointer> newIndex = new HashMap<>();
+
+        try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long targetPosition = 0;
+
+            channelLock.readLock().lock();
+            try {
+                for (Map.Entry<String, RecordPointer> entry : index.entrySet()) {
+                    targetPosition = copyRecord(entry.getKey(), entry.getValue(), target, targetPosition, copied, newIndex);
+                }
+            } finally {
+                channelLock.readLock().unlock();
+            }
+
+            channelLock.writeLock().lock();
+            try {
+                // Pick up anything that was saved while the bulk copy was running
+                for (Map.Entry<String, RecordPointer> entry : index.entrySet()) {
+                    RecordPointer alreadyCopied = copied.get(entry.getKey());
+                    if (alreadyCopied == null || alreadyCopied.offset != entry.getValue().offset) {
+                        targetPosition = copyRecord(entry.getKey(), entry.getValue(), target, targetPosition, copied, newIndex);
+                    }
+                }
+                target.force(true);
+
+                long before = channel.size();
+                channel.close();
+                try {
+                    Files.move(compacted.toPath(), logFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    // Either the compacted log or, if the move failed, the untouched old one
+                    channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                }
+
+                index.putAll(newIndex);
+                synchronized (appendLock) {
+                    appendPosition = targetPosition;
+                    garbageBytes = 0;
+                }
+
+                ConsoleLogger.info("Compacted log file from " + before + " to " + targetPosition + " bytes in " +
+                        (System.currentTimeMillis() - start) + "ms");
+            } finally {
+                channelLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private long copyRecord(String key, RecordPointer pointer, FileChannel target, long targetPosition,
+                            Map<String, RecordPointer> copied, Map<String, RecordPointer> newIndex) throws IOException {
+        ByteBuffer record = readFully(channel, pointer.offset, pointer.length);
+        while (record.hasRemaining()) {
+            target.write(record, targetPosition + (pointer.length - record.remaining()));
+        }
+
+        copied.put(key, pointer);
+        newIndex.put(key, new RecordPointer(targetPosition, pointer.length));
+        return targetPosition + pointer.length;
+    }
+
+    private static ByteBuffer encodeRecord(String key, byte[] data) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + 4 + data.length + 8);
+        buffer.putInt(RECORD_MAGIC);
+        buffer.putInt(keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String peekKey(ByteBuffer record) {
+        int keyLength = record.getInt(4);
+        byte[] keyBytes = new byte[keyLength];
+        ByteBuffer duplicate = record.duplicate();
+        duplicate.position(HEADER_SIZE);
+        duplicate.get(keyBytes);
+        return new String(keyBytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] decodeRecord(ByteBuffer record, String expectedKey) throws IOException {
+        if (record.getInt() != RECORD_MAGIC) {
+            throw new IOException("Invalid record header for key '" + expectedKey + "'");
+        }
+
+        byte[] keyBytes = new byte[record.getInt()];
+        record.get(keyBytes);
+        if (!expectedKey.equals(new String(keyBytes, StandardCharsets.UTF_8))) {
+            throw new IOException("Record does not belong to key '" + expectedKey + "'");
+        }
+
+        byte[] data = new byte[record.getInt()];
+        record.get(data);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != record.getLong()) {
+            throw new IOException("Checksum mismatch in record for key '" + expectedKey + "'");
+        }
+
+        return data;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of log file at position " + (position + buffer.position()));
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] serializeLocation(PWIPlayer player) {
+        return LocationSerializer.serialize(player.getLocation()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String makeKey(UUID uuid, String profile) {
+        return uuid.toString() + "/" + profile;
+    }
+
+    private static String makeLogoutKey(UUID uuid) {
+        return uuid.toString() + "/last-logout";
+    }
+
+    /**
+     * Location and length of a record in the log file.
+     */
+    private static final class RecordPointer {
+
+        private final long offset;
+        private final int length;
+
+        RecordPointer(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
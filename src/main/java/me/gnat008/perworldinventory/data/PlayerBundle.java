@@ -0,0 +1,420 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A single file holding all profiles of one player, used by {@link BundleStore}.
+ * <p>
+ * The file starts with a header (magic, version), followed by one segment per profile: key length,
+ * key, capacity, and two slots of that capacity. A slot is a sequence number, data length, CRC32
+ * of the data and the data itself. A save writes to the slot that is not in use, so the previous
+ * data stays intact until the new data is complete; the valid slot with the highest sequence
+ * number is the current one.
+ * <p>
+ * Data that no longer fits in its segment is written to a new, larger segment at the end of the
+ * file. The old segment becomes garbage, and the file is rewritten once garbage takes up more
+ * than half of it. A segment that is cut off at the end of the file (e.g. after a crash) is
+ * discarded when the file is opened.
+ * <p>
+ * The file is kept open between operations until {@link #closeChannel()} is called; all methods
+ * are synchronized, and reopen the file when needed.
+ */
+final class PlayerBundle {
+
+    private static final int FILE_MAGIC = 0x5057424E; // "PWBN", unlike the "PWIB" of the binary data format
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8; // magic + version
+    private static final int SLOT_HEADER_SIZE = 20; // sequence + length + CRC32
+    private static final int MIN_CAPACITY = 256;
+    private static final long MIN_REWRITE_GARBAGE = 64 * 1024;
+
+    private final File file;
+    private final Map<String, Segment> segments = new HashMap<>();
+
+    private FileChannel channel;
+    private long endPosition;
+    private long garbageBytes;
+
+    PlayerBundle(File file) {
+        this.file = file;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Read the current data of a profile.
+     *
+     * @param key The key of the profile.
+     * @return The data, or null if the bundle has no data for the key.
+     * @throws IOException If the file could not be read.
+     */
+    synchronized byte[] read(String key) throws IOException {
+        if (channel == null && !file.exists()) {
+            return null;
+        }
+
+        ensureOpen();
+        Segment segment = segments.get(key);
+        if (segment == null) {
+            return null;
+        }
+
+        ByteBuffer slot = readFully(channel, segment.getSlotOffset(segment.activeSlot), SLOT_HEADER_SIZE + segment.dataLength);
+        byte[] data = readSlotData(slot, segment.capacity);
+        if (data == null) {
+            throw new IOException("Checksum mismatch in profile '" + key + "' of bundle '" + file.getPath() + "'");
+        }
+        return data;
+    }
+
+    /**
+     * Write the data of a profile, replacing any data it had.
+     *
+     * @param key The key of the profile.
+     * @param data The data to write.
+     * @param force If the data should be forced to disk before returning.
+     * @throws IOException If the file could not be written.
+     */
+    synchronized void write(String key, byte[] data, boolean force) throws IOException {
+        ensureOpen();
+        Segment segment = segments.get(key);
+
+        if (segment != null && data.length <= segment.capacity) {
+            int slot = 1 - segment.activeSlot;
+            long sequence = segment.sequence + 1;
+            writeFully(channel, encodeSlot(sequence, data), segment.getSlotOffset(slot));
+            segment.activeSlot = slot;
+            segment.sequence = sequence;
+            segment.dataLength = data.length;
+        } else {
+            long sequence = segment == null ? 1 : segment.sequence + 1;
+            Segment appended = new Segment(endPosition, keyBytes(key).length, growCapacity(data.length));
+            writeFully(channel, encodeSegment(key, appended.capacity, sequence, data), appended.offset);
+            appended.activeSlot = 0;
+            appended.sequence = sequence;
+            appended.dataLength = data.length;
+
+            segments.put(key, appended);
+            endPosition += appended.getLength();
+            if (segment != null) {
+                garbageBytes += segment.getLength();
+            }
+        }
+
+        if (force) {
+            channel.force(false);
+        }
+
+        if (garbageBytes >= MIN_REWRITE_GARBAGE && garbageBytes * 2 > endPosition) {
+            rewrite(force);
+        }
+    }
+
+    /**
+     * Close the file and delete it.
+     *
+     * @return True if there was a file to delete.
+     * @throws IOException If the file could not be deleted.
+     */
+    synchronized boolean delete() throws IOException {
+        closeChannel();
+        return Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Close the file, if it is open. It is opened again when it is next used.
+     */
+    synchronized void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            ConsoleLogger.warning("Unable to close bundle '" + file.getPath() + "':", ex);
+        }
+        channel = null;
+        segments.clear();
+    }
+
+    synchronized boolean isOpen() {
+        return channel != null;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+
+        Files.createDirectories(file.getParentFile().toPath());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            load();
+        } catch (IOException ex) {
+            closeChannel();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read the whole file and index the current segment of every profile. Bundles only
+     * hold one player's data, so this is a single small read.
+     */
+    private void load() throws IOException {
+        segments.clear();
+        garbageBytes = 0;
+
+        long size = channel.size();
+        if (size == 0) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(FILE_MAGIC).putInt(VERSION).flip();
+            writeFully(channel, header, 0);
+            endPosition = FILE_HEADER_SIZE;
+            return;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Bundle '" + file.getPath() + "' is too large");
+        }
+        ByteBuffer buffer = readFully(channel, 0, (int) size);
+        if (size < FILE_HEADER_SIZE || buffer.getInt() != FILE_MAGIC) {
+            throw new IOException("'" + file.getPath() + "' is not a bundle file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version + " of bundle '" + file.getPath() + "'");
+        }
+
+        long position = FILE_HEADER_SIZE;
+        while (position < size) {
+            Segment segment = readSegment(buffer, (int) position);
+            if (segment == null) {
+                break;
+            }
+
+            Segment previous = segments.get(segment.key);
+            if (segment.activeSlot < 0 || (previous != null && previous.sequence > segment.sequence)) {
+                garbageBytes += segment.getLength();
+            } else {
+                segments.put(segment.key, segment);
+                if (previous != null) {
+                    garbageBytes += previous.getLength();
+                }
+            }
+            position += segment.getLength();
+        }
+
+        if (position < size) {
+            ConsoleLogger.warning("Bundle '" + file.getPath() + "' has " + (size - position) +
+                    " bytes of incomplete data at the end, probably from a crash. Discarding it");
+            channel.truncate(position);
+        }
+        endPosition = position;
+    }
+
+    /**
+     * Parse the segment at the given position of the file contents.
+     *
+     * @return The segment, or null if it is cut off.
+     */
+    private static Segment readSegment(ByteBuffer buffer, int position) {
+        int size = buffer.limit();
+        if (position + 4 > size) {
+            return null;
+        }
+
+        int keyLength = buffer.getInt(position);
+        if (keyLength < 0 || (long) position + 4 + keyLength + 4 > size) {
+            return null;
+        }
+        byte[] keyBytes = new byte[keyLength];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position + 4);
+        duplicate.get(keyBytes);
+
+        int capacity = buffer.getInt(position + 4 + keyLength);
+        Segment segment = new Segment(position, keyLength, capacity);
+        if (capacity < 0 || position + segment.getLength() > size) {
+            return null;
+        }
+        segment.key = new String(keyBytes, StandardCharsets.UTF_8);
+
+        for (int slot = 0; slot < 2; slot++) {
+            ByteBuffer slotBuffer = buffer.duplicate();
+            slotBuffer.position((int) segment.getSlotOffset(slot));
+            long sequence = slotBuffer.getLong(slotBuffer.position());
+            if (sequence > segment.sequence && readSlotData(slotBuffer, capacity) != null) {
+                segment.activeSlot = slot;
+                segment.sequence = sequence;
+                segment.dataLength = slotBuffer.getInt((int) segment.getSlotOffset(slot) + 8);
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Rewrite the file with only the current slot of every segment, and swap it in.
+     */
+    private void rewrite(boolean force) throws IOException {
+        File rewritten = new File(file.getPath() + ".tmp");
+        Map<String, Segment> newSegments = new HashMap<>();
+        long position = FILE_HEADER_SIZE;
+
+        try (FileChannel target = FileChannel.open(rewritten.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            header.putInt(FILE_MAGIC).putInt(VERSION).flip();
+            writeFully(target, header, 0);
+
+            for (Map.Entry<String, Segment> entry : segments.entrySet()) {
+                Segment segment = entry.getValue();
+                ByteBuffer slot = readFully(channel, segment.getSlotOffset(segment.activeSlot), SLOT_HEADER_SIZE + segment.dataLength);
+                byte[] data = readSlotData(slot, segment.capacity);
+                if (data == null) {
+                    throw new IOException("Checksum mismatch in profile '" + entry.getKey() + "' of bundle '" + file.getPath() + "'");
+                }
+
+                Segment copy = new Segment(position, segment.keyLength, segment.capacity);
+                writeFully(target, encodeSegment(entry.getKey(), copy.capacity, segment.sequence, data), position);
+                copy.activeSlot = 0;
+                copy.sequence = segment.sequence;
+                copy.dataLength = segment.dataLength;
+                newSegments.put(entry.getKey(), copy);
+                position += copy.getLength();
+            }
+
+            if (force) {
+                target.force(true);
+            }
+        }
+
+        channel.close();
+        channel = null;
+        Files.move(rewritten.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        segments.clear();
+        segments.putAll(newSegments);
+        endPosition = position;
+        garbageBytes = 0;
+    }
+
+    private static ByteBuffer encodeSlot(long sequence, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_HEADER_SIZE + data.length);
+        buffer.putLong(sequence);
+        buffer.putInt(data.length);
+        buffer.putLong(crc.getValue());
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer encodeSegment(String key, int capacity, long sequence, byte[] data) {
+        byte[] keyBytes = keyBytes(key);
+        // The second slot is left empty: sequence 0 is never current
+        ByteBuffer buffer = ByteBuffer.allocate(4 + keyBytes.length + 4 + 2 * (SLOT_HEADER_SIZE + capacity));
+        buffer.putInt(keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.putInt(capacity);
+        buffer.put(encodeSlot(sequence, data));
+        buffer.position(buffer.limit());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Read the data of a slot, starting at the position of the buffer.
+     *
+     * @return The data, or null if the slot is empty or its data does not match the checksum.
+     */
+    private static byte[] readSlotData(ByteBuffer slot, int capacity) {
+        long sequence = slot.getLong();
+        int length = slot.getInt();
+        long checksum = slot.getLong();
+        if (sequence <= 0 || length < 0 || length > capacity || length > slot.remaining()) {
+            return null;
+        }
+
+        byte[] data = new byte[length];
+        slot.get(data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue() == checksum ? data : null;
+    }
+
+    private static int growCapacity(int length) {
+        // Leave room so the data can grow a bit before it needs a new segment
+        return Math.max(MIN_CAPACITY, length + length / 4);
+    }
+
+    private static byte[] keyBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of bundle at position " + (position + buffer.position()));
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + (length - buffer.remaining()));
+        }
+    }
+
+    /**
+     * Location of a profile in the bundle, and which of its slots is current.
+     */
+    private static final class Segment {
+
+        private final long offset;
+        private final int keyLength;
+        private final int capacity;
+
+        private String key;
+        private int activeSlot = -1;
+        private long sequence;
+        private int dataLength;
+
+        Segment(long offset, int keyLength, int capacity) {
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.capacity = capacity;
+        }
+
+        long getSlotOffset(int slot) {
+            return offset + 4 + keyLength + 4 + (long) slot * (SLOT_HEADER_SIZE + capacity);
+        }
+
+        long getLength() {
+            return 4L + keyLength + 4 + 2L * (SLOT_HEADER_SIZE + capacity);
+        }
+    }
+}
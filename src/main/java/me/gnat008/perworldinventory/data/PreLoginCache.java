@@ -0,0 +1,119 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds data that is read while a player is logging in, before they join the server, so that
+ * joining doesn't have to wait for the data source.
+ * <p>
+ * Data is read on the thread of the {@link org.bukkit.event.player.AsyncPlayerPreLoginEvent} and
+ * taken out again when the player spawns. Data that is not taken within a short time, e.g.
+ * because the login was denied after all, is dropped.
+ * <p>
+ * Only the logout world is staged. Profiles are not: the profile loaded on join is the one of the
+ * group the player spawns in, which is only known once they spawn, and if that is the group of the
+ * logout world, no profile is loaded at all.
+ * <p>
+ * Logout locations are written in the background, so a player who quits and joins again right away
+ * could read the location of the logout before. The logout worlds of players who quit recently are
+ * therefore kept and take precedence over the data source.
+ */
+public class PreLoginCache {
+
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long LOGOUT_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final DataSource dataSource;
+    private final Map<UUID, StagedLogin> staged = new ConcurrentHashMap<>();
+    private final Map<UUID, StagedLogin> recentLogouts = new ConcurrentHashMap<>();
+
+    @Inject
+    PreLoginCache(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Read the data of a player who is logging in. Blocks while the data is read, so this
+     * must not be called on the main thread.
+     *
+     * @param uuid The UUID of the player.
+     * @param name The name of the player.
+     */
+    public void stage(UUID uuid, String name) {
+        staged.values().removeIf(StagedLogin::isExpired);
+
+        StagedLogin logout = recentLogouts.get(uuid);
+        if (logout != null && !logout.isExpired(LOGOUT_MAX_AGE_NANOS)) {
+            // The logout location may not have been written yet
+            staged.put(uuid, new StagedLogin(logout.getLogoutWorld()));
+            return;
+        }
+
+        try {
+            staged.put(uuid, new StagedLogin(dataSource.getLogoutWorld(uuid)));
+        } catch (IOException ex) {
+            ConsoleLogger.warning("Unable to get logout location data for '" + name + "':", ex);
+        }
+    }
+
+    /**
+     * Remember the logout world of a player whose logout location is being written in the background,
+     * so that it is used if the player logs in again before the write is done.
+     *
+     * @param player The player who logged out.
+     */
+    public void recordLogout(PWIPlayer player) {
+        recentLogouts.values().removeIf(logout -> logout.isExpired(LOGOUT_MAX_AGE_NANOS));
+        recentLogouts.put(player.getUuid(), new StagedLogin(player.getLocation().getWorld().getName()));
+    }
+
+    /**
+     * Take the data that was read for a player when they logged in.
+     *
+     * @param uuid The UUID of the player.
+     * @return The data, or null if no data was read for the player, in which case it has to be
+     *         read from the data source.
+     */
+    public StagedLogin take(UUID uuid) {
+        StagedLogin login = staged.remove(uuid);
+        return login == null || login.isExpired() ? null : login;
+    }
+
+    /**
+     * Data of a player, read when they logged in.
+     */
+    public static final class StagedLogin {
+
+        private final String logoutWorld;
+        private final long time = System.nanoTime();
+
+        public StagedLogin(String logoutWorld) {
+            this.logoutWorld = logoutWorld;
+        }
+
+        /**
+         * Get the name of the world the player logged out in.
+         *
+         * @return The name of the world, or null if the player has no logout data.
+         */
+        public String getLogoutWorld() {
+            return logoutWorld;
+        }
+
+        boolean isExpired() {
+            return isExpired(MAX_AGE_NANOS);
+        }
+
+        boolean isExpired(long maxAgeNanos) {
+            return System.nanoTime() - time > maxAgeNanos;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.data.players.PlayerDataPrefetcher;
+import me.gnat008.perworldinventory.data.players.ProfileKey;
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind queue in front of {@link DataSource#saveToDatabase(Group, GameMode, PWIPlayerSnapshot)}.
+ * <p>
+ * Saves are keyed by player, group and gamemode. Saving a key that is still waiting in the
+ * queue replaces the queued data, so only the newest data of a key is ever written. The
+ * queue is drained in batches by a fixed number of worker threads; a key is never written
+ * by two workers at the same time, so an older save can not overwrite a newer one.
+ * <p>
+ * Data that was prefetched for a key is invalidated when a save for it is accepted and when
+ * it is written, so the data read before can never be applied over it.
+ */
+public class SaveQueue {
+
+    private final DataSource dataSource;
+    private final Settings settings;
+    private final PlayerDataPrefetcher prefetcher;
+
+    /** Saves waiting to be written, oldest first. All state below is guarded by {@code lock}. */
+    private final Map<ProfileKey, PendingSave> pending = new LinkedHashMap<>();
+    private final Map<ProfileKey, PendingSave> inFlight = new HashMap<>();
+    private final Object lock = new Object();
+    private int activeWorkers;
+
+    private long savesWritten;
+    private long savesCoalesced;
+    private long totalLatencyMillis;
+    private long lastLatencyMillis;
+
+    private ExecutorService workers;
+    private int workerCount;
+    private int batchSize;
+    private int shutdownTimeoutSeconds;
+
+    @Inject
+    SaveQueue(DataSource dataSource, Settings settings, PlayerDataPrefetcher prefetcher) {
+        this.dataSource = dataSource;
+        this.settings = settings;
+        this.prefetcher = prefetcher;
+    }
+
+    @PostConstruct
+    private void startWorkers() {
+        workerCount = Math.max(1, settings.getProperty(PwiProperties.SAVE_QUEUE_THREADS));
+        batchSize = Math.max(1, settings.getProperty(PwiProperties.SAVE_QUEUE_BATCH_SIZE));
+        shutdownTimeoutSeconds = Math.max(1, settings.getProperty(PwiProperties.SHUTDOWN_SAVE_TIMEOUT));
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "PerWorldInventory-Save-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        workers = Executors.newFixedThreadPool(workerCount, threadFactory);
+    }
+
+    /**
+     * Queue a player's data to be saved. If data for the same player, group and gamemode
+     * is already waiting, it is replaced.
+     *
+     * @param group The group the data belongs to.
+     * @param gamemode The gamemode the data belongs to.
+     * @param player The data to save. A snapshot of it is taken right away, so it must be called on the main thread.
+     */
+    public void submit(Group group, GameMode gamemode, PWIPlayer player) {
+        ProfileKey key = new ProfileKey(player.getUuid(), group, gamemode);
+        PWIPlayerSnapshot snapshot = PWIPlayerSnapshot.of(player);
+        prefetcher.invalidate(key);
+        synchronized (lock) {
+            if (!workers.isShutdown()) {
+                enqueue(key, player, snapshot);
+                return;
+            }
+        }
+
+        dataSource.saveToDatabase(group, gamemode, snapshot);
+    }
+
+    private void enqueue(ProfileKey key, PWIPlayer player, PWIPlayerSnapshot snapshot) {
+        synchronized (lock) {
+            PendingSave previous = pending.get(key);
+            if (previous != null) {
+                // Keep the queue position and age of the first save, only the data changes. The sections
+                // that changed for the replaced snapshot were taken from the player, so they must be kept
+                pending.put(key, new PendingSave(key, player, snapshot.withDirtySectionsOf(previous.snapshot), previous.queuedAt));
+                savesCoalesced++;
+                ConsoleLogger.debug("Replaced queued save with key '" + key + "'");
+                return;
+            }
+
+            pending.put(key, new PendingSave(key, player, snapshot, System.currentTimeMillis()));
+            if (activeWorkers < workerCount) {
+                activeWorkers++;
+                workers.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Get data that was submitted to be saved, but may not have been written yet. Data that
+     * is read from the data source while it is still in the queue would be outdated.
+     *
+     * @param uuid The UUID of the player.
+     * @param group The group of the data.
+     * @param gamemode The gamemode of the data.
+     * @return The data, or null if no data for the player, group and gamemode is waiting or being written.
+     */
+    public PWIPlayer getUnwritten(UUID uuid, Group group, GameMode gamemode) {
+        ProfileKey key = new ProfileKey(uuid, group, gamemode);
+        synchronized (lock) {
+            PendingSave save = pending.get(key);
+            if (save == null) {
+                save = inFlight.get(key);
+            }
+            return save == null ? null : save.player;
+        }
+    }
+
+    /**
+     * Stop the workers and write everything still in the queue on the calling thread.
+     * Used when the plugin is disabled; saves submitted afterwards are written right away.
+     * The workers get as long to finish as the data of online players gets to be written.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            workers.shutdown();
+        }
+        try {
+            if (!workers.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                ConsoleLogger.warning("Save workers did not finish within " + shutdownTimeoutSeconds + " seconds");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PendingSave> batch;
+        while (!(batch = takeBatch()).isEmpty()) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Get the number of saves waiting to be written, not counting the ones being written.
+     *
+     * @return The queue depth.
+     */
+    public int getDepth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Get how many saves were dropped because newer data for the same key was submitted
+     * before they were written.
+     *
+     * @return The number of coalesced saves.
+     */
+    public long getCoalescedCount() {
+        synchronized (lock) {
+            return savesCoalesced;
+        }
+    }
+
+    /**
+     * Get the time between queueing and writing the most recently written save.
+     *
+     * @return The latest drain latency in milliseconds.
+     */
+    public long getLastDrainLatency() {
+        synchronized (lock) {
+            return lastLatencyMillis;
+        }
+    }
+
+    /**
+     * Get the average time between queueing and writing a save, since the plugin was enabled.
+     *
+     * @return The average drain latency in milliseconds, or 0 if nothing was written yet.
+     */
+    public double getAverageDrainLatency() {
+        synchronized (lock) {
+            return savesWritten == 0 ? 0 : (double) totalLatencyMillis / savesWritten;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            List<PendingSave> batch;
+            synchronized (lock) {
+                batch = takeBatch();
+                if (batch.isEmpty()) {
+                    activeWorkers--;
+                    return;
+                }
+            }
+            write(batch);
+        }
+    }
+
+    /**
+     * Remove up to a batch of the oldest saves from the queue, skipping keys that another
+     * worker is currently writing. The keys taken are marked as in flight.
+     */
+    private List<PendingSave> takeBatch() {
+        synchronized (lock) {
+            List<PendingSave> batch = new ArrayList<>();
+            Iterator<PendingSave> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                PendingSave save = iterator.next();
+                if (!inFlight.containsKey(save.key)) {
+                    inFlight.put(save.key, save);
+                    iterator.remove();
+                    batch.add(save);
+                }
+            }
+            return batch;
+        }
+    }
+
+    private void write(List<PendingSave> batch) {
+        Map<ProfileKey, PWIPlayerSnapshot> saves = new LinkedHashMap<>();
+        for (PendingSave save : batch) {
+            saves.put(save.key, save.snapshot);
+        }
+        try {
+            dataSource.saveToDatabase(saves);
+        } catch (RuntimeException ex) {
+            ConsoleLogger.severe("Unable to save " + batch.size() + " queued saves:", ex);
+        }
+
+        for (PendingSave save : batch) {
+            prefetcher.invalidate(save.key);
+
+            long latency = System.currentTimeMillis() - save.queuedAt;
+            synchronized (lock) {
+                inFlight.remove(save.key);
+                savesWritten++;
+                totalLatencyMillis += latency;
+                lastLatencyMillis = latency;
+            }
+        }
+    }
+
+    /**
+     * A save waiting in the queue.
+     */
+    private static final class PendingSave {
+
+        private final ProfileKey key;
+        private final PWIPlayer player;
+        private final PWIPlayerSnapshot snapshot;
+        private final long queuedAt;
+
+        PendingSave(ProfileKey key, PWIPlayer player, PWIPlayerSnapshot snapshot, long queuedAt) {
+            this.key = key;
+            this.player = player;
+            this.snapshot = snapshot;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
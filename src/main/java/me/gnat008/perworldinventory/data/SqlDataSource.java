@@ -0,0 +1,244 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.DataFolder;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.data.players.ProfileKey;
+import me.gnat008.perworldinventory.data.serializers.LocationSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSerializer;
+import me.gnat008.perworldinventory.data.sql.ConnectionPool;
+import me.gnat008.perworldinventory.data.sql.ConnectionPool.PooledConnection;
+import me.gnat008.perworldinventory.data.sql.SqlDialect;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import org.bukkit.GameMode;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Data source which stores player data in a SQL database.
+ * <p>
+ * Saves are written on the calling thread, which is a worker of the {@link SaveQueue} for
+ * saves of profiles: a batch taken from the queue is written as one JDBC batch, in a single
+ * transaction. Logout locations are written in an async task, or right away while the plugin
+ * is being disabled. Database access never happens on the main thread, except for the logout
+ * location lookup on join which the {@link DataSource} contract requires to be synchronous.
+ */
+public class SqlDataSource extends AbstractDataSource {
+
+    private static final long CONNECTION_TIMEOUT_MILLIS = 10_000;
+    private static final String[] PROFILE_COLUMNS = {"uuid", "profile", "data"};
+    private static final String[] PROFILE_KEY = {"uuid", "profile"};
+    private static final String[] LOGOUT_COLUMNS = {"uuid", "data"};
+    private static final String[] LOGOUT_KEY = {"uuid"};
+
+    private final File dataFolder;
+    private final Settings settings;
+
+    private ConnectionPool pool;
+    private SqlDialect dialect;
+    private String profileTable;
+    private String logoutTable;
+
+    @Inject
+    SqlDataSource(@DataFolder File dataFolder, BukkitService bukkitService, FlatFile flatFile,
+                  PlayerSerializer playerSerializer, PipelineTimings timings, Settings settings) {
+        super(bukkitService, flatFile, playerSerializer, timings);
+        this.dataFolder = dataFolder;
+        this.settings = settings;
+    }
+
+    @PostConstruct
+    private void open() {
+        String url = settings.getProperty(PwiProperties.SQL_URL)
+                .replace("{data-folder}", dataFolder.getAbsolutePath().replace('\\', '/'));
+        String prefix = settings.getProperty(PwiProperties.SQL_TABLE_PREFIX);
+        dialect = SqlDialect.fromUrl(url);
+        profileTable = prefix + "profiles";
+        logoutTable = prefix + "logouts";
+
+        if (dialect == SqlDialect.SQLITE) {
+            // SQLite does not create missing directories for its database file
+            new File(dataFolder, "data").mkdirs();
+        }
+
+        pool = new ConnectionPool(url,
+                settings.getProperty(PwiProperties.SQL_USERNAME),
+                settings.getProperty(PwiProperties.SQL_PASSWORD),
+                settings.getProperty(PwiProperties.SQL_POOL_SIZE),
+                CONNECTION_TIMEOUT_MILLIS);
+
+        try (PooledConnection connection = pool.acquire();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + profileTable + " ("
+                    + "uuid VARCHAR(36) NOT NULL, "
+                    + "profile VARCHAR(255) NOT NULL, "
+                    + "data " + dialect.getBlobType() + " NOT NULL, "
+                    + "PRIMARY KEY (uuid, profile))");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + logoutTable + " ("
+                    + "uuid VARCHAR(36) NOT NULL, "
+                    + "data " + dialect.getBlobType() + " NOT NULL, "
+                    + "PRIMARY KEY (uuid))");
+        } catch (SQLException ex) {
+            pool.close();
+            throw new IllegalStateException("Could not set up database tables", ex);
+        }
+
+        ConsoleLogger.debug("Connected to " + dialect + " database");
+    }
+
+    @Override
+    public void saveLogoutData(PWIPlayer player, boolean createTask) {
+        String data = LocationSerializer.serialize(player.getLocation());
+        List<PendingWrite> writes = Collections.singletonList(
+                new PendingWrite(player.getUuid().toString(), null, data.getBytes(StandardCharsets.UTF_8)));
+        if (createTask) {
+            bukkitService.runTaskAsync(() -> write(writes));
+        } else {
+            write(writes);
+        }
+    }
+
+    @Override
+    public void saveToDatabase(Group group, GameMode gamemode, PWIPlayerSnapshot player) {
+        saveToDatabase(Collections.singletonMap(new ProfileKey(player.getUuid(), group, gamemode), player));
+    }
+
+    @Override
+    public void saveToDatabase(Map<ProfileKey, PWIPlayerSnapshot> saves) {
+        List<PendingWrite> writes = new ArrayList<>(saves.size());
+        for (Map.Entry<ProfileKey, PWIPlayerSnapshot> save : saves.entrySet()) {
+            ProfileKey key = save.getKey();
+            String profile = FlatFile.getProfileName(key.getGameMode(), key.getGroup());
+            ConsoleLogger.debug("Saving data for player '" + save.getValue().getName() + "' for profile '" + profile + "'");
+            writes.add(new PendingWrite(key.getUuid().toString(), profile, playerSerializer.serializeToBytes(save.getValue())));
+        }
+        write(writes);
+    }
+
+    @Override
+    protected byte[] readProfile(UUID uuid, String profile) throws IOException {
+        try {
+            return read(uuid, profile);
+        } catch (SQLException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    protected byte[] readLogout(UUID uuid) throws IOException {
+        return readProfile(uuid, null);
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Write saves to the database in one transaction. If the transaction fails, the saves are
+     * not retried: the error is logged and the data stays in the database as it was.
+     */
+    private void write(List<PendingWrite> writes) {
+        try {
+            writeBatch(writes);
+        } catch (SQLException ex) {
+            ConsoleLogger.severe("Unable to write " + writes.size() + " saves to the database:", ex);
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            Connection jdbc = connection.getConnection();
+            jdbc.setAutoCommit(false);
+            try {
+                PreparedStatement profiles = connection.prepare(dialect.upsert(profileTable, PROFILE_COLUMNS, PROFILE_KEY));
+                PreparedStatement logouts = connection.prepare(dialect.upsert(logoutTable, LOGOUT_COLUMNS, LOGOUT_KEY));
+                boolean hasProfiles = false;
+                boolean hasLogouts = false;
+
+                for (PendingWrite write : batch) {
+                    if (write.profile == null) {
+                        logouts.setString(1, write.uuid);
+                        logouts.setBytes(2, write.data);
+                        logouts.addBatch();
+                        hasLogouts = true;
+                    } else {
+                        profiles.setString(1, write.uuid);
+                        profiles.setString(2, write.profile);
+                        profiles.setBytes(3, write.data);
+                        profiles.addBatch();
+                        hasProfiles = true;
+                    }
+                }
+
+                if (hasProfiles) {
+                    profiles.executeBatch();
+                }
+                if (hasLogouts) {
+                    logouts.executeBatch();
+                }
+                jdbc.commit();
+            } catch (SQLException ex) {
+                connection.markBroken();
+                throw ex;
+            }
+        }
+        ConsoleLogger.debug("Wrote batch of " + batch.size() + " saves to the database");
+    }
+
+    /**
+     * Read the data of a profile, or of the logout location if the profile is null.
+     */
+    private byte[] read(UUID uuid, String profile) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement;
+            if (profile == null) {
+                statement = connection.prepare("SELECT data FROM " + logoutTable + " WHERE uuid = ?");
+                statement.setString(1, uuid.toString());
+            } else {
+                statement = connection.prepare("SELECT data FROM " + profileTable + " WHERE uuid = ? AND profile = ?");
+                statement.setString(1, uuid.toString());
+                statement.setString(2, profile);
+            }
+
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getBytes(1) : null;
+            }
+        }
+    }
+
+    /**
+     * A save to write. The profile is null for logout locations.
+     */
+    private static final class PendingWrite {
+
+        private final String uuid;
+        private final String profile;
+        private final byte[] data;
+
+        PendingWrite(String uuid, String profile, byte[] data) {
+            this.uuid = uuid;
+            this.profile = profile;
+            this.data = data;
+        }
+    }
+}
@@ -79,7 +79,7 @@ public class DataConverter {
             if (pwiGroup == null)
                 groupManager.addGroup(mvgroup.getName(), worlds);
             else
-                pwiGroup.addWorlds(worlds);
+                groupManager.addWorlds(pwiGroup, worlds);
 
             ProfileType[] MV_PROFILETYPES = { ProfileTypes.SURVIVAL, ProfileTypes.CREATIVE, ProfileTypes.ADVENTURE };
             for (ProfileType profileType : MV_PROFILETYPES) {
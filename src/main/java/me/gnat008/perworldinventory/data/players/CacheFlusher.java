@@ -0,0 +1,100 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.data.SaveQueue;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Saves the cached players that changed since they were last saved, and removes the ones
+ * that did not change from the cache.
+ * <p>
+ * Once every interval, all cached players are taken into a pass. Each tick only checks a slice
+ * of the pass, sized so that the pass is spread evenly across the interval, but never more than
+ * the budget. If a pass is not finished by the end of the interval, the next pass waits for it.
+ */
+class CacheFlusher {
+
+    private final PlayerCache playerCache;
+    private final SaveQueue saveQueue;
+    private final int interval;
+    private final int budget;
+
+    /** Only used on the main thread, except for the backlog. */
+    private final Deque<Map.Entry<ProfileKey, PWIPlayer>> pass = new ArrayDeque<>();
+    private int perTick;
+    private int ticksUntilNextPass;
+    private volatile int backlog;
+
+    /**
+     * Constructor.
+     *
+     * @param playerCache The cache to flush.
+     * @param saveQueue The queue to submit changed players to.
+     * @param interval The number of ticks between the start of two passes.
+     * @param budget The maximum number of players checked per tick, or 0 for no maximum.
+     */
+    CacheFlusher(PlayerCache playerCache, SaveQueue saveQueue, int interval, int budget) {
+        this.playerCache = playerCache;
+        this.saveQueue = saveQueue;
+        this.interval = Math.max(1, interval);
+        this.budget = budget > 0 ? budget : Integer.MAX_VALUE;
+        this.ticksUntilNextPass = this.interval;
+    }
+
+    /**
+     * Check the next slice of cached players. Must be called once every tick.
+     *
+     * @return True if a new pass was started.
+     */
+    boolean tick() {
+        if (ticksUntilNextPass > 0) {
+            ticksUntilNextPass--;
+        }
+        boolean started = false;
+        if (pass.isEmpty() && ticksUntilNextPass == 0) {
+            startPass();
+            started = true;
+        }
+
+        for (int i = 0; i < perTick && !pass.isEmpty(); i++) {
+            flush(pass.poll());
+        }
+
+        backlog = pass.size();
+        return started;
+    }
+
+    /**
+     * Get the number of cached players of the current pass that have not been checked yet.
+     *
+     * @return The backlog.
+     */
+    int getBacklog() {
+        return backlog;
+    }
+
+    private void startPass() {
+        pass.addAll(playerCache.entries());
+        ticksUntilNextPass = interval;
+        // Round up, so that the pass is finished within the interval
+        perTick = Math.min(budget, Math.max(1, (pass.size() + interval - 1) / interval));
+        ConsoleLogger.debug("[CACHE] Checking " + pass.size() + " cached players, " + perTick + " per tick");
+    }
+
+    private void flush(Map.Entry<ProfileKey, PWIPlayer> entry) {
+        ProfileKey key = entry.getKey();
+        PWIPlayer player = entry.getValue();
+        if (!player.isSaved()) {
+            ConsoleLogger.debug("Saving cached player with key '" + key + "'");
+
+            player.setSaved(true);
+            saveQueue.submit(key.getGroup(), key.getGameMode(), player);
+        } else if (playerCache.remove(key, player)) {
+            // Only if it was not replaced since the pass started
+            ConsoleLogger.debug("Removing player '" + player.getName() + "' from cache");
+        }
+    }
+}
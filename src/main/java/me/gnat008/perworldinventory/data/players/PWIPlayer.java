@@ -17,6 +17,7 @@
 
 package me.gnat008.perworldinventory.data.players;
 
+import me.gnat008.perworldinventory.data.serializers.PlayerSection;
 import me.gnat008.perworldinventory.groups.Group;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
@@ -25,7 +26,13 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.potion.PotionEffect;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -73,6 +80,11 @@ public class PWIPlayer {
     private boolean saved;
     private Group group;
 
+    /* SECTIONS CHANGED SINCE THE LAST SAVE */
+    private final Set<PlayerSection> dirtySections = EnumSet.allOf(PlayerSection.class);
+    private final Map<PlayerSection, byte[]> encodedSections = new EnumMap<>(PlayerSection.class);
+    private int encodedFormat;
+
     PWIPlayer(Player player, Group group, double bankBalance, double balance, boolean useAttributes) {
         this.uuid = player.getUniqueId();
         this.name = player.getName();
@@ -125,6 +137,8 @@ public class PWIPlayer {
      * @param armor Armor to set
      */
     public void setArmor(ItemStack[] armor) {
+        if (!Arrays.equals(this.armor, armor))
+            markDirty(PlayerSection.ARMOR);
         this.armor = armor;
     }
 
@@ -143,6 +157,8 @@ public class PWIPlayer {
      * @param enderChest EnderChest contents to set
      */
     public void setEnderChest(ItemStack[] enderChest) {
+        if (!Arrays.equals(this.enderChest, enderChest))
+            markDirty(PlayerSection.ENDER_CHEST);
         this.enderChest = enderChest;
     }
 
@@ -161,6 +177,8 @@ public class PWIPlayer {
      * @param inventory Inventory contents to set
      */
     public void setInventory(ItemStack[] inventory) {
+        if (!Arrays.equals(this.inventory, inventory))
+            markDirty(PlayerSection.INVENTORY);
         this.inventory = inventory;
     }
 
@@ -179,6 +197,8 @@ public class PWIPlayer {
      * @param canFly Can fly
      */
     public void setCanFly(boolean canFly) {
+        if (this.canFly != canFly)
+            markDirty(PlayerSection.STATS);
         this.canFly = canFly;
     }
 
@@ -197,6 +217,8 @@ public class PWIPlayer {
      * @param displayName Display name
      */
     public void setDisplayName(String displayName) {
+        if (!Objects.equals(this.displayName, displayName))
+            markDirty(PlayerSection.STATS);
         this.displayName = displayName;
     }
 
@@ -215,6 +237,8 @@ public class PWIPlayer {
      * @param exhaustion Exhaustion
      */
     public void setExhaustion(float exhaustion) {
+        if (this.exhaustion != exhaustion)
+            markDirty(PlayerSection.STATS);
         this.exhaustion = exhaustion;
     }
 
@@ -233,6 +257,8 @@ public class PWIPlayer {
      * @param experience Experience
      */
     public void setExperience(float experience) {
+        if (this.experience != experience)
+            markDirty(PlayerSection.STATS);
         this.experience = experience;
     }
 
@@ -251,6 +277,8 @@ public class PWIPlayer {
      * @param flying Flying
      */
     public void setFlying(boolean flying) {
+        if (this.isFlying != flying)
+            markDirty(PlayerSection.STATS);
         this.isFlying = flying;
     }
 
@@ -269,6 +297,8 @@ public class PWIPlayer {
      * @param foodLevel Food level
      */
     public void setFoodLevel(int foodLevel) {
+        if (this.foodLevel != foodLevel)
+            markDirty(PlayerSection.STATS);
         this.foodLevel = foodLevel;
     }
 
@@ -287,6 +317,8 @@ public class PWIPlayer {
      * @param maxHealth Maximum health
      */
     public void setMaxHealth(double maxHealth) {
+        if (this.maxHealth != maxHealth)
+            markDirty(PlayerSection.STATS);
         this.maxHealth = maxHealth;
     }
 
@@ -305,6 +337,8 @@ public class PWIPlayer {
      * @param health Health level
      */
     public void setHealth(double health) {
+        if (this.health != health)
+            markDirty(PlayerSection.STATS);
         this.health = health;
     }
 
@@ -323,6 +357,8 @@ public class PWIPlayer {
      * @param gamemode GameMode
      */
     public void setGamemode(GameMode gamemode) {
+        if (this.gamemode != gamemode)
+            markDirty(PlayerSection.STATS);
         this.gamemode = gamemode;
     }
 
@@ -341,6 +377,8 @@ public class PWIPlayer {
      * @param level Level
      */
     public void setLevel(int level) {
+        if (this.level != level)
+            markDirty(PlayerSection.STATS);
         this.level = level;
     }
 
@@ -359,6 +397,8 @@ public class PWIPlayer {
      * @param saturationLevel Saturation
      */
     public void setSaturationLevel(float saturationLevel) {
+        if (this.saturationLevel != saturationLevel)
+            markDirty(PlayerSection.STATS);
         this.saturationLevel = saturationLevel;
     }
 
@@ -377,6 +417,8 @@ public class PWIPlayer {
      * @param potionEffects Potion effects
      */
     public void setPotionEffects(Collection<PotionEffect> potionEffects) {
+        if (!Objects.equals(this.potionEffects, potionEffects))
+            markDirty(PlayerSection.POTION_EFFECTS);
         this.potionEffects = potionEffects;
     }
 
@@ -395,6 +437,8 @@ public class PWIPlayer {
      * @param bankBalance Bank balance
      */
     public void setBankBalance(double bankBalance) {
+        if (this.bankBalance != bankBalance)
+            markDirty(PlayerSection.ECONOMY);
         this.bankBalance = bankBalance;
     }
 
@@ -413,6 +457,8 @@ public class PWIPlayer {
      * @param balance Balance
      */
     public void setBalance(double balance) {
+        if (this.balance != balance)
+            markDirty(PlayerSection.ECONOMY);
         this.balance = balance;
     }
 
@@ -462,6 +508,79 @@ public class PWIPlayer {
         this.saved = saved;
     }
 
+    /**
+     * Check if any section of this player changed since it was last serialized.
+     *
+     * @return True if at least one section changed
+     */
+    public boolean hasDirtySections() {
+        synchronized (dirtySections) {
+            return !dirtySections.isEmpty();
+        }
+    }
+
+    /**
+     * Get the sections that changed since this player was last serialized, and mark all sections
+     * as unchanged. Call this before reading the data to serialize, so that changes made while
+     * serializing are picked up by the next save.
+     *
+     * @return The sections that changed
+     */
+    public Set<PlayerSection> takeDirtySections() {
+        synchronized (dirtySections) {
+            Set<PlayerSection> dirty = EnumSet.copyOf(dirtySections);
+            dirtySections.clear();
+            return dirty;
+        }
+    }
+
+    /**
+     * Mark a section as changed, so that it is serialized again by the next save.
+     *
+     * @param section The section that changed
+     */
+    public void markDirty(PlayerSection section) {
+        synchronized (dirtySections) {
+            dirtySections.add(section);
+        }
+    }
+
+    /**
+     * Get the bytes a section was serialized to by the last save.
+     *
+     * @param section The section
+     * @param format The data format the bytes must be in
+     * @return The serialized section, or null if it was not serialized yet or in another format
+     */
+    public byte[] getEncodedSection(PlayerSection section, int format) {
+        synchronized (encodedSections) {
+            return format == encodedFormat ? encodedSections.get(section) : null;
+        }
+    }
+
+    /**
+     * Remember the bytes a section was serialized to, so that they can be reused as long as
+     * the section does not change. The sections remembered in another format are forgotten,
+     * as they may be outdated by changes that were only written in this format.
+     *
+     * @param section The section
+     * @param format The data format of the bytes
+     * @param data The serialized section, or null to forget the section
+     */
+    public void setEncodedSection(PlayerSection section, int format, byte[] data) {
+        synchronized (encodedSections) {
+            if (format != encodedFormat) {
+                encodedSections.clear();
+                encodedFormat = format;
+            }
+            if (data == null) {
+                encodedSections.remove(section);
+            } else {
+                encodedSections.put(section, data);
+            }
+        }
+    }
+
     /**
      * Get the location of the player.
      *
@@ -485,6 +604,8 @@ public class PWIPlayer {
     }
 
     public void setFallDistance(float fallDistance) {
+        if (this.fallDistance != fallDistance)
+            markDirty(PlayerSection.STATS);
         this.fallDistance = fallDistance;
     }
 
@@ -493,6 +614,8 @@ public class PWIPlayer {
     }
 
     public void setFireTicks(int fireTicks) {
+        if (this.fireTicks != fireTicks)
+            markDirty(PlayerSection.STATS);
         this.fireTicks = fireTicks;
     }
 
@@ -501,6 +624,8 @@ public class PWIPlayer {
     }
 
     public void setMaxAir(int maxAir) {
+        if (this.maxAir != maxAir)
+            markDirty(PlayerSection.STATS);
         this.maxAir = maxAir;
     }
 
@@ -509,6 +634,8 @@ public class PWIPlayer {
     }
 
     public void setRemainingAir(int remainingAir) {
+        if (this.remainingAir != remainingAir)
+            markDirty(PlayerSection.STATS);
         this.remainingAir = remainingAir;
     }
 }
@@ -23,10 +23,16 @@ import me.gnat008.perworldinventory.ConsoleLogger;
 import me.gnat008.perworldinventory.config.PwiProperties;
 import me.gnat008.perworldinventory.config.Settings;
 import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.data.PreLoginCache;
+import me.gnat008.perworldinventory.data.SaveQueue;
 import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.data.serializers.ItemSerializationCache;
 import me.gnat008.perworldinventory.events.InventoryLoadCompleteEvent;
 import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.groups.GroupDiff;
 import me.gnat008.perworldinventory.groups.GroupManager;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
@@ -40,7 +46,6 @@ import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static me.gnat008.perworldinventory.util.Utils.checkServerVersion;
 import static me.gnat008.perworldinventory.util.Utils.zeroPlayer;
@@ -56,28 +61,44 @@ public class PWIPlayerManager {
     private PerWorldInventory plugin;
     private BukkitService bukkitService;
     private DataSource dataSource;
+    private SaveQueue saveQueue;
+    private PreLoginCache preLoginCache;
+    private ItemSerializationCache itemCache;
+    private PlayerDataPrefetcher prefetcher;
     private GroupManager groupManager;
     private PWIPlayerFactory pwiPlayerFactory;
+    private PipelineTimings timings;
     private Settings settings;
 
     private int interval;
     private BukkitTask task;
 
-    // Key format: uuid.group.gamemode
-    private Map<String, PWIPlayer> playerCache = new ConcurrentHashMap<>();
+    private final PlayerCache playerCache;
+    private final CacheFlusher flusher;
 
     @Inject
-    PWIPlayerManager(PerWorldInventory plugin, BukkitService bukkitService, DataSource dataSource, GroupManager groupManager,
-                     PWIPlayerFactory pwiPlayerFactory, Settings settings) {
+    PWIPlayerManager(PerWorldInventory plugin, BukkitService bukkitService, DataSource dataSource, SaveQueue saveQueue,
+                     PreLoginCache preLoginCache, ItemSerializationCache itemCache, PlayerDataPrefetcher prefetcher, GroupManager groupManager,
+                     PWIPlayerFactory pwiPlayerFactory, PipelineTimings timings, Settings settings) {
         this.plugin = plugin;
         this.bukkitService = bukkitService;
         this.dataSource = dataSource;
+        this.saveQueue = saveQueue;
+        this.preLoginCache = preLoginCache;
+        this.itemCache = itemCache;
+        this.prefetcher = prefetcher;
         this.groupManager = groupManager;
         this.pwiPlayerFactory = pwiPlayerFactory;
+        this.timings = timings;
         this.settings = settings;
 
         int setting = settings.getProperty(PwiProperties.SAVE_INTERVAL);
         this.interval = (setting != -1 ? setting : 300) * 20;
+
+        long maxSize = settings.getProperty(PwiProperties.PLAYER_CACHE_MAX_SIZE) * 1024L;
+        this.playerCache = new PlayerCache(maxSize, this::saveEvictedPlayer);
+        int budget = settings.getProperty(PwiProperties.PLAYER_CACHE_FLUSH_BUDGET);
+        this.flusher = new CacheFlusher(playerCache, saveQueue, interval, budget);
     }
 
     /**
@@ -85,13 +106,29 @@ public class PWIPlayerManager {
      */
     public void onDisable() {
         task.cancel();
+        // Write everything still queued first, so it can't overwrite the saves below
+        saveQueue.shutdown();
 
+        // Collect everything on this thread, then write it in parallel
+        ShutdownFlush flush = new ShutdownFlush(dataSource,
+                settings.getProperty(PwiProperties.SHUTDOWN_SAVE_THREADS), settings.getProperty(PwiProperties.SHUTDOWN_SAVE_TIMEOUT));
         for (Player player : Bukkit.getOnlinePlayers()) {
             Group group = groupManager.getGroupFromWorld(player.getWorld().getName());
-            savePlayer(group, player, false);
+            PWIPlayer pwiPlayer = saveProfiles(group, player, flush::addProfile);
+            flush.addLogout(pwiPlayer);
+            removePlayer(player);
         }
+        flush.run();
 
         playerCache.clear();
+        if (flush.hasRunningWrites()) {
+            // Closing would pull the files or connections out from under the writes
+            ConsoleLogger.severe("[SHUTDOWN] Not closing the data source, writes of the players above are still running");
+        } else {
+            dataSource.close();
+        }
+        ConsoleLogger.debug("[CACHE] Player cache: " + playerCache);
+        ConsoleLogger.debug("[SERIALIZER] Item cache: " + itemCache);
     }
 
     /**
@@ -107,14 +144,17 @@ public class PWIPlayerManager {
      *
      * @return The key used to get the player data.
      */
-    public String addPlayer(Player player, Group group) {
-        String key = makeKey(player.getUniqueId(), group, player.getGameMode());
+    public ProfileKey addPlayer(Player player, Group group) {
+        ProfileKey key = makeKey(player.getUniqueId(), group, player.getGameMode());
 
         ConsoleLogger.debug("Adding player '" + player.getName() + "' to cache; key is '" + key + "'");
 
-        if (playerCache.containsKey(key)) {
+        PWIPlayer cached = playerCache.get(key);
+        if (cached != null) {
             ConsoleLogger.debug("Player '" + player.getName() + "' found in cache! Updating cache");
-            updateCache(player, playerCache.get(key));
+            updateCache(player, cached);
+            // Put it again, as the changes can make it heavier
+            playerCache.put(key, cached);
         } else {
             playerCache.put(key, pwiPlayerFactory.create(player, group));
         }
@@ -129,11 +169,8 @@ public class PWIPlayerManager {
      * @param player The player to remove from the cache
      */
     public void removePlayer(Player player) {
-        for (String key : playerCache.keySet()) {
-            if (key.startsWith(player.getUniqueId().toString())) {
-                playerCache.remove(key);
-            }
-        }
+        playerCache.removeAll(player.getUniqueId());
+        prefetcher.discard(player.getUniqueId());
     }
 
     /**
@@ -146,7 +183,7 @@ public class PWIPlayerManager {
      * @return The PWIPlayer in the cache, or null
      */
     public PWIPlayer getPlayer(Group group, Player player) {
-        String key = makeKey(player.getUniqueId(), group, player.getGameMode());
+        ProfileKey key = makeKey(player.getUniqueId(), group, player.getGameMode());
 
         return playerCache.get(key);
     }
@@ -164,14 +201,45 @@ public class PWIPlayerManager {
         ConsoleLogger.debug("Trying to get data from cache for player '" + player.getName() + "'");
         zeroPlayer(plugin, player);
 
-        if(isPlayerCached(group, gamemode, player)) {
-            getDataFromCache(group, gamemode, player, cause);
+        ProfileKey key = makeKey(player.getUniqueId(), group, gamemode);
+        ConsoleLogger.debug("Looking for cached data with key '" + key + "'");
+        PWIPlayer cached = playerCache.get(key);
+        if (cached == null) {
+            // Evicted from the cache, or saved when leaving; the data source may not have it yet
+            cached = saveQueue.getUnwritten(key.getUuid(), key.getGroup(), key.getGameMode());
+        }
+
+        if (cached != null) {
+            ConsoleLogger.debug("Player '" + player.getName() + "' found in cache! Setting their data");
+            prefetcher.discard(player.getUniqueId());
+            applyCachedData(cached, player, cause);
+        } else if (prefetcher.applyPrefetched(key, player, cause)) {
+            ConsoleLogger.debug("Player was not in cache! Using data loaded during the teleport");
         } else {
             ConsoleLogger.debug("Player was not in cache! Loading from file");
             dataSource.getFromDatabase(group, gamemode, player, cause);
         }
     }
 
+    /**
+     * Start loading a player's data for the group they are about to enter, so that it is
+     * ready when {@link #getPlayerData(Group, GameMode, Player, DeserializeCause)} is called
+     * for that group. Nothing is loaded if the data is in the cache, or still waiting to be written,
+     * since the data source would only return older data.
+     *
+     * @param group The Group the player is going to.
+     * @param player The Player.
+     */
+    public void prefetchPlayerData(Group group, Player player) {
+        ProfileKey key = makeKey(player.getUniqueId(), group, player.getGameMode());
+        if (playerCache.contains(key) || saveQueue.getUnwritten(key.getUuid(), key.getGroup(), key.getGameMode()) != null) {
+            return;
+        }
+
+        ConsoleLogger.debug("Prefetching data for player '" + player.getName() + "' with key '" + key + "'");
+        prefetcher.prefetch(key, player);
+    }
+
     /**
      * Save all cached instances of a player to the disk.
      *
@@ -180,46 +248,88 @@ public class PWIPlayerManager {
      * @param createTask If a new task should be started.
      */
     public void savePlayer(Group group, Player player, boolean createTask) {
-        String key = makeKey(player.getUniqueId(), group, player.getGameMode());
+        ProfileSaver saver = createTask
+                ? saveQueue::submit
+                : (groupKey, gamemode, pwiPlayer) -> dataSource.saveToDatabase(groupKey, gamemode, PWIPlayerSnapshot.of(pwiPlayer));
+
+        PWIPlayer pwiPlayer = saveProfiles(group, player, saver);
+        if (createTask) {
+            preLoginCache.recordLogout(pwiPlayer);
+        }
+        dataSource.saveLogoutData(pwiPlayer, createTask); // If we're disabling, cant create a new task
+        removePlayer(player);
+    }
+
+    /**
+     * Save all cached instances of a player that were not saved yet, and the current state of the player.
+     *
+     * @param group The Group the player is currently in.
+     * @param player The player to save.
+     * @param saver Saves the data of one group and gamemode.
+     * @return The current state of the player.
+     */
+    private PWIPlayer saveProfiles(Group group, Player player, ProfileSaver saver) {
+        ProfileKey key = makeKey(player.getUniqueId(), group, player.getGameMode());
 
         // Remove any entry with the current key, if one exists
         // Should remove the possibility of having to write the same data twice
         playerCache.remove(key);
 
-        for (String cachedKey : playerCache.keySet()) {
-            if (cachedKey.startsWith(player.getUniqueId().toString())) {
-                PWIPlayer cached = playerCache.get(cachedKey);
-                if (cached.isSaved()) {
-                    continue;
-                }
+        for (Map.Entry<ProfileKey, PWIPlayer> entry : playerCache.getAll(player.getUniqueId()).entrySet()) {
+            PWIPlayer cached = entry.getValue();
+            if (cached.isSaved()) {
+                continue;
+            }
 
-                String[] parts = cachedKey.split("\\.");
-                Group groupKey = groupManager.getGroup(parts[1]);
-                GameMode gamemode = GameMode.valueOf(parts[2].toUpperCase());
+            Group groupKey = entry.getKey().getGroup();
+            GameMode gamemode = entry.getKey().getGameMode();
 
-                ConsoleLogger.debug("Saving cached player '" + cached.getName() + "' for group '" + groupKey.getName() + "' with gamemdde '" + gamemode.name() + "'");
+            ConsoleLogger.debug("Saving cached player '" + cached.getName() + "' for group '" + groupKey.getName() + "' with gamemdde '" + gamemode.name() + "'");
 
-                cached.setSaved(true);
-                if (!createTask) {
-                    dataSource.saveToDatabase(groupKey, gamemode, cached);
-                } else {
-                    bukkitService.runTaskAsync(() -> dataSource.saveToDatabase(groupKey, gamemode, cached));
-                }
-            }
+            cached.setSaved(true);
+            saver.save(groupKey, gamemode, cached);
         }
 
         PWIPlayer pwiPlayer = pwiPlayerFactory.create(player, group);
-        if (!createTask) {
-            dataSource.saveToDatabase(group,
-                    settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES) ? player.getGameMode() : GameMode.SURVIVAL,
-                    pwiPlayer);
-        } else {
-            bukkitService.runTaskAsync(() -> dataSource.saveToDatabase(group,
-                    settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES) ? player.getGameMode() : GameMode.SURVIVAL,
-                    pwiPlayer));
+        saver.save(group,
+                settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES) ? player.getGameMode() : GameMode.SURVIVAL,
+                pwiPlayer);
+        return pwiPlayer;
+    }
+
+    /**
+     * Bring the cache in line with groups that were just reloaded. Cached data of groups that
+     * still exist is moved to the reloaded group; cached data of groups that were removed from
+     * the worlds.yml file is queued to be saved for the old group, and removed from the cache.
+     *
+     * @param diff The differences between the groups before and after the reload.
+     * @return The number of cached profiles that were queued to be saved.
+     */
+    public int reconcileGroups(GroupDiff diff) {
+        int flushed = 0;
+        for (Map.Entry<ProfileKey, PWIPlayer> entry : playerCache.entries()) {
+            ProfileKey key = entry.getKey();
+            PWIPlayer cached = entry.getValue();
+            if (diff.isRemoved(key.getGroup().getName())) {
+                ConsoleLogger.debug("[RELOAD] Group '" + key.getGroup().getName() + "' was removed, saving cached data with key '" + key + "'");
+                playerCache.remove(key);
+                if (!cached.isSaved()) {
+                    cached.setSaved(true);
+                    saveQueue.submit(key.getGroup(), key.getGameMode(), cached);
+                    flushed++;
+                }
+                continue;
+            }
+
+            // Groups that aren't in the worlds.yml file are created again with the same name when needed
+            Group group = groupManager.getGroup(key.getGroup().getName());
+            if (group != null && group != key.getGroup()) {
+                playerCache.remove(key);
+                playerCache.put(new ProfileKey(key.getUuid(), group, key.getGameMode()), cached);
+            }
         }
-        dataSource.saveLogoutData(pwiPlayer, createTask); // If we're disabling, cant create a new task
-        removePlayer(player);
+
+        return flushed;
     }
 
     /**
@@ -232,31 +342,20 @@ public class PWIPlayerManager {
      * @return True if a {@link PWIPlayer} is cached.
      */
     public boolean isPlayerCached(Group group, GameMode gameMode, Player player) {
-        String key = makeKey(player.getUniqueId(), group, gameMode);
+        ProfileKey key = makeKey(player.getUniqueId(), group, gameMode);
 
-        return playerCache.containsKey(key);
+        return playerCache.contains(key);
     }
 
     /**
-     * Get a player from the cache, and apply the cached inventories and stats
-     * to the actual player. If no matching player is found in the cache, nothing
-     * happens and this method simply returns.
+     * Apply the cached inventories and stats of a player to the actual player.
      *
-     * @param group The {@link Group} the cached player was in.
-     * @param gamemode The GameMode the cached player was in.
+     * @param cachedPlayer The cached player.
      * @param player The current actual player to apply the data to.
      * @param cause What triggered the inventory switch; passed on for post-processing.
      */
-    private void getDataFromCache(Group group, GameMode gamemode, Player player, DeserializeCause cause) {
-        PWIPlayer cachedPlayer = getCachedPlayer(group, gamemode, player.getUniqueId());
-        if (cachedPlayer == null) {
-            ConsoleLogger.debug("No data for player '" + player.getName() + "' found in cache");
-
-            return;
-        }
-
-        ConsoleLogger.debug("Player '" + player.getName() + "' found in cache! Setting their data");
-
+    private void applyCachedData(PWIPlayer cachedPlayer, Player player, DeserializeCause cause) {
+        long start = timings.start();
         if (settings.getProperty(PwiProperties.LOAD_ENDER_CHESTS))
             player.getEnderChest().setContents(cachedPlayer.getEnderChest());
         if (settings.getProperty(PwiProperties.LOAD_INVENTORY)) {
@@ -329,61 +428,65 @@ public class PWIPlayerManager {
             }
         }
 
+        timings.record(Stage.APPLY, cause, start);
+
+        long eventStart = timings.start();
         InventoryLoadCompleteEvent event = new InventoryLoadCompleteEvent(player, cause);
         Bukkit.getPluginManager().callEvent(event);
+        timings.record(Stage.COMPLETE_EVENT, cause, eventStart);
     }
 
     /**
-     * Get a PWI player from a UUID.
-     * <p>
-     * This method will return null if no player is found, or if they have not been
-     * saved with the Group given.
+     * Called when the cache is full and a player is evicted from it. If the player was changed
+     * since it was last saved, it is saved now.
      *
-     * @param group The Group to grab data from
-     * @param gameMode The GameMode to get the data for
-     * @param uuid The UUID of the player
-     * @return The PWIPlayer
+     * @param key The key of the evicted player.
+     * @param player The evicted player.
      */
-    private PWIPlayer getCachedPlayer(Group group, GameMode gameMode, UUID uuid) {
-        String key = makeKey(uuid, group, gameMode);
-
-        ConsoleLogger.debug("Looking for cached data with key '" + key + "'");
-
-        return playerCache.get(key);
+    private void saveEvictedPlayer(ProfileKey key, PWIPlayer player) {
+        if (!player.isSaved()) {
+            ConsoleLogger.debug("[CACHE] Saving evicted player with key '" + key + "'");
+            player.setSaved(true);
+            saveQueue.submit(key.getGroup(), key.getGameMode(), player);
+        }
     }
 
     /**
-     * Starts a synchronized repeating task to iterate through all PWIPlayers in the player
+     * Starts a synchronized repeating task to go through all PWIPlayers in the player
      * cache. If the player has not yet been saved to a database, they will be saved.
      * <p>
      * Additionally, if a player is still in the cache, but they have already been saved,
      * remove them from the cache.
      * <p>
-     * By default, this task will execute once every 5 minutes.
+     * By default, all players are checked once every 5 minutes. The players are checked
+     * a few at a time on every tick, see {@link CacheFlusher}.
      */
     @PostConstruct
     private void scheduleRepeatingTask() {
         this.task = bukkitService.runRepeatingTask(() -> {
-            for (String key : playerCache.keySet()) {
-                PWIPlayer player = playerCache.get(key);
-                if (!player.isSaved()) {
-                    String[] parts = key.split("\\.");
-                    Group group = groupManager.getGroup(parts[1]);
-                    GameMode gamemode = GameMode.valueOf(parts[2].toUpperCase());
-
-                    ConsoleLogger.debug("Saving cached player with key '" + key + "'");
-                    ConsoleLogger.debug("Player: " + player.getName());
-                    ConsoleLogger.debug("Group: " + group.getName());
-                    ConsoleLogger.debug("Gamemode: " + gamemode.toString());
-
-                    player.setSaved(true);
-                    bukkitService.runTaskAsync(() -> dataSource.saveToDatabase(group, gamemode, player));
-                } else {
-                    ConsoleLogger.debug("Removing player '" + player.getName() + "' from cache");
-                    playerCache.remove(key);
-                }
+            if (flusher.tick()) {
+                ConsoleLogger.debug("[CACHE] Player cache: " + playerCache);
+                ConsoleLogger.debug("[SERIALIZER] Item cache: " + itemCache);
             }
-        }, interval, interval);
+        }, 1, 1);
+    }
+
+    /**
+     * Get the number of cached players that still have to be checked for changes in the current pass.
+     *
+     * @return The backlog of the cache flusher.
+     */
+    public int getFlushBacklog() {
+        return flusher.getBacklog();
+    }
+
+    /**
+     * Describe the state of the player cache, for the stats command.
+     *
+     * @return The size, weight, hits, misses and evictions of the cache, and the flush backlog.
+     */
+    public String describeCache() {
+        return playerCache + ", " + flusher.getBacklog() + " waiting to be checked for changes";
     }
 
     /**
@@ -395,8 +498,6 @@ public class PWIPlayerManager {
     public void updateCache(Player newData, PWIPlayer currentPlayer) {
         ConsoleLogger.debug("Updating player '" + newData.getName() + "' in the cache");
 
-        currentPlayer.setSaved(false);
-
         currentPlayer.setArmor(newData.getInventory().getArmorContents());
         currentPlayer.setEnderChest(newData.getEnderChest().getContents());
         currentPlayer.setInventory(newData.getInventory().getContents());
@@ -425,13 +526,17 @@ public class PWIPlayerManager {
             currentPlayer.setBankBalance(plugin.getEconomy().bankBalance(newData.getName()).balance);
             currentPlayer.setBalance(plugin.getEconomy().getBalance(newData));
         }
+
+        // Nothing to write if the player didn't change since the last save
+        if (currentPlayer.hasDirtySections())
+            currentPlayer.setSaved(false);
     }
 
     /**
      * Create a key to get and save a player's data in the cache.
      * <p>
-     *     The format of a key is as follows:
-     *     <i>uuid.group-name.gamemode</i>
+     *     If gamemodes do not have separate inventories, the key is always
+     *     made for {@link GameMode#SURVIVAL}.
      * </p>
      *
      * @param uuid The UUID of the player.
@@ -439,13 +544,18 @@ public class PWIPlayerManager {
      * @param gameMode The player's current GameMode.
      * @return The key.
      */
-    public String makeKey(UUID uuid, Group group, GameMode gameMode) {
-        String key = uuid.toString() + "." + group.getName() + ".";
-        if (settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES))
-            key += gameMode.toString().toLowerCase();
-        else
-            key += "survival";
+    public ProfileKey makeKey(UUID uuid, Group group, GameMode gameMode) {
+        if (!settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES))
+            gameMode = GameMode.SURVIVAL;
 
-        return key;
+        return new ProfileKey(uuid, group, gameMode);
+    }
+
+    /**
+     * Saves the data of a player for one group and gamemode.
+     */
+    @FunctionalInterface
+    private interface ProfileSaver {
+        void save(Group group, GameMode gamemode, PWIPlayer player);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,295 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.data.serializers.PlayerSection;
+import org.bukkit.GameMode;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The data of a {@link PWIPlayer} at the time it was saved, which is what the serializers write.
+ * <p>
+ * A PWIPlayer is changed on the main thread while it is cached, and the items it holds can be
+ * the live items of the player. A snapshot is taken on the main thread and copies all items and
+ * potion effects, so it can be serialized on any thread without locking. It is immutable: the
+ * arrays are copied again when they are returned, and the items in them must not be changed.
+ * <p>
+ * Taking a snapshot also takes the {@link PWIPlayer#takeDirtySections() dirty sections} of the
+ * player. The bytes of the sections that did not change are shared with the player, so that the
+ * bytes written for one snapshot can be reused for the next.
+ */
+public final class PWIPlayerSnapshot {
+
+    private final PWIPlayer source;
+    private final Set<PlayerSection> dirtySections;
+
+    private final ItemStack[] armor;
+    private final ItemStack[] enderChest;
+    private final ItemStack[] inventory;
+
+    private final boolean canFly;
+    private final String displayName;
+    private final float exhaustion;
+    private final float experience;
+    private final boolean flying;
+    private final int foodLevel;
+    private final double maxHealth;
+    private final double health;
+    private final GameMode gamemode;
+    private final int level;
+    private final float saturationLevel;
+    private final Collection<PotionEffect> potionEffects;
+    private final float fallDistance;
+    private final int fireTicks;
+    private final int maxAir;
+    private final int remainingAir;
+
+    private final double bankBalance;
+    private final double balance;
+
+    private final UUID uuid;
+    private final String name;
+
+    private PWIPlayerSnapshot(PWIPlayer player) {
+        this.source = player;
+        // Taken before reading any data, so changes made afterwards are saved next time
+        this.dirtySections = Collections.unmodifiableSet(player.takeDirtySections());
+
+        this.armor = copyItems(player.getArmor());
+        this.enderChest = copyItems(player.getEnderChest());
+        this.inventory = copyItems(player.getInventory());
+
+        this.canFly = player.getCanFly();
+        this.displayName = player.getDisplayName();
+        this.exhaustion = player.getExhaustion();
+        this.experience = player.getExperience();
+        this.flying = player.isFlying();
+        this.foodLevel = player.getFoodLevel();
+        this.maxHealth = player.getMaxHealth();
+        this.health = player.getHealth();
+        this.gamemode = player.getGamemode();
+        this.level = player.getLevel();
+        this.saturationLevel = player.getSaturationLevel();
+        this.potionEffects = player.getPotionEffects() == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(player.getPotionEffects()));
+        this.fallDistance = player.getFallDistance();
+        this.fireTicks = player.getFireTicks();
+        this.maxAir = player.getMaxAir();
+        this.remainingAir = player.getRemainingAir();
+
+        this.bankBalance = player.getBankBalance();
+        this.balance = player.getBalance();
+
+        this.uuid = player.getUuid();
+        this.name = player.getName();
+    }
+
+    private PWIPlayerSnapshot(PWIPlayerSnapshot snapshot, Set<PlayerSection> dirtySections) {
+        this.source = snapshot.source;
+        this.dirtySections = Collections.unmodifiableSet(dirtySections);
+
+        this.armor = snapshot.armor;
+        this.enderChest = snapshot.enderChest;
+        this.inventory = snapshot.inventory;
+
+        this.canFly = snapshot.canFly;
+        this.displayName = snapshot.displayName;
+        this.exhaustion = snapshot.exhaustion;
+        this.experience = snapshot.experience;
+        this.flying = snapshot.flying;
+        this.foodLevel = snapshot.foodLevel;
+        this.maxHealth = snapshot.maxHealth;
+        this.health = snapshot.health;
+        this.gamemode = snapshot.gamemode;
+        this.level = snapshot.level;
+        this.saturationLevel = snapshot.saturationLevel;
+        this.potionEffects = snapshot.potionEffects;
+        this.fallDistance = snapshot.fallDistance;
+        this.fireTicks = snapshot.fireTicks;
+        this.maxAir = snapshot.maxAir;
+        this.remainingAir = snapshot.remainingAir;
+
+        this.bankBalance = snapshot.bankBalance;
+        this.balance = snapshot.balance;
+
+        this.uuid = snapshot.uuid;
+        this.name = snapshot.name;
+    }
+
+    /**
+     * Take a snapshot of a player. Must be called on the main thread.
+     *
+     * @param player The player
+     * @return The snapshot
+     */
+    public static PWIPlayerSnapshot of(PWIPlayer player) {
+        return new PWIPlayerSnapshot(player);
+    }
+
+    /**
+     * Get a snapshot with the same data, which also has the dirty sections of an older snapshot.
+     * Used when the older snapshot is replaced before it was written, as the sections that changed
+     * for it were already taken from the player.
+     *
+     * @param older The snapshot that is replaced
+     * @return The snapshot with the dirty sections of both snapshots
+     */
+    public PWIPlayerSnapshot withDirtySectionsOf(PWIPlayerSnapshot older) {
+        if (dirtySections.containsAll(older.dirtySections)) {
+            return this;
+        }
+
+        Set<PlayerSection> merged = EnumSet.noneOf(PlayerSection.class);
+        merged.addAll(dirtySections);
+        merged.addAll(older.dirtySections);
+        return new PWIPlayerSnapshot(this, merged);
+    }
+
+    public ItemStack[] getArmor() {
+        return copyArray(armor);
+    }
+
+    public ItemStack[] getEnderChest() {
+        return copyArray(enderChest);
+    }
+
+    public ItemStack[] getInventory() {
+        return copyArray(inventory);
+    }
+
+    public boolean getCanFly() {
+        return canFly;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public float getExhaustion() {
+        return exhaustion;
+    }
+
+    public float getExperience() {
+        return experience;
+    }
+
+    public boolean isFlying() {
+        return flying;
+    }
+
+    public int getFoodLevel() {
+        return foodLevel;
+    }
+
+    public double getMaxHealth() {
+        return maxHealth;
+    }
+
+    public double getHealth() {
+        return health;
+    }
+
+    public GameMode getGamemode() {
+        return gamemode;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public float getSaturationLevel() {
+        return saturationLevel;
+    }
+
+    public Collection<PotionEffect> getPotionEffects() {
+        return potionEffects;
+    }
+
+    public float getFallDistance() {
+        return fallDistance;
+    }
+
+    public int getFireTicks() {
+        return fireTicks;
+    }
+
+    public int getMaxAir() {
+        return maxAir;
+    }
+
+    public int getRemainingAir() {
+        return remainingAir;
+    }
+
+    public double getBankBalance() {
+        return bankBalance;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the sections that changed since the player was last saved.
+     *
+     * @return The dirty sections
+     */
+    public Set<PlayerSection> getDirtySections() {
+        return dirtySections;
+    }
+
+    /**
+     * Get the bytes a section was serialized to by the last save of the player.
+     *
+     * @param section The section
+     * @param format The data format the bytes must be in
+     * @return The serialized section, or null if it was not serialized yet or in another format
+     * @see PWIPlayer#getEncodedSection(PlayerSection, int)
+     */
+    public byte[] getEncodedSection(PlayerSection section, int format) {
+        return source.getEncodedSection(section, format);
+    }
+
+    /**
+     * Remember the bytes a section was serialized to, so that the next save of the player can reuse them.
+     *
+     * @param section The section
+     * @param format The data format of the bytes
+     * @param data The serialized section, or null to forget the section
+     * @see PWIPlayer#setEncodedSection(PlayerSection, int, byte[])
+     */
+    public void setEncodedSection(PlayerSection section, int format, byte[] data) {
+        source.setEncodedSection(section, format, data);
+    }
+
+    private static ItemStack[] copyItems(ItemStack[] items) {
+        if (items == null) {
+            return null;
+        }
+
+        ItemStack[] copy = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copy[i] = items[i] == null ? null : items[i].clone();
+        }
+        return copy;
+    }
+
+    private static ItemStack[] copyArray(ItemStack[] items) {
+        return items == null ? null : items.clone();
+    }
+}
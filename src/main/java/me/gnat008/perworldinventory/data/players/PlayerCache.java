@@ -0,0 +1,324 @@
+package me.gnat008.perworldinventory.data.players;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * The players cached by {@link PWIPlayerManager}, with an index of the keys of every player,
+ * so that all data of a player can be found without going through the whole cache.
+ * <p>
+ * The cache can be limited to a maximum weight, which is a rough estimate of the memory the
+ * cached players take up. Once the cache is heavier, the least recently used players are
+ * evicted and handed to an eviction listener, which can still save them.
+ */
+public class PlayerCache {
+
+    /** Estimated weight of a player without any items: the stats and the item arrays. */
+    static final long BASE_WEIGHT = 1024;
+    /** Estimated weight of an item, including a typical amount of item meta. */
+    static final long ITEM_WEIGHT = 256;
+    /** Estimated weight of a potion effect. */
+    static final long POTION_EFFECT_WEIGHT = 64;
+
+    private final long maxWeight;
+    private final BiConsumer<ProfileKey, PWIPlayer> evictionListener;
+
+    /** All state below is guarded by {@code this}. Iterates from least to most recently used. */
+    private final LinkedHashMap<ProfileKey, Entry> players = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<UUID, Set<ProfileKey>> keysByPlayer = new HashMap<>();
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Create a cache without a maximum weight.
+     */
+    public PlayerCache() {
+        this(0, (key, player) -> { });
+    }
+
+    /**
+     * Create a cache with a maximum weight.
+     *
+     * @param maxWeight The maximum estimated weight of the cached players, in bytes, or 0 for no maximum.
+     * @param evictionListener Called with every player that is evicted, after it was removed from the cache.
+     */
+    public PlayerCache(long maxWeight, BiConsumer<ProfileKey, PWIPlayer> evictionListener) {
+        this.maxWeight = Math.max(0, maxWeight);
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Get the cached data for a key, and mark it as recently used.
+     *
+     * @param key The key.
+     * @return The cached player, or null if none is cached.
+     */
+    public synchronized PWIPlayer get(ProfileKey key) {
+        Entry entry = players.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.player;
+    }
+
+    /**
+     * Check if data is cached for a key.
+     *
+     * @param key The key.
+     * @return True if a player is cached.
+     */
+    public synchronized boolean contains(ProfileKey key) {
+        return players.containsKey(key);
+    }
+
+    /**
+     * Cache a player, replacing any player cached with the same key. Putting a player that is
+     * already cached updates its weight, e.g. after its inventory changed.
+     * <p>
+     * If the cache is too heavy afterwards, the least recently used other players are evicted.
+     *
+     * @param key The key.
+     * @param player The player to cache.
+     */
+    public void put(ProfileKey key, PWIPlayer player) {
+        List<Map.Entry<ProfileKey, PWIPlayer>> evicted;
+        synchronized (this) {
+            Entry entry = new Entry(player, estimateWeight(player));
+            Entry previous = players.put(key, entry);
+            weight += entry.weight - (previous == null ? 0 : previous.weight);
+            keysByPlayer.computeIfAbsent(key.getUuid(), uuid -> new HashSet<>()).add(key);
+
+            evicted = evictIfTooHeavy(key);
+        }
+
+        for (Map.Entry<ProfileKey, PWIPlayer> eviction : evicted) {
+            evictionListener.accept(eviction.getKey(), eviction.getValue());
+        }
+    }
+
+    /**
+     * Remove the player cached with a key.
+     *
+     * @param key The key.
+     * @return The removed player, or null if none was cached.
+     */
+    public synchronized PWIPlayer remove(ProfileKey key) {
+        Entry removed = players.remove(key);
+        if (removed == null) {
+            return null;
+        }
+
+        weight -= removed.weight;
+        unindex(key);
+        return removed.player;
+    }
+
+    /**
+     * Remove the player cached with a key, if it is still the given player.
+     *
+     * @param key The key.
+     * @param player The player that is expected to be cached.
+     * @return True if the player was removed.
+     */
+    public synchronized boolean remove(ProfileKey key, PWIPlayer player) {
+        Entry entry = players.get(key);
+        if (entry == null || entry.player != player) {
+            return false;
+        }
+
+        players.remove(key);
+        weight -= entry.weight;
+        unindex(key);
+        return true;
+    }
+
+    /**
+     * Remove all cached data of a player.
+     *
+     * @param uuid The UUID of the player.
+     */
+    public synchronized void removeAll(UUID uuid) {
+        Set<ProfileKey> keys = keysByPlayer.remove(uuid);
+        if (keys != null) {
+            for (ProfileKey key : keys) {
+                Entry removed = players.remove(key);
+                if (removed != null) {
+                    weight -= removed.weight;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get all cached data of a player.
+     *
+     * @param uuid The UUID of the player.
+     * @return The cached players by their key.
+     */
+    public synchronized Map<ProfileKey, PWIPlayer> getAll(UUID uuid) {
+        Set<ProfileKey> keys = keysByPlayer.get(uuid);
+        if (keys == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<ProfileKey, PWIPlayer> result = new HashMap<>();
+        for (ProfileKey key : keys) {
+            // Not counted as hits or misses, this doesn't look for the data of a specific group
+            Entry entry = players.get(key);
+            if (entry != null) {
+                result.put(key, entry.player);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get a copy of all cached players, so that players can be removed from the cache while iterating.
+     *
+     * @return All cached players by their key.
+     */
+    public synchronized Set<Map.Entry<ProfileKey, PWIPlayer>> entries() {
+        Map<ProfileKey, PWIPlayer> copy = new LinkedHashMap<>();
+        for (Map.Entry<ProfileKey, Entry> entry : players.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().player);
+        }
+        return copy.entrySet();
+    }
+
+    public synchronized int size() {
+        return players.size();
+    }
+
+    /**
+     * Get the estimated weight of all cached players.
+     *
+     * @return The weight in bytes.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized void clear() {
+        players.clear();
+        keysByPlayer.clear();
+        weight = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d players, %d/%d KB, %d hits, %d misses, %d evictions",
+                players.size(), weight / 1024, maxWeight / 1024, hits, misses, evictions);
+    }
+
+    /**
+     * Estimate how much memory a cached player takes up.
+     *
+     * @param player The player.
+     * @return The estimated weight in bytes.
+     */
+    static long estimateWeight(PWIPlayer player) {
+        long items = countItems(player.getInventory()) + countItems(player.getArmor()) + countItems(player.getEnderChest());
+        Collection<?> potionEffects = player.getPotionEffects();
+        int effects = potionEffects == null ? 0 : potionEffects.size();
+
+        return BASE_WEIGHT + items * ITEM_WEIGHT + effects * POTION_EFFECT_WEIGHT;
+    }
+
+    private static int countItems(ItemStack[] items) {
+        if (items == null) {
+            return 0;
+        }
+
+        int count = 0;
+        for (ItemStack item : items) {
+            if (item != null && item.getType() != Material.AIR) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remove the least recently used players until the cache is light enough, never removing
+     * the player that was just put. Must be called while holding the lock.
+     */
+    private List<Map.Entry<ProfileKey, PWIPlayer>> evictIfTooHeavy(ProfileKey justPut) {
+        if (maxWeight == 0 || weight <= maxWeight) {
+            return Collections.emptyList();
+        }
+
+        List<Map.Entry<ProfileKey, PWIPlayer>> evicted = new ArrayList<>();
+        Iterator<Map.Entry<ProfileKey, Entry>> iterator = players.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<ProfileKey, Entry> eldest = iterator.next();
+            ProfileKey key = eldest.getKey();
+            if (key.equals(justPut)) {
+                continue;
+            }
+
+            iterator.remove();
+            weight -= eldest.getValue().weight;
+            unindex(key);
+
+            evictions++;
+            evicted.add(new AbstractMap.SimpleImmutableEntry<>(key, eldest.getValue().player));
+        }
+        return evicted;
+    }
+
+    private void unindex(ProfileKey key) {
+        Set<ProfileKey> keys = keysByPlayer.get(key.getUuid());
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByPlayer.remove(key.getUuid());
+            }
+        }
+    }
+
+    /**
+     * A cached player together with its estimated weight, which is computed when it is put.
+     */
+    private static final class Entry {
+
+        private final PWIPlayer player;
+        private final long weight;
+
+        Entry(PWIPlayer player, long weight) {
+            this.player = player;
+            this.weight = weight;
+        }
+    }
+}
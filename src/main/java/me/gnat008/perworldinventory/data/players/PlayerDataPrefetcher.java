@@ -0,0 +1,134 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.data.serializers.PlayerSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSnapshot;
+import org.bukkit.entity.Player;
+
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the data of a player for the group they are teleporting to while the teleport is still
+ * going on, so that it is decoded by the time the player has changed worlds.
+ * <p>
+ * Each player has at most one prefetch; a new prefetch replaces the old one. A prefetch is only
+ * used if the data that is loaded afterwards is for the same group and gamemode, and if it
+ * is recent, since the data may have been saved again in the meantime. Otherwise it is discarded
+ * and the data is loaded as usual. The {@link me.gnat008.perworldinventory.data.SaveQueue} invalidates
+ * the prefetch of a key when it accepts or writes data for it, since what was read is then outdated.
+ */
+public class PlayerDataPrefetcher {
+
+    /** Prefetched data older than this is not used. */
+    private static final long MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final BukkitService bukkitService;
+    private final DataSource dataSource;
+    private final PlayerSerializer playerSerializer;
+
+    private final Map<UUID, Prefetch> prefetches = new ConcurrentHashMap<>();
+
+    @Inject
+    PlayerDataPrefetcher(BukkitService bukkitService, DataSource dataSource, PlayerSerializer playerSerializer) {
+        this.bukkitService = bukkitService;
+        this.dataSource = dataSource;
+        this.playerSerializer = playerSerializer;
+    }
+
+    /**
+     * Start reading a player's data in the background.
+     *
+     * @param key The player, group and gamemode to read the data for.
+     * @param player The player.
+     */
+    public void prefetch(ProfileKey key, Player player) {
+        Prefetch prefetch = new Prefetch(key);
+        prefetches.put(key.getUuid(), prefetch);
+
+        bukkitService.runTaskAsync(() -> {
+            try {
+                prefetch.snapshot.complete(dataSource.readSnapshot(key.getGroup(), key.getGameMode(), player));
+            } catch (Exception ex) {
+                prefetch.snapshot.completeExceptionally(ex);
+            }
+        });
+    }
+
+    /**
+     * Apply the prefetched data of a player, if it was read for the given group and gamemode.
+     * If nothing was stored for the player, or reading failed, the data is loaded as usual with
+     * {@link DataSource#getFromDatabase}, which gives the player the defaults or reports the error.
+     *
+     * @param key The player, group and gamemode that data is needed for.
+     * @param player The player to apply the data to.
+     * @param cause What triggered loading the data.
+     * @return True if the prefetched data is used, false if the data still has to be loaded.
+     */
+    public boolean applyPrefetched(ProfileKey key, Player player, DeserializeCause cause) {
+        Prefetch prefetch = prefetches.remove(key.getUuid());
+        if (prefetch == null) {
+            return false;
+        } else if (!prefetch.key.equals(key) || prefetch.isExpired()) {
+            ConsoleLogger.debug("[PREFETCH] Discarding data with key '" + prefetch.key + "', needed '" + key + "'");
+            return false;
+        }
+
+        ConsoleLogger.debug("[PREFETCH] Using data with key '" + key + "'");
+        prefetch.snapshot.whenComplete((snapshot, ex) -> {
+            if (snapshot != null) {
+                bukkitService.runTask(() -> playerSerializer.apply(snapshot, player, cause));
+            } else {
+                dataSource.getFromDatabase(key.getGroup(), key.getGameMode(), player, cause);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Discard the prefetched data of a player if it was read for the given group and gamemode,
+     * because newer data was saved for it. Can be called from any thread.
+     *
+     * @param key The player, group and gamemode that data was saved for.
+     */
+    public void invalidate(ProfileKey key) {
+        prefetches.computeIfPresent(key.getUuid(), (uuid, prefetch) -> {
+            if (prefetch.key.equals(key)) {
+                ConsoleLogger.debug("[PREFETCH] Discarding data with key '" + key + "', it was saved again");
+                return null;
+            }
+            return prefetch;
+        });
+    }
+
+    /**
+     * Discard the prefetched data of a player, if there is any.
+     *
+     * @param uuid The UUID of the player.
+     */
+    public void discard(UUID uuid) {
+        prefetches.remove(uuid);
+    }
+
+    private static final class Prefetch {
+
+        private final ProfileKey key;
+        private final long startTime = System.nanoTime();
+        private final CompletableFuture<PlayerSnapshot> snapshot = new CompletableFuture<>();
+
+        Prefetch(ProfileKey key) {
+            this.key = key;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - startTime > MAX_AGE_NANOS;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+
+import java.util.UUID;
+
+/**
+ * Identifies the data of a player for one group and gamemode, e.g. in the cache of {@link PWIPlayerManager}.
+ * <p>
+ * Keys are equal if they have the same player, gamemode and group name, so a key still matches
+ * after the group it was made with has been reloaded.
+ */
+public final class ProfileKey {
+
+    private final UUID uuid;
+    private final Group group;
+    private final GameMode gameMode;
+    private final int hash;
+
+    /**
+     * Constructor.
+     *
+     * @param uuid The UUID of the player.
+     * @param group The group the data is for.
+     * @param gameMode The gamemode the data is for.
+     */
+    public ProfileKey(UUID uuid, Group group, GameMode gameMode) {
+        this.uuid = uuid;
+        this.group = group;
+        this.gameMode = gameMode;
+        this.hash = 31 * (31 * uuid.hashCode() + group.getName().hashCode()) + gameMode.hashCode();
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public Group getGroup() {
+        return group;
+    }
+
+    public GameMode getGameMode() {
+        return gameMode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        } else if (!(other instanceof ProfileKey)) {
+            return false;
+        }
+
+        ProfileKey key = (ProfileKey) other;
+        return hash == key.hash
+                && gameMode == key.gameMode
+                && uuid.equals(key.uuid)
+                && group.getName().equals(key.group.getName());
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Get the key in the format <i>uuid.group-name.gamemode</i>, as used in log messages.
+     *
+     * @return The key as text.
+     */
+    @Override
+    public String toString() {
+        return uuid + "." + group.getName() + "." + gameMode.toString().toLowerCase();
+    }
+}
@@ -0,0 +1,170 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the data of all online players when the plugin is disabled.
+ * <p>
+ * The data is collected on the main thread first, as {@link PWIPlayerSnapshot snapshots}. The
+ * snapshots are then serialized and written in parallel, and the main thread waits until all
+ * of them are written or the deadline has passed. Players whose data could not be written in
+ * time, or failed to be written, are logged. Writes still running at the deadline are interrupted;
+ * if they do not stop either, {@link #hasRunningWrites()} tells that the data source is still in use.
+ */
+class ShutdownFlush {
+
+    /** How long writes that are interrupted at the deadline get to stop. */
+    private static final long INTERRUPT_GRACE_MILLIS = 1000;
+
+    private final DataSource dataSource;
+    private final int threads;
+    private final long timeoutMillis;
+
+    private final long startTime = System.nanoTime();
+    private final List<Write> writes = new ArrayList<>();
+    private final Set<String> players = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private boolean writesRunning;
+
+    /**
+     * Constructor.
+     *
+     * @param dataSource The data source to write to.
+     * @param threads The number of threads to write with.
+     * @param timeoutSeconds The number of seconds to wait for all data to be written.
+     */
+    ShutdownFlush(DataSource dataSource, int threads, int timeoutSeconds) {
+        this.dataSource = dataSource;
+        this.threads = Math.max(1, threads);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(Math.max(1, timeoutSeconds));
+    }
+
+    /**
+     * Take a snapshot of the data of a player, to be written for the given group and gamemode.
+     * Must be called on the main thread.
+     *
+     * @param group The group of the data.
+     * @param gamemode The gamemode of the data.
+     * @param player The data to write.
+     */
+    void addProfile(Group group, GameMode gamemode, PWIPlayer player) {
+        PWIPlayerSnapshot snapshot = PWIPlayerSnapshot.of(player);
+        String description = "group '" + group.getName() + "' in gamemode '" + gamemode.toString() + "'";
+        add(player.getName(), description, () -> dataSource.saveToDatabase(group, gamemode, snapshot));
+    }
+
+    /**
+     * Add the logout location of a player to be written.
+     *
+     * @param player The player who is logged out.
+     */
+    void addLogout(PWIPlayer player) {
+        add(player.getName(), "logout location", () -> dataSource.saveLogoutData(player, false));
+    }
+
+    private void add(String player, String description, Runnable write) {
+        players.add(player);
+        writes.add(new Write(player, description, write));
+    }
+
+    /**
+     * Write all added data, and wait until it is written or the deadline has passed.
+     *
+     * @return The number of writes that failed or did not finish in time.
+     */
+    int run() {
+        long snapshotMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        ConsoleLogger.info("[SHUTDOWN] Collected " + writes.size() + " saves of " + players.size()
+                + " players in " + snapshotMillis + " ms");
+
+        long writeStart = System.nanoTime();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "PerWorldInventory-Shutdown-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, writes.size())), threadFactory);
+
+        List<Future<?>> futures = new ArrayList<>(writes.size());
+        for (Write write : writes) {
+            futures.add(pool.submit(write.write));
+        }
+        pool.shutdown();
+
+        try {
+            if (!pool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                pool.shutdownNow();
+                writesRunning = !pool.awaitTermination(INTERRUPT_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ex) {
+            pool.shutdownNow();
+            writesRunning = !pool.isTerminated();
+            Thread.currentThread().interrupt();
+        }
+
+        int failed = 0;
+        for (int i = 0; i < writes.size(); i++) {
+            Write write = writes.get(i);
+            Future<?> future = futures.get(i);
+            if (!future.isDone() || future.isCancelled()) {
+                ConsoleLogger.severe("[SHUTDOWN] Data of player '" + write.player + "' for " + write.description
+                        + " was not written within " + timeoutMillis + " ms and may be lost");
+                failed++;
+                continue;
+            }
+
+            try {
+                future.get();
+            } catch (Exception ex) {
+                ConsoleLogger.severe("[SHUTDOWN] Unable to write data of player '" + write.player + "' for "
+                        + write.description + ":", ex.getCause() == null ? ex : ex.getCause());
+                failed++;
+            }
+        }
+
+        long writeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - writeStart);
+        ConsoleLogger.info("[SHUTDOWN] Wrote " + (writes.size() - failed) + " of " + writes.size() + " saves with "
+                + threads + " threads in " + writeMillis + " ms");
+        return failed;
+    }
+
+    /**
+     * Check if writes were still running when {@link #run()} returned, because they did not stop
+     * after being interrupted at the deadline. The data source must not be closed under them.
+     *
+     * @return True if writes are still running.
+     */
+    boolean hasRunningWrites() {
+        return writesRunning;
+    }
+
+    /**
+     * One piece of data to write.
+     */
+    private static final class Write {
+
+        private final String player;
+        private final String description;
+        private final Runnable write;
+
+        Write(String player, String description, Runnable write) {
+            this.player = player;
+            this.description = description;
+            this.write = write;
+        }
+    }
+}
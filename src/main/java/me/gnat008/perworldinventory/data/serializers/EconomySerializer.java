@@ -18,16 +18,21 @@
 package me.gnat008.perworldinventory.data.serializers;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import me.gnat008.perworldinventory.ConsoleLogger;
-import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.entity.Player;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class EconomySerializer {
 
     private EconomySerializer() {}
 
-    public static JsonObject serialize(PWIPlayer player, Economy econ) {
+    public static JsonObject serialize(PWIPlayerSnapshot player, Economy econ) {
         JsonObject data = new JsonObject();
 
         data.addProperty("balance", player.getBalance());
@@ -35,10 +40,67 @@ public class EconomySerializer {
         return data;
     }
 
-    public static void deserialize(Economy econ, JsonObject data, Player player) {
-        if (data.has("balance")) {
-            ConsoleLogger.debug("[ECON] Depositing " + data.get("balance").getAsDouble() + " to '" + player.getName() + "'!");
-            econ.depositPlayer(player, data.get("balance").getAsDouble());
+    /**
+     * Write a player's balance in the binary data format.
+     *
+     * @param out The output to write to
+     * @param player The player whose balance to write
+     * @throws IOException If the output could not be written to
+     */
+    public static void write(DataOutput out, PWIPlayerSnapshot player) throws IOException {
+        out.writeDouble(player.getBalance());
+    }
+
+    /**
+     * Read a balance written by {@link #write(DataOutput, PWIPlayerSnapshot)}.
+     *
+     * @param in The input to read from
+     * @param snapshot The snapshot to add the balance to
+     * @throws IOException If the input could not be read
+     */
+    public static void read(DataInput in, PlayerSnapshot.Builder snapshot) throws IOException {
+        snapshot.balance(in.readDouble());
+    }
+
+    /**
+     * Read economy data created by {@link #serialize(PWIPlayerSnapshot, Economy)}.
+     *
+     * @param data The economy data
+     * @param snapshot The snapshot to add the balance to
+     */
+    public static void read(JsonObject data, PlayerSnapshot.Builder snapshot) {
+        if (data.has("balance"))
+            snapshot.balance(data.get("balance").getAsDouble());
+    }
+
+    /**
+     * Read economy data created by {@link #serialize(PWIPlayerSnapshot, Economy)} straight from a JSON stream.
+     *
+     * @param reader The reader, positioned at the start of the economy object
+     * @param snapshot The snapshot to add the balance to
+     * @throws IOException If the data could not be read
+     */
+    public static void read(JsonReader reader, PlayerSnapshot.Builder snapshot) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("balance")) {
+                snapshot.balance(reader.nextDouble());
+            } else {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
+    }
+
+    /**
+     * Deposit a saved balance to a player.
+     *
+     * @param econ The economy to deposit with
+     * @param balance The saved balance
+     * @param player The player to deposit to
+     */
+    public static void deserialize(Economy econ, double balance, Player player) {
+        ConsoleLogger.debug("[ECON] Depositing " + balance + " to '" + player.getName() + "'!");
+        econ.depositPlayer(player, balance);
     }
 }
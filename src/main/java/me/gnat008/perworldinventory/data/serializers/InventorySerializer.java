@@ -19,13 +19,19 @@ package me.gnat008.perworldinventory.data.serializers;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import me.gnat008.perworldinventory.ConsoleLogger;
-import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.PlayerInventory;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
 
 import javax.inject.Inject;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class InventorySerializer {
 
@@ -40,7 +46,7 @@ public class InventorySerializer {
      * @param player The player to serialize
      * @return A JsonObject representing the serialized Inventory.
      */
-    public JsonObject serializePlayerInventory(PWIPlayer player) {
+    public JsonObject serializePlayerInventory(PWIPlayerSnapshot player) {
         JsonObject root = new JsonObject();
         JsonArray inventory = serializeInventory(player.getInventory());
         JsonArray armor = serializeInventory(player.getArmor());
@@ -82,6 +88,19 @@ public class InventorySerializer {
         ItemStack[] armor = deserializeInventory(inv.getAsJsonArray("armor"), 4, format);
         ItemStack[] inventoryContents = deserializeInventory(inv.getAsJsonArray("inventory"), inventory.getSize(), format);
 
+        setInventory(player, armor, inventoryContents);
+    }
+
+    /**
+     * Clears a player's inventory, then sets the given armor and contents.
+     *
+     * @param player The player whose inventory to set
+     * @param armor The armor to set, or null to leave it empty
+     * @param inventoryContents The contents to set, or null to leave them empty
+     */
+    public void setInventory(Player player, ItemStack[] armor, ItemStack[] inventoryContents) {
+        PlayerInventory inventory = player.getInventory();
+
         inventory.clear();
         if (armor != null) {
         	inventory.setArmorContents(armor);
@@ -126,4 +145,152 @@ public class InventorySerializer {
 
         return contents;
     }
+
+    /**
+     * Read a player inventory created by {@link #serializePlayerInventory(PWIPlayerSnapshot)} straight from
+     * a JSON stream, without building a tree first.
+     *
+     * @param reader The reader, positioned at the start of the inventory object
+     * @param size The expected size of the inventory
+     * @param format Data format being used; 0 is old, 1 is new
+     * @param snapshot The snapshot to add the inventory and armor to
+     * @throws IOException If the inventory could not be read
+     */
+    public void readPlayerInventory(JsonReader reader, int size, int format, PlayerSnapshot.Builder snapshot) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "inventory":
+                    snapshot.inventory(readInventory(reader, size, format));
+                    break;
+                case "armor":
+                    snapshot.armor(readInventory(reader, 4, format));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read an ItemStack array created by {@link #serializeInventory(ItemStack[])} straight from a JSON stream.
+     * Items that cannot be deserialized are skipped, like {@link #deserializeInventory(JsonArray, int, int)} does.
+     *
+     * @param reader The reader, positioned at the start of the array of items
+     * @param size The expected size of the inventory; items in slots beyond it are dropped
+     * @param format Data format being used; 0 is old, 1 is new
+     * @return The items of the inventory
+     * @throws IOException If the inventory could not be read
+     */
+    public ItemStack[] readInventory(JsonReader reader, int size, int format) throws IOException {
+        ItemStack[] contents = new ItemStack[size];
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int index = -1;
+            ItemStack item = null;
+
+            if (format == 0) {
+                // Items of the old format have a lot of optional fields, so read them as a whole
+                JsonObject data = new JsonParser().parse(reader).getAsJsonObject();
+                try {
+                    index = data.get("index").getAsInt();
+                    item = itemSerializer.deserializeItem(data, format);
+                } catch (Exception ex) {
+                    ConsoleLogger.warning("Failed to deserialize inventory:", ex);
+                    continue;
+                }
+            } else {
+                String data = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "index":
+                            index = reader.nextInt();
+                            break;
+                        case "item":
+                            data = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                // Decode after the whole object is read, so that a bad item leaves the reader at the next one
+                if (data != null) {
+                    try {
+                        item = itemSerializer.deserializeItem(Base64Coder.decodeLines(data));
+                    } catch (Exception ex) {
+                        ConsoleLogger.warning("Failed to deserialize inventory:", ex);
+                        continue;
+                    }
+                }
+            }
+
+            if (index >= 0 && index < size) {
+                contents[index] = item;
+            } else {
+                ConsoleLogger.warning("Dropping item in slot " + index + ", inventory only has " + size + " slots");
+            }
+        }
+        reader.endArray();
+
+        return contents;
+    }
+
+    /**
+     * Write an ItemStack array in the binary data format: the number of items, followed by
+     * the slot, length and serialized bytes of every item. Empty slots are skipped.
+     *
+     * @param out The output to write to
+     * @param contents The items in the inventory
+     * @throws IOException If the output could not be written to
+     */
+    public void writeInventory(DataOutput out, ItemStack[] contents) throws IOException {
+        int count = 0;
+        byte[][] items = new byte[contents.length][];
+        for (int i = 0; i < contents.length; i++) {
+            if (contents[i] != null) {
+                items[i] = itemSerializer.serializeItemToBytes(contents[i]);
+                if (items[i] != null)
+                    count++;
+            }
+        }
+
+        out.writeShort(count);
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] != null) {
+                out.writeShort(i);
+                out.writeInt(items[i].length);
+                out.write(items[i]);
+            }
+        }
+    }
+
+    /**
+     * Read an ItemStack array written by {@link #writeInventory(DataOutput, ItemStack[])}.
+     *
+     * @param in The input to read from
+     * @param size The expected size of the inventory; items in slots beyond it are dropped
+     * @return The items of the inventory
+     * @throws IOException If the input could not be read
+     */
+    public ItemStack[] readInventory(DataInput in, int size) throws IOException {
+        ItemStack[] contents = new ItemStack[size];
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            int index = in.readUnsignedShort();
+            byte[] item = new byte[in.readInt()];
+            in.readFully(item);
+
+            if (index < size) {
+                contents[index] = itemSerializer.deserializeItem(item);
+            } else {
+                ConsoleLogger.warning("Dropping item in slot " + index + ", inventory only has " + size + " slots");
+            }
+        }
+
+        return contents;
+    }
 }
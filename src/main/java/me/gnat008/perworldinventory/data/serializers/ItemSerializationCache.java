@@ -0,0 +1,147 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import org.bukkit.inventory.ItemStack;
+
+import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the serialized bytes of recently saved items, so that items which have not changed
+ * since the last save don't have to go through Bukkit's serialization again.
+ * <p>
+ * Items are matched with {@link ItemStack#equals(Object)}, which compares the type, amount,
+ * durability and meta of the items. The least recently used items are evicted once the cache
+ * holds the configured number of items.
+ */
+public class ItemSerializationCache {
+
+    private final int maxSize;
+    private final Map<Key, byte[]> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Inject
+    ItemSerializationCache(Settings settings) {
+        this.maxSize = Math.max(0, settings.getProperty(PwiProperties.ITEM_CACHE_SIZE));
+        this.cache = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the serialized bytes of an item, if it is cached.
+     *
+     * @param item The item to look up.
+     * @return The bytes of the item, or null if it is not cached. Must not be modified.
+     */
+    public byte[] get(ItemStack item) {
+        if (maxSize == 0) {
+            return null;
+        }
+
+        // Hash outside of the lock, item meta can make this comparatively expensive
+        Key key = new Key(item);
+        byte[] bytes;
+        synchronized (cache) {
+            bytes = cache.get(key);
+        }
+
+        if (bytes == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return bytes;
+    }
+
+    /**
+     * Cache the serialized bytes of an item. The item is copied, so later changes to it
+     * do not affect the cache.
+     *
+     * @param item The item that was serialized.
+     * @param bytes The bytes of the item.
+     */
+    public void put(ItemStack item, byte[] bytes) {
+        if (maxSize == 0) {
+            return;
+        }
+
+        Key key = new Key(item.clone());
+        synchronized (cache) {
+            cache.put(key, bytes);
+        }
+    }
+
+    /**
+     * Remove all items from the cache. Does not reset the hit and miss counts.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the share of lookups that were answered from the cache.
+     *
+     * @return The hit rate, between 0 and 1.
+     */
+    public double getHitRate() {
+        long hits = this.hits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d items, %d hits, %d misses, hit rate %.1f%%",
+                size(), maxSize, getHits(), getMisses(), getHitRate() * 100);
+    }
+
+    /**
+     * An item together with its hash code, which is computed once.
+     */
+    private static final class Key {
+
+        private final ItemStack item;
+        private final int hash;
+
+        Key(ItemStack item) {
+            this.item = item;
+            this.hash = item.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other
+                    || other instanceof Key && hash == ((Key) other).hash && item.equals(((Key) other).item);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
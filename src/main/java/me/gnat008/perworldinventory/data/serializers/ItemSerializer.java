@@ -21,7 +21,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import me.gnat008.perworldinventory.PerWorldInventory;
 import me.gnat008.perworldinventory.ConsoleLogger;
-import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
 import org.bukkit.Material;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.inventory.ItemFlag;
@@ -42,6 +42,8 @@ public class ItemSerializer {
 
     @Inject
     private PerWorldInventory plugin;
+    @Inject
+    private ItemSerializationCache itemCache;
 
     ItemSerializer() {}
 
@@ -62,6 +64,26 @@ public class ItemSerializer {
         if (item == null)
             return null;
 
+        byte[] bytes = serializeItemToBytes(item);
+        if (bytes == null)
+            return null;
+
+        values.addProperty("index", index);
+        values.addProperty("item", Base64Coder.encodeLines(bytes));
+
+        return values;
+    }
+
+    /**
+     * Serialize an ItemStack with Bukkit's object serialization. This is the item data stored
+     * by all formats since 1, before any encoding such as Base64 is applied.
+     * <p>
+     * Items that were serialized recently are taken from the {@link ItemSerializationCache}.
+     *
+     * @param item The item to serialize.
+     * @return The serialized item, or null if it could not be serialized. Must not be modified.
+     */
+    public byte[] serializeItemToBytes(ItemStack item) {
         /*
          * Check to see if the item is a skull with a null owner.
          * This is because some people are getting skulls with null owners, which causes Spigot to throw an error
@@ -74,27 +96,46 @@ public class ItemSerializer {
             }
         }
 
-        values.addProperty("index", index);
+        byte[] cached = itemCache.get(item);
+        if (cached != null) {
+            return cached;
+        }
 
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
              BukkitObjectOutputStream bos = new BukkitObjectOutputStream(outputStream)) {
             bos.writeObject(item);
-            String encoded = Base64Coder.encodeLines(outputStream.toByteArray());
+            bos.flush();
 
-            values.addProperty("item", encoded);
+            byte[] bytes = outputStream.toByteArray();
+            itemCache.put(item, bytes);
+            return bytes;
         } catch (IOException ex) {
             ConsoleLogger.severe("Unable to serialize item '" + item.getType().toString() + "':", ex);
             return null;
         }
+    }
 
-        return values;
+    /**
+     * Get an ItemStack from the bytes written by {@link #serializeItemToBytes(ItemStack)}.
+     *
+     * @param bytes The serialized item.
+     * @return The deserialized item stack, or air if it could not be deserialized.
+     */
+    public ItemStack deserializeItem(byte[] bytes) {
+        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
+             BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
+            return (ItemStack) dataInput.readObject();
+        } catch (IOException | ClassNotFoundException ex) {
+            ConsoleLogger.severe("Unable to deserialize an item:", ex);
+            return new ItemStack(Material.AIR);
+        }
     }
 
     /**
      * Get an ItemStack from a JsonObject.
      *
      * @param data The Json to read.
-     * @param format The data format being used. Refer to {@link PlayerSerializer#serialize(PWIPlayer)}.
+     * @param format The data format being used. Refer to {@link PlayerSerializer#serialize(PWIPlayerSnapshot)}.
      * @return The deserialized item stack.
      */
     public ItemStack deserializeItem(JsonObject data, int format) {
@@ -103,13 +144,7 @@ public class ItemSerializer {
                 return getItem(data);
             case 1:
             case 2:
-                try (ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64Coder.decodeLines(data.get("item").getAsString()));
-                     BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
-                    return (ItemStack) dataInput.readObject();
-                } catch (IOException | ClassNotFoundException ex) {
-                    ConsoleLogger.severe("Unable to deserialize an item:", ex);
-                    return new ItemStack(Material.AIR);
-                }
+                return deserializeItem(Base64Coder.decodeLines(data.get("item").getAsString()));
             default:
                 throw new IllegalArgumentException("Unknown data format '" + format + "'");
         }
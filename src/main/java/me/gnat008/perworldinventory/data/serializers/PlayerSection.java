@@ -0,0 +1,50 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+/**
+ * The parts of a player's data that are stored as separate sections in the binary data format.
+ * <p>
+ * Every section is written as its id, the length of its data and the data itself, so that
+ * a reader can skip sections it does not need or does not know.
+ */
+public enum PlayerSection {
+
+    ENDER_CHEST(1),
+    INVENTORY(2),
+    ARMOR(3),
+    STATS(4),
+    POTION_EFFECTS(5),
+    ECONOMY(6);
+
+    /** Id marking the end of the sections. */
+    public static final int END = 0;
+
+    private final int id;
+
+    PlayerSection(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the id the section is written with.
+     *
+     * @return The section id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the section with the given id.
+     *
+     * @param id The id to look for.
+     * @return The section, or null if the id is unknown (e.g. written by a newer version).
+     */
+    public static PlayerSection fromId(int id) {
+        for (PlayerSection section : values()) {
+            if (section.id == id) {
+                return section;
+            }
+        }
+        return null;
+    }
+}
@@ -18,23 +18,48 @@
 package me.gnat008.perworldinventory.data.serializers;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import me.gnat008.perworldinventory.BukkitService;
 import me.gnat008.perworldinventory.PerWorldInventory;
 import me.gnat008.perworldinventory.ConsoleLogger;
 import me.gnat008.perworldinventory.config.PwiProperties;
 import me.gnat008.perworldinventory.config.Settings;
-import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
 import me.gnat008.perworldinventory.events.InventoryLoadCompleteEvent;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public class PlayerSerializer {
 
+    /** The data format JSON is written in. */
+    private static final int JSON_FORMAT = 2;
+
+    /** The first data format that is binary instead of JSON. */
+    public static final int BINARY_FORMAT = 3;
+
+    /** Bytes that binary data starts with; can never be the start of a JSON document. */
+    private static final byte[] BINARY_MAGIC = {'P', 'W', 'I', 'B'};
+
     @Inject
     private BukkitService bukkitService;
     @Inject
@@ -45,6 +70,8 @@ public class PlayerSerializer {
     private StatSerializer statSerializer;
     @Inject
     private PerWorldInventory plugin;
+    @Inject
+    private PipelineTimings timings;
 
     PlayerSerializer() {}
 
@@ -57,55 +84,359 @@ public class PlayerSerializer {
      *     0: Deserialize items with the old TacoSerialization methods
      *     1: (De)serialize items with Base64
      *     2: Serialize/Deserialize PotionEffects as JsonObjects
+     *     3: Binary, see {@link #serializeToBytes(PWIPlayerSnapshot)}
      * </p>
+     * The JSON of the ender chest, inventory, stats and economy is reused from the last save of the player
+     * if none of their sections changed since.
      *
      * @param player The player to serialize.
      * @return The serialized stats.
      */
-    public String serialize(PWIPlayer player) {
-        Gson gson = new Gson();
-        JsonObject root = new JsonObject();
+    public String serialize(PWIPlayerSnapshot player) {
+        Set<PlayerSection> dirty = player.getDirtySections();
+
+        ConsoleLogger.debug("[SERIALIZER] Serializing sections " + dirty + " of player '" + player.getName()+ "'");
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"data-format\":").append(JSON_FORMAT);
 
-        ConsoleLogger.debug("[SERIALIZER] Serializing player '" + player.getName()+ "'");
-        root.addProperty("data-format", 2);
-        root.add("ender-chest", inventorySerializer.serializeInventory(player.getEnderChest()));
-        root.add("inventory", inventorySerializer.serializePlayerInventory(player));
-        root.add("stats", StatSerializer.serialize(player));
+        JsonSectionEncoder encoder = new JsonSectionEncoder(json, player, dirty);
+        encoder.write("ender-chest", EnumSet.of(PlayerSection.ENDER_CHEST),
+                () -> inventorySerializer.serializeInventory(player.getEnderChest()));
+        encoder.write("inventory", EnumSet.of(PlayerSection.INVENTORY, PlayerSection.ARMOR),
+                () -> inventorySerializer.serializePlayerInventory(player));
+        encoder.write("stats", EnumSet.of(PlayerSection.STATS, PlayerSection.POTION_EFFECTS),
+                () -> StatSerializer.serialize(player));
 
         if (plugin.isEconEnabled())
-            root.add("economy", EconomySerializer.serialize(player, plugin.getEconomy()));
+            encoder.write("economy", EnumSet.of(PlayerSection.ECONOMY), () -> EconomySerializer.serialize(player, plugin.getEconomy()));
+
+        ConsoleLogger.debug("[SERIALIZER] Done serializing player '" + player.getName()+ "'");
+
+        return json.append('}').toString();
+    }
+
+    /**
+     * Serialize a Player in the data format configured for storing players. For format 2, this is the
+     * UTF-8 encoded JSON of {@link #serialize(PWIPlayerSnapshot)}.
+     * <p>
+     * Format 3 is a compact binary layout: the magic bytes <i>PWIB</i> and the format number, followed by
+     * {@link PlayerSection sections}. Each section is its id (one byte), the length of its data (int) and the
+     * data itself, and the last section is followed by {@link PlayerSection#END}. Items are stored as the
+     * raw bytes of Bukkit's serialization, without Base64.
+     * <p>
+     * In both formats, sections of the player that did not change since the last time it was serialized
+     * are not serialized again; what they were encoded to the last time is written instead.
+     *
+     * @param player The player to serialize.
+     * @return The serialized player.
+     */
+    public byte[] serializeToBytes(PWIPlayerSnapshot player) {
+        if (!writesBinaryFormat()) {
+            return serialize(player).getBytes(StandardCharsets.UTF_8);
+        }
+
+        Set<PlayerSection> dirty = player.getDirtySections();
+
+        ConsoleLogger.debug("[SERIALIZER] Serializing sections " + dirty + " of player '" + player.getName()+ "' to binary");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(BINARY_MAGIC);
+            out.writeInt(BINARY_FORMAT);
+
+            SectionEncoder encoder = new SectionEncoder(out, player, dirty);
+            encoder.write(PlayerSection.ENDER_CHEST, section -> inventorySerializer.writeInventory(section, player.getEnderChest()));
+            encoder.write(PlayerSection.INVENTORY, section -> inventorySerializer.writeInventory(section, player.getInventory()));
+            encoder.write(PlayerSection.ARMOR, section -> inventorySerializer.writeInventory(section, player.getArmor()));
+            encoder.write(PlayerSection.STATS, section -> StatSerializer.write(section, player));
+            encoder.write(PlayerSection.POTION_EFFECTS, section -> PotionEffectSerializer.write(section, player.getPotionEffects()));
+            if (plugin.isEconEnabled())
+                encoder.write(PlayerSection.ECONOMY, section -> EconomySerializer.write(section, player));
+
+            out.writeByte(PlayerSection.END);
+        } catch (IOException ex) {
+            // Only writing to memory
+            throw new IllegalStateException("Could not serialize player '" + player.getName() + "'", ex);
+        }
 
         ConsoleLogger.debug("[SERIALIZER] Done serializing player '" + player.getName()+ "'");
+        return bytes.toByteArray();
+    }
 
-        return gson.toJson(root);
+    /**
+     * Return whether {@link #serializeToBytes(PWIPlayerSnapshot)} currently writes the binary format.
+     *
+     * @return True if the configured data format is binary.
+     */
+    public boolean writesBinaryFormat() {
+        return settings.getProperty(PwiProperties.DATA_FORMAT) >= BINARY_FORMAT;
     }
 
     /**
-     * Deserialize all aspects of a player, and apply their data. See {@link PlayerSerializer#serialize(PWIPlayer)}
+     * Return whether the given data, or the first bytes of it, are in the binary format.
+     *
+     * @param data The data to check.
+     * @return True if the data is binary, false if it is JSON.
+     */
+    public static boolean isBinaryFormat(byte[] data) {
+        if (data.length < BINARY_MAGIC.length) {
+            return false;
+        }
+
+        for (int i = 0; i < BINARY_MAGIC.length; i++) {
+            if (data[i] != BINARY_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deserialize data written by {@link #serializeToBytes(PWIPlayerSnapshot)} in any format, and apply it
+     * to a player. JSON data is expected to be UTF-8 encoded.
+     * <p>
+     * This decodes and applies on the current thread. Data sources should rather {@link #decode(byte[], Player)}
+     * on the thread they read the data on, and only {@link #apply(PlayerSnapshot, Player, DeserializeCause)}
+     * on the main thread.
+     *
+     * @param data   The saved player information.
+     * @param player The Player to apply the deserialized information to.
+     * @param cause  What triggered the load.
+     * @throws IOException If the data is truncated or corrupt; nothing is applied then.
+     */
+    public void deserialize(byte[] data, Player player, DeserializeCause cause) throws IOException {
+        apply(decode(data, player), player, cause);
+    }
+
+    /**
+     * Deserialize all aspects of a player, and apply their data. See {@link PlayerSerializer#serialize(PWIPlayerSnapshot)}
      * for an explanation of the data format number.
      *
      * @param data   The saved player information.
      * @param player The Player to apply the deserialized information to.
      */
     public void deserialize(final JsonObject data, final Player player, DeserializeCause cause) {
-        ConsoleLogger.debug("[SERIALIZER] Deserializing player '" + player.getName()+ "'");
+        apply(decode(data, player), player, cause);
+    }
+
+    /**
+     * Decode data written by {@link #serializeToBytes(PWIPlayerSnapshot)} in any format. Sections that are
+     * not loaded with the current settings are skipped without being decoded.
+     *
+     * @param data   The saved player information.
+     * @param player The Player the data belongs to; only used for the size of their inventories.
+     * @return The decoded data.
+     * @throws IOException If the data is truncated or corrupt. No partial data is returned, so that it
+     *                     is never applied to a player and saved over the only copy of their data.
+     */
+    public PlayerSnapshot decode(byte[] data, Player player) throws IOException {
+        long start = timings.start();
+        try {
+            return decodeBytes(data, player);
+        } finally {
+            timings.record(Stage.DECODE, null, start);
+        }
+    }
+
+    private PlayerSnapshot decodeBytes(byte[] data, Player player) throws IOException {
+        if (!isBinaryFormat(data)) {
+            JsonObject json;
+            try {
+                json = new JsonParser().parse(new String(data, StandardCharsets.UTF_8)).getAsJsonObject();
+            } catch (JsonParseException | IllegalStateException ex) {
+                throw new IOException("Data of player '" + player.getName() + "' is not valid JSON", ex);
+            }
+            return decode(json, player);
+        }
+
+        ConsoleLogger.debug("[SERIALIZER] Decoding binary data of player '" + player.getName()+ "'");
+        PlayerSnapshot.Builder snapshot = PlayerSnapshot.builder();
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            in.skipBytes(BINARY_MAGIC.length);
+            int format = in.readInt();
+            if (format > BINARY_FORMAT) {
+                ConsoleLogger.warning("Data of '" + player.getName() + "' has format " + format +
+                        " from a newer version of PerWorldInventory. Loading what is understood");
+            }
+
+            int id;
+            while ((id = in.readUnsignedByte()) != PlayerSection.END) {
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+
+                // Sections that are not loaded, or unknown to this version, are skipped without decoding
+                PlayerSection section = PlayerSection.fromId(id);
+                if (section == null || !shouldLoad(section)) {
+                    continue;
+                }
+
+                DataInputStream sectionIn = new DataInputStream(new ByteArrayInputStream(payload));
+                switch (section) {
+                    case ENDER_CHEST:
+                        snapshot.enderChest(inventorySerializer.readInventory(sectionIn, player.getEnderChest().getSize()));
+                        break;
+                    case INVENTORY:
+                        snapshot.inventory(inventorySerializer.readInventory(sectionIn, player.getInventory().getSize()));
+                        break;
+                    case ARMOR:
+                        snapshot.armor(inventorySerializer.readInventory(sectionIn, 4));
+                        break;
+                    case STATS:
+                        StatSerializer.read(sectionIn, snapshot);
+                        break;
+                    case POTION_EFFECTS:
+                        snapshot.potionEffects(PotionEffectSerializer.read(sectionIn));
+                        break;
+                    case ECONOMY:
+                        EconomySerializer.read(sectionIn, snapshot);
+                        break;
+                }
+            }
+        }
+
+        return snapshot.build();
+    }
+
+    /**
+     * Decode the JSON data formats. See {@link PlayerSerializer#serialize(PWIPlayerSnapshot)}
+     * for an explanation of the data format number.
+     *
+     * @param data   The saved player information.
+     * @param player The Player the data belongs to; only used for the size of their inventories.
+     * @return The decoded data.
+     */
+    public PlayerSnapshot decode(JsonObject data, Player player) {
+        ConsoleLogger.debug("[SERIALIZER] Decoding player '" + player.getName()+ "'");
+        PlayerSnapshot.Builder snapshot = PlayerSnapshot.builder();
 
         int format = 0;
         if (data.has("data-format"))
             format = data.get("data-format").getAsInt();
 
-        if (settings.getProperty(PwiProperties.LOAD_ENDER_CHESTS) && data.has("ender-chest"))
-            player.getEnderChest().setContents(inventorySerializer.deserializeInventory(data.getAsJsonArray("ender-chest"),
+        if (shouldLoad(PlayerSection.ENDER_CHEST) && data.has("ender-chest"))
+            snapshot.enderChest(inventorySerializer.deserializeInventory(data.getAsJsonArray("ender-chest"),
                     player.getEnderChest().getSize(), format));
-        if (settings.getProperty(PwiProperties.LOAD_INVENTORY) && data.has("inventory"))
-            inventorySerializer.setInventory(player, data.getAsJsonObject("inventory"), format);
+        if (shouldLoad(PlayerSection.INVENTORY) && data.has("inventory")) {
+            JsonObject inventory = data.getAsJsonObject("inventory");
+            snapshot.armor(inventorySerializer.deserializeInventory(inventory.getAsJsonArray("armor"), 4, format));
+            snapshot.inventory(inventorySerializer.deserializeInventory(inventory.getAsJsonArray("inventory"),
+                    player.getInventory().getSize(), format));
+        }
         if (data.has("stats"))
-            statSerializer.deserialize(player, data.getAsJsonObject("stats"), format);
+            statSerializer.read(data.getAsJsonObject("stats"), format, snapshot);
+        if (shouldLoad(PlayerSection.ECONOMY) && data.has("economy"))
+            EconomySerializer.read(data.getAsJsonObject("economy"), snapshot);
+
+        return snapshot.build();
+    }
+
+    /**
+     * Decode the JSON data formats straight from a stream, without building a tree of the whole
+     * document first. Items are decoded as they are read, and sections that are not loaded with
+     * the current settings are skipped over without being decoded.
+     *
+     * @param reader The reader, positioned at the start of the document.
+     * @param player The Player the data belongs to; only used for the size of their inventories.
+     * @return The decoded data.
+     * @throws IOException If the data could not be read.
+     */
+    public PlayerSnapshot decode(JsonReader reader, Player player) throws IOException {
+        long start = timings.start();
+        try {
+            return readJson(reader, player);
+        } finally {
+            timings.record(Stage.DECODE, null, start);
+        }
+    }
+
+    private PlayerSnapshot readJson(JsonReader reader, Player player) throws IOException {
+        ConsoleLogger.debug("[SERIALIZER] Decoding player '" + player.getName()+ "'");
+        PlayerSnapshot.Builder snapshot = PlayerSnapshot.builder();
+
+        // The format is always written first; data of format 0 has none
+        int format = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "data-format":
+                    format = reader.nextInt();
+                    break;
+                case "ender-chest":
+                    if (shouldLoad(PlayerSection.ENDER_CHEST)) {
+                        snapshot.enderChest(inventorySerializer.readInventory(reader, player.getEnderChest().getSize(), format));
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "inventory":
+                    if (shouldLoad(PlayerSection.INVENTORY)) {
+                        inventorySerializer.readPlayerInventory(reader, player.getInventory().getSize(), format, snapshot);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "stats":
+                    statSerializer.read(reader, snapshot);
+                    break;
+                case "economy":
+                    if (shouldLoad(PlayerSection.ECONOMY)) {
+                        EconomySerializer.read(reader, snapshot);
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return snapshot.build();
+    }
+
+    /**
+     * Apply decoded data to a player, and signal that loading is done. Must be called on the main thread;
+     * nothing is decoded here, so this only costs the calls to the player's setters.
+     *
+     * @param snapshot The decoded data.
+     * @param player   The Player to apply the data to.
+     * @param cause    What triggered the load.
+     */
+    public void apply(PlayerSnapshot snapshot, Player player, DeserializeCause cause) {
+        ConsoleLogger.debug("[SERIALIZER] Applying data to player '" + player.getName()+ "'");
+        long start = timings.start();
+
+        if (snapshot.getEnderChest() != null)
+            player.getEnderChest().setContents(snapshot.getEnderChest());
+        if (snapshot.getInventory() != null || snapshot.getArmor() != null)
+            inventorySerializer.setInventory(player, snapshot.getArmor(), snapshot.getInventory());
+        statSerializer.apply(player, snapshot);
+        if (!deserializeEconomy(player, snapshot.getBalance()))
+            return;
+
+        ConsoleLogger.debug("[SERIALIZER] Done deserializing player '" + player.getName()+ "'");
+        timings.record(Stage.APPLY, cause, start);
+
+        // Call event to signal loading is done
+        long eventStart = timings.start();
+        InventoryLoadCompleteEvent event = new InventoryLoadCompleteEvent(player, cause);
+        bukkitService.callEvent(event);
+        timings.record(Stage.COMPLETE_EVENT, cause, eventStart);
+    }
+
+    /**
+     * Replace a player's balance with the saved one, if economy is enabled.
+     *
+     * @param player The player to set the balance of.
+     * @param balance The saved balance, or null if none was saved.
+     * @return False if economy is enabled but no economy plugin is available, true otherwise.
+     */
+    private boolean deserializeEconomy(Player player, Double balance) {
         if (plugin.isEconEnabled()) {
             Economy econ = plugin.getEconomy();
             if (econ == null) {
                 ConsoleLogger.warning("Economy saving is turned on, but no economy found!");
-                return;
+                return false;
             }
 
             ConsoleLogger.debug("[ECON] Withdrawing " + econ.getBalance(player) + " from '" + player.getName() + "'!");
@@ -114,15 +445,98 @@ public class PlayerSerializer {
                 ConsoleLogger.warning("[ECON] Unable to withdraw funds from '" + player.getName() + "': " + er.errorMessage);
             }
 
-            if (data.has("economy") && er.transactionSuccess()) {
-                EconomySerializer.deserialize(econ, data.getAsJsonObject("economy"), player);
+            if (balance != null && er.transactionSuccess()) {
+                EconomySerializer.deserialize(econ, balance, player);
             }
         }
 
-        ConsoleLogger.debug("[SERIALIZER] Done deserializing player '" + player.getName()+ "'");
+        return true;
+    }
 
-        // Call event to signal loading is done
-        InventoryLoadCompleteEvent event = new InventoryLoadCompleteEvent(player, cause);
-        bukkitService.callEvent(event);
+    private boolean shouldLoad(PlayerSection section) {
+        switch (section) {
+            case ENDER_CHEST:
+                return settings.getProperty(PwiProperties.LOAD_ENDER_CHESTS);
+            case INVENTORY:
+            case ARMOR:
+                return settings.getProperty(PwiProperties.LOAD_INVENTORY);
+            case POTION_EFFECTS:
+                return settings.getProperty(PwiProperties.LOAD_POTION_EFFECTS);
+            case ECONOMY:
+                return plugin.isEconEnabled();
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Writes sections of one player, reusing the bytes of the last save for sections that did not change.
+     */
+    private static final class SectionEncoder {
+
+        private final DataOutputStream out;
+        private final PWIPlayerSnapshot player;
+        private final Set<PlayerSection> dirty;
+
+        SectionEncoder(DataOutputStream out, PWIPlayerSnapshot player, Set<PlayerSection> dirty) {
+            this.out = out;
+            this.player = player;
+            this.dirty = dirty;
+        }
+
+        void write(PlayerSection section, SectionWriter writer) throws IOException {
+            byte[] data = dirty.contains(section) ? null : player.getEncodedSection(section, BINARY_FORMAT);
+            if (data == null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                writer.write(new DataOutputStream(bytes));
+                data = bytes.toByteArray();
+                player.setEncodedSection(section, BINARY_FORMAT, data);
+            }
+
+            out.writeByte(section.getId());
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+
+    /**
+     * Writes the members of the JSON of one player, reusing the JSON of the last save for members whose
+     * sections did not change. A member can hold more than one section; its JSON is remembered under the
+     * first of them.
+     */
+    private static final class JsonSectionEncoder {
+
+        private final Gson gson = new Gson();
+        private final StringBuilder json;
+        private final PWIPlayerSnapshot player;
+        private final Set<PlayerSection> dirty;
+
+        JsonSectionEncoder(StringBuilder json, PWIPlayerSnapshot player, Set<PlayerSection> dirty) {
+            this.json = json;
+            this.player = player;
+            this.dirty = dirty;
+        }
+
+        void write(String name, Set<PlayerSection> sections, Supplier<JsonElement> serializer) {
+            PlayerSection first = sections.iterator().next();
+            boolean changed = sections.stream().anyMatch(dirty::contains);
+            byte[] data = changed ? null : player.getEncodedSection(first, JSON_FORMAT);
+            if (data == null) {
+                data = gson.toJson(serializer.get()).getBytes(StandardCharsets.UTF_8);
+                for (PlayerSection section : sections) {
+                    player.setEncodedSection(section, JSON_FORMAT, section == first ? data : null);
+                }
+            }
+
+            json.append(",\"").append(name).append("\":").append(new String(data, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes the data of one section.
+     */
+    @FunctionalInterface
+    private interface SectionWriter {
+        void write(DataOutput out) throws IOException;
     }
 }
@@ -0,0 +1,292 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import org.bukkit.GameMode;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Player data that has been decoded from any data format, but not yet applied to a player.
+ * <p>
+ * Every value is null if it was not saved, or if it is not loaded with the current settings.
+ * Decoding does not touch the player, so it is done off the main thread; applying is done on
+ * the main thread by {@link PlayerSerializer#apply(PlayerSnapshot, org.bukkit.entity.Player, DeserializeCause)}.
+ * <p>
+ * A snapshot is immutable, so it can safely be handed from the thread that decoded it to the main
+ * thread. The arrays are copied when the snapshot is built and again when they are returned; the
+ * items themselves are not copied, and must not be changed.
+ */
+public class PlayerSnapshot {
+
+    private final ItemStack[] enderChest;
+    private final ItemStack[] inventory;
+    private final ItemStack[] armor;
+    private final Collection<PotionEffect> potionEffects;
+    private final Double balance;
+
+    private final Boolean canFly;
+    private final String displayName;
+    private final Float exhaustion;
+    private final Float experience;
+    private final Boolean flying;
+    private final Integer foodLevel;
+    private final GameMode gamemode;
+    private final Double maxHealth;
+    private final Double health;
+    private final Integer level;
+    private final Float saturation;
+    private final Float fallDistance;
+    private final Integer fireTicks;
+    private final Integer maxAir;
+    private final Integer remainingAir;
+
+    private PlayerSnapshot(Builder builder) {
+        this.enderChest = copy(builder.enderChest);
+        this.inventory = copy(builder.inventory);
+        this.armor = copy(builder.armor);
+        this.potionEffects = builder.potionEffects == null
+                ? null
+                : Collections.unmodifiableList(new ArrayList<>(builder.potionEffects));
+        this.balance = builder.balance;
+        this.canFly = builder.canFly;
+        this.displayName = builder.displayName;
+        this.exhaustion = builder.exhaustion;
+        this.experience = builder.experience;
+        this.flying = builder.flying;
+        this.foodLevel = builder.foodLevel;
+        this.gamemode = builder.gamemode;
+        this.maxHealth = builder.maxHealth;
+        this.health = builder.health;
+        this.level = builder.level;
+        this.saturation = builder.saturation;
+        this.fallDistance = builder.fallDistance;
+        this.fireTicks = builder.fireTicks;
+        this.maxAir = builder.maxAir;
+        this.remainingAir = builder.remainingAir;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ItemStack[] getEnderChest() {
+        return copy(enderChest);
+    }
+
+    public ItemStack[] getInventory() {
+        return copy(inventory);
+    }
+
+    public ItemStack[] getArmor() {
+        return copy(armor);
+    }
+
+    public Collection<PotionEffect> getPotionEffects() {
+        return potionEffects;
+    }
+
+    public Double getBalance() {
+        return balance;
+    }
+
+    public Boolean getCanFly() {
+        return canFly;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public Float getExhaustion() {
+        return exhaustion;
+    }
+
+    public Float getExperience() {
+        return experience;
+    }
+
+    public Boolean isFlying() {
+        return flying;
+    }
+
+    public Integer getFoodLevel() {
+        return foodLevel;
+    }
+
+    public GameMode getGamemode() {
+        return gamemode;
+    }
+
+    public Double getMaxHealth() {
+        return maxHealth;
+    }
+
+    public Double getHealth() {
+        return health;
+    }
+
+    public Integer getLevel() {
+        return level;
+    }
+
+    public Float getSaturation() {
+        return saturation;
+    }
+
+    public Float getFallDistance() {
+        return fallDistance;
+    }
+
+    public Integer getFireTicks() {
+        return fireTicks;
+    }
+
+    public Integer getMaxAir() {
+        return maxAir;
+    }
+
+    public Integer getRemainingAir() {
+        return remainingAir;
+    }
+
+    private static ItemStack[] copy(ItemStack[] items) {
+        return items == null ? null : items.clone();
+    }
+
+    /**
+     * Collects the values of a snapshot while data is being decoded.
+     */
+    public static final class Builder {
+
+        private ItemStack[] enderChest;
+        private ItemStack[] inventory;
+        private ItemStack[] armor;
+        private Collection<PotionEffect> potionEffects;
+        private Double balance;
+
+        private Boolean canFly;
+        private String displayName;
+        private Float exhaustion;
+        private Float experience;
+        private Boolean flying;
+        private Integer foodLevel;
+        private GameMode gamemode;
+        private Double maxHealth;
+        private Double health;
+        private Integer level;
+        private Float saturation;
+        private Float fallDistance;
+        private Integer fireTicks;
+        private Integer maxAir;
+        private Integer remainingAir;
+
+        private Builder() {}
+
+        public Builder enderChest(ItemStack[] enderChest) {
+            this.enderChest = enderChest;
+            return this;
+        }
+
+        public Builder inventory(ItemStack[] inventory) {
+            this.inventory = inventory;
+            return this;
+        }
+
+        public Builder armor(ItemStack[] armor) {
+            this.armor = armor;
+            return this;
+        }
+
+        public Builder potionEffects(Collection<PotionEffect> potionEffects) {
+            this.potionEffects = potionEffects;
+            return this;
+        }
+
+        public Builder balance(double balance) {
+            this.balance = balance;
+            return this;
+        }
+
+        public Builder canFly(boolean canFly) {
+            this.canFly = canFly;
+            return this;
+        }
+
+        public Builder displayName(String displayName) {
+            this.displayName = displayName;
+            return this;
+        }
+
+        public Builder exhaustion(float exhaustion) {
+            this.exhaustion = exhaustion;
+            return this;
+        }
+
+        public Builder experience(float experience) {
+            this.experience = experience;
+            return this;
+        }
+
+        public Builder flying(boolean flying) {
+            this.flying = flying;
+            return this;
+        }
+
+        public Builder foodLevel(int foodLevel) {
+            this.foodLevel = foodLevel;
+            return this;
+        }
+
+        public Builder gamemode(GameMode gamemode) {
+            this.gamemode = gamemode;
+            return this;
+        }
+
+        public Builder maxHealth(double maxHealth) {
+            this.maxHealth = maxHealth;
+            return this;
+        }
+
+        public Builder health(double health) {
+            this.health = health;
+            return this;
+        }
+
+        public Builder level(int level) {
+            this.level = level;
+            return this;
+        }
+
+        public Builder saturation(float saturation) {
+            this.saturation = saturation;
+            return this;
+        }
+
+        public Builder fallDistance(float fallDistance) {
+            this.fallDistance = fallDistance;
+            return this;
+        }
+
+        public Builder fireTicks(int fireTicks) {
+            this.fireTicks = fireTicks;
+            return this;
+        }
+
+        public Builder maxAir(int maxAir) {
+            this.maxAir = maxAir;
+            return this;
+        }
+
+        public Builder remainingAir(int remainingAir) {
+            this.remainingAir = remainingAir;
+            return this;
+        }
+
+        public PlayerSnapshot build() {
+            return new PlayerSnapshot(this);
+        }
+    }
+}
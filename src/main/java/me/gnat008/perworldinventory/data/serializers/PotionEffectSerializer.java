@@ -19,10 +19,14 @@ package me.gnat008.perworldinventory.data.serializers;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -62,6 +66,99 @@ public class PotionEffectSerializer {
         return all;
     }
 
+    /**
+     * Write a Collection of PotionEffects in the binary data format: the number of effects,
+     * followed by the type, amplifier, duration, ambient and particles flags of every effect.
+     *
+     * @param out The output to write to
+     * @param effects The PotionEffects to write
+     * @throws IOException If the output could not be written to
+     */
+    public static void write(DataOutput out, Collection<PotionEffect> effects) throws IOException {
+        out.writeShort(effects.size());
+        for (PotionEffect effect : effects) {
+            out.writeUTF(effect.getType().getName());
+            out.writeInt(effect.getAmplifier());
+            out.writeInt(effect.getDuration());
+            out.writeBoolean(effect.isAmbient());
+            out.writeBoolean(effect.hasParticles());
+        }
+    }
+
+    /**
+     * Read PotionEffects written by {@link #write(DataOutput, Collection)}.
+     * Effects of a type that does not exist on this server are skipped.
+     *
+     * @param in The input to read from
+     * @return The PotionEffects
+     * @throws IOException If the input could not be read
+     */
+    public static Collection<PotionEffect> read(DataInput in) throws IOException {
+        int count = in.readUnsignedShort();
+        ArrayList<PotionEffect> effects = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PotionEffectType type = PotionEffectType.getByName(in.readUTF());
+            int amplifier = in.readInt();
+            int duration = in.readInt();
+            boolean ambient = in.readBoolean();
+            boolean particles = in.readBoolean();
+
+            if (type != null)
+                effects.add(new PotionEffect(type, duration, amplifier, ambient, particles));
+        }
+        return effects;
+    }
+
+    /**
+     * Read PotionEffects created by {@link #serialize(Collection)} straight from a JSON stream.
+     * Effects of a type that does not exist on this server are skipped.
+     *
+     * @param reader The reader, positioned at the start of the array of effects
+     * @return The PotionEffects
+     * @throws IOException If the effects could not be read
+     */
+    public static Collection<PotionEffect> read(JsonReader reader) throws IOException {
+        ArrayList<PotionEffect> effects = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            PotionEffectType type = null;
+            int amplifier = 0;
+            int duration = 0;
+            boolean ambient = false;
+            boolean particles = true;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "type":
+                        type = PotionEffectType.getByName(reader.nextString());
+                        break;
+                    case "amp":
+                        amplifier = reader.nextInt();
+                        break;
+                    case "duration":
+                        duration = reader.nextInt();
+                        break;
+                    case "ambient":
+                        ambient = reader.nextBoolean();
+                        break;
+                    case "particles":
+                        particles = reader.nextBoolean();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (type != null)
+                effects.add(new PotionEffect(type, duration, amplifier, ambient, particles));
+        }
+        reader.endArray();
+
+        return effects;
+    }
+
     /**
      * Get a Collection of PotionEffects from the given potion effect code
      *
@@ -180,12 +277,22 @@ public class PotionEffectSerializer {
      * @param entity The entity to apply the effects to.
      */
     public static void setPotionEffects(JsonArray effects, LivingEntity entity) {
+        setPotionEffects(deserialize(effects), entity);
+    }
+
+    /**
+     * Remove any PotionEffects the entity currently has, then apply the new effects.
+     *
+     * @param effects The PotionEffects to apply.
+     * @param entity The entity to apply the effects to.
+     */
+    public static void setPotionEffects(Collection<PotionEffect> effects, LivingEntity entity) {
         if (entity.getActivePotionEffects() != null && !entity.getActivePotionEffects().isEmpty()) {
             for (PotionEffect effect : entity.getActivePotionEffects()) {
                 entity.removePotionEffect(effect.getType());
             }
         }
 
-        addPotionEffects(effects, entity);
+        entity.addPotionEffects(effects);
     }
 }
@@ -18,15 +18,20 @@
 package me.gnat008.perworldinventory.data.serializers;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import me.gnat008.perworldinventory.BukkitService;
 import me.gnat008.perworldinventory.config.PwiProperties;
 import me.gnat008.perworldinventory.config.Settings;
-import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
 import org.bukkit.GameMode;
 import org.bukkit.attribute.Attribute;
 import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class StatSerializer {
 
@@ -44,7 +49,7 @@ public class StatSerializer {
      * @param player The player whose stats to serialize
      * @return The serialized stats
      */
-    public static JsonObject serialize(PWIPlayer player) {
+    public static JsonObject serialize(PWIPlayerSnapshot player) {
         JsonObject root = new JsonObject();
 
         root.addProperty("can-fly", player.getCanFly());
@@ -68,81 +73,262 @@ public class StatSerializer {
     }
 
     /**
-     * Apply stats to a player.
+     * Write a player's stats in the binary data format. Potion effects are not included;
+     * they are written separately by {@link PotionEffectSerializer#write(DataOutput, java.util.Collection)}.
+     *
+     * @param out The output to write to
+     * @param player The player whose stats to write
+     * @throws IOException If the output could not be written to
+     */
+    public static void write(DataOutput out, PWIPlayerSnapshot player) throws IOException {
+        out.writeBoolean(player.getCanFly());
+        out.writeBoolean(player.getDisplayName() != null);
+        if (player.getDisplayName() != null)
+            out.writeUTF(player.getDisplayName());
+        out.writeFloat(player.getExhaustion());
+        out.writeFloat(player.getExperience());
+        out.writeBoolean(player.isFlying());
+        out.writeInt(player.getFoodLevel());
+        out.writeUTF(player.getGamemode().toString());
+        out.writeDouble(player.getMaxHealth());
+        out.writeDouble(player.getHealth());
+        out.writeInt(player.getLevel());
+        out.writeFloat(player.getSaturationLevel());
+        out.writeFloat(player.getFallDistance());
+        out.writeInt(player.getFireTicks());
+        out.writeInt(player.getMaxAir());
+        out.writeInt(player.getRemainingAir());
+    }
+
+    /**
+     * Read stats written by {@link #write(DataOutput, PWIPlayerSnapshot)}.
+     *
+     * @param in The input to read from
+     * @param snapshot The snapshot to add the stats to
+     * @throws IOException If the input could not be read
+     */
+    public static void read(DataInput in, PlayerSnapshot.Builder snapshot) throws IOException {
+        snapshot.canFly(in.readBoolean());
+        if (in.readBoolean())
+            snapshot.displayName(in.readUTF());
+        snapshot.exhaustion(in.readFloat())
+                .experience(in.readFloat())
+                .flying(in.readBoolean())
+                .foodLevel(in.readInt())
+                .gamemode(parseGameMode(in.readUTF()))
+                .maxHealth(in.readDouble())
+                .health(in.readDouble())
+                .level(in.readInt())
+                .saturation(in.readFloat())
+                .fallDistance(in.readFloat())
+                .fireTicks(in.readInt())
+                .maxAir(in.readInt())
+                .remainingAir(in.readInt());
+    }
+
+    /**
+     * Read stats created by {@link #serialize(PWIPlayerSnapshot)}. Potion effects are only read if they are loaded.
+     *
+     * @param stats The stats to read.
+     * @param dataFormat See {@link PlayerSerializer#serialize(PWIPlayerSnapshot)}.
+     * @param snapshot The snapshot to add the stats to.
+     */
+    public void read(JsonObject stats, int dataFormat, PlayerSnapshot.Builder snapshot) {
+        if (stats.has("can-fly"))
+            snapshot.canFly(stats.get("can-fly").getAsBoolean());
+        if (stats.has("display-name"))
+            snapshot.displayName(stats.get("display-name").getAsString());
+        if (stats.has("exhaustion"))
+            snapshot.exhaustion((float) stats.get("exhaustion").getAsDouble());
+        if (stats.has("exp"))
+            snapshot.experience((float) stats.get("exp").getAsDouble());
+        if (stats.has("flying"))
+            snapshot.flying(stats.get("flying").getAsBoolean());
+        if (stats.has("food"))
+            snapshot.foodLevel(stats.get("food").getAsInt());
+        if (stats.has("max-health") && stats.has("health")) {
+            snapshot.maxHealth(stats.get("max-health").getAsDouble());
+            snapshot.health(stats.get("health").getAsDouble());
+        }
+        if (stats.has("gamemode"))
+            snapshot.gamemode(parseGameMode(stats.get("gamemode").getAsString()));
+        if (stats.has("level"))
+            snapshot.level(stats.get("level").getAsInt());
+        if (settings.getProperty(PwiProperties.LOAD_POTION_EFFECTS) && stats.has("potion-effects")) {
+            if (dataFormat < 2) {
+                snapshot.potionEffects(PotionEffectSerializer.deserialize(stats.get("potion-effects").getAsString()));
+            } else {
+                snapshot.potionEffects(PotionEffectSerializer.deserialize(stats.getAsJsonArray("potion-effects")));
+            }
+        }
+        if (stats.has("saturation"))
+            snapshot.saturation((float) stats.get("saturation").getAsDouble());
+        if (stats.has("fallDistance"))
+            snapshot.fallDistance(stats.get("fallDistance").getAsFloat());
+        if (stats.has("fireTicks"))
+            snapshot.fireTicks(stats.get("fireTicks").getAsInt());
+        if (stats.has("maxAir"))
+            snapshot.maxAir(stats.get("maxAir").getAsInt());
+        if (stats.has("remainingAir"))
+            snapshot.remainingAir(stats.get("remainingAir").getAsInt());
+    }
+
+    /**
+     * Read stats created by {@link #serialize(PWIPlayerSnapshot)} straight from a JSON stream, without
+     * building a tree first. Potion effects are skipped if they are not loaded.
+     *
+     * @param reader The reader, positioned at the start of the stats object.
+     * @param snapshot The snapshot to add the stats to.
+     * @throws IOException If the stats could not be read
+     */
+    public void read(JsonReader reader, PlayerSnapshot.Builder snapshot) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "can-fly":
+                    snapshot.canFly(reader.nextBoolean());
+                    break;
+                case "display-name":
+                    snapshot.displayName(reader.nextString());
+                    break;
+                case "exhaustion":
+                    snapshot.exhaustion((float) reader.nextDouble());
+                    break;
+                case "exp":
+                    snapshot.experience((float) reader.nextDouble());
+                    break;
+                case "flying":
+                    snapshot.flying(reader.nextBoolean());
+                    break;
+                case "food":
+                    snapshot.foodLevel(reader.nextInt());
+                    break;
+                case "max-health":
+                    snapshot.maxHealth(reader.nextDouble());
+                    break;
+                case "health":
+                    snapshot.health(reader.nextDouble());
+                    break;
+                case "gamemode":
+                    snapshot.gamemode(parseGameMode(reader.nextString()));
+                    break;
+                case "level":
+                    snapshot.level(reader.nextInt());
+                    break;
+                case "potion-effects":
+                    if (!settings.getProperty(PwiProperties.LOAD_POTION_EFFECTS)) {
+                        reader.skipValue();
+                    } else if (reader.peek() == JsonToken.STRING) {
+                        // Data format 0 and 1
+                        snapshot.potionEffects(PotionEffectSerializer.deserialize(reader.nextString()));
+                    } else {
+                        snapshot.potionEffects(PotionEffectSerializer.read(reader));
+                    }
+                    break;
+                case "saturation":
+                    snapshot.saturation((float) reader.nextDouble());
+                    break;
+                case "fallDistance":
+                    snapshot.fallDistance((float) reader.nextDouble());
+                    break;
+                case "fireTicks":
+                    snapshot.fireTicks(reader.nextInt());
+                    break;
+                case "maxAir":
+                    snapshot.maxAir(reader.nextInt());
+                    break;
+                case "remainingAir":
+                    snapshot.remainingAir(reader.nextInt());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Apply the stats of a snapshot to a player, as far as they are loaded.
      *
      * @param player The Player to apply the stats to.
      * @param stats  The stats to apply.
-     * @param dataFormat See {@link PlayerSerializer#serialize(PWIPlayer)}.
      */
-    public void deserialize(Player player,JsonObject stats, int dataFormat) {
-        if (settings.getProperty(PwiProperties.LOAD_CAN_FLY) && stats.has("can-fly"))
-            player.setAllowFlight(stats.get("can-fly").getAsBoolean());
-        if (settings.getProperty(PwiProperties.LOAD_DISPLAY_NAME) && stats.has("display-name"))
-            player.setDisplayName(stats.get("display-name").getAsString());
-        if (settings.getProperty(PwiProperties.LOAD_EXHAUSTION) && stats.has("exhaustion"))
-            player.setExhaustion((float) stats.get("exhaustion").getAsDouble());
-        if (settings.getProperty(PwiProperties.LOAD_EXP) && stats.has("exp"))
-            player.setExp((float) stats.get("exp").getAsDouble());
-        if (settings.getProperty(PwiProperties.LOAD_FLYING) && stats.has("flying") && player.getAllowFlight())
-            player.setFlying(stats.get("flying").getAsBoolean());
-        if (settings.getProperty(PwiProperties.LOAD_HUNGER) && stats.has("food"))
-            player.setFoodLevel(stats.get("food").getAsInt());
+    public void apply(Player player, PlayerSnapshot stats) {
+        if (settings.getProperty(PwiProperties.LOAD_CAN_FLY) && stats.getCanFly() != null)
+            player.setAllowFlight(stats.getCanFly());
+        if (settings.getProperty(PwiProperties.LOAD_DISPLAY_NAME) && stats.getDisplayName() != null)
+            player.setDisplayName(stats.getDisplayName());
+        if (settings.getProperty(PwiProperties.LOAD_EXHAUSTION) && stats.getExhaustion() != null)
+            player.setExhaustion(stats.getExhaustion());
+        if (settings.getProperty(PwiProperties.LOAD_EXP) && stats.getExperience() != null)
+            player.setExp(stats.getExperience());
+        if (settings.getProperty(PwiProperties.LOAD_FLYING) && stats.isFlying() != null && player.getAllowFlight())
+            player.setFlying(stats.isFlying());
+        if (settings.getProperty(PwiProperties.LOAD_HUNGER) && stats.getFoodLevel() != null)
+            player.setFoodLevel(stats.getFoodLevel());
         if (settings.getProperty(PwiProperties.LOAD_HEALTH) &&
-                stats.has("max-health") &&
-                stats.has("health")) {
-            double maxHealth = stats.get("max-health").getAsDouble();
+                stats.getMaxHealth() != null &&
+                stats.getHealth() != null) {
+            double maxHealth = stats.getMaxHealth();
             if (bukkitService.shouldUseAttributes()) {
                 player.getAttribute(Attribute.GENERIC_MAX_HEALTH).setBaseValue(maxHealth);
             } else {
                 player.setMaxHealth(maxHealth);
             }
 
-            double health = stats.get("health").getAsDouble();
+            double health = stats.getHealth();
             if (health > 0 && health <= maxHealth) {
                 player.setHealth(health);
             } else {
                 player.setHealth(maxHealth);
             }
         }
-        if (settings.getProperty(PwiProperties.LOAD_GAMEMODE) && (!settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)) && stats.has("gamemode")) {
-            if (stats.get("gamemode").getAsString().length() > 1) {
-                player.setGameMode(GameMode.valueOf(stats.get("gamemode").getAsString()));
-            } else {
-                int gm = stats.get("gamemode").getAsInt();
-                switch (gm) {
-                    case 0:
-                        player.setGameMode(GameMode.CREATIVE);
-                        break;
-                    case 1:
-                        player.setGameMode(GameMode.SURVIVAL);
-                        break;
-                    case 2:
-                        player.setGameMode(GameMode.ADVENTURE);
-                        break;
-                    case 3:
-                        player.setGameMode(GameMode.SPECTATOR);
-                        break;
-                }
-            }
+        if (settings.getProperty(PwiProperties.LOAD_GAMEMODE) && (!settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)) && stats.getGamemode() != null)
+            player.setGameMode(stats.getGamemode());
+        if (settings.getProperty(PwiProperties.LOAD_LEVEL) && stats.getLevel() != null)
+            player.setLevel(stats.getLevel());
+        if (settings.getProperty(PwiProperties.LOAD_POTION_EFFECTS) && stats.getPotionEffects() != null)
+            PotionEffectSerializer.setPotionEffects(stats.getPotionEffects(), player);
+        if (settings.getProperty(PwiProperties.LOAD_SATURATION) && stats.getSaturation() != null)
+            player.setSaturation(stats.getSaturation());
+        if (settings.getProperty(PwiProperties.LOAD_FALL_DISTANCE) && stats.getFallDistance() != null)
+            player.setFallDistance(stats.getFallDistance());
+        if (settings.getProperty(PwiProperties.LOAD_FIRE_TICKS) && stats.getFireTicks() != null)
+            player.setFireTicks(stats.getFireTicks());
+        if (settings.getProperty(PwiProperties.LOAD_MAX_AIR) && stats.getMaxAir() != null)
+            player.setMaximumAir(stats.getMaxAir());
+        if (settings.getProperty(PwiProperties.LOAD_REMAINING_AIR) && stats.getRemainingAir() != null)
+            player.setRemainingAir(stats.getRemainingAir());
+    }
+
+    /**
+     * Get a GameMode from its saved form: its name, or the single digit used by very old versions.
+     *
+     * @param gamemode The saved GameMode.
+     * @return The GameMode, or null if it is unknown.
+     */
+    private static GameMode parseGameMode(String gamemode) {
+        if (gamemode.length() > 1) {
+            return GameMode.valueOf(gamemode);
         }
-        if (settings.getProperty(PwiProperties.LOAD_LEVEL) && stats.has("level"))
-            player.setLevel(stats.get("level").getAsInt());
-        if (settings.getProperty(PwiProperties.LOAD_POTION_EFFECTS) && stats.has("potion-effects")) {
-            if (dataFormat < 2) {
-                PotionEffectSerializer.setPotionEffects(stats.get("potion-effects").getAsString(), player);
-            } else {
-                PotionEffectSerializer.setPotionEffects(stats.getAsJsonArray("potion-effects"), player);
-            }
+
+        switch (gamemode) {
+            case "0":
+                return GameMode.CREATIVE;
+            case "1":
+                return GameMode.SURVIVAL;
+            case "2":
+                return GameMode.ADVENTURE;
+            case "3":
+                return GameMode.SPECTATOR;
+            default:
+                return null;
         }
-        if (settings.getProperty(PwiProperties.LOAD_SATURATION) && stats.has("saturation"))
-            player.setSaturation((float) stats.get("saturation").getAsDouble());
-        if (settings.getProperty(PwiProperties.LOAD_FALL_DISTANCE) && stats.has("fallDistance"))
-            player.setFallDistance(stats.get("fallDistance").getAsFloat());
-        if (settings.getProperty(PwiProperties.LOAD_FIRE_TICKS) && stats.has("fireTicks"))
-            player.setFireTicks(stats.get("fireTicks").getAsInt());
-        if (settings.getProperty(PwiProperties.LOAD_MAX_AIR) && stats.has("maxAir"))
-            player.setMaximumAir(stats.get("maxAir").getAsInt());
-        if (settings.getProperty(PwiProperties.LOAD_REMAINING_AIR) && stats.has("remainingAir"))
-            player.setRemainingAir(stats.get("remainingAir").getAsInt());
     }
 }
@@ -0,0 +1,206 @@
+package me.gnat008.perworldinventory.data.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small, bounded pool of JDBC connections.
+ * <p>
+ * At most {@code maxSize} connections are handed out at any time; callers asking for more
+ * wait until one is returned. Connections are opened lazily, checked before they are reused
+ * after sitting idle, and keep their prepared statements so that the same SQL is only
+ * prepared once per connection.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final long VALIDATION_INTERVAL_MILLIS = 30_000;
+
+    private final String url;
+    private final Properties properties;
+    private final long timeoutMillis;
+
+    private final Semaphore permits;
+    private final BlockingQueue<PooledConnection> idle = new LinkedBlockingQueue<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param url The JDBC URL of the database.
+     * @param username The user to connect as, or an empty string if not needed.
+     * @param password The password of the user.
+     * @param maxSize The maximum number of open connections.
+     * @param timeoutMillis How long to wait for a free connection before failing.
+     */
+    public ConnectionPool(String url, String username, String password, int maxSize, long timeoutMillis) {
+        this.url = url;
+        this.properties = new Properties();
+        if (!username.isEmpty()) {
+            properties.setProperty("user", username);
+            properties.setProperty("password", password);
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(Math.max(1, maxSize), true);
+    }
+
+    /**
+     * Borrow a connection from the pool. It must be closed to give it back.
+     *
+     * @return A connection that is not in use by anyone else.
+     * @throws SQLException If no connection became free in time, or a new one could not be opened.
+     */
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + timeoutMillis + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", ex);
+        }
+
+        try {
+            PooledConnection connection;
+            while ((connection = idle.poll()) != null) {
+                if (connection.isUsable()) {
+                    return connection;
+                }
+                connection.closeQuietly();
+            }
+
+            return new PooledConnection(DriverManager.getConnection(url, properties));
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the number of connections that are currently opened but not in use.
+     *
+     * @return The number of idle connections.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.closeQuietly();
+        }
+    }
+
+    private void release(PooledConnection connection) {
+        if (closed) {
+            connection.closeQuietly();
+        } else {
+            idle.offer(connection);
+        }
+        permits.release();
+    }
+
+    /**
+     * A connection borrowed from the pool. Closing it returns it to the pool.
+     */
+    public final class PooledConnection implements AutoCloseable {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        private long lastUsed = System.currentTimeMillis();
+        private boolean broken;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Get a prepared statement for the given SQL, reusing it if this connection
+         * already prepared it before.
+         *
+         * @param sql The SQL of the statement.
+         * @return The prepared statement. Must not be closed by the caller.
+         * @throws SQLException If the statement could not be prepared.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        /**
+         * Get the underlying JDBC connection, e.g. to manage transactions.
+         *
+         * @return The connection.
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Mark this connection as unusable, so that it is discarded instead of returned to the pool.
+         */
+        public void markBroken() {
+            this.broken = true;
+        }
+
+        @Override
+        public void close() {
+            if (!broken) {
+                try {
+                    if (!connection.getAutoCommit()) {
+                        connection.rollback();
+                        connection.setAutoCommit(true);
+                    }
+                } catch (SQLException ex) {
+                    broken = true;
+                }
+            }
+
+            if (broken) {
+                closeQuietly();
+                permits.release();
+            } else {
+                lastUsed = System.currentTimeMillis();
+                release(this);
+            }
+        }
+
+        private boolean isUsable() {
+            try {
+                if (connection.isClosed()) {
+                    return false;
+                }
+                return System.currentTimeMillis() - lastUsed < VALIDATION_INTERVAL_MILLIS || connection.isValid(1);
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                connection.close(); // also closes its statements
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package me.gnat008.perworldinventory.data.sql;
+
+/**
+ * The flavors of SQL spoken by the supported databases.
+ */
+public enum SqlDialect {
+
+    MYSQL("LONGBLOB") {
+        @Override
+        public String upsert(String table, String[] columns, String[] keyColumns) {
+            StringBuilder sql = new StringBuilder(insertInto("INSERT INTO ", table, columns)).append(" ON DUPLICATE KEY UPDATE ");
+            boolean first = true;
+            for (String column : columns) {
+                if (!contains(keyColumns, column)) {
+                    sql.append(first ? "" : ", ").append(column).append(" = VALUES(").append(column).append(")");
+                    first = false;
+                }
+            }
+            return sql.toString();
+        }
+    },
+
+    H2("BLOB") {
+        @Override
+        public String upsert(String table, String[] columns, String[] keyColumns) {
+            return "MERGE INTO " + table + " (" + String.join(", ", columns) + ") KEY (" + String.join(", ", keyColumns)
+                    + ") VALUES (" + placeholders(columns.length) + ")";
+        }
+    },
+
+    SQLITE("BLOB") {
+        @Override
+        public String upsert(String table, String[] columns, String[] keyColumns) {
+            return insertInto("INSERT OR REPLACE INTO ", table, columns);
+        }
+    };
+
+    private final String blobType;
+
+    SqlDialect(String blobType) {
+        this.blobType = blobType;
+    }
+
+    /**
+     * Get the column type to use for binary data of any size.
+     *
+     * @return The blob column type.
+     */
+    public String getBlobType() {
+        return blobType;
+    }
+
+    /**
+     * Build a statement that inserts a row, or replaces the existing row with the same key.
+     *
+     * @param table The table to write to.
+     * @param columns All columns to set, in the order of the statement's parameters.
+     * @param keyColumns The columns that make up the primary key.
+     * @return The SQL statement.
+     */
+    public abstract String upsert(String table, String[] columns, String[] keyColumns);
+
+    /**
+     * Get the dialect of a JDBC URL.
+     *
+     * @param url The JDBC URL.
+     * @return The dialect of the database the URL points to.
+     * @throws IllegalArgumentException If the database is not supported.
+     */
+    public static SqlDialect fromUrl(String url) {
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            return MYSQL;
+        } else if (url.startsWith("jdbc:h2:")) {
+            return H2;
+        } else if (url.startsWith("jdbc:sqlite:")) {
+            return SQLITE;
+        }
+
+        throw new IllegalArgumentException("Unsupported database URL '" + url + "'. Use MySQL, MariaDB, SQLite or H2");
+    }
+
+    private static String insertInto(String verb, String table, String[] columns) {
+        return verb + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders(columns.length) + ")";
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String candidate : values) {
+            if (candidate.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
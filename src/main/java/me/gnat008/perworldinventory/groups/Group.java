@@ -20,6 +20,8 @@ package me.gnat008.perworldinventory.groups;
 import org.bukkit.GameMode;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -30,9 +32,10 @@ import java.util.Set;
 public class Group {
 
     private String name;
-    private Set<String> worlds;
+    private volatile Set<String> worlds;
     private GameMode gameMode;
     private boolean configured;
+    private final GroupManager manager;
 
     /**
      * Constructor.
@@ -42,25 +45,36 @@ public class Group {
      * @param gameMode The default {@link GameMode} for this group.
      */
     public Group(String name, Set<String> worlds, GameMode gameMode) {
-        this.name = name;
-        this.worlds = worlds;
-        this.gameMode = gameMode;
-        this.configured = false;
+        this(name, worlds, gameMode, false);
     }
 
     /**
      * Constructor.
      *
      * @param name The name of the group.
-     * @param worlds A list of world names in this group.
+     * @param worlds A list of world names in this group, or null for none.
      * @param gameMode The default {@link GameMode} for this group.
      * @param configured If the group is defined in the worlds.yml file.
      */
     public Group(String name, Set<String> worlds, GameMode gameMode, boolean configured) {
+        this(name, worlds, gameMode, configured, null);
+    }
+
+    /**
+     * Constructor for groups that are kept in a {@link GroupManager}.
+     *
+     * @param name The name of the group.
+     * @param worlds A list of world names in this group, or null for none.
+     * @param gameMode The default {@link GameMode} for this group.
+     * @param configured If the group is defined in the worlds.yml file.
+     * @param manager The group manager the group is kept in.
+     */
+    Group(String name, Set<String> worlds, GameMode gameMode, boolean configured, GroupManager manager) {
         this.name = name;
-        this.worlds = worlds;
+        this.worlds = worlds == null ? Collections.emptySet() : Collections.unmodifiableSet(worlds);
         this.gameMode = gameMode;
         this.configured = configured;
+        this.manager = manager;
     }
 
     /**
@@ -73,9 +87,10 @@ public class Group {
     }
 
     /**
-     * Get a list of the names of all the worlds in this group.
+     * Get a list of the names of all the worlds in this group. Use
+     * {@link GroupManager#addWorlds(Group, java.util.Collection)} to add worlds to a group.
      *
-     * @return A List of world names.
+     * @return An unmodifiable Set of world names.
      */
     public Set<String> getWorlds() {
         return this.worlds;
@@ -105,18 +120,29 @@ public class Group {
      * Add a list of worlds to this group.
      *
      * @param worlds A list of the worlds to add.
+     * @deprecated Use {@link GroupManager#addWorlds(Group, Collection)}, which replaces the group with
+     *             a copy instead of changing a group that other threads may be reading.
      */
+    @Deprecated
     public void addWorlds(Collection<String> worlds) {
-        this.worlds.addAll(worlds);
+        Set<String> updated = new HashSet<>(this.worlds);
+        updated.addAll(worlds);
+        this.worlds = Collections.unmodifiableSet(updated);
+
+        if (manager != null) {
+            manager.addWorlds(this, worlds);
+        }
     }
 
     /**
      * Add a world to this group.
      *
      * @param world The name of the world to add.
+     * @deprecated Use {@link GroupManager#addWorlds(Group, Collection)}.
      */
+    @Deprecated
     public void addWorld(String world) {
-        this.worlds.add(world);
+        addWorlds(Collections.singleton(world));
     }
 
     /**
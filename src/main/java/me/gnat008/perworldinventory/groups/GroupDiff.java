@@ -0,0 +1,156 @@
+package me.gnat008.perworldinventory.groups;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The differences between two sets of groups, e.g. before and after the worlds.yml file was reloaded.
+ * <p>
+ * Groups are matched by name, ignoring case, since that is how their data is stored. Groups that
+ * were created for worlds which are not in the worlds.yml file are not compared, as they are created
+ * again when they are needed.
+ */
+public final class GroupDiff {
+
+    private final List<String> added;
+    private final List<String> removed;
+    private final List<String> changed;
+    private final Map<String, Group> movedWorlds;
+
+    private GroupDiff(List<String> added, List<String> removed, List<String> changed, Map<String, Group> movedWorlds) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+        this.movedWorlds = Collections.unmodifiableMap(movedWorlds);
+    }
+
+    /**
+     * Compare two sets of groups.
+     *
+     * @param before The groups before the change.
+     * @param after The groups after the change.
+     * @return The differences between the groups.
+     */
+    public static GroupDiff between(Collection<Group> before, Collection<Group> after) {
+        Map<String, Group> oldGroups = byName(before);
+        Map<String, Group> newGroups = byName(after);
+
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Group> entry : newGroups.entrySet()) {
+            Group oldGroup = oldGroups.get(entry.getKey());
+            Group newGroup = entry.getValue();
+            if (oldGroup == null) {
+                added.add(newGroup.getName());
+            } else if (!oldGroup.getWorlds().equals(newGroup.getWorlds())
+                    || !Objects.equals(oldGroup.getGameMode(), newGroup.getGameMode())) {
+                changed.add(newGroup.getName());
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (Map.Entry<String, Group> entry : oldGroups.entrySet()) {
+            if (!newGroups.containsKey(entry.getKey())) {
+                removed.add(entry.getValue().getName());
+            }
+        }
+
+        Map<String, Group> newWorlds = new HashMap<>();
+        for (Group group : newGroups.values()) {
+            for (String world : group.getWorlds()) {
+                newWorlds.put(world, group);
+            }
+        }
+
+        Map<String, Group> movedWorlds = new HashMap<>();
+        for (Group oldGroup : oldGroups.values()) {
+            for (String world : oldGroup.getWorlds()) {
+                Group newGroup = newWorlds.get(world);
+                if (newGroup == null || !newGroup.getName().equalsIgnoreCase(oldGroup.getName())) {
+                    movedWorlds.put(world, oldGroup);
+                }
+            }
+        }
+
+        Collections.sort(added);
+        Collections.sort(removed);
+        Collections.sort(changed);
+        return new GroupDiff(added, removed, changed, movedWorlds);
+    }
+
+    private static Map<String, Group> byName(Collection<Group> groups) {
+        Map<String, Group> result = new HashMap<>();
+        for (Group group : groups) {
+            if (group.isConfigured()) {
+                result.put(group.getName().toLowerCase(), group);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the names of the groups that only exist after the change.
+     *
+     * @return The names of the added groups.
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * Get the names of the groups that no longer exist after the change.
+     *
+     * @return The names of the removed groups.
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Get the names of the groups whose worlds or default gamemode changed.
+     *
+     * @return The names of the changed groups.
+     */
+    public List<String> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Get the worlds that belong to a different group after the change, together with
+     * the group they belonged to before.
+     *
+     * @return The group of each moved world before the change, by world name.
+     */
+    public Map<String, Group> getMovedWorlds() {
+        return movedWorlds;
+    }
+
+    /**
+     * Get whether a group with the given name was removed.
+     *
+     * @param group The name of the group.
+     * @return True if the group no longer exists.
+     */
+    public boolean isRemoved(String group) {
+        for (String name : removed) {
+            if (name.equalsIgnoreCase(group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get whether there are no differences.
+     *
+     * @return True if nothing changed.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty() && movedWorlds.isEmpty();
+    }
+}
@@ -32,7 +32,14 @@ import java.util.*;
 
 public class GroupManager {
 
-    private Map<String, Group> groups = new HashMap<>();
+    /**
+     * The groups that are currently in memory. The registry is never changed; every change
+     * builds a new one and swaps it in, so it can be read from any thread without locking.
+     */
+    private volatile GroupRegistry registry = GroupRegistry.EMPTY;
+
+    /** Held while building a new registry, so that concurrent changes don't overwrite each other. */
+    private final Object writeLock = new Object();
 
     @Inject
     private PerWorldInventory plugin;
@@ -43,7 +50,9 @@ public class GroupManager {
     GroupManager() {}
 
     public void clearGroups() {
-        groups.clear();
+        synchronized (writeLock) {
+            registry = GroupRegistry.EMPTY;
+        }
     }
 
     /**
@@ -52,7 +61,16 @@ public class GroupManager {
      * @return The number of groups.
      */
     public int countGroups() {
-        return groups.size();
+        return registry.groups.size();
+    }
+
+    /**
+     * Get all groups that are currently in memory.
+     *
+     * @return An unmodifiable view of the groups, which does not change when groups are reloaded.
+     */
+    public Collection<Group> getGroups() {
+        return registry.groups.values();
     }
 
     /**
@@ -73,11 +91,33 @@ public class GroupManager {
      * @param gamemode The default GameMode for this group.
      */
     public void addGroup(String name, Collection<String> worlds, GameMode gamemode) {
-        ConsoleLogger.debug("Adding group to memory. Group: " + name + " Worlds: " + worlds.toString() + " Gamemode: " + gamemode.name());
+        synchronized (writeLock) {
+            Map<String, Group> groups = new HashMap<>(registry.groups);
+            putGroup(groups, name, worlds, gamemode);
+            registry = new GroupRegistry(groups);
+        }
+    }
 
-        Set<String> worldSet = new HashSet<>();
-        worldSet.addAll(worlds);
-        groups.put(name.toLowerCase(), new Group(name, worldSet, gamemode, true));
+    /**
+     * Add worlds to a group that is already in memory, and update which group the worlds belong to.
+     * The group is replaced with a copy that contains the new worlds, so threads which are reading
+     * the old group are not affected.
+     *
+     * @param group The group to add the worlds to.
+     * @param worlds The names of the worlds to add.
+     * @return The group that replaced the given group.
+     */
+    public Group addWorlds(Group group, Collection<String> worlds) {
+        synchronized (writeLock) {
+            Set<String> worldSet = new HashSet<>(group.getWorlds());
+            worldSet.addAll(worlds);
+            Group updated = new Group(group.getName(), worldSet, group.getGameMode(), group.isConfigured(), this);
+
+            Map<String, Group> groups = new HashMap<>(registry.groups);
+            groups.put(group.getName().toLowerCase(), updated);
+            registry = new GroupRegistry(groups);
+            return updated;
+        }
     }
 
     /**
@@ -88,45 +128,50 @@ public class GroupManager {
      * @return The Group, or null.
      */
     public Group getGroup(String group) {
-        return groups.get(group.toLowerCase());
+        return registry.groups.get(group.toLowerCase());
     }
 
     /**
-     * Get a group by the name of a world. This method iterates through the groups
-     * and checks if each one contains the name of the given world. If no groups contain
-     * the world, a new group will be created and returned.
+     * Get a group by the name of a world. If no groups contain the world, a new group
+     * will be created and returned.
      *
      * @param world The name of the world in the group.
      * @return The group that contains the given world.
      */
     public Group getGroupFromWorld(String world) {
-        Group result = null;
-        for (Group group : this.groups.values()) {
-            if (group.containsWorld(world)) {
-                result = group;
-            }
+        Group result = registry.worldIndex.get(world);
+        if (result != null) {
+            return result;
         }
 
-        if (result == null) { // If true, world was not defined in worlds.yml
-            Set<String> worlds = new HashSet<>();
-            worlds.add(world);
-            worlds.add(world + "_nether");
-            worlds.add(world + "_the_end");
-            result = new Group(world, worlds, GameMode.SURVIVAL, false);
+        // World was not defined in worlds.yml
+        synchronized (writeLock) {
+            // Another thread may have created the group while we were waiting
+            result = registry.worldIndex.get(world);
+            if (result == null) {
+                Set<String> worlds = new HashSet<>();
+                worlds.add(world);
+                worlds.add(world + "_nether");
+                worlds.add(world + "_the_end");
+                result = new Group(world, worlds, GameMode.SURVIVAL, false, this);
 
-            groups.put(world.toLowerCase(), result);
+                Map<String, Group> groups = new HashMap<>(registry.groups);
+                groups.put(world.toLowerCase(), result);
+                registry = new GroupRegistry(groups);
+            }
         }
 
         return result;
     }
 
     /**
-     * Loads the groups defined in a 'worlds.yml' file into memory.
+     * Loads the groups defined in a 'worlds.yml' file into memory. The new groups replace
+     * the old ones all at once, so no thread sees a partly loaded set of groups.
      *
      * @param config The contents of the configuration file.
      */
     public void loadGroupsToMemory(FileConfiguration config) {
-        groups.clear();
+        Map<String, Group> groups = new HashMap<>();
 
         for (String key : config.getConfigurationSection("groups.").getKeys(false)) {
             List<String> worlds;
@@ -147,13 +192,17 @@ public class GroupManager {
                     gameMode = GameMode.valueOf(config.getString("groups." + key + ".default-gamemode").toUpperCase());
                 }
 
-                addGroup(key, worlds, gameMode);
+                putGroup(groups, key, worlds, gameMode);
             } else {
-                addGroup(key, worlds);
+                putGroup(groups, key, worlds, GameMode.SURVIVAL);
             }
 
             setDefaultsFile(key);
         }
+
+        synchronized (writeLock) {
+            registry = new GroupRegistry(groups);
+        }
     }
 
     /**
@@ -164,7 +213,7 @@ public class GroupManager {
         FileConfiguration groupsConfigFile = plugin.getWorldsConfig();
         groupsConfigFile.set("groups", null);
 
-        for (Group group : groups.values()) {
+        for (Group group : registry.groups.values()) {
             String groupKey = "groups." + group.getName();
             groupsConfigFile.set(groupKey, null);
             groupsConfigFile.set(groupKey + ".worlds", group.getWorlds());
@@ -179,6 +228,14 @@ public class GroupManager {
         }
     }
 
+    private void putGroup(Map<String, Group> groups, String name, Collection<String> worlds, GameMode gamemode) {
+        ConsoleLogger.debug("Adding group to memory. Group: " + name + " Worlds: " + worlds.toString() + " Gamemode: " + gamemode.name());
+
+        Set<String> worldSet = new HashSet<>();
+        worldSet.addAll(worlds);
+        groups.put(name.toLowerCase(), new Group(name, worldSet, gamemode, true, this));
+    }
+
     private void setDefaultsFile(String group) {
         File fileTo = new File(plugin.getDefaultFilesDirectory() + File.separator + group + ".json");
         if (!fileTo.exists()) {
@@ -205,4 +262,30 @@ public class GroupManager {
             }
         }
     }
+
+    /**
+     * An immutable set of groups, together with the group of each world by world name so that
+     * {@link #getGroupFromWorld(String)} doesn't have to check every group.
+     */
+    private static final class GroupRegistry {
+
+        static final GroupRegistry EMPTY = new GroupRegistry(Collections.emptyMap());
+
+        final Map<String, Group> groups;
+        final Map<String, Group> worldIndex;
+
+        GroupRegistry(Map<String, Group> groups) {
+            // A world listed in several groups belongs to whichever group is indexed last,
+            // as it did when the groups were searched one by one
+            Map<String, Group> worldIndex = new HashMap<>();
+            for (Group group : groups.values()) {
+                for (String world : group.getWorlds()) {
+                    worldIndex.put(world, group);
+                }
+            }
+
+            this.groups = Collections.unmodifiableMap(new HashMap<>(groups));
+            this.worldIndex = Collections.unmodifiableMap(worldIndex);
+        }
+    }
 }
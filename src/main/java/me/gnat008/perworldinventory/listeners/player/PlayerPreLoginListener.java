@@ -0,0 +1,37 @@
+package me.gnat008.perworldinventory.listeners.player;
+
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.PreLoginCache;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import javax.inject.Inject;
+
+/**
+ * Reads the data needed when a player joins while they are still logging in, off the main thread.
+ * Used by {@link PlayerSpawnLocationListener}.
+ */
+public class PlayerPreLoginListener implements Listener {
+
+    private PreLoginCache preLoginCache;
+    private Settings settings;
+
+    @Inject
+    PlayerPreLoginListener(PreLoginCache preLoginCache, Settings settings) {
+        this.preLoginCache = preLoginCache;
+        this.settings = settings;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED
+                || !settings.getProperty(PwiProperties.LOAD_DATA_ON_JOIN)) {
+            return;
+        }
+
+        preLoginCache.stage(event.getUniqueId(), event.getName());
+    }
+}
@@ -21,6 +21,7 @@ import me.gnat008.perworldinventory.ConsoleLogger;
 import me.gnat008.perworldinventory.config.PwiProperties;
 import me.gnat008.perworldinventory.config.Settings;
 import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.data.PreLoginCache;
 import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.groups.GroupManager;
 import me.gnat008.perworldinventory.process.InventoryChangeProcess;
@@ -36,14 +37,16 @@ import javax.inject.Inject;
 public class PlayerSpawnLocationListener implements Listener {
 
     private DataSource dataSource;
+    private PreLoginCache preLoginCache;
     private GroupManager groupManager;
     private InventoryChangeProcess process;
     private Settings settings;
 
     @Inject
-    PlayerSpawnLocationListener(DataSource dataSource, GroupManager groupManager, InventoryChangeProcess process,
-                                Settings settings) {
+    PlayerSpawnLocationListener(DataSource dataSource, PreLoginCache preLoginCache, GroupManager groupManager,
+                                InventoryChangeProcess process, Settings settings) {
         this.dataSource = dataSource;
+        this.preLoginCache = preLoginCache;
         this.groupManager = groupManager;
         this.process = process;
         this.settings = settings;
@@ -59,16 +62,27 @@ public class PlayerSpawnLocationListener implements Listener {
 
         ConsoleLogger.debug("Player '" + player.getName() + "' joining! Spawning in world '" + spawnWorld + "'. Getting last logout location");
 
-        Location lastLogout = dataSource.getLogoutData(player);
-        if (lastLogout != null) {
+        String logoutWorld = getLogoutWorld(player);
+        if (logoutWorld != null) {
             ConsoleLogger.debug("Logout location found for player '" + player.getName() + "'!");
 
-            if (!lastLogout.getWorld().getName().equals(spawnWorld)) {
+            if (!logoutWorld.equals(spawnWorld)) {
                 Group spawnGroup = groupManager.getGroupFromWorld(spawnWorld);
-                Group logoutGroup = groupManager.getGroupFromWorld(lastLogout.getWorld().getName());
+                Group logoutGroup = groupManager.getGroupFromWorld(logoutWorld);
 
                 process.processWorldChangeOnSpawn(player, logoutGroup, spawnGroup);
             }
         }
     }
+
+    private String getLogoutWorld(Player player) {
+        PreLoginCache.StagedLogin login = preLoginCache.take(player.getUniqueId());
+        if (login != null) {
+            return login.getLogoutWorld();
+        }
+
+        // Nothing was read when the player logged in, e.g. if the plugin was reloaded in between
+        Location lastLogout = dataSource.getLogoutData(player);
+        return lastLogout == null ? null : lastLogout.getWorld().getName();
+    }
 }
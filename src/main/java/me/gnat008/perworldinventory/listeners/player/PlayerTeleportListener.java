@@ -49,6 +49,8 @@ public class PlayerTeleportListener implements Listener {
         }
 
         playerManager.addPlayer(event.getPlayer(), groupFrom);
+        // The teleport can no longer be cancelled, start reading the data it will need
+        playerManager.prefetchPlayerData(groupTo, event.getPlayer());
         event.getPlayer().closeInventory();
     }
 }
@@ -10,6 +10,8 @@ public enum AdminPermission implements PermissionNode {
 
     SETDEFAULTS("perworldinventory.setdefaults", DefaultPermission.OP_ONLY),
 
+    STATS("perworldinventory.stats", DefaultPermission.OP_ONLY),
+
     VERSION("perworldinventory.version", DefaultPermission.OP_ONLY);
 
     private String node;
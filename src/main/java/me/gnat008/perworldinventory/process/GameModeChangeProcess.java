@@ -10,6 +10,8 @@ import me.gnat008.perworldinventory.events.InventoryLoadEvent;
 import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.permission.PermissionManager;
 import me.gnat008.perworldinventory.permission.PlayerPermission;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
 
@@ -23,6 +25,8 @@ public class GameModeChangeProcess {
     private PermissionManager permissionManager;
     @Inject
     private Settings settings;
+    @Inject
+    private PipelineTimings timings;
 
     GameModeChangeProcess() {
     }
@@ -39,20 +43,29 @@ public class GameModeChangeProcess {
             return;
         }
 
+        long start = timings.start();
         InventoryLoadEvent event = new InventoryLoadEvent(player, DeserializeCause.GAMEMODE_CHANGE, newGameMode, group);
 
         if (settings.getProperty(PwiProperties.DISABLE_BYPASS)) {
             ConsoleLogger.debug("[GM PROCESS] Bypass system is disabled in the config, loading data");
 
-            bukkitService.callEvent(event);
+            callLoadEvent(event);
         } else {
             if (!permissionManager.hasPermission(player, PlayerPermission.BYPASS_GAMEMODE)) {
                 ConsoleLogger.debug("[GM PROCESS] Player '" + player.getName() + "' does not have GameMode bypass permission! Loading data");
 
-                bukkitService.callEvent(event);
+                callLoadEvent(event);
             } else {
                 ConsoleLogger.debug("[GM PROCESS] Player '" + player.getName() + "' has GameMode bypass permission!");
             }
         }
+
+        timings.record(Stage.PROCESS, DeserializeCause.GAMEMODE_CHANGE, start);
+    }
+
+    private void callLoadEvent(InventoryLoadEvent event) {
+        long start = timings.start();
+        bukkitService.callEvent(event);
+        timings.record(Stage.LOAD_EVENT, DeserializeCause.GAMEMODE_CHANGE, start);
     }
 }
@@ -0,0 +1,123 @@
+package me.gnat008.perworldinventory.process;
+
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.data.players.PWIPlayerManager;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.groups.GroupDiff;
+import me.gnat008.perworldinventory.groups.GroupManager;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process to follow when the groups are reloaded while players are online.
+ * <p>
+ * Cached data is moved to the reloaded groups, or saved if its group was removed. Players
+ * that are in a world which now belongs to another group have their data saved for the old
+ * group and loaded for the new one, just like when they change worlds. All data is written
+ * and read through the usual asynchronous tasks.
+ */
+public class GroupReloadProcess {
+
+    @Inject
+    private BukkitService bukkitService;
+
+    @Inject
+    private GroupManager groupManager;
+
+    @Inject
+    private InventoryChangeProcess inventoryChangeProcess;
+
+    @Inject
+    private PWIPlayerManager playerManager;
+
+    GroupReloadProcess() {
+    }
+
+    /**
+     * Reload the groups from the given worlds.yml configuration.
+     *
+     * @param config The contents of the worlds.yml file.
+     * @return What changed with the reload.
+     */
+    public Result reloadGroups(FileConfiguration config) {
+        Map<Player, Group> groupsBefore = new HashMap<>();
+        for (Player player : bukkitService.getOnlinePlayers()) {
+            groupsBefore.put(player, groupManager.getGroupFromWorld(player.getWorld().getName()));
+        }
+
+        // The returned groups are not affected by the reload
+        Collection<Group> before = groupManager.getGroups();
+        groupManager.loadGroupsToMemory(config);
+        GroupDiff diff = GroupDiff.between(before, groupManager.getGroups());
+
+        int flushedProfiles = playerManager.reconcileGroups(diff);
+
+        // Also covers worlds that were not in the worlds.yml file before, which the diff does not know about
+        int movedPlayers = 0;
+        for (Map.Entry<Player, Group> entry : groupsBefore.entrySet()) {
+            Player player = entry.getKey();
+            Group from = entry.getValue();
+            Group to = groupManager.getGroupFromWorld(player.getWorld().getName());
+            if (!from.getName().equalsIgnoreCase(to.getName())) {
+                ConsoleLogger.info("[RELOAD] Moving player '" + player.getName() + "' from group '" + from.getName() + "' to '" + to.getName() + "'");
+                inventoryChangeProcess.processWorldChangeOnSpawn(player, from, to);
+                movedPlayers++;
+            }
+        }
+
+        Result result = new Result(diff, flushedProfiles, movedPlayers);
+        ConsoleLogger.info("[RELOAD] Reloaded groups: " + result);
+        return result;
+    }
+
+    /**
+     * What changed when the groups were reloaded.
+     */
+    public static final class Result {
+
+        private final GroupDiff diff;
+        private final int flushedProfiles;
+        private final int movedPlayers;
+
+        public Result(GroupDiff diff, int flushedProfiles, int movedPlayers) {
+            this.diff = diff;
+            this.flushedProfiles = flushedProfiles;
+            this.movedPlayers = movedPlayers;
+        }
+
+        public GroupDiff getDiff() {
+            return diff;
+        }
+
+        /**
+         * Get the number of cached profiles that were saved because their group was removed.
+         *
+         * @return The number of saved profiles.
+         */
+        public int getFlushedProfiles() {
+            return flushedProfiles;
+        }
+
+        /**
+         * Get the number of online players whose world now belongs to another group.
+         *
+         * @return The number of moved players.
+         */
+        public int getMovedPlayers() {
+            return movedPlayers;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d added %s, %d removed %s, %d changed %s, %d worlds moved, %d players moved, %d cached profiles saved",
+                    diff.getAdded().size(), diff.getAdded(), diff.getRemoved().size(), diff.getRemoved(),
+                    diff.getChanged().size(), diff.getChanged(), diff.getMovedWorlds().size(), movedPlayers, flushedProfiles);
+        }
+    }
+}
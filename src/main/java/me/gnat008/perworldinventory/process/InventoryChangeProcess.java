@@ -11,6 +11,8 @@ import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.groups.GroupManager;
 import me.gnat008.perworldinventory.permission.PermissionManager;
 import me.gnat008.perworldinventory.permission.PlayerPermission;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
@@ -37,6 +39,9 @@ public class InventoryChangeProcess {
     @Inject
     private Settings settings;
 
+    @Inject
+    private PipelineTimings timings;
+
     InventoryChangeProcess() {
     }
 
@@ -82,6 +87,8 @@ public class InventoryChangeProcess {
      * @param to The group they're going to.
      */
     protected void processWorldChange(Player player, Group from, Group to) {
+        long start = timings.start();
+
         // Check if the FROM group is configured
         if (!from.isConfigured() && settings.getProperty(PwiProperties.SHARE_IF_UNCONFIGURED)) {
             ConsoleLogger.debug("[PROCESS] FROM group (" + from.getName() + ") is not defined, and plugin configured to share inventory");
@@ -110,15 +117,19 @@ public class InventoryChangeProcess {
         }
 
         // Check if GameModes have separate inventories
+        InventoryLoadEvent event;
         if (settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)) {
             ConsoleLogger.debug("[PROCESS] GameModes are separated! Loading data for player '" + player.getName() + "' for group '" + to.getName() + "' in gamemode '" + player.getGameMode().name() + "'");
-            InventoryLoadEvent event = new InventoryLoadEvent(player, DeserializeCause.WORLD_CHANGE, player.getGameMode(), to);
-            bukkitService.callEvent(event);
+            event = new InventoryLoadEvent(player, DeserializeCause.WORLD_CHANGE, player.getGameMode(), to);
         } else {
             ConsoleLogger.debug("[PROCESS] Loading data for player '" + player.getName() + "' for group '" + to.getName() + "'");
-            InventoryLoadEvent event = new InventoryLoadEvent(player, DeserializeCause.WORLD_CHANGE, GameMode.SURVIVAL, to);
-            bukkitService.callEvent(event);
+            event = new InventoryLoadEvent(player, DeserializeCause.WORLD_CHANGE, GameMode.SURVIVAL, to);
         }
+
+        long eventStart = timings.start();
+        bukkitService.callEvent(event);
+        timings.record(Stage.LOAD_EVENT, DeserializeCause.WORLD_CHANGE, eventStart);
+        timings.record(Stage.PROCESS, DeserializeCause.WORLD_CHANGE, start);
     }
 
     /**
@@ -0,0 +1,117 @@
+package me.gnat008.perworldinventory.timings;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often durations occur, to find the percentiles of the durations without keeping them.
+ * <p>
+ * Like an HDR histogram, durations are counted in buckets that get wider as the durations get longer:
+ * every power of two is split into {@value #SUB_BUCKETS_PER_POWER} buckets, so a percentile is off by
+ * at most about 3%. Durations below {@value #EXACT_VALUES} microseconds are counted exactly. Recording
+ * does not lock or allocate, so it can be done from any thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int EXACT_VALUES = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKETS_PER_POWER = EXACT_VALUES / 2;
+    /** Longer durations are counted as this, about 12 days. */
+    private static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Count a duration.
+     *
+     * @param micros The duration in microseconds.
+     */
+    public void record(long micros) {
+        long value = Math.min(Math.max(0, micros), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        max.accumulate(value);
+    }
+
+    /**
+     * Get the number of counted durations.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the longest counted duration.
+     *
+     * @return The longest duration in microseconds, or 0 if nothing was counted.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the duration that the given percentage of the counted durations is shorter than or equal to.
+     *
+     * @param percentile The percentage, e.g. 99 for the 99th percentile.
+     * @return The duration in microseconds, or 0 if nothing was counted.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Get the bucket a duration is counted in.
+     *
+     * @param value The duration, not negative.
+     * @return The index of the bucket.
+     */
+    static int indexOf(long value) {
+        if (value < EXACT_VALUES) {
+            return (int) value;
+        }
+
+        // Keep the highest bits of the value; the shift says how many lower bits were dropped
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int top = (int) (value >>> shift);
+        return EXACT_VALUES + (shift - 1) * SUB_BUCKETS_PER_POWER + (top - SUB_BUCKETS_PER_POWER);
+    }
+
+    /**
+     * Get the longest duration that is counted in a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The longest duration of the bucket.
+     */
+    static long highestValueOf(int index) {
+        if (index < EXACT_VALUES) {
+            return index;
+        }
+
+        int shift = (index - EXACT_VALUES) / SUB_BUCKETS_PER_POWER + 1;
+        long top = (index - EXACT_VALUES) % SUB_BUCKETS_PER_POWER + SUB_BUCKETS_PER_POWER;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,133 @@
+package me.gnat008.perworldinventory.timings;
+
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times the {@link Stage stages} of loading a player's data, for each {@link DeserializeCause cause}.
+ * <p>
+ * A stage is timed by calling {@link #start()} before it and {@link #record(Stage, DeserializeCause, long)}
+ * after it. When timings are disabled, {@link #start()} does not even read the clock, and recording
+ * returns right away. Stages that are timed where the cause is not known are recorded without a cause.
+ * <p>
+ * While timings are enabled, the size of compressed data before and after compression is also counted.
+ */
+public class PipelineTimings {
+
+    private static final int CAUSES = DeserializeCause.values().length + 1;
+
+    private final AtomicReferenceArray<LatencyHistogram> histograms =
+            new AtomicReferenceArray<>(Stage.values().length * CAUSES);
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private volatile boolean enabled;
+
+    @Inject
+    PipelineTimings(Settings settings) {
+        this.enabled = settings.getProperty(PwiProperties.ENABLE_TIMINGS);
+    }
+
+    /**
+     * Get the start time of a stage.
+     *
+     * @return The start time, or 0 if timings are disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the duration of a stage.
+     *
+     * @param stage The stage that was timed.
+     * @param cause Why the data was loaded, or null if it is not known.
+     * @param start The time returned by {@link #start()} before the stage. Nothing is recorded for 0.
+     */
+    public void record(Stage stage, DeserializeCause cause, long start) {
+        if (start == 0 || !enabled) {
+            return;
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        int index = indexOf(stage, cause);
+        LatencyHistogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new LatencyHistogram());
+            histogram = histograms.get(index);
+        }
+        histogram.record(micros);
+    }
+
+    /**
+     * Get the recorded durations of a stage.
+     *
+     * @param stage The stage.
+     * @param cause The cause, or null for the durations recorded without a cause.
+     * @return The durations, or null if none were recorded.
+     */
+    public LatencyHistogram getHistogram(Stage stage, DeserializeCause cause) {
+        return histograms.get(indexOf(stage, cause));
+    }
+
+    /**
+     * Record the size of data that was compressed.
+     *
+     * @param uncompressed The size before compressing, in bytes.
+     * @param compressed The size after compressing, in bytes.
+     */
+    public void recordCompression(int uncompressed, int compressed) {
+        if (!enabled) {
+            return;
+        }
+
+        uncompressedBytes.add(uncompressed);
+        compressedBytes.add(compressed);
+    }
+
+    /**
+     * Get the size of all data that was compressed, before compressing it.
+     *
+     * @return The size in bytes.
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    /**
+     * Get the size of all data that was compressed, after compressing it.
+     *
+     * @return The size in bytes.
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Forget all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < histograms.length(); i++) {
+            histograms.set(i, null);
+        }
+        uncompressedBytes.reset();
+        compressedBytes.reset();
+    }
+
+    private static int indexOf(Stage stage, DeserializeCause cause) {
+        return stage.ordinal() * CAUSES + (cause == null ? 0 : cause.ordinal() + 1);
+    }
+}
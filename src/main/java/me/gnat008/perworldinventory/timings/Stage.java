@@ -0,0 +1,41 @@
+package me.gnat008.perworldinventory.timings;
+
+/**
+ * The stages of loading and saving a player's data, which are timed by {@link PipelineTimings}.
+ */
+public enum Stage {
+
+    /** Deciding whether data has to be loaded after a world or gamemode change, including the load event. */
+    PROCESS("process"),
+
+    /** Calling the {@link me.gnat008.perworldinventory.events.InventoryLoadEvent} and its listeners. */
+    LOAD_EVENT("load event"),
+
+    /** Reading data from the data source, including decoding it. Not on the main thread. */
+    READ("read"),
+
+    /** Decompressing data read from a compressed file, as part of reading it. Not known for which cause. */
+    DECOMPRESS("decompress"),
+
+    /** Decoding read data. Not on the main thread, and not known for which cause. */
+    DECODE("decode"),
+
+    /** Applying loaded or cached data to the player. */
+    APPLY("apply"),
+
+    /** Calling the {@link me.gnat008.perworldinventory.events.InventoryLoadCompleteEvent} and its listeners. */
+    COMPLETE_EVENT("complete event"),
+
+    /** Compressing data before it is written to a file. Not on the main thread, and not known for which cause. */
+    COMPRESS("compress");
+
+    private final String displayName;
+
+    Stage(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,100 @@
+package me.gnat008.perworldinventory.util;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * How player data files are compressed. Compressed files are recognized by their first bytes,
+ * so files written with any setting can always be read.
+ */
+public enum Compression {
+
+    /** Store the data as is. */
+    NONE,
+
+    /** GZIP, i.e. DEFLATE with a header that tells compressed files apart. */
+    GZIP;
+
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+
+    /**
+     * Compress data.
+     *
+     * @param data The data to compress.
+     * @param level The DEFLATE level, from 1 (fastest) to 9 (smallest). Ignored by {@link #NONE}.
+     * @return The compressed data, or the given data if this is {@link #NONE}.
+     */
+    public byte[] compress(byte[] data, int level) {
+        if (this == NONE) {
+            return data;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (OutputStream gzip = new LeveledGzipOutputStream(out, Math.max(1, Math.min(9, level)))) {
+            gzip.write(data);
+        } catch (IOException ex) {
+            // Only writes to memory
+            throw new IllegalStateException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompress data that {@link #isCompressed(byte[]) is compressed}.
+     *
+     * @param in The stream of the compressed data, at its start. It is closed afterwards.
+     * @return The uncompressed data.
+     * @throws IOException If the stream could not be read, or is not compressed.
+     */
+    public static byte[] decompress(InputStream in) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(in)) {
+            return FileUtils.readAllBytes(gzip);
+        }
+    }
+
+    /**
+     * Check if data starts like compressed data.
+     *
+     * @param data The data, or at least its first two bytes.
+     * @return True if the data is compressed.
+     */
+    public static boolean isCompressed(byte[] data) {
+        return data.length >= GZIP_MAGIC.length && data[0] == GZIP_MAGIC[0] && data[1] == GZIP_MAGIC[1];
+    }
+
+    /**
+     * Get the compression for a configured value.
+     *
+     * @param value The configured value, case insensitive.
+     * @return The matching compression, or {@link #NONE} if the value is missing or unknown.
+     */
+    public static Compression fromSetting(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            ConsoleLogger.warning("Unknown compression '" + value + "', using " + NONE);
+            return NONE;
+        }
+    }
+
+    /**
+     * {@link GZIPOutputStream} has no constructor taking the level, but its deflater can be configured.
+     */
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level);
+        }
+    }
+}
@@ -3,13 +3,29 @@ package me.gnat008.perworldinventory.util;
 import me.gnat008.perworldinventory.ConsoleLogger;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Utility methods for handling files.
  */
 public final class FileUtils {
 
+    /** Locks for writes through a temporary file, so that two writes of a file never share it. */
+    private static final Object[] WRITE_LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < WRITE_LOCKS.length; i++) {
+            WRITE_LOCKS[i] = new Object();
+        }
+    }
+
     private FileUtils() {
     }
 
@@ -32,19 +48,119 @@ public final class FileUtils {
     }
 
     /**
-     * Writes the given data to the provided file.
+     * Read everything that is left in a stream. The stream is not closed.
+     *
+     * @param in The stream to read.
+     * @return The bytes read.
+     * @throws IOException If the stream could not be read.
+     */
+    public static byte[] readAllBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buff = new byte[8192];
+        int len;
+        while ((len = in.read(buff)) != -1) {
+            out.write(buff, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the given data to the provided file, replacing it atomically.
      *
      * @param file The file to write to.
      * @param data The data to write.
      */
     public static void writeData(File file, String data) {
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write(data);
+        writeData(file, data, WriteDurability.FLUSH);
+    }
+
+    /**
+     * Writes the given data to the provided file. Missing parent folders are created.
+     * <p>
+     * Unless the durability is {@link WriteDurability#NONE}, the data is written to a temporary
+     * file next to the target, <i>&lt;file&gt;.tmp</i>, which is then moved over it, so that readers
+     * never see a partially written file, even if the server crashes in the middle of the write.
+     * A temporary file left behind by such a crash is replaced by the next write.
+     *
+     * @param file The file to write to.
+     * @param data The data to write.
+     * @param durability How safely to write the data.
+     */
+    public static void writeData(File file, String data, WriteDurability durability) {
+        // Same encoding as FileWriter/FileReader, which the data is read back with
+        writeData(file, data.getBytes(Charset.defaultCharset()), durability);
+    }
+
+    /**
+     * Writes the given bytes to the provided file, the same way as {@link #writeData(File, String, WriteDurability)}.
+     *
+     * @param file The file to write to.
+     * @param bytes The data to write.
+     * @param durability How safely to write the data.
+     */
+    public static void writeData(File file, byte[] bytes, WriteDurability durability) {
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+            if (durability == WriteDurability.NONE) {
+                try (OutputStream out = new FileOutputStream(file)) {
+                    out.write(bytes);
+                }
+            } else {
+                writeAtomically(file.toPath(), bytes, durability == WriteDurability.FSYNC);
+            }
         } catch (IOException ex) {
             ConsoleLogger.severe("Could not write data to file '" + file + "':", ex);
         }
     }
 
+    private static void writeAtomically(Path target, byte[] data, boolean fsync) throws IOException {
+        synchronized (WRITE_LOCKS[Math.floorMod(target.hashCode(), WRITE_LOCKS.length)]) {
+            writeThroughTempFile(target, data, fsync);
+        }
+    }
+
+    private static void writeThroughTempFile(Path target, byte[] data, boolean fsync) throws IOException {
+        Path directory = target.getParent();
+        // Not Files.createTempFile, which only gives the owner access to the file
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(true);
+                }
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        if (fsync) {
+            syncDirectory(directory);
+        }
+    }
+
+    /**
+     * Persist the directory entry of a moved file. Not possible on every platform (e.g. Windows),
+     * in which case the rename is left to the file system.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
     /**
      * Creates the given file if it doesn't exist.
      *
@@ -0,0 +1,37 @@
+package me.gnat008.perworldinventory.util;
+
+import me.gnat008.perworldinventory.ConsoleLogger;
+
+/**
+ * How much effort is spent to make sure written data survives a crash.
+ */
+public enum WriteDurability {
+
+    /** Overwrite the file in place. Fastest, but a crash during the write leaves a truncated file. */
+    NONE,
+
+    /** Write to a temporary file and move it over the target, so the target is always complete. */
+    FLUSH,
+
+    /** Like {@link #FLUSH}, but also force the data to the disk before moving. Survives power loss. */
+    FSYNC;
+
+    /**
+     * Get the durability for a configured value.
+     *
+     * @param value The configured value, case insensitive.
+     * @return The matching durability, or {@link #FLUSH} if the value is missing or unknown.
+     */
+    public static WriteDurability fromSetting(String value) {
+        if (value == null) {
+            return FLUSH;
+        }
+
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            ConsoleLogger.warning("Unknown write durability '" + value + "', using " + FLUSH);
+            return FLUSH;
+        }
+    }
+}
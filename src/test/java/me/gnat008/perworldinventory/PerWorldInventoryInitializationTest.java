@@ -7,6 +7,7 @@ import me.gnat008.perworldinventory.commands.ExecutableCommand;
 import me.gnat008.perworldinventory.commands.PerWorldInventoryCommand;
 import me.gnat008.perworldinventory.commands.ReloadCommand;
 import me.gnat008.perworldinventory.commands.SetWorldDefaultCommand;
+import me.gnat008.perworldinventory.commands.StatsCommand;
 import me.gnat008.perworldinventory.config.Settings;
 import me.gnat008.perworldinventory.data.DataSource;
 import me.gnat008.perworldinventory.data.DataSourceProvider;
@@ -127,6 +128,7 @@ public class PerWorldInventoryInitializationTest {
         commandVerifier.assertHasCommand("pwi", PerWorldInventoryCommand.class);
         commandVerifier.assertHasCommand("reload", ReloadCommand.class);
         commandVerifier.assertHasCommand("setworlddefault", SetWorldDefaultCommand.class);
+        commandVerifier.assertHasCommand("stats", StatsCommand.class);
     }
 
     private void verifyRegisteredListener(Class<? extends Listener> listenerClass) {
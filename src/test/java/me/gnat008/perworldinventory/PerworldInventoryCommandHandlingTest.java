@@ -7,6 +7,7 @@ import me.gnat008.perworldinventory.commands.HelpCommand;
 import me.gnat008.perworldinventory.commands.PerWorldInventoryCommand;
 import me.gnat008.perworldinventory.commands.ReloadCommand;
 import me.gnat008.perworldinventory.commands.SetWorldDefaultCommand;
+import me.gnat008.perworldinventory.commands.StatsCommand;
 import me.gnat008.perworldinventory.commands.VersionCommand;
 import me.gnat008.perworldinventory.permission.AdminPermission;
 import me.gnat008.perworldinventory.permission.PermissionManager;
@@ -67,6 +68,8 @@ public class PerworldInventoryCommandHandlingTest {
     @Mock
     private SetWorldDefaultCommand setWorldDefaultsCommand;
     @Mock
+    private StatsCommand statsCommand;
+    @Mock
     private VersionCommand versionCommand;
 
     @Rule
@@ -94,6 +97,7 @@ public class PerworldInventoryCommandHandlingTest {
         injector.register(PerWorldInventoryCommand.class, pwiCommand);
         injector.register(ReloadCommand.class, reloadCommand);
         injector.register(SetWorldDefaultCommand.class, setWorldDefaultsCommand);
+        injector.register(StatsCommand.class, statsCommand);
         injector.register(VersionCommand.class, versionCommand);
         plugin.registerCommands(injector);
         TestHelper.setField(PerWorldInventory.class, "permissionManager", plugin, permissionManager);
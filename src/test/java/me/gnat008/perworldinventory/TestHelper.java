@@ -1,7 +1,13 @@
 package me.gnat008.perworldinventory;
 
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
 import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.lang.reflect.Field;
@@ -16,6 +22,8 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Logger;
 
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -140,5 +148,43 @@ public final class TestHelper {
         return new Group(name, worldSet, gameMode);
     }
 
+    /**
+     * Get a PWIPlayer mock with a UUID and location, e.g. to save its logout location.
+     *
+     * @param uuid The UUID of the player.
+     * @param location The location of the player.
+     * @return The created PWIPlayer mock.
+     */
+    public static PWIPlayer mockPwiPlayer(UUID uuid, Location location) {
+        PWIPlayer player = mock(PWIPlayer.class);
+        given(player.getUuid()).willReturn(uuid);
+        given(player.getLocation()).willReturn(location);
+        return player;
+    }
 
+    /**
+     * Get a Player mock with a UUID.
+     *
+     * @param uuid The UUID of the player.
+     * @return The created Player mock.
+     */
+    public static Player mockPlayer(UUID uuid) {
+        Player player = mock(Player.class);
+        given(player.getUniqueId()).willReturn(uuid);
+        return player;
+    }
+
+    /**
+     * Creates a world mock named "world" and makes {@link Bukkit#getWorld(String)} return it.
+     *
+     * @return The created World mock.
+     */
+    public static World mockWorld() {
+        World world = mock(World.class);
+        given(world.getName()).willReturn("world");
+        Server server = mock(Server.class);
+        given(server.getWorld(anyString())).willReturn(world);
+        setField(Bukkit.class, "server", null, server);
+        return world;
+    }
 }
@@ -2,7 +2,8 @@ package me.gnat008.perworldinventory.commands;
 
 import me.gnat008.perworldinventory.PerWorldInventory;
 import me.gnat008.perworldinventory.config.Settings;
-import me.gnat008.perworldinventory.groups.GroupManager;
+import me.gnat008.perworldinventory.groups.GroupDiff;
+import me.gnat008.perworldinventory.process.GroupReloadProcess;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.junit.Test;
@@ -14,8 +15,10 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.Collections;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
 
@@ -32,7 +35,7 @@ public class ReloadCommandTest {
     private PerWorldInventory plugin;
 
     @Mock
-    private GroupManager groupManager;
+    private GroupReloadProcess groupReloadProcess;
 
     @Mock
     private Settings settings;
@@ -43,6 +46,8 @@ public class ReloadCommandTest {
         Player player = mock(Player.class);
         FileConfiguration worldsConfig = mock(FileConfiguration.class);
         given(plugin.getWorldsConfig()).willReturn(worldsConfig);
+        GroupDiff diff = GroupDiff.between(Collections.emptyList(), Collections.emptyList());
+        given(groupReloadProcess.reloadGroups(worldsConfig)).willReturn(new GroupReloadProcess.Result(diff, 0, 0));
 
         // when
         command.executeCommand(player, Collections.emptyList());
@@ -51,6 +56,8 @@ public class ReloadCommandTest {
         verify(player).sendMessage(argThat(containsString("Configuration files reloaded")));
         verify(settings).reload();
         verify(plugin).reload();
-        verify(groupManager).loadGroupsToMemory(worldsConfig);
+        verify(groupReloadProcess).reloadGroups(worldsConfig);
+        // Nothing changed, so there is nothing more to report
+        verify(player, times(1)).sendMessage(anyString());
     }
 }
@@ -24,7 +24,9 @@ import static org.junit.Assert.assertThat;
 public class SettingsConsistencyTest {
 
     /** Bukkit's FileConfiguration#getKeys returns all inner nodes also. We want to exclude those in tests. */
-    private static final List<String> YAML_INNER_NODES = ImmutableList.of("metrics", "player", "player.stats");
+    private static final List<String> YAML_INNER_NODES = ImmutableList.of("metrics", "player", "player.stats",
+        "data-source", "data-source.flatfile", "data-source.log", "data-source.bundle", "data-source.sql",
+        "save-queue", "player-cache", "timings");
 
     private final ConfigurationData configData = ConfigurationDataBuilder.collectData(PwiProperties.class);
     private final FileConfiguration ymlConfiguration = YamlConfiguration.loadConfiguration(getJarFile("/config.yml"));
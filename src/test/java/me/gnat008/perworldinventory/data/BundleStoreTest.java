@@ -0,0 +1,197 @@
+package me.gnat008.perworldinventory.data;
+
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.DataFolder;
+import me.gnat008.perworldinventory.PerWorldInventory;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import static me.gnat008.perworldinventory.TestHelper.mockPlayer;
+import static me.gnat008.perworldinventory.TestHelper.mockPwiPlayer;
+import static me.gnat008.perworldinventory.TestHelper.mockWorld;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link BundleStore}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BundleStoreTest {
+
+    private static final UUID PLAYER_UUID = UUID.fromString("7f7c909b-24f1-49a4-817f-baa4f4973980");
+    private static final UUID OTHER_UUID = UUID.fromString("0a1b2c3d-0000-4000-8000-000000000001");
+
+    @Mock
+    private PerWorldInventory plugin;
+    @Mock
+    private Settings settings;
+    @Mock
+    private BukkitService bukkitService;
+    @Mock
+    private PipelineTimings timings;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dataFolder;
+
+    @Before
+    public void setup() throws IOException {
+        TestHelper.initMockLogger();
+        dataFolder = temporaryFolder.newFolder();
+        given(settings.getProperty(PwiProperties.ITEM_CACHE_SIZE)).willReturn(0);
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION)).willReturn("NONE");
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION_LEVEL)).willReturn(6);
+    }
+
+    @Test
+    public void shouldReadLogoutLocationAfterReopening() {
+        // given
+        given(settings.getProperty(PwiProperties.BUNDLE_OPEN_FILES)).willReturn(256);
+        World world = mockWorld();
+        BundleStore bundleStore = createBundleStore();
+        bundleStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        bundleStore.close();
+
+        // when
+        Location result = createBundleStore().getLogoutData(mockPlayer(PLAYER_UUID));
+
+        // then
+        assertThat(result.getWorld(), equalTo(world));
+        assertThat(result.getX(), equalTo(1.0));
+        assertThat(result.getY(), equalTo(2.0));
+        assertThat(result.getZ(), equalTo(3.0));
+        assertTrue(new File(dataFolder, "data/bundles/" + PLAYER_UUID + ".bundle").exists());
+    }
+
+    @Test
+    public void shouldCloseLeastRecentlyUsedBundles() {
+        // given
+        given(settings.getProperty(PwiProperties.BUNDLE_OPEN_FILES)).willReturn(1);
+        World world = mockWorld();
+        BundleStore bundleStore = createBundleStore();
+
+        // when
+        bundleStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        bundleStore.saveLogoutData(mockPwiPlayer(OTHER_UUID, new Location(world, 4, 5, 6)), false);
+
+        // then
+        assertThat(bundleStore.getOpenBundleCount(), equalTo(1));
+        assertThat(bundleStore.getLogoutData(mockPlayer(PLAYER_UUID)).getX(), equalTo(1.0));
+        assertThat(bundleStore.getOpenBundleCount(), equalTo(1));
+    }
+
+    @Test
+    public void shouldDeleteAllDataOfPlayer() {
+        // given
+        given(settings.getProperty(PwiProperties.BUNDLE_OPEN_FILES)).willReturn(256);
+        World world = mock(World.class);
+        given(world.getName()).willReturn("world");
+        BundleStore bundleStore = createBundleStore();
+        bundleStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+
+        // when
+        boolean result = bundleStore.deletePlayer(PLAYER_UUID);
+
+        // then
+        assertTrue(result);
+        assertFalse(bundleStore.getBundleFile(PLAYER_UUID).exists());
+        assertThat(bundleStore.getLogoutData(mockPlayer(PLAYER_UUID)), nullValue());
+        assertThat(bundleStore.getOpenBundleCount(), equalTo(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotReopenBundlesAfterClose() {
+        // given
+        given(settings.getProperty(PwiProperties.BUNDLE_OPEN_FILES)).willReturn(256);
+        World world = mock(World.class);
+        BundleStore bundleStore = createBundleStore();
+        bundleStore.close();
+
+        // when
+        bundleStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownPlayer() {
+        // given
+        given(settings.getProperty(PwiProperties.BUNDLE_OPEN_FILES)).willReturn(256);
+        BundleStore bundleStore = createBundleStore();
+        Player player = mock(Player.class);
+        UUID uuid = UUID.randomUUID();
+        given(player.getUniqueId()).willReturn(uuid);
+
+        // when
+        Location result = bundleStore.getLogoutData(player);
+
+        // then
+        assertThat(result, nullValue());
+        assertFalse(bundleStore.getBundleFile(uuid).exists());
+    }
+
+    @Test
+    public void shouldOnlyKeepConfiguredNumberOfBundles() throws InterruptedException {
+        // given
+        given(settings.getProperty(PwiProperties.BUNDLE_OPEN_FILES)).willReturn(2);
+        World world = mock(World.class);
+        given(world.getName()).willReturn("world");
+        BundleStore bundleStore = createBundleStore();
+        UUID[] players = new UUID[8];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+        }
+
+        // when
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    bundleStore.saveLogoutData(mockPwiPlayer(players[i % players.length], new Location(world, i, 0, 0)), false);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // then
+        assertThat(bundleStore.getOpenBundleCount(), equalTo(2));
+        assertThat(bundleStore.getCachedBundleCount(), equalTo(2));
+    }
+
+    private BundleStore createBundleStore() {
+        // Injector is restricted to creating classes only in 'data' package:
+        // ensures that anything else that is required has to be provided explicitly
+        Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory.data").create();
+        injector.provide(DataFolder.class, dataFolder);
+        injector.register(PerWorldInventory.class, plugin);
+        injector.register(Settings.class, settings);
+        injector.register(BukkitService.class, bukkitService);
+        injector.register(PipelineTimings.class, timings);
+        return injector.getSingleton(BundleStore.class);
+    }
+}
@@ -1,5 +1,6 @@
 package me.gnat008.perworldinventory.data;
 
+import ch.jalu.configme.properties.Property;
 import ch.jalu.injector.Injector;
 import ch.jalu.injector.InjectorBuilder;
 import ch.jalu.injector.testing.InjectDelayed;
@@ -8,28 +9,43 @@ import me.gnat008.perworldinventory.BukkitService;
 import me.gnat008.perworldinventory.DataFolder;
 import me.gnat008.perworldinventory.PerWorldInventory;
 import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
 import me.gnat008.perworldinventory.config.Settings;
 import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
 import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.util.Compression;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * Test for {@link FlatFile}
@@ -48,13 +64,17 @@ public class FlatFileTest {
     private Settings settings;
     @Mock
     private BukkitService bukkitService;
+    @Mock
+    private PipelineTimings timings;
 
     @Rule
     public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
+    private File testFolder;
+
     @Before
     public void setup() throws IOException {
-        File testFolder = temporaryFolder.newFolder();
+        testFolder = temporaryFolder.newFolder();
         String userDataPath = "data/7f7c909b-24f1-49a4-817f-baa4f4973980/";
         File source = TestHelper.getJarFile(TestHelper.PROJECT_ROOT + userDataPath + "last-logout.json");
         File userFolder = new File(testFolder, userDataPath);
@@ -66,6 +86,13 @@ public class FlatFileTest {
         destination = new File(userFolder, "test-group.json");
         Files.copy(data, destination);
 
+        given(settings.getProperty(PwiProperties.ITEM_CACHE_SIZE)).willReturn(0);
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION)).willReturn("NONE");
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION_LEVEL)).willReturn(6);
+        flatFile = createFlatFile();
+    }
+
+    private FlatFile createFlatFile() {
         // Injector is restricted to creating classes only in 'data' package:
         // ensures that anything else that is required has to be provided explicitly
         Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory.data").create();
@@ -73,7 +100,8 @@ public class FlatFileTest {
         injector.register(PerWorldInventory.class, plugin);
         injector.register(Settings.class, settings);
         injector.register(BukkitService.class, bukkitService);
-        flatFile = injector.getSingleton(FlatFile.class);
+        injector.register(PipelineTimings.class, timings);
+        return injector.getSingleton(FlatFile.class);
     }
 
     @Test
@@ -136,6 +164,151 @@ public class FlatFileTest {
         assertTrue(result.getName().equals("test-group_creative.json"));
     }
 
+    @Test
+    public void shouldMoveFolderToShardedLayoutWhenItIsUsedAsynchronously() throws IOException {
+        // given
+        given(settings.getProperty(PwiProperties.FLATFILE_LAYOUT)).willReturn("SHARDED");
+        FlatFile shardedFlatFile = createFlatFile();
+
+        // when
+        String result = shardedFlatFile.getLogoutWorld(UUID_WITH_DATA);
+
+        // then
+        assertThat(result, equalTo("epirus"));
+        assertTrue(new File(testFolder, "data/7f/7c/" + UUID_WITH_DATA + "/test-group.json").exists());
+        assertFalse(new File(testFolder, "data/" + UUID_WITH_DATA).exists());
+    }
+
+    @Test
+    public void shouldNotMoveFolderOnMainThread() {
+        // given
+        given(settings.getProperty(PwiProperties.FLATFILE_LAYOUT)).willReturn("SHARDED");
+        FlatFile shardedFlatFile = createFlatFile();
+
+        // when
+        File result = shardedFlatFile.getFile(GameMode.SURVIVAL, mockGroup("test-group"), UUID_WITH_DATA);
+
+        // then
+        File expected = new File(testFolder, "data/" + UUID_WITH_DATA + "/test-group.json");
+        assertThat(result, equalTo(expected));
+        assertTrue(result.exists());
+        assertFalse(new File(testFolder, "data/7f").exists());
+    }
+
+    @Test
+    public void shouldMoveAllFoldersToShardedLayout() throws IOException {
+        // given
+        UUID otherUuid = UUID.fromString("0a1b2c3d-0000-4000-8000-000000000001");
+        File otherFolder = new File(testFolder, "data/" + otherUuid);
+        otherFolder.mkdirs();
+        Files.write("{}", new File(otherFolder, "test-group.json"), StandardCharsets.UTF_8);
+        given(settings.getProperty(PwiProperties.FLATFILE_LAYOUT)).willReturn("SHARDED");
+        createFlatFile();
+        ArgumentCaptor<Runnable> migrationCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(bukkitService).runTaskAsync(migrationCaptor.capture());
+
+        // when
+        migrationCaptor.getValue().run();
+
+        // then
+        assertTrue(new File(testFolder, "data/7f/7c/" + UUID_WITH_DATA + "/last-logout.json").exists());
+        assertTrue(new File(testFolder, "data/0a/1b/" + otherUuid + "/test-group.json").exists());
+        assertFalse(new File(testFolder, "data/" + UUID_WITH_DATA).exists());
+        assertFalse(otherFolder.exists());
+        assertThat(Files.toString(new File(testFolder, "data/layout.txt"), StandardCharsets.UTF_8), equalTo("SHARDED"));
+
+        // The layout is only changed once
+        createFlatFile();
+        verify(bukkitService).runTaskAsync(any(Runnable.class));
+    }
+
+    @Test
+    public void shouldKeepNewestFilesWhenMergingFolders() throws IOException {
+        // given
+        File legacyFile = new File(testFolder, "data/" + UUID_WITH_DATA + "/test-group.json");
+        legacyFile.setLastModified(System.currentTimeMillis() - 60_000);
+        File shardedFolder = new File(testFolder, "data/7f/7c/" + UUID_WITH_DATA);
+        shardedFolder.mkdirs();
+        Files.write("{\"newer\":true}", new File(shardedFolder, "test-group.json"), StandardCharsets.UTF_8);
+        given(settings.getProperty(PwiProperties.FLATFILE_LAYOUT)).willReturn("SHARDED");
+        createFlatFile();
+        ArgumentCaptor<Runnable> migrationCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(bukkitService).runTaskAsync(migrationCaptor.capture());
+
+        // when
+        migrationCaptor.getValue().run();
+
+        // then
+        assertThat(Files.toString(new File(shardedFolder, "test-group.json"), StandardCharsets.UTF_8), equalTo("{\"newer\":true}"));
+        assertTrue(new File(shardedFolder, "last-logout.json").exists());
+        assertFalse(legacyFile.getParentFile().exists());
+    }
+
+    @Test
+    public void shouldDecodeAsynchronouslyAndOnlyApplyOnMainThread() {
+        // given
+        given(settings.getProperty(any(Property.class)))
+                .willAnswer(invocation -> ((Property<?>) invocation.getArgument(0)).getDefaultValue());
+        // Items cannot be deserialized without a server
+        given(settings.getProperty(PwiProperties.LOAD_INVENTORY)).willReturn(false);
+        given(bukkitService.runTaskAsync(any(Runnable.class))).willAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        });
+
+        Player player = mock(Player.class);
+        given(player.getUniqueId()).willReturn(UUID_WITH_DATA);
+        Inventory enderChest = mock(Inventory.class);
+        given(enderChest.getSize()).willReturn(27);
+        given(player.getEnderChest()).willReturn(enderChest);
+
+        // when
+        flatFile.getFromDatabase(mockGroup("test-group"), GameMode.SURVIVAL, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        ArgumentCaptor<Runnable> applyCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(bukkitService).runTask(applyCaptor.capture());
+        verify(player, never()).setFoodLevel(anyInt());
+        verify(enderChest, never()).setContents(any(ItemStack[].class));
+
+        applyCaptor.getValue().run();
+        verify(player).setFoodLevel(20);
+        verify(player).setRemainingAir(300);
+        verify(enderChest).setContents(any(ItemStack[].class));
+    }
+
+    @Test
+    public void shouldReadCompressedFile() throws IOException {
+        // given
+        File file = new File(testFolder, "data/" + UUID_WITH_DATA + "/test-group.json");
+        Files.write(Compression.GZIP.compress(Files.toByteArray(file), 6), file);
+
+        given(settings.getProperty(any(Property.class)))
+                .willAnswer(invocation -> ((Property<?>) invocation.getArgument(0)).getDefaultValue());
+        // Items cannot be deserialized without a server
+        given(settings.getProperty(PwiProperties.LOAD_INVENTORY)).willReturn(false);
+        given(bukkitService.runTaskAsync(any(Runnable.class))).willAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        });
+
+        Player player = mock(Player.class);
+        given(player.getUniqueId()).willReturn(UUID_WITH_DATA);
+        Inventory enderChest = mock(Inventory.class);
+        given(enderChest.getSize()).willReturn(27);
+        given(player.getEnderChest()).willReturn(enderChest);
+
+        // when
+        flatFile.getFromDatabase(mockGroup("test-group"), GameMode.SURVIVAL, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        ArgumentCaptor<Runnable> applyCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(bukkitService).runTask(applyCaptor.capture());
+        applyCaptor.getValue().run();
+        verify(player).setFoodLevel(20);
+        verify(enderChest).setContents(any(ItemStack[].class));
+    }
+
     @Test
     public void lastLogoutLocationExists() {
         // given
@@ -0,0 +1,220 @@
+package me.gnat008.perworldinventory.data;
+
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.DataFolder;
+import me.gnat008.perworldinventory.PerWorldInventory;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+
+import static me.gnat008.perworldinventory.TestHelper.mockPlayer;
+import static me.gnat008.perworldinventory.TestHelper.mockPwiPlayer;
+import static me.gnat008.perworldinventory.TestHelper.mockWorld;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link LogStore}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LogStoreTest {
+
+    private static final UUID PLAYER_UUID = UUID.fromString("7f7c909b-24f1-49a4-817f-baa4f4973980");
+
+    @Mock
+    private PerWorldInventory plugin;
+    @Mock
+    private Settings settings;
+    @Mock
+    private BukkitService bukkitService;
+    @Mock
+    private PipelineTimings timings;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dataFolder;
+
+    @Before
+    public void setup() throws IOException {
+        TestHelper.initMockLogger();
+        dataFolder = temporaryFolder.newFolder();
+        given(settings.getProperty(PwiProperties.LOG_COMPACTION_INTERVAL)).willReturn(600);
+        given(settings.getProperty(PwiProperties.ITEM_CACHE_SIZE)).willReturn(0);
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION)).willReturn("NONE");
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION_LEVEL)).willReturn(6);
+    }
+
+    @Test
+    public void shouldReadLogoutLocationAfterReopening() {
+        // given
+        World world = mockWorld();
+        LogStore logStore = createLogStore();
+        logStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        logStore.close();
+
+        // when
+        Location result = createLogStore().getLogoutData(mockPlayer(PLAYER_UUID));
+
+        // then
+        assertThat(result.getWorld(), equalTo(world));
+        assertThat(result.getX(), equalTo(1.0));
+        assertThat(result.getY(), equalTo(2.0));
+        assertThat(result.getZ(), equalTo(3.0));
+    }
+
+    @Test
+    public void shouldReturnNewestRecordForKey() {
+        // given
+        World world = mockWorld();
+        LogStore logStore = createLogStore();
+        logStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        logStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 4, 5, 6)), false);
+
+        // when
+        Location result = logStore.getLogoutData(mockPlayer(PLAYER_UUID));
+
+        // then
+        assertThat(result.getX(), equalTo(4.0));
+        assertThat(logStore.getRecordCount(), equalTo(1));
+    }
+
+    @Test
+    public void shouldDiscardIncompleteRecordAtEndOfLog() throws IOException {
+        // given
+        World world = mockWorld();
+        LogStore logStore = createLogStore();
+        logStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        logStore.close();
+
+        File logFile = new File(dataFolder, "data/profiles.log");
+        long validLength = logFile.length();
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            // Start of a record whose data never made it to disk
+            out.write(new byte[]{0x50, 0x57, 0x49, 0x31, 0, 0, 0, 10, 1, 2});
+        }
+
+        // when
+        LogStore reopened = createLogStore();
+
+        // then
+        assertThat(logFile.length(), equalTo(validLength));
+        assertThat(reopened.getRecordCount(), equalTo(1));
+        assertThat(reopened.getLogoutData(mockPlayer(PLAYER_UUID)).getX(), equalTo(1.0));
+    }
+
+    @Test
+    public void shouldSkipCorruptRecordInMiddleOfLog() throws IOException {
+        // given
+        World world = mockWorld();
+        UUID corruptUuid = UUID.randomUUID();
+        UUID laterUuid = UUID.randomUUID();
+        File logFile = new File(dataFolder, "data/profiles.log");
+        LogStore logStore = createLogStore();
+        logStore.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        logStore.saveLogoutData(mockPwiPlayer(corruptUuid, new Location(world, 4, 5, 6)), false);
+        long corruptEnd = logFile.length();
+        logStore.saveLogoutData(mockPwiPlayer(laterUuid, new Location(world, 7, 8, 9)), false);
+        logStore.close();
+        long length = logFile.length();
+
+        try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+            // Break the checksum of the second record
+            file.seek(corruptEnd - 1);
+            int last = file.read();
+            file.seek(corruptEnd - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        // when
+        LogStore reopened = createLogStore();
+
+        // then
+        assertThat(logFile.length(), equalTo(length));
+        assertThat(reopened.getRecordCount(), equalTo(2));
+        assertThat(reopened.getLogoutData(mockPlayer(PLAYER_UUID)).getX(), equalTo(1.0));
+        assertThat(reopened.getLogoutData(mockPlayer(corruptUuid)), nullValue());
+        assertThat(reopened.getLogoutData(mockPlayer(laterUuid)).getX(), equalTo(7.0));
+    }
+
+    @Test
+    public void shouldKeepNewestRecordsWhenCompactingDuringSaves() throws IOException, InterruptedException {
+        // given
+        World world = mockWorld();
+        LogStore logStore = createLogStore();
+        UUID[] players = new UUID[20];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+        }
+        int saves = 2000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < saves; i++) {
+                logStore.saveLogoutData(mockPwiPlayer(players[i % players.length], new Location(world, i, 0, 0)), false);
+            }
+        });
+
+        // when
+        writer.start();
+        while (writer.isAlive()) {
+            logStore.compact();
+        }
+        writer.join();
+        logStore.close();
+        LogStore reopened = createLogStore();
+
+        // then
+        assertThat(reopened.getRecordCount(), equalTo(players.length));
+        for (int i = 0; i < players.length; i++) {
+            double newest = saves - players.length + i;
+            assertThat(reopened.getLogoutData(mockPlayer(players[i])).getX(), equalTo(newest));
+        }
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownPlayer() {
+        // given
+        LogStore logStore = createLogStore();
+        Player player = mock(Player.class);
+        given(player.getUniqueId()).willReturn(UUID.randomUUID());
+
+        // when
+        Location result = logStore.getLogoutData(player);
+
+        // then
+        assertThat(result, nullValue());
+    }
+
+    private LogStore createLogStore() {
+        // Injector is restricted to creating classes only in 'data' package:
+        // ensures that anything else that is required has to be provided explicitly
+        Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory.data").create();
+        injector.provide(DataFolder.class, dataFolder);
+        injector.register(PerWorldInventory.class, plugin);
+        injector.register(Settings.class, settings);
+        injector.register(BukkitService.class, bukkitService);
+        injector.register(PipelineTimings.class, timings);
+        return injector.getSingleton(LogStore.class);
+    }
+}
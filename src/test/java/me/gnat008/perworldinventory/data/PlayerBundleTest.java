@@ -0,0 +1,187 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PlayerBundle}.
+ */
+public class PlayerBundleTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        TestHelper.initMockLogger();
+        file = new File(temporaryFolder.newFolder(), "bundles/player.bundle");
+    }
+
+    @Test
+    public void shouldReadProfilesAfterReopening() throws IOException {
+        // given
+        PlayerBundle bundle = new PlayerBundle(file);
+        bundle.write("survival", bytes("survival data"), false);
+        bundle.write("survival_creative", bytes("creative data"), false);
+        bundle.closeChannel();
+
+        // when
+        PlayerBundle reopened = new PlayerBundle(file);
+
+        // then
+        assertThat(reopened.read("survival"), equalTo(bytes("survival data")));
+        assertThat(reopened.read("survival_creative"), equalTo(bytes("creative data")));
+        assertThat(reopened.read("nether"), nullValue());
+    }
+
+    @Test
+    public void shouldUpdateProfileInPlace() throws IOException {
+        // given
+        PlayerBundle bundle = new PlayerBundle(file);
+        bundle.write("survival", bytes("first"), false);
+        long length = file.length();
+
+        // when
+        bundle.write("survival", bytes("second"), false);
+        bundle.write("survival", bytes("third"), false);
+
+        // then
+        assertThat(file.length(), equalTo(length));
+        assertThat(bundle.read("survival"), equalTo(bytes("third")));
+        bundle.closeChannel();
+        assertThat(new PlayerBundle(file).read("survival"), equalTo(bytes("third")));
+    }
+
+    @Test
+    public void shouldKeepPreviousDataIfUpdateIsCorrupt() throws IOException {
+        // given
+        PlayerBundle bundle = new PlayerBundle(file);
+        bundle.write("survival", bytes("first"), false);
+        bundle.write("survival", bytes("second"), false);
+        bundle.closeChannel();
+        corrupt("second");
+
+        // when
+        byte[] result = new PlayerBundle(file).read("survival");
+
+        // then
+        assertThat(result, equalTo(bytes("first")));
+    }
+
+    @Test
+    public void shouldMoveProfileThatNoLongerFits() throws IOException {
+        // given
+        PlayerBundle bundle = new PlayerBundle(file);
+        bundle.write("survival", bytes("small"), false);
+        bundle.write("nether", bytes("other"), false);
+        byte[] large = new byte[4000];
+        Arrays.fill(large, (byte) 7);
+
+        // when
+        bundle.write("survival", large, false);
+
+        // then
+        assertThat(bundle.read("survival"), equalTo(large));
+        bundle.closeChannel();
+        PlayerBundle reopened = new PlayerBundle(file);
+        assertThat(reopened.read("survival"), equalTo(large));
+        assertThat(reopened.read("nether"), equalTo(bytes("other")));
+    }
+
+    @Test
+    public void shouldDiscardIncompleteSegmentAtEnd() throws IOException {
+        // given
+        PlayerBundle bundle = new PlayerBundle(file);
+        bundle.write("survival", bytes("data"), false);
+        bundle.closeChannel();
+        long validLength = file.length();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            // Start of a segment that never made it to disk
+            out.write(new byte[]{0, 0, 0, 6, 'n', 'e'});
+        }
+
+        // when
+        PlayerBundle reopened = new PlayerBundle(file);
+        byte[] result = reopened.read("survival");
+
+        // then
+        assertThat(result, equalTo(bytes("data")));
+        assertThat(file.length(), equalTo(validLength));
+    }
+
+    @Test
+    public void shouldRewriteFileWhenMostlyOutdated() throws IOException {
+        // given
+        PlayerBundle bundle = new PlayerBundle(file);
+        bundle.write("nether", bytes("other"), false);
+        byte[] data = null;
+
+        // when
+        for (int i = 1; i <= 60; i++) {
+            data = new byte[i * 1000];
+            Arrays.fill(data, (byte) i);
+            bundle.write("survival", data, false);
+        }
+
+        // then
+        assertThat(file.length(), lessThan(300_000L));
+        assertThat(bundle.read("survival"), equalTo(data));
+        assertThat(bundle.read("nether"), equalTo(bytes("other")));
+    }
+
+    @Test
+    public void shouldDeleteFile() throws IOException {
+        // given
+        PlayerBundle bundle = new PlayerBundle(file);
+        bundle.write("survival", bytes("data"), false);
+
+        // when
+        boolean result = bundle.delete();
+
+        // then
+        assertTrue(result);
+        assertThat(file.exists(), equalTo(false));
+        assertThat(bundle.read("survival"), nullValue());
+    }
+
+    /**
+     * Changes the last byte of the given text in the bundle file, as if writing it was cut off.
+     */
+    private void corrupt(String text) throws IOException {
+        byte[] contents = Files.readAllBytes(file.toPath());
+        byte[] needle = bytes(text);
+        for (int i = 0; i <= contents.length - needle.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(contents, i, i + needle.length), needle)) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.seek(i + needle.length - 1);
+                    raf.write(0);
+                }
+                return;
+            }
+        }
+        throw new IllegalStateException("Text '" + text + "' not found in bundle");
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
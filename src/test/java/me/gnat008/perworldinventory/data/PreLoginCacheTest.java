@@ -0,0 +1,98 @@
+package me.gnat008.perworldinventory.data;
+
+import me.gnat008.perworldinventory.TestHelper;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Tests for {@link PreLoginCache}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PreLoginCacheTest {
+
+    @InjectMocks
+    private PreLoginCache preLoginCache;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Before
+    public void setUpLogger() {
+        TestHelper.initMockLogger();
+    }
+
+    @Test
+    public void shouldReturnStagedDataOnce() throws IOException {
+        // given
+        UUID uuid = UUID.randomUUID();
+        given(dataSource.getLogoutWorld(uuid)).willReturn("world_nether");
+        preLoginCache.stage(uuid, "Bobby");
+
+        // when
+        PreLoginCache.StagedLogin first = preLoginCache.take(uuid);
+        PreLoginCache.StagedLogin second = preLoginCache.take(uuid);
+
+        // then
+        assertThat(first.getLogoutWorld(), equalTo("world_nether"));
+        assertThat(second, nullValue());
+    }
+
+    @Test
+    public void shouldStagePlayerWithoutLogoutData() throws IOException {
+        // given
+        UUID uuid = UUID.randomUUID();
+        given(dataSource.getLogoutWorld(uuid)).willReturn(null);
+        preLoginCache.stage(uuid, "Newcomer");
+
+        // when
+        PreLoginCache.StagedLogin login = preLoginCache.take(uuid);
+
+        // then
+        assertThat(login.getLogoutWorld(), nullValue());
+    }
+
+    @Test
+    public void shouldStageRecentLogoutInsteadOfReading() {
+        // given
+        UUID uuid = UUID.randomUUID();
+        World world = mock(World.class);
+        given(world.getName()).willReturn("world_the_end");
+        preLoginCache.recordLogout(TestHelper.mockPwiPlayer(uuid, new Location(world, 1, 2, 3)));
+
+        // when
+        preLoginCache.stage(uuid, "Bobby");
+
+        // then
+        assertThat(preLoginCache.take(uuid).getLogoutWorld(), equalTo("world_the_end"));
+        verifyZeroInteractions(dataSource);
+    }
+
+    @Test
+    public void shouldNotStageDataThatCouldNotBeRead() throws IOException {
+        // given
+        UUID uuid = UUID.randomUUID();
+        given(dataSource.getLogoutWorld(uuid)).willThrow(new IOException("Disk on fire"));
+
+        // when
+        preLoginCache.stage(uuid, "Bobby");
+
+        // then
+        assertThat(preLoginCache.take(uuid), nullValue());
+    }
+}
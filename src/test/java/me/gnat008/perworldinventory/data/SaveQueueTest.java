@@ -0,0 +1,221 @@
+package me.gnat008.perworldinventory.data;
+
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.data.players.PlayerDataPrefetcher;
+import me.gnat008.perworldinventory.data.players.ProfileKey;
+import me.gnat008.perworldinventory.data.serializers.PlayerSection;
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link SaveQueue}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SaveQueueTest {
+
+    private static final UUID PLAYER_UUID = UUID.fromString("7f7c909b-24f1-49a4-817f-baa4f4973980");
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private DataSource dataSource;
+    @Mock
+    private Settings settings;
+    @Mock
+    private PlayerDataPrefetcher prefetcher;
+
+    @Before
+    public void setup() {
+        TestHelper.initMockLogger();
+        given(settings.getProperty(PwiProperties.SAVE_QUEUE_THREADS)).willReturn(1);
+        given(settings.getProperty(PwiProperties.SAVE_QUEUE_BATCH_SIZE)).willReturn(10);
+        given(settings.getProperty(PwiProperties.SHUTDOWN_SAVE_TIMEOUT)).willReturn(10);
+    }
+
+    @Test
+    public void shouldOnlyWriteNewestDataOfQueuedKey() throws InterruptedException {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer first = mockPwiPlayer("first");
+        PWIPlayer second = mockPwiPlayer("second");
+        given(second.takeDirtySections()).willReturn(EnumSet.of(PlayerSection.INVENTORY));
+        PWIPlayer third = mockPwiPlayer("third");
+        given(third.takeDirtySections()).willReturn(EnumSet.of(PlayerSection.STATS));
+
+        // Keep the only worker busy with the first save
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), snapshotOf("first"));
+
+        SaveQueue saveQueue = createSaveQueue();
+        saveQueue.submit(group, GameMode.SURVIVAL, first);
+        writing.await(5, TimeUnit.SECONDS);
+
+        // when
+        saveQueue.submit(group, GameMode.SURVIVAL, second);
+        saveQueue.submit(group, GameMode.SURVIVAL, third);
+        int depth = saveQueue.getDepth();
+        release.countDown();
+        saveQueue.shutdown();
+
+        // then
+        assertThat(depth, equalTo(1));
+        assertThat(saveQueue.getCoalescedCount(), equalTo(1L));
+        assertThat(saveQueue.getDepth(), equalTo(0));
+        verify(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), snapshotOf("first"));
+        verify(dataSource, never()).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), snapshotOf("second"));
+        // The sections that changed for the replaced save must still be written
+        verify(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), argThat(snapshot -> "third".equals(snapshot.getName())
+                && snapshot.getDirtySections().equals(EnumSet.of(PlayerSection.INVENTORY, PlayerSection.STATS))));
+    }
+
+    @Test
+    public void shouldPassBatchToDataSource() throws InterruptedException {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer first = mockPwiPlayer("first");
+
+        // Keep the only worker busy with the first save, so the others are taken as one batch
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), snapshotOf("first"));
+
+        SaveQueue saveQueue = createSaveQueue();
+        saveQueue.submit(group, GameMode.SURVIVAL, first);
+        writing.await(5, TimeUnit.SECONDS);
+
+        // when
+        saveQueue.submit(group, GameMode.CREATIVE, mockPwiPlayer("second"));
+        saveQueue.submit(group, GameMode.ADVENTURE, mockPwiPlayer("third"));
+        release.countDown();
+        saveQueue.shutdown();
+
+        // then
+        verify(dataSource).saveToDatabase(argThat((Map<ProfileKey, PWIPlayerSnapshot> saves) -> saves.size() == 2
+                && saves.containsKey(new ProfileKey(PLAYER_UUID, group, GameMode.CREATIVE))
+                && saves.containsKey(new ProfileKey(PLAYER_UUID, group, GameMode.ADVENTURE))));
+    }
+
+    @Test
+    public void shouldWriteRightAwayAfterShutdown() {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer player = mockPwiPlayer();
+        SaveQueue saveQueue = createSaveQueue();
+        saveQueue.shutdown();
+
+        // when
+        saveQueue.submit(group, GameMode.CREATIVE, player);
+
+        // then
+        verify(dataSource).saveToDatabase(eq(group), eq(GameMode.CREATIVE), any(PWIPlayerSnapshot.class));
+    }
+
+    @Test
+    public void shouldReturnDataUntilItIsWritten() throws InterruptedException {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer player = mockPwiPlayer();
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), any(PWIPlayerSnapshot.class));
+
+        SaveQueue saveQueue = createSaveQueue();
+        saveQueue.submit(group, GameMode.SURVIVAL, player);
+        writing.await(5, TimeUnit.SECONDS);
+
+        // when
+        PWIPlayer whileWriting = saveQueue.getUnwritten(PLAYER_UUID, group, GameMode.SURVIVAL);
+        PWIPlayer otherGamemode = saveQueue.getUnwritten(PLAYER_UUID, group, GameMode.CREATIVE);
+        release.countDown();
+        saveQueue.shutdown();
+
+        // then
+        assertThat(whileWriting, sameInstance(player));
+        assertThat(otherGamemode, nullValue());
+        assertThat(saveQueue.getUnwritten(PLAYER_UUID, group, GameMode.SURVIVAL), nullValue());
+    }
+
+    @Test
+    public void shouldInvalidatePrefetchedDataWhenAcceptingAndWritingSave() {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer player = mockPwiPlayer();
+        SaveQueue saveQueue = createSaveQueue();
+
+        // when
+        saveQueue.submit(group, GameMode.SURVIVAL, player);
+        saveQueue.shutdown();
+
+        // then
+        verify(prefetcher, times(2)).invalidate(new ProfileKey(PLAYER_UUID, group, GameMode.SURVIVAL));
+    }
+
+    private SaveQueue createSaveQueue() {
+        Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory.data").create();
+        injector.register(DataSource.class, dataSource);
+        injector.register(Settings.class, settings);
+        injector.register(PlayerDataPrefetcher.class, prefetcher);
+        return injector.getSingleton(SaveQueue.class);
+    }
+
+    private static PWIPlayer mockPwiPlayer() {
+        PWIPlayer player = mock(PWIPlayer.class);
+        given(player.getUuid()).willReturn(PLAYER_UUID);
+        return player;
+    }
+
+    private static PWIPlayer mockPwiPlayer(String name) {
+        PWIPlayer player = mockPwiPlayer();
+        given(player.getName()).willReturn(name);
+        return player;
+    }
+
+    private static PWIPlayerSnapshot snapshotOf(String name) {
+        return argThat(snapshot -> name.equals(snapshot.getName()));
+    }
+}
@@ -0,0 +1,158 @@
+package me.gnat008.perworldinventory.data;
+
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.DataFolder;
+import me.gnat008.perworldinventory.PerWorldInventory;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import static me.gnat008.perworldinventory.TestHelper.mockPlayer;
+import static me.gnat008.perworldinventory.TestHelper.mockPwiPlayer;
+import static me.gnat008.perworldinventory.TestHelper.mockWorld;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link SqlDataSource}, against an embedded H2 database.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SqlDataSourceTest {
+
+    private static final UUID PLAYER_UUID = UUID.fromString("7f7c909b-24f1-49a4-817f-baa4f4973980");
+
+    @Mock
+    private PerWorldInventory plugin;
+    @Mock
+    private Settings settings;
+    @Mock
+    private BukkitService bukkitService;
+    @Mock
+    private PipelineTimings timings;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dataFolder;
+
+    @Before
+    public void setup() throws IOException {
+        TestHelper.initMockLogger();
+        dataFolder = temporaryFolder.newFolder();
+        given(settings.getProperty(PwiProperties.SQL_URL)).willReturn("jdbc:h2:{data-folder}/players");
+        given(settings.getProperty(PwiProperties.SQL_USERNAME)).willReturn("");
+        given(settings.getProperty(PwiProperties.SQL_PASSWORD)).willReturn("");
+        given(settings.getProperty(PwiProperties.SQL_TABLE_PREFIX)).willReturn("pwi_");
+        given(settings.getProperty(PwiProperties.SQL_POOL_SIZE)).willReturn(2);
+        given(settings.getProperty(PwiProperties.ITEM_CACHE_SIZE)).willReturn(0);
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION)).willReturn("NONE");
+        given(settings.getProperty(PwiProperties.FLATFILE_COMPRESSION_LEVEL)).willReturn(6);
+    }
+
+    @Test
+    public void shouldWriteRightAwayWithoutTask() {
+        // given
+        World world = mockWorld();
+        SqlDataSource dataSource = createDataSource();
+
+        // when
+        dataSource.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        dataSource.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 4, 5, 6)), false);
+
+        // then
+        verify(bukkitService, never()).runTaskAsync(any(Runnable.class));
+        Location result = createDataSource().getLogoutData(mockPlayer(PLAYER_UUID));
+        assertThat(result.getWorld(), equalTo(world));
+        assertThat(result.getX(), equalTo(4.0));
+        assertThat(result.getY(), equalTo(5.0));
+        assertThat(result.getZ(), equalTo(6.0));
+    }
+
+    @Test
+    public void shouldWriteInAsyncTask() {
+        // given
+        World world = mockWorld();
+        SqlDataSource dataSource = createDataSource();
+
+        // when
+        dataSource.saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), true);
+
+        // then
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(bukkitService).runTaskAsync(taskCaptor.capture());
+        assertThat(dataSource.getLogoutData(mockPlayer(PLAYER_UUID)), nullValue());
+        taskCaptor.getValue().run();
+        assertThat(dataSource.getLogoutData(mockPlayer(PLAYER_UUID)).getX(), equalTo(1.0));
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownPlayer() {
+        // given
+        SqlDataSource dataSource = createDataSource();
+        Player player = mock(Player.class);
+        given(player.getUniqueId()).willReturn(UUID.randomUUID());
+
+        // when
+        Location result = dataSource.getLogoutData(player);
+
+        // then
+        assertThat(result, nullValue());
+    }
+
+    @Test
+    public void shouldReadFlatFileDataNotSavedToDatabase() throws IOException {
+        // given
+        World world = mockWorld();
+        createInjector().getSingleton(FlatFile.class)
+                .saveLogoutData(mockPwiPlayer(PLAYER_UUID, new Location(world, 1, 2, 3)), false);
+        SqlDataSource dataSource = createDataSource();
+
+        // when
+        Location result = dataSource.getLogoutData(mockPlayer(PLAYER_UUID));
+        String logoutWorld = dataSource.getLogoutWorld(PLAYER_UUID);
+
+        // then
+        assertThat(result.getX(), equalTo(1.0));
+        assertThat(logoutWorld, equalTo("world"));
+    }
+
+    private SqlDataSource createDataSource() {
+        return createInjector().getSingleton(SqlDataSource.class);
+    }
+
+    private Injector createInjector() {
+        // Injector is restricted to creating classes only in 'data' package:
+        // ensures that anything else that is required has to be provided explicitly
+        Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory.data").create();
+        injector.provide(DataFolder.class, dataFolder);
+        injector.register(PerWorldInventory.class, plugin);
+        injector.register(Settings.class, settings);
+        injector.register(BukkitService.class, bukkitService);
+        injector.register(PipelineTimings.class, timings);
+        return injector;
+    }
+}
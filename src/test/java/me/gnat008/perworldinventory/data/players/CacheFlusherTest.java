@@ -0,0 +1,119 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.data.SaveQueue;
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.UUID;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CacheFlusher}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CacheFlusherTest {
+
+    @Mock
+    private SaveQueue saveQueue;
+
+    private PlayerCache playerCache;
+
+    @Before
+    public void setup() {
+        TestHelper.initMockLogger();
+        playerCache = new PlayerCache();
+    }
+
+    @Test
+    public void shouldSpreadPassAcrossInterval() {
+        // given
+        Group group = mockGroup("test");
+        for (int i = 0; i < 10; i++) {
+            playerCache.put(new ProfileKey(UUID.randomUUID(), group, GameMode.SURVIVAL), mock(PWIPlayer.class));
+        }
+        CacheFlusher flusher = new CacheFlusher(playerCache, saveQueue, 5, 0);
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            assertThat(flusher.tick(), equalTo(false));
+        }
+        boolean started = flusher.tick();
+
+        // then
+        assertThat(started, equalTo(true));
+        assertThat(flusher.getBacklog(), equalTo(8));
+        verify(saveQueue, times(2)).submit(any(Group.class), any(GameMode.class), any(PWIPlayer.class));
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            flusher.tick();
+        }
+
+        // then
+        assertThat(flusher.getBacklog(), equalTo(0));
+        verify(saveQueue, times(10)).submit(any(Group.class), any(GameMode.class), any(PWIPlayer.class));
+    }
+
+    @Test
+    public void shouldNotCheckMoreThanBudget() {
+        // given
+        Group group = mockGroup("test");
+        for (int i = 0; i < 10; i++) {
+            playerCache.put(new ProfileKey(UUID.randomUUID(), group, GameMode.SURVIVAL), mock(PWIPlayer.class));
+        }
+        CacheFlusher flusher = new CacheFlusher(playerCache, saveQueue, 1, 3);
+
+        // when
+        flusher.tick();
+        boolean startedAgain = flusher.tick();
+
+        // then
+        assertThat(startedAgain, equalTo(false));
+        assertThat(flusher.getBacklog(), equalTo(4));
+        verify(saveQueue, times(6)).submit(any(Group.class), any(GameMode.class), any(PWIPlayer.class));
+    }
+
+    @Test
+    public void shouldOnlyRemoveSavedPlayerIfNotReplaced() {
+        // given
+        Group group = mockGroup("test");
+        ProfileKey savedKey = new ProfileKey(UUID.randomUUID(), group, GameMode.SURVIVAL);
+        ProfileKey replacedKey = new ProfileKey(UUID.randomUUID(), group, GameMode.SURVIVAL);
+        PWIPlayer saved = mock(PWIPlayer.class);
+        given(saved.isSaved()).willReturn(true);
+        PWIPlayer replaced = mock(PWIPlayer.class);
+        given(replaced.isSaved()).willReturn(true);
+        PWIPlayer replacement = mock(PWIPlayer.class);
+        playerCache.put(savedKey, saved);
+        playerCache.put(replacedKey, replaced);
+        CacheFlusher flusher = new CacheFlusher(playerCache, saveQueue, 2, 0);
+        flusher.tick();
+        flusher.tick();
+        playerCache.put(replacedKey, replacement);
+
+        // when
+        flusher.tick();
+
+        // then
+        assertThat(playerCache.get(savedKey), nullValue());
+        assertThat(playerCache.get(replacedKey), sameInstance(replacement));
+        verify(saveQueue, never()).submit(any(Group.class), any(GameMode.class), any(PWIPlayer.class));
+    }
+}
@@ -9,8 +9,12 @@ import me.gnat008.perworldinventory.TestHelper;
 import me.gnat008.perworldinventory.config.PwiProperties;
 import me.gnat008.perworldinventory.config.Settings;
 import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.data.PreLoginCache;
+import me.gnat008.perworldinventory.data.SaveQueue;
+import me.gnat008.perworldinventory.data.serializers.ItemSerializationCache;
 import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.groups.GroupManager;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.Server;
@@ -28,8 +32,11 @@ import org.mockito.Mock;
 import static me.gnat008.perworldinventory.TestHelper.mockGroup;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link PWIPlayerManager}.
@@ -52,15 +59,32 @@ public class PWIPlayerManagerTest {
     @Mock
     private DataSource dataSource;
 
+    @Mock
+    private SaveQueue saveQueue;
+
+    @Mock
+    private PreLoginCache preLoginCache;
+
+    @Mock
+    private ItemSerializationCache itemCache;
+
+    @Mock
+    private PlayerDataPrefetcher prefetcher;
+
     @Mock
     private GroupManager groupManager;
 
+    @Mock
+    private PipelineTimings timings;
+
     @Mock
     private Settings settings;
 
     @BeforeInjecting
     public void initSettings() {
         given(settings.getProperty(PwiProperties.SAVE_INTERVAL)).willReturn(300);
+        given(settings.getProperty(PwiProperties.PLAYER_CACHE_MAX_SIZE)).willReturn(0);
+        given(settings.getProperty(PwiProperties.PLAYER_CACHE_FLUSH_BUDGET)).willReturn(0);
 
         // Add mocks for Bukkit.getScheduler, called in @PostConstruct method
         Server server = mock(Server.class);
@@ -77,7 +101,7 @@ public class PWIPlayerManagerTest {
         given(settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)).willReturn(true);
 
         // when
-        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.SURVIVAL);
+        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.SURVIVAL).toString();
 
         // then
         String expected = TestHelper.TEST_UUID + ".test.survival";
@@ -92,7 +116,7 @@ public class PWIPlayerManagerTest {
         given(settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)).willReturn(false);
 
         // when
-        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.CREATIVE);
+        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.CREATIVE).toString();
 
         // then
         String expected = TestHelper.TEST_UUID + ".test.survival";
@@ -107,7 +131,7 @@ public class PWIPlayerManagerTest {
         given(settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)).willReturn(true);
 
         // when
-        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.CREATIVE);
+        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.CREATIVE).toString();
 
         // then
         String expected = TestHelper.TEST_UUID + ".test.creative";
@@ -121,7 +145,7 @@ public class PWIPlayerManagerTest {
         given(settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)).willReturn(true);
 
         // when
-        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.ADVENTURE);
+        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.ADVENTURE).toString();
 
         // then
         String expected = TestHelper.TEST_UUID + ".test.adventure";
@@ -136,13 +160,28 @@ public class PWIPlayerManagerTest {
         given(settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)).willReturn(true);
 
         // when
-        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.SPECTATOR);
+        String result = playerManager.makeKey(player.getUniqueId(), group, GameMode.SPECTATOR).toString();
 
         // then
         String expected = TestHelper.TEST_UUID + ".test.spectator";
         assertThat(result, equalTo(expected));
     }
 
+    @Test
+    public void shouldNotPrefetchDataWaitingToBeWritten() {
+        // given
+        Player player = mockPlayer("Bob", GameMode.SURVIVAL);
+        Group group = mockGroup("test");
+        given(settings.getProperty(PwiProperties.SEPARATE_GAMEMODE_INVENTORIES)).willReturn(true);
+        given(saveQueue.getUnwritten(TestHelper.TEST_UUID, group, GameMode.SURVIVAL)).willReturn(mock(PWIPlayer.class));
+
+        // when
+        playerManager.prefetchPlayerData(group, player);
+
+        // then
+        verify(prefetcher, never()).prefetch(any(ProfileKey.class), any(Player.class));
+    }
+
     private Player mockPlayer(String name, GameMode gameMode) {
         Player mock = mock(Player.class);
         PlayerInventory inv = mock(PlayerInventory.class);
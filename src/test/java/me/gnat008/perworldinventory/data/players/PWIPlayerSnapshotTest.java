@@ -0,0 +1,84 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.data.serializers.PlayerSection;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link PWIPlayerSnapshot}.
+ */
+public class PWIPlayerSnapshotTest {
+
+    @Test
+    public void shouldNotChangeWithPlayer() {
+        // given
+        PWIPlayer player = createPwiPlayer();
+        ItemStack[] inventory = {new ItemStack(Material.STONE, 5), null};
+        player.setInventory(inventory);
+        player.setLevel(3);
+
+        // when
+        PWIPlayerSnapshot snapshot = PWIPlayerSnapshot.of(player);
+        inventory[0].setAmount(10);
+        inventory[1] = new ItemStack(Material.DIRT);
+        player.setLevel(4);
+
+        // then
+        ItemStack[] result = snapshot.getInventory();
+        assertThat(result[0], not(sameInstance(inventory[0])));
+        assertThat(result[0].getAmount(), equalTo(5));
+        assertThat(result[1], nullValue());
+        assertThat(snapshot.getLevel(), equalTo(3));
+    }
+
+    @Test
+    public void shouldTakeDirtySections() {
+        // given
+        PWIPlayer player = createPwiPlayer();
+
+        // when
+        PWIPlayerSnapshot snapshot = PWIPlayerSnapshot.of(player);
+
+        // then
+        assertThat(snapshot.getDirtySections(), equalTo(EnumSet.allOf(PlayerSection.class)));
+        assertThat(player.takeDirtySections(), empty());
+    }
+
+    @Test
+    public void shouldKeepDirtySectionsOfReplacedSnapshot() {
+        // given
+        PWIPlayer player = createPwiPlayer();
+        player.takeDirtySections();
+        player.setLevel(player.getLevel() + 1);
+        PWIPlayerSnapshot older = PWIPlayerSnapshot.of(player);
+        player.setEnderChest(new ItemStack[27]);
+        PWIPlayerSnapshot newer = PWIPlayerSnapshot.of(player);
+
+        // when
+        PWIPlayerSnapshot merged = newer.withDirtySectionsOf(older);
+
+        // then
+        assertThat(newer.getDirtySections(), equalTo(EnumSet.of(PlayerSection.ENDER_CHEST)));
+        assertThat(merged.getDirtySections(), equalTo(EnumSet.of(PlayerSection.ENDER_CHEST, PlayerSection.STATS)));
+        assertThat(merged.getLevel(), equalTo(newer.getLevel()));
+    }
+
+    private static PWIPlayer createPwiPlayer() {
+        Player player = mock(Player.class, RETURNS_DEEP_STUBS);
+        return new PWIPlayer(player, mockGroup("test"), 0, 0, false);
+    }
+}
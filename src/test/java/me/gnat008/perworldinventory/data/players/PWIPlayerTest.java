@@ -0,0 +1,76 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.data.serializers.PlayerSection;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link PWIPlayer}.
+ */
+public class PWIPlayerTest {
+
+    @Test
+    public void shouldHaveAllSectionsDirtyWhenCreated() {
+        // given
+        PWIPlayer player = createPwiPlayer();
+
+        // when
+        boolean dirty = player.hasDirtySections();
+
+        // then
+        assertThat(dirty, equalTo(true));
+        assertThat(player.takeDirtySections(), equalTo(EnumSet.allOf(PlayerSection.class)));
+        assertThat(player.hasDirtySections(), equalTo(false));
+    }
+
+    @Test
+    public void shouldOnlyMarkChangedSections() {
+        // given
+        PWIPlayer player = createPwiPlayer();
+        player.takeDirtySections();
+
+        // when
+        player.setFoodLevel(player.getFoodLevel());
+        player.setArmor(player.getArmor());
+        player.setLevel(player.getLevel() + 1);
+        player.setEnderChest(new ItemStack[27]);
+
+        // then
+        assertThat(player.takeDirtySections(), contains(PlayerSection.ENDER_CHEST, PlayerSection.STATS));
+        assertThat(player.takeDirtySections(), empty());
+    }
+
+    @Test
+    public void shouldForgetEncodedSectionsOfOtherFormat() {
+        // given
+        PWIPlayer player = createPwiPlayer();
+        player.setEncodedSection(PlayerSection.INVENTORY, 3, new byte[]{1});
+        player.setEncodedSection(PlayerSection.STATS, 3, new byte[]{2});
+
+        // when
+        player.setEncodedSection(PlayerSection.STATS, 2, new byte[]{3});
+
+        // then
+        assertThat(player.getEncodedSection(PlayerSection.STATS, 2), equalTo(new byte[]{3}));
+        assertThat(player.getEncodedSection(PlayerSection.STATS, 3), nullValue());
+        assertThat(player.getEncodedSection(PlayerSection.INVENTORY, 3), nullValue());
+        assertThat(player.getEncodedSection(PlayerSection.INVENTORY, 2), nullValue());
+    }
+
+    private static PWIPlayer createPwiPlayer() {
+        Player player = mock(Player.class, RETURNS_DEEP_STUBS);
+        return new PWIPlayer(player, mockGroup("test"), 0, 0, false);
+    }
+}
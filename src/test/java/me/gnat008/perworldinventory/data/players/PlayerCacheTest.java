@@ -0,0 +1,138 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link PlayerCache} and {@link ProfileKey}.
+ */
+public class PlayerCacheTest {
+
+    private static final UUID FIRST = UUID.fromString("7f7c909b-24f1-49a4-817f-baa4f4973980");
+    private static final UUID SECOND = UUID.fromString("1e2c4b8a-5c3d-4f6e-9a7b-0c1d2e3f4a5b");
+
+    @Test
+    public void shouldFindKeyMadeWithReloadedGroup() {
+        // given
+        PlayerCache cache = new PlayerCache();
+        PWIPlayer player = mock(PWIPlayer.class);
+        cache.put(new ProfileKey(FIRST, mockGroup("with.dots"), GameMode.CREATIVE), player);
+
+        // when
+        PWIPlayer result = cache.get(new ProfileKey(FIRST, mockGroup("with.dots"), GameMode.CREATIVE));
+
+        // then
+        assertThat(result, sameInstance(player));
+        assertThat(cache.get(new ProfileKey(FIRST, mockGroup("with.dots"), GameMode.SURVIVAL)), nullValue());
+    }
+
+    @Test
+    public void shouldGetAndRemoveAllDataOfPlayer() {
+        // given
+        PlayerCache cache = new PlayerCache();
+        Group group = mockGroup("test");
+        Group other = mockGroup("other");
+        PWIPlayer survival = mock(PWIPlayer.class);
+        PWIPlayer creative = mock(PWIPlayer.class);
+        PWIPlayer otherPlayer = mock(PWIPlayer.class);
+        cache.put(new ProfileKey(FIRST, group, GameMode.SURVIVAL), survival);
+        cache.put(new ProfileKey(FIRST, other, GameMode.CREATIVE), creative);
+        cache.put(new ProfileKey(SECOND, group, GameMode.SURVIVAL), otherPlayer);
+
+        // when
+        Map<ProfileKey, PWIPlayer> all = cache.getAll(FIRST);
+        cache.removeAll(FIRST);
+
+        // then
+        assertThat(all, aMapWithSize(2));
+        assertThat(all, hasEntry(new ProfileKey(FIRST, other, GameMode.CREATIVE), creative));
+        assertThat(cache.getAll(FIRST), anEmptyMap());
+        assertThat(cache.size(), equalTo(1));
+        assertThat(cache.get(new ProfileKey(SECOND, group, GameMode.SURVIVAL)), sameInstance(otherPlayer));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedPlayer() {
+        // given
+        Map<ProfileKey, PWIPlayer> evicted = new HashMap<>();
+        // Players without items weigh the base weight, so two of them fit
+        PlayerCache cache = new PlayerCache(2 * PlayerCache.BASE_WEIGHT, evicted::put);
+        Group group = mockGroup("test");
+        ProfileKey firstKey = new ProfileKey(FIRST, group, GameMode.SURVIVAL);
+        ProfileKey secondKey = new ProfileKey(SECOND, group, GameMode.SURVIVAL);
+        ProfileKey thirdKey = new ProfileKey(FIRST, group, GameMode.CREATIVE);
+        PWIPlayer first = mock(PWIPlayer.class);
+        PWIPlayer second = mock(PWIPlayer.class);
+        cache.put(firstKey, first);
+        cache.put(secondKey, second);
+        cache.get(firstKey);
+
+        // when
+        cache.put(thirdKey, mock(PWIPlayer.class));
+
+        // then
+        assertThat(evicted, aMapWithSize(1));
+        assertThat(evicted, hasEntry(secondKey, second));
+        assertThat(cache.get(secondKey), nullValue());
+        assertThat(cache.get(firstKey), sameInstance(first));
+        assertThat(cache.getAll(SECOND), anEmptyMap());
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.getWeight(), equalTo(2 * PlayerCache.BASE_WEIGHT));
+        assertThat(cache.getEvictions(), equalTo(1L));
+        assertThat(cache.getHits(), equalTo(2L));
+        assertThat(cache.getMisses(), equalTo(1L));
+    }
+
+    @Test
+    public void shouldNotEvictPlayerThatIsJustPut() {
+        // given
+        Map<ProfileKey, PWIPlayer> evicted = new HashMap<>();
+        PlayerCache cache = new PlayerCache(PlayerCache.BASE_WEIGHT, evicted::put);
+        ProfileKey key = new ProfileKey(FIRST, mockGroup("test"), GameMode.SURVIVAL);
+        PWIPlayer player = mock(PWIPlayer.class);
+        given(player.getInventory()).willReturn(new ItemStack[]{new ItemStack(Material.STONE), null});
+
+        // when
+        cache.put(key, player);
+
+        // then
+        assertThat(evicted, anEmptyMap());
+        assertThat(cache.get(key), sameInstance(player));
+        assertThat(cache.getWeight(), equalTo(PlayerCache.BASE_WEIGHT + PlayerCache.ITEM_WEIGHT));
+    }
+
+    @Test
+    public void shouldUpdateWeightWhenPlayerIsPutAgain() {
+        // given
+        PlayerCache cache = new PlayerCache();
+        ProfileKey key = new ProfileKey(FIRST, mockGroup("test"), GameMode.SURVIVAL);
+        PWIPlayer player = mock(PWIPlayer.class);
+        cache.put(key, player);
+        given(player.getArmor()).willReturn(new ItemStack[]{new ItemStack(Material.DIAMOND_HELMET), new ItemStack(Material.AIR)});
+
+        // when
+        cache.put(key, player);
+
+        // then
+        assertThat(cache.size(), equalTo(1));
+        assertThat(cache.getWeight(), equalTo(PlayerCache.BASE_WEIGHT + PlayerCache.ITEM_WEIGHT));
+    }
+}
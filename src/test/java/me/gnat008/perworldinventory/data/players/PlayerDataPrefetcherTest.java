@@ -0,0 +1,151 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.data.serializers.PlayerSerializer;
+import me.gnat008.perworldinventory.data.serializers.PlayerSnapshot;
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link PlayerDataPrefetcher}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PlayerDataPrefetcherTest {
+
+    @InjectMocks
+    private PlayerDataPrefetcher prefetcher;
+
+    @Mock
+    private BukkitService bukkitService;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private PlayerSerializer playerSerializer;
+
+    private Player player;
+
+    @Before
+    public void setUp() {
+        TestHelper.initMockLogger();
+        player = mock(Player.class);
+    }
+
+    @Test
+    public void shouldApplyPrefetchedData() throws IOException {
+        // given
+        Group group = mockGroup("survival");
+        ProfileKey key = new ProfileKey(TestHelper.TEST_UUID, group, GameMode.SURVIVAL);
+        PlayerSnapshot snapshot = PlayerSnapshot.builder().foodLevel(12).build();
+        given(dataSource.readSnapshot(group, GameMode.SURVIVAL, player)).willReturn(snapshot);
+
+        prefetcher.prefetch(key, player);
+        runAsyncTask();
+
+        // when
+        boolean result = prefetcher.applyPrefetched(key, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        assertThat(result, equalTo(true));
+        ArgumentCaptor<Runnable> applyCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(bukkitService).runTask(applyCaptor.capture());
+        applyCaptor.getValue().run();
+        verify(playerSerializer).apply(snapshot, player, DeserializeCause.WORLD_CHANGE);
+        verify(dataSource, never()).getFromDatabase(any(), any(), any(), any());
+    }
+
+    @Test
+    public void shouldLoadAsUsualIfNothingWasStored() throws IOException {
+        // given
+        Group group = mockGroup("survival");
+        ProfileKey key = new ProfileKey(TestHelper.TEST_UUID, group, GameMode.SURVIVAL);
+        given(dataSource.readSnapshot(group, GameMode.SURVIVAL, player)).willReturn(null);
+
+        prefetcher.prefetch(key, player);
+
+        // when
+        boolean result = prefetcher.applyPrefetched(key, player, DeserializeCause.WORLD_CHANGE);
+        runAsyncTask();
+
+        // then
+        assertThat(result, equalTo(true));
+        verify(dataSource).getFromDatabase(group, GameMode.SURVIVAL, player, DeserializeCause.WORLD_CHANGE);
+    }
+
+    @Test
+    public void shouldDiscardDataForOtherGroup() {
+        // given
+        ProfileKey prefetched = new ProfileKey(TestHelper.TEST_UUID, mockGroup("survival"), GameMode.SURVIVAL);
+        ProfileKey needed = new ProfileKey(TestHelper.TEST_UUID, mockGroup("creative"), GameMode.SURVIVAL);
+        prefetcher.prefetch(prefetched, player);
+
+        // when
+        boolean result = prefetcher.applyPrefetched(needed, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        assertThat(result, equalTo(false));
+        // The prefetch is gone, even if the right data is needed afterwards
+        assertThat(prefetcher.applyPrefetched(prefetched, player, DeserializeCause.WORLD_CHANGE), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotApplyDiscardedData() {
+        // given
+        ProfileKey key = new ProfileKey(TestHelper.TEST_UUID, mockGroup("survival"), GameMode.SURVIVAL);
+        prefetcher.prefetch(key, player);
+
+        // when
+        prefetcher.discard(TestHelper.TEST_UUID);
+
+        // then
+        assertThat(prefetcher.applyPrefetched(key, player, DeserializeCause.WORLD_CHANGE), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotApplyDataThatWasSavedAgain() {
+        // given
+        Group group = mockGroup("survival");
+        ProfileKey key = new ProfileKey(TestHelper.TEST_UUID, group, GameMode.SURVIVAL);
+        prefetcher.prefetch(key, player);
+
+        // when
+        prefetcher.invalidate(new ProfileKey(TestHelper.TEST_UUID, group, GameMode.CREATIVE));
+        boolean otherKeyResult = prefetcher.applyPrefetched(key, player, DeserializeCause.WORLD_CHANGE);
+        prefetcher.prefetch(key, player);
+        prefetcher.invalidate(key);
+        boolean sameKeyResult = prefetcher.applyPrefetched(key, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        assertThat(otherKeyResult, equalTo(true));
+        assertThat(sameKeyResult, equalTo(false));
+    }
+
+    private void runAsyncTask() {
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(bukkitService).runTaskAsync(taskCaptor.capture());
+        taskCaptor.getValue().run();
+    }
+}
@@ -0,0 +1,129 @@
+package me.gnat008.perworldinventory.data.players;
+
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.groups.Group;
+import org.bukkit.GameMode;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static me.gnat008.perworldinventory.TestHelper.mockGroup;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ShutdownFlush}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ShutdownFlushTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Before
+    public void setup() {
+        TestHelper.initMockLogger();
+    }
+
+    @Test
+    public void shouldWriteInParallel() {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer bobby = mockPwiPlayer("Bobby");
+        PWIPlayer alice = mockPwiPlayer("Alice");
+
+        // Each write waits for the other one, which only works if they run at the same time
+        CountDownLatch bothWriting = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            bothWriting.countDown();
+            bothWriting.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), any(PWIPlayerSnapshot.class));
+
+        ShutdownFlush flush = new ShutdownFlush(dataSource, 2, 10);
+        flush.addProfile(group, GameMode.SURVIVAL, bobby);
+        flush.addProfile(group, GameMode.SURVIVAL, alice);
+        flush.addLogout(bobby);
+
+        // when
+        int failed = flush.run();
+
+        // then
+        assertThat(failed, equalTo(0));
+        assertThat(flush.hasRunningWrites(), equalTo(false));
+        assertThat(bothWriting.getCount(), equalTo(0L));
+        verify(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), argThat(snapshot -> "Alice".equals(snapshot.getName())));
+        verify(dataSource).saveLogoutData(bobby, false);
+    }
+
+    @Test
+    public void shouldCountFailedWrites() {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer bobby = mockPwiPlayer("Bobby");
+        doThrow(IllegalStateException.class).when(dataSource).saveToDatabase(eq(group), eq(GameMode.CREATIVE), any(PWIPlayerSnapshot.class));
+
+        ShutdownFlush flush = new ShutdownFlush(dataSource, 4, 10);
+        flush.addProfile(group, GameMode.CREATIVE, bobby);
+        flush.addProfile(group, GameMode.SURVIVAL, bobby);
+
+        // when
+        int failed = flush.run();
+
+        // then
+        assertThat(failed, equalTo(1));
+        verify(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), any(PWIPlayerSnapshot.class));
+    }
+
+    @Test
+    public void shouldReportWritesThatDoNotStopAfterDeadline() {
+        // given
+        Group group = mockGroup("test");
+        PWIPlayer bobby = mockPwiPlayer("Bobby");
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            // Ignores being interrupted, like a write stuck in the file system
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            return null;
+        }).when(dataSource).saveToDatabase(eq(group), eq(GameMode.SURVIVAL), any(PWIPlayerSnapshot.class));
+
+        ShutdownFlush flush = new ShutdownFlush(dataSource, 1, 1);
+        flush.addProfile(group, GameMode.SURVIVAL, bobby);
+
+        // when
+        int failed = flush.run();
+        boolean running = flush.hasRunningWrites();
+        release.countDown();
+
+        // then
+        assertThat(failed, equalTo(1));
+        assertThat(running, equalTo(true));
+    }
+
+    private static PWIPlayer mockPwiPlayer(String name) {
+        PWIPlayer player = mock(PWIPlayer.class);
+        given(player.getName()).willReturn(name);
+        given(player.getUuid()).willReturn(UUID.randomUUID());
+        return player;
+    }
+}
@@ -0,0 +1,107 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ItemSerializationCache}.
+ */
+public class ItemSerializationCacheTest {
+
+    @BeforeClass
+    public static void setUpItemFactory() {
+        // ItemStack#equals and #hashCode ask the item factory whether the items have meta
+        Server server = mock(Server.class);
+        ItemFactory itemFactory = mock(ItemFactory.class);
+        given(itemFactory.equals(isNull(), isNull())).willReturn(true);
+        given(server.getItemFactory()).willReturn(itemFactory);
+        TestHelper.setField(Bukkit.class, "server", null, server);
+    }
+
+    @Test
+    public void shouldReturnBytesOfEqualItem() {
+        // given
+        ItemSerializationCache cache = createCache(10);
+        byte[] bytes = {1, 2, 3};
+        cache.put(new ItemStack(Material.STONE, 5), bytes);
+
+        // when
+        byte[] sameItem = cache.get(new ItemStack(Material.STONE, 5));
+        byte[] otherAmount = cache.get(new ItemStack(Material.STONE, 6));
+
+        // then
+        assertThat(sameItem, equalTo(bytes));
+        assertThat(otherAmount, nullValue());
+        assertThat(cache.getHits(), equalTo(1L));
+        assertThat(cache.getMisses(), equalTo(1L));
+        assertThat(cache.getHitRate(), closeTo(0.5, 0.001));
+    }
+
+    @Test
+    public void shouldNotBeAffectedByChangesToCachedItem() {
+        // given
+        ItemSerializationCache cache = createCache(10);
+        ItemStack item = new ItemStack(Material.DIRT, 1);
+        cache.put(item, new byte[]{1});
+
+        // when
+        item.setAmount(64);
+
+        // then
+        assertThat(cache.get(new ItemStack(Material.DIRT, 1)), equalTo(new byte[]{1}));
+        assertThat(cache.get(item), nullValue());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedItem() {
+        // given
+        ItemSerializationCache cache = createCache(2);
+        cache.put(new ItemStack(Material.STONE), new byte[]{1});
+        cache.put(new ItemStack(Material.DIRT), new byte[]{2});
+        cache.get(new ItemStack(Material.STONE));
+
+        // when
+        cache.put(new ItemStack(Material.SAND), new byte[]{3});
+
+        // then
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.get(new ItemStack(Material.DIRT)), nullValue());
+        assertThat(cache.get(new ItemStack(Material.STONE)), equalTo(new byte[]{1}));
+        assertThat(cache.get(new ItemStack(Material.SAND)), equalTo(new byte[]{3}));
+    }
+
+    @Test
+    public void shouldNotCacheIfDisabled() {
+        // given
+        ItemSerializationCache cache = createCache(0);
+
+        // when
+        cache.put(new ItemStack(Material.STONE), new byte[]{1});
+
+        // then
+        assertThat(cache.get(new ItemStack(Material.STONE)), nullValue());
+        assertThat(cache.size(), equalTo(0));
+    }
+
+    private static ItemSerializationCache createCache(int size) {
+        Settings settings = mock(Settings.class);
+        given(settings.getProperty(PwiProperties.ITEM_CACHE_SIZE)).willReturn(size);
+        return new ItemSerializationCache(settings);
+    }
+}
@@ -0,0 +1,266 @@
+package me.gnat008.perworldinventory.data.serializers;
+
+import ch.jalu.configme.properties.Property;
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import com.google.gson.stream.JsonReader;
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.PerWorldInventory;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import org.bukkit.GameMode;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link PlayerSerializer}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PlayerSerializerTest {
+
+    @Mock
+    private PerWorldInventory plugin;
+    @Mock
+    private Settings settings;
+    @Mock
+    private BukkitService bukkitService;
+    @Mock
+    private PipelineTimings timings;
+
+    private PlayerSerializer playerSerializer;
+
+    @Before
+    public void setup() {
+        TestHelper.initMockLogger();
+        given(settings.getProperty(any(Property.class)))
+                .willAnswer(invocation -> ((Property<?>) invocation.getArgument(0)).getDefaultValue());
+
+        Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory.data").create();
+        injector.register(PerWorldInventory.class, plugin);
+        injector.register(Settings.class, settings);
+        injector.register(BukkitService.class, bukkitService);
+        injector.register(PipelineTimings.class, timings);
+        playerSerializer = injector.getSingleton(PlayerSerializer.class);
+    }
+
+    @Test
+    public void shouldRestoreStatsFromBinaryFormat() throws IOException {
+        // given
+        given(settings.getProperty(PwiProperties.DATA_FORMAT)).willReturn(3);
+        PWIPlayer pwiPlayer = mockPwiPlayer();
+        Player player = mockPlayer();
+
+        // when
+        byte[] data = playerSerializer.serializeToBytes(PWIPlayerSnapshot.of(pwiPlayer));
+        playerSerializer.deserialize(data, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        assertThat(PlayerSerializer.isBinaryFormat(data), equalTo(true));
+        verifyStatsRestored(player);
+    }
+
+    @Test
+    public void shouldRestoreStatsFromJsonBytes() throws IOException {
+        // given
+        given(settings.getProperty(PwiProperties.DATA_FORMAT)).willReturn(2);
+        PWIPlayer pwiPlayer = mockPwiPlayer();
+        Player player = mockPlayer();
+
+        // when
+        byte[] data = playerSerializer.serializeToBytes(PWIPlayerSnapshot.of(pwiPlayer));
+        playerSerializer.deserialize(data, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        assertThat(PlayerSerializer.isBinaryFormat(data), equalTo(false));
+        verifyStatsRestored(player);
+    }
+
+    @Test
+    public void shouldReuseBytesOfUnchangedSections() throws IOException {
+        // given
+        given(settings.getProperty(PwiProperties.DATA_FORMAT)).willReturn(3);
+        PWIPlayer pwiPlayer = mock(PWIPlayer.class);
+        given(pwiPlayer.takeDirtySections()).willReturn(EnumSet.of(PlayerSection.STATS));
+        // An empty inventory, as written by InventorySerializer#writeInventory
+        given(pwiPlayer.getEncodedSection(any(PlayerSection.class), eq(PlayerSerializer.BINARY_FORMAT))).willReturn(new byte[]{0, 0});
+        given(pwiPlayer.getGamemode()).willReturn(GameMode.SURVIVAL);
+        given(pwiPlayer.getFoodLevel()).willReturn(17);
+        Player player = mockPlayer();
+
+        // when
+        byte[] data = playerSerializer.serializeToBytes(PWIPlayerSnapshot.of(pwiPlayer));
+        playerSerializer.deserialize(data, player, DeserializeCause.WORLD_CHANGE);
+
+        // then
+        verify(pwiPlayer, never()).setEncodedSection(eq(PlayerSection.ENDER_CHEST), anyInt(), any(byte[].class));
+        verify(pwiPlayer, never()).setEncodedSection(eq(PlayerSection.INVENTORY), anyInt(), any(byte[].class));
+        verify(pwiPlayer).setEncodedSection(eq(PlayerSection.STATS), eq(PlayerSerializer.BINARY_FORMAT), any(byte[].class));
+        verify(player).setFoodLevel(17);
+        verify(player.getEnderChest()).setContents(any(ItemStack[].class));
+    }
+
+    @Test
+    public void shouldReuseJsonOfUnchangedSections() {
+        // given
+        PWIPlayer pwiPlayer = mock(PWIPlayer.class);
+        given(pwiPlayer.takeDirtySections()).willReturn(EnumSet.of(PlayerSection.STATS));
+        given(pwiPlayer.getEncodedSection(PlayerSection.ENDER_CHEST, 2)).willReturn("[]".getBytes(StandardCharsets.UTF_8));
+        given(pwiPlayer.getEncodedSection(PlayerSection.INVENTORY, 2))
+                .willReturn("{\"inventory\":[],\"armor\":[]}".getBytes(StandardCharsets.UTF_8));
+        given(pwiPlayer.getGamemode()).willReturn(GameMode.SURVIVAL);
+
+        // when
+        String json = playerSerializer.serialize(PWIPlayerSnapshot.of(pwiPlayer));
+
+        // then
+        assertThat(json, startsWith("{\"data-format\":2,\"ender-chest\":[],\"inventory\":{\"inventory\":[],\"armor\":[]},\"stats\":{"));
+        verify(pwiPlayer, never()).setEncodedSection(eq(PlayerSection.ENDER_CHEST), anyInt(), any(byte[].class));
+        verify(pwiPlayer, never()).setEncodedSection(eq(PlayerSection.INVENTORY), anyInt(), any(byte[].class));
+        verify(pwiPlayer).setEncodedSection(eq(PlayerSection.STATS), eq(2), any(byte[].class));
+        verify(pwiPlayer).setEncodedSection(PlayerSection.POTION_EFFECTS, 2, null);
+    }
+
+    @Test
+    public void shouldNotDecodeTruncatedBinaryData() {
+        // given
+        given(settings.getProperty(PwiProperties.DATA_FORMAT)).willReturn(3);
+        PWIPlayer pwiPlayer = mockPwiPlayer();
+        Player player = mockPlayer();
+        byte[] data = playerSerializer.serializeToBytes(PWIPlayerSnapshot.of(pwiPlayer));
+        byte[] truncated = Arrays.copyOf(data, data.length - 10);
+
+        // when
+        try {
+            playerSerializer.decode(truncated, player);
+            fail("Expected an IOException");
+        } catch (IOException ex) {
+            // then
+            verify(player, never()).setFoodLevel(anyInt());
+        }
+    }
+
+    @Test
+    public void shouldStreamJsonAndSkipSectionsNotLoaded() throws IOException {
+        // given
+        given(settings.getProperty(PwiProperties.LOAD_INVENTORY)).willReturn(false);
+        Player player = mock(Player.class);
+        Inventory enderChest = mock(Inventory.class);
+        given(enderChest.getSize()).willReturn(27);
+        given(player.getEnderChest()).willReturn(enderChest);
+        File file = TestHelper.getJarFile(TestHelper.PROJECT_ROOT + "data/7f7c909b-24f1-49a4-817f-baa4f4973980/test-group.json");
+
+        // when
+        PlayerSnapshot snapshot;
+        try (JsonReader reader = new JsonReader(new FileReader(file))) {
+            snapshot = playerSerializer.decode(reader, player);
+        }
+
+        // then
+        assertThat(snapshot.getInventory(), nullValue());
+        assertThat(snapshot.getArmor(), nullValue());
+        assertThat(snapshot.getEnderChest(), arrayWithSize(27));
+        assertThat(snapshot.getBalance(), nullValue());
+        assertThat(snapshot.getFoodLevel(), equalTo(20));
+        assertThat(snapshot.getGamemode(), equalTo(GameMode.SURVIVAL));
+        assertThat(snapshot.getFireTicks(), equalTo(-20));
+        assertThat(snapshot.getRemainingAir(), equalTo(300));
+        verify(player, never()).getInventory();
+    }
+
+    @Test
+    public void shouldSkipItemsThatCannotBeDecoded() throws IOException {
+        // given
+        Player player = mock(Player.class);
+        PlayerInventory inventory = mock(PlayerInventory.class);
+        given(inventory.getSize()).willReturn(36);
+        given(player.getInventory()).willReturn(inventory);
+        String json = "{\"data-format\":2,\"inventory\":{\"inventory\":["
+                + "{\"index\":0,\"item\":\"not base64!\"},{\"index\":1,\"item\":\"AAAA\"}],\"armor\":[]},"
+                + "\"stats\":{\"food\":17}}";
+
+        // when
+        PlayerSnapshot snapshot;
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            snapshot = playerSerializer.decode(reader, player);
+        }
+
+        // then
+        assertThat(snapshot.getInventory(), arrayWithSize(36));
+        assertThat(snapshot.getInventory()[0], nullValue());
+        assertThat(snapshot.getInventory()[1], nullValue());
+        assertThat(snapshot.getFoodLevel(), equalTo(17));
+    }
+
+    private static void verifyStatsRestored(Player player) {
+        verify(player).setFoodLevel(17);
+        verify(player).setLevel(5);
+        verify(player).setMaxHealth(20.0);
+        verify(player).setHealth(15.0);
+        verify(player).setExp(0.5f);
+        verify(player).setRemainingAir(200);
+        verify(player.getInventory()).clear();
+        verify(player.getEnderChest()).setContents(any(ItemStack[].class));
+    }
+
+    private static PWIPlayer mockPwiPlayer() {
+        PWIPlayer player = mock(PWIPlayer.class);
+        given(player.getName()).willReturn("Bobby");
+        given(player.getEnderChest()).willReturn(new ItemStack[27]);
+        given(player.getInventory()).willReturn(new ItemStack[36]);
+        given(player.getArmor()).willReturn(new ItemStack[4]);
+        given(player.getGamemode()).willReturn(GameMode.SURVIVAL);
+        given(player.getPotionEffects()).willReturn(Collections.emptyList());
+        given(player.getFoodLevel()).willReturn(17);
+        given(player.getLevel()).willReturn(5);
+        given(player.getMaxHealth()).willReturn(20.0);
+        given(player.getHealth()).willReturn(15.0);
+        given(player.getExperience()).willReturn(0.5f);
+        given(player.getRemainingAir()).willReturn(200);
+        return player;
+    }
+
+    private static Player mockPlayer() {
+        Player player = mock(Player.class);
+        Inventory enderChest = mock(Inventory.class);
+        given(enderChest.getSize()).willReturn(27);
+        given(player.getEnderChest()).willReturn(enderChest);
+        PlayerInventory inventory = mock(PlayerInventory.class);
+        given(inventory.getSize()).willReturn(36);
+        given(player.getInventory()).willReturn(inventory);
+        return player;
+    }
+}
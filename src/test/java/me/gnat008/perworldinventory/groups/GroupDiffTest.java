@@ -0,0 +1,82 @@
+package me.gnat008.perworldinventory.groups;
+
+import org.bukkit.GameMode;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link GroupDiff}.
+ */
+public class GroupDiffTest {
+
+    @Test
+    public void shouldFindAddedRemovedAndChangedGroups() {
+        // given
+        Group survival = configuredGroup("survival", GameMode.SURVIVAL, "world", "world_nether");
+        Group creative = configuredGroup("creative", GameMode.CREATIVE, "creative");
+        Group minigames = configuredGroup("minigames", GameMode.ADVENTURE, "arena");
+        List<Group> before = Arrays.asList(survival, creative, minigames);
+
+        List<Group> after = Arrays.asList(
+                configuredGroup("Survival", GameMode.SURVIVAL, "world", "world_nether"),
+                configuredGroup("creative", GameMode.SURVIVAL, "creative"),
+                configuredGroup("skyblock", GameMode.SURVIVAL, "skyblock"));
+
+        // when
+        GroupDiff diff = GroupDiff.between(before, after);
+
+        // then
+        assertThat(diff.getAdded(), contains("skyblock"));
+        assertThat(diff.getRemoved(), contains("minigames"));
+        assertThat(diff.getChanged(), contains("creative"));
+        assertThat(diff.isRemoved("MiniGames"), equalTo(true));
+        assertThat(diff.getMovedWorlds().keySet(), contains("arena"));
+        assertThat(diff.getMovedWorlds().get("arena"), sameInstance(minigames));
+    }
+
+    @Test
+    public void shouldFindWorldsMovedBetweenGroups() {
+        // given
+        Group survival = configuredGroup("survival", GameMode.SURVIVAL, "world", "mining");
+        List<Group> before = Collections.singletonList(survival);
+        List<Group> after = Arrays.asList(
+                configuredGroup("survival", GameMode.SURVIVAL, "world"),
+                configuredGroup("resources", GameMode.SURVIVAL, "mining"));
+
+        // when
+        GroupDiff diff = GroupDiff.between(before, after);
+
+        // then
+        assertThat(diff.getChanged(), contains("survival"));
+        assertThat(diff.getMovedWorlds().keySet(), contains("mining"));
+        assertThat(diff.getMovedWorlds().get("mining"), sameInstance(survival));
+    }
+
+    @Test
+    public void shouldIgnoreUnconfiguredGroups() {
+        // given
+        Group configured = configuredGroup("survival", GameMode.SURVIVAL, "world");
+        Group unconfigured = new Group("other", new HashSet<>(Collections.singletonList("other")), GameMode.SURVIVAL, false);
+
+        // when
+        GroupDiff diff = GroupDiff.between(Arrays.asList(configured, unconfigured), Collections.singletonList(configured));
+
+        // then
+        assertThat(diff.isEmpty(), equalTo(true));
+        assertThat(diff.getRemoved(), empty());
+    }
+
+    private static Group configuredGroup(String name, GameMode gameMode, String... worlds) {
+        return new Group(name, new HashSet<>(Arrays.asList(worlds)), gameMode, true);
+    }
+}
@@ -9,11 +9,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
 import static me.gnat008.perworldinventory.TestHelper.mockGroup;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
@@ -157,4 +162,71 @@ public class GroupManagerTest {
         assertThat(result.getWorlds(), equalTo(expected.getWorlds()));
         assertThat(result.getGameMode(), equalTo(expected.getGameMode()));
     }
+
+    @Test
+    public void getGroupFromWorldAmongManyGroups() {
+        // given
+        groupManager.clearGroups(); // Clear any existing groups
+        for (int i = 0; i < 50; i++) {
+            groupManager.addGroup("group" + i, Arrays.asList("world" + i, "world" + i + "_nether"));
+        }
+
+        // when
+        Group result = groupManager.getGroupFromWorld("world37_nether");
+
+        // then
+        assertThat(result.getName(), equalTo("group37"));
+        assertThat(groupManager.countGroups(), equalTo(50));
+    }
+
+    @Test
+    public void getGroupFromWorldAddedToExistingGroup() {
+        // given
+        groupManager.clearGroups(); // Clear any existing groups
+        groupManager.addGroup("test", Collections.singletonList("test"));
+        Group group = groupManager.getGroup("test");
+
+        // when
+        Group updated = groupManager.addWorlds(group, Arrays.asList("other", "other_nether"));
+
+        // then
+        assertThat(groupManager.getGroupFromWorld("other_nether"), sameInstance(updated));
+        assertThat(groupManager.getGroup("test"), sameInstance(updated));
+        assertThat(groupManager.countGroups(), equalTo(1));
+        assertThat(group.containsWorld("other"), equalTo(false));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void shouldUpdateManagerWhenAddingWorldsToGroup() {
+        // given
+        groupManager.clearGroups(); // Clear any existing groups
+        groupManager.addGroup("test", Collections.singletonList("test"));
+        Group group = groupManager.getGroup("test");
+
+        // when
+        group.addWorlds(Arrays.asList("other", "other_nether"));
+
+        // then
+        assertThat(group.containsWorld("other"), equalTo(true));
+        assertThat(groupManager.getGroupFromWorld("other_nether").getName(), equalTo("test"));
+        assertThat(groupManager.countGroups(), equalTo(1));
+    }
+
+    @Test
+    public void shouldNotChangeGroupsReturnedBeforeUpdate() {
+        // given
+        groupManager.clearGroups(); // Clear any existing groups
+        groupManager.addGroup("first", Collections.singletonList("first"));
+        Collection<Group> groups = groupManager.getGroups();
+
+        // when
+        groupManager.addGroup("second", Collections.singletonList("second"));
+        groupManager.clearGroups();
+
+        // then
+        assertThat(groups, hasSize(1));
+        assertThat(groups.iterator().next().getName(), equalTo("first"));
+        assertThat(groupManager.countGroups(), equalTo(0));
+    }
 }
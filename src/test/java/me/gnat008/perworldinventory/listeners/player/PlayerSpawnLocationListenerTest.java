@@ -1,8 +1,10 @@
 package me.gnat008.perworldinventory.listeners.player;
 
+import me.gnat008.perworldinventory.TestHelper;
 import me.gnat008.perworldinventory.config.PwiProperties;
 import me.gnat008.perworldinventory.config.Settings;
 import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.data.PreLoginCache;
 import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.groups.GroupManager;
 import me.gnat008.perworldinventory.process.InventoryChangeProcess;
@@ -38,6 +40,9 @@ public class PlayerSpawnLocationListenerTest {
     @Mock
     private DataSource dataSource;
 
+    @Mock
+    private PreLoginCache preLoginCache;
+
     @Mock
     private GroupManager groupManager;
 
@@ -133,4 +138,29 @@ public class PlayerSpawnLocationListenerTest {
         // then
         verify(process, only()).processWorldChangeOnSpawn(player, oldWorldGroup, spawnWorldGroup);
     }
+
+    @Test
+    public void shouldUseLogoutWorldReadOnLogin() {
+        // given
+        Player player = mock(Player.class);
+        given(player.getUniqueId()).willReturn(TestHelper.TEST_UUID);
+        World world = mock(World.class);
+        given(world.getName()).willReturn("world");
+        Location spawnLocation = new Location(world, 1, 2, 3);
+        PlayerSpawnLocationEvent event = new PlayerSpawnLocationEvent(player, spawnLocation);
+        given(settings.getProperty(PwiProperties.LOAD_DATA_ON_JOIN)).willReturn(true);
+
+        given(preLoginCache.take(TestHelper.TEST_UUID)).willReturn(new PreLoginCache.StagedLogin("other_world"));
+        Group spawnWorldGroup = mockGroup("spawn");
+        given(groupManager.getGroupFromWorld("world")).willReturn(spawnWorldGroup);
+        Group oldWorldGroup = mockGroup("other_world");
+        given(groupManager.getGroupFromWorld("other_world")).willReturn(oldWorldGroup);
+
+        // when
+        listener.onPlayerSpawn(event);
+
+        // then
+        verify(process, only()).processWorldChangeOnSpawn(player, oldWorldGroup, spawnWorldGroup);
+        verifyZeroInteractions(dataSource);
+    }
 }
@@ -116,5 +116,6 @@ public class PlayerTeleportListenerTest {
 
         // then
         verify(playerManager).addPlayer(player, groupFrom);
+        verify(playerManager).prefetchPlayerData(groupTo, player);
     }
 }
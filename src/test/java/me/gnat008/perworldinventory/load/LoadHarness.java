@@ -0,0 +1,595 @@
+package me.gnat008.perworldinventory.load;
+
+import ch.jalu.configme.properties.Property;
+import ch.jalu.injector.Injector;
+import ch.jalu.injector.InjectorBuilder;
+import me.gnat008.perworldinventory.ConsoleLogger;
+import me.gnat008.perworldinventory.DataFolder;
+import me.gnat008.perworldinventory.PerWorldInventory;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.DataSource;
+import me.gnat008.perworldinventory.data.DataSourceProvider;
+import me.gnat008.perworldinventory.data.SaveQueue;
+import me.gnat008.perworldinventory.data.players.PWIPlayer;
+import me.gnat008.perworldinventory.data.players.PWIPlayerManager;
+import me.gnat008.perworldinventory.data.players.PWIPlayerSnapshot;
+import me.gnat008.perworldinventory.data.players.ProfileKey;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.data.serializers.PlayerSnapshot;
+import me.gnat008.perworldinventory.events.InventoryLoadCompleteEvent;
+import me.gnat008.perworldinventory.events.InventoryLoadEvent;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.groups.GroupManager;
+import me.gnat008.perworldinventory.listeners.player.PlayerChangedWorldListener;
+import me.gnat008.perworldinventory.listeners.player.PlayerGameModeChangeListener;
+import me.gnat008.perworldinventory.listeners.player.PlayerQuitListener;
+import me.gnat008.perworldinventory.listeners.player.PlayerTeleportListener;
+import me.gnat008.perworldinventory.listeners.server.InventoryLoadingListener;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Puts the plugin under load: simulated players change worlds, change gamemodes and quit at
+ * the rates of a {@link LoadProfile}, while their data is stored in a real data source.
+ * <p>
+ * Everything from the listeners down is the plugin's own code. Only the server is simulated: one
+ * thread is the main thread, which runs ticks of 50 ms and the tasks that the plugin schedules on it,
+ * and asynchronous tasks run on a thread pool. The events are handled by the same listeners as on
+ * a server, in the same order. At the end, the plugin is disabled like when the server stops, and a
+ * {@link LoadReport} tells how fast the players were served and what was written.
+ * <p>
+ * Run it with {@code mvn -P load-test test-compile exec:java}, and set the profile with system
+ * properties, see {@link LoadProfile#fromSystemProperties()}.
+ */
+public final class LoadHarness {
+
+    private static final long TICK_MILLIS = 50;
+    private static final long FINISH_TIMEOUT_MILLIS = 10_000;
+    private static final GameMode[] GAMEMODES = {GameMode.SURVIVAL, GameMode.CREATIVE, GameMode.ADVENTURE};
+
+    private final LoadProfile profile;
+    private final Random random;
+
+    private ScheduledExecutorService mainThread;
+    private ExecutorService asyncPool;
+    private ScheduledExecutorService asyncTimers;
+
+    private final List<World> worlds = new ArrayList<>();
+    private final List<SimulatedPlayer> players = new ArrayList<>();
+    private final Map<UUID, SimulatedPlayer> playersByUuid = new HashMap<>();
+
+    private PWIPlayerManager playerManager;
+    private SaveQueue saveQueue;
+    private PipelineTimings timings;
+    private CountingDataSource dataSource;
+    private PlayerTeleportListener teleportListener;
+    private PlayerChangedWorldListener changedWorldListener;
+    private PlayerGameModeChangeListener gameModeListener;
+    private PlayerQuitListener quitListener;
+    private InventoryLoadingListener loadingListener;
+
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+
+    private LoadReport report;
+    private long skipped;
+    private double worldChangeCredit;
+    private double gameModeChangeCredit;
+    private double quitCredit;
+
+    LoadHarness(LoadProfile profile) {
+        this.profile = profile;
+        this.random = new Random(profile.getSeed());
+    }
+
+    public static void main(String... args) throws Exception {
+        LoadReport report = new LoadHarness(LoadProfile.fromSystemProperties()).run();
+        System.out.println(report);
+    }
+
+    /**
+     * Set up the plugin, put it under load for the duration of the profile, and disable it.
+     *
+     * @return The results.
+     * @throws IOException If the data folder could not be set up.
+     * @throws InterruptedException If the thread running the harness is interrupted.
+     */
+    LoadReport run() throws IOException, InterruptedException {
+        File dataFolder = profile.getDataFolder() != null
+                ? profile.getDataFolder()
+                : Files.createTempDirectory("pwi-load").toFile();
+        report = new LoadReport(profile, TimeUnit.SECONDS.toMillis(profile.getDurationSeconds()));
+        setUp(dataFolder);
+
+        try {
+            long start = System.nanoTime();
+            AtomicLong ticks = new AtomicLong();
+            Future<?> generator = mainThread.scheduleAtFixedRate(guard(() -> {
+                long expected = start + TimeUnit.MILLISECONDS.toNanos(ticks.getAndIncrement() * TICK_MILLIS);
+                report.tickLag.record((System.nanoTime() - expected) / 1000);
+                tick();
+            }), 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(profile.getDurationSeconds()));
+            generator.cancel(false);
+
+            report.unfinished = waitForUnfinished();
+            report.skipped = onMainThread(() -> skipped);
+
+            long shutdownStart = System.nanoTime();
+            onMainThread(() -> {
+                playerManager.onDisable();
+                return null;
+            });
+            report.shutdownMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - shutdownStart);
+        } finally {
+            tearDown();
+        }
+
+        report.saves = dataSource.saves.sum();
+        report.logoutSaves = dataSource.logoutSaves.sum();
+        report.reads = dataSource.reads.sum();
+        report.coalescedSaves = saveQueue.getCoalescedCount();
+        report.averageDrainMillis = saveQueue.getAverageDrainLatency();
+        report.timings = timings;
+        report.dataFolder = dataFolder;
+        countFiles(dataFolder.toPath());
+        report.errors = errors.get();
+        report.firstError = firstError.get();
+        return report;
+    }
+
+    // -------------
+    // The load
+    // -------------
+
+    /**
+     * Start the actions that are due in this tick. Runs on the main thread.
+     */
+    private void tick() {
+        worldChangeCredit += profile.getWorldChangesPerSecond() * TICK_MILLIS / 1000;
+        gameModeChangeCredit += profile.getGameModeChangesPerSecond() * TICK_MILLIS / 1000;
+        quitCredit += profile.getQuitsPerSecond() * TICK_MILLIS / 1000;
+
+        for (; worldChangeCredit >= 1; worldChangeCredit--) {
+            SimulatedPlayer player = pickIdlePlayer();
+            if (player != null) {
+                changeWorld(player);
+            }
+        }
+        for (; gameModeChangeCredit >= 1; gameModeChangeCredit--) {
+            SimulatedPlayer player = pickIdlePlayer();
+            if (player != null) {
+                changeGameMode(player);
+            }
+        }
+        for (; quitCredit >= 1; quitCredit--) {
+            SimulatedPlayer player = pickIdlePlayer();
+            if (player != null) {
+                quit(player);
+            }
+        }
+    }
+
+    private SimulatedPlayer pickIdlePlayer() {
+        for (int attempt = 0; attempt < 8; attempt++) {
+            SimulatedPlayer player = players.get(random.nextInt(players.size()));
+            if (!player.isBusy()) {
+                return player;
+            }
+        }
+        skipped++;
+        return null;
+    }
+
+    /**
+     * Teleport a player to the world of another group. Done when the data of that group is applied.
+     */
+    private void changeWorld(SimulatedPlayer player) {
+        World from = player.getWorld();
+        int index = worlds.indexOf(from);
+        World to = worlds.get((index + 1 + random.nextInt(worlds.size() - 1)) % worlds.size());
+
+        player.play(random);
+        player.begin(DeserializeCause.WORLD_CHANGE);
+        teleportListener.onPlayerTeleport(new PlayerTeleportEvent(player.getPlayer(),
+                new Location(from, 0, 64, 0), new Location(to, 0, 64, 0)));
+        player.setWorld(to);
+        changedWorldListener.onPlayerChangeWorld(new PlayerChangedWorldEvent(player.getPlayer(), from));
+    }
+
+    /**
+     * Change the gamemode of a player. Done when the data of the new gamemode is applied.
+     */
+    private void changeGameMode(SimulatedPlayer player) {
+        GameMode current = player.getGameMode();
+        GameMode newGameMode;
+        do {
+            newGameMode = GAMEMODES[random.nextInt(GAMEMODES.length)];
+        } while (newGameMode == current);
+
+        player.play(random);
+        player.begin(DeserializeCause.GAMEMODE_CHANGE);
+        gameModeListener.onPlayerGameModeChange(new PlayerGameModeChangeEvent(player.getPlayer(), newGameMode));
+        // The server changes the gamemode after the event
+        player.setGameMode(newGameMode);
+    }
+
+    /**
+     * Let a player quit. Done when the quit event is handled; the player joins again right away.
+     */
+    private void quit(SimulatedPlayer player) {
+        player.play(random);
+        long start = System.nanoTime();
+        quitListener.onPlayerQuit(new PlayerQuitEvent(player.getPlayer(), "left the game"));
+        report.quits.record((System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * Call an event on the listeners that handle it on a server.
+     */
+    private void callEvent(Event event) {
+        if (event instanceof InventoryLoadEvent) {
+            loadingListener.onInventoryLoad((InventoryLoadEvent) event);
+        } else if (event instanceof InventoryLoadCompleteEvent) {
+            InventoryLoadCompleteEvent completeEvent = (InventoryLoadCompleteEvent) event;
+            loadingListener.onLoadComplete(completeEvent);
+
+            SimulatedPlayer player = playersByUuid.get(completeEvent.getPlayer().getUniqueId());
+            long micros = player.finish(completeEvent.getCause());
+            if (micros >= 0) {
+                if (completeEvent.getCause() == DeserializeCause.WORLD_CHANGE) {
+                    report.worldChanges.record(micros);
+                } else if (completeEvent.getCause() == DeserializeCause.GAMEMODE_CHANGE) {
+                    report.gameModeChanges.record(micros);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until every action that was started is done, or the timeout passes.
+     *
+     * @return The number of players that are still busy.
+     */
+    private long waitForUnfinished() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + FINISH_TIMEOUT_MILLIS;
+        long busy;
+        while ((busy = onMainThread(() -> players.stream().filter(SimulatedPlayer::isBusy).count())) > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(TICK_MILLIS);
+        }
+        return busy;
+    }
+
+    // -------------
+    // The server
+    // -------------
+
+    private void setUp(File dataFolder) throws IOException {
+        initLogger();
+
+        // Where the flat file data source looks for the default data of new players
+        Path defaults = dataFolder.toPath().resolve("data").resolve("defaults");
+        Files.createDirectories(defaults);
+        Path defaultFile = defaults.resolve("__default.json");
+        if (!Files.exists(defaultFile)) {
+            Files.copy(TestHelper.getJarPath("/__default.json"), defaultFile);
+        }
+
+        mainThread = Executors.newSingleThreadScheduledExecutor(threadFactory("Server thread"));
+        asyncPool = Executors.newCachedThreadPool(threadFactory("Craft Scheduler Thread"));
+        asyncTimers = Executors.newScheduledThreadPool(2, threadFactory("Craft Scheduler Timer"));
+        Server server = createServer();
+
+        for (int i = 0; i < profile.getGroups(); i++) {
+            World world = mock(World.class, withSettings().stubOnly());
+            given(world.getName()).willReturn("world" + i);
+            worlds.add(world);
+        }
+        for (int i = 0; i < profile.getPlayers(); i++) {
+            SimulatedPlayer player = new SimulatedPlayer(i, worlds.get(i % worlds.size()), random);
+            players.add(player);
+            playersByUuid.put(player.getUuid(), player);
+        }
+
+        PluginManager pluginManager = server.getPluginManager();
+        PerWorldInventory plugin = mock(PerWorldInventory.class, withSettings().stubOnly());
+        given(plugin.getServer()).willReturn(server);
+        given(plugin.getDataFolder()).willReturn(dataFolder);
+        given(plugin.isEnabled()).willReturn(true);
+
+        Injector injector = new InjectorBuilder().addDefaultHandlers("me.gnat008.perworldinventory").create();
+        injector.register(PerWorldInventory.class, plugin);
+        injector.register(Server.class, server);
+        injector.register(PluginManager.class, pluginManager);
+        injector.register(Settings.class, createSettings());
+        injector.provide(DataFolder.class, dataFolder);
+        dataSource = new CountingDataSource(injector.getSingleton(DataSourceProvider.class).get());
+        injector.register(DataSource.class, dataSource);
+
+        GroupManager groupManager = injector.getSingleton(GroupManager.class);
+        for (int i = 0; i < profile.getGroups(); i++) {
+            groupManager.addGroup("group" + i, Collections.singleton("world" + i));
+        }
+
+        timings = injector.getSingleton(PipelineTimings.class);
+        playerManager = injector.getSingleton(PWIPlayerManager.class);
+        saveQueue = injector.getSingleton(SaveQueue.class);
+        teleportListener = injector.getSingleton(PlayerTeleportListener.class);
+        changedWorldListener = injector.getSingleton(PlayerChangedWorldListener.class);
+        gameModeListener = injector.getSingleton(PlayerGameModeChangeListener.class);
+        quitListener = injector.getSingleton(PlayerQuitListener.class);
+        loadingListener = injector.getSingleton(InventoryLoadingListener.class);
+    }
+
+    private void tearDown() throws InterruptedException {
+        mainThread.shutdown();
+        asyncTimers.shutdown();
+        mainThread.awaitTermination(FINISH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        asyncPool.shutdown();
+        asyncPool.awaitTermination(FINISH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private Server createServer() {
+        ItemFactory itemFactory = mock(ItemFactory.class, withSettings().stubOnly());
+        given(itemFactory.equals(any(), any()))
+                .willAnswer(invocation -> Objects.equals(invocation.getArgument(0), invocation.getArgument(1)));
+        given(itemFactory.isApplicable(any(ItemMeta.class), any(Material.class))).willReturn(true);
+
+        BukkitScheduler scheduler = mock(BukkitScheduler.class, withSettings().stubOnly());
+        BukkitTask task = mock(BukkitTask.class, withSettings().stubOnly());
+        given(scheduler.runTask(any(Plugin.class), any(Runnable.class))).willAnswer(invocation -> {
+            mainThread.execute(guard(invocation.getArgument(1)));
+            return task;
+        });
+        given(scheduler.runTaskLater(any(Plugin.class), any(Runnable.class), anyLong())).willAnswer(invocation -> {
+            long delay = invocation.getArgument(2);
+            mainThread.schedule(guard(invocation.getArgument(1)), delay * TICK_MILLIS, TimeUnit.MILLISECONDS);
+            return task;
+        });
+        given(scheduler.runTaskTimer(any(Plugin.class), any(Runnable.class), anyLong(), anyLong())).willAnswer(invocation ->
+                schedule(mainThread, invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+        given(scheduler.runTaskAsynchronously(any(Plugin.class), any(Runnable.class))).willAnswer(invocation -> {
+            asyncPool.execute(guard(invocation.getArgument(1)));
+            return task;
+        });
+        given(scheduler.runTaskTimerAsynchronously(any(Plugin.class), any(Runnable.class), anyLong(), anyLong())).willAnswer(invocation ->
+                schedule(asyncTimers, invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3)));
+
+        PluginManager pluginManager = mock(PluginManager.class, withSettings().stubOnly());
+        willAnswer(invocation -> {
+            callEvent(invocation.getArgument(0));
+            return null;
+        }).given(pluginManager).callEvent(any(Event.class));
+
+        Server server = mock(Server.class, withSettings().stubOnly());
+        given(server.getVersion()).willReturn("git-Spigot-3fb9445-6e3cec8 (MC: 1.11.2)");
+        given(server.getItemFactory()).willReturn(itemFactory);
+        given(server.getScheduler()).willReturn(scheduler);
+        given(server.getPluginManager()).willReturn(pluginManager);
+        given(server.getOnlinePlayers()).willAnswer(invocation ->
+                players.stream().map(SimulatedPlayer::getPlayer).collect(Collectors.toList()));
+        TestHelper.setField(Bukkit.class, "server", null, server);
+        return server;
+    }
+
+    /**
+     * Run a task every few ticks, until the returned task is cancelled.
+     */
+    private BukkitTask schedule(ScheduledExecutorService executor, Runnable runnable, long delay, long period) {
+        Future<?> future = executor.scheduleAtFixedRate(guard(runnable),
+                delay * TICK_MILLIS, Math.max(1, period) * TICK_MILLIS, TimeUnit.MILLISECONDS);
+        BukkitTask task = mock(BukkitTask.class, withSettings().stubOnly());
+        willAnswer(invocation -> future.cancel(false)).given(task).cancel();
+        return task;
+    }
+
+    /**
+     * Settings as in the default config.yml file, with the data source and compression of the profile.
+     */
+    private Settings createSettings() {
+        Map<Property<?>, Object> overrides = new HashMap<>();
+        overrides.put(PwiProperties.DATA_SOURCE_TYPE, profile.getDataSource());
+        overrides.put(PwiProperties.SQL_URL, profile.getSqlUrl());
+        overrides.put(PwiProperties.FLATFILE_COMPRESSION, profile.getCompression());
+        overrides.put(PwiProperties.ENABLE_TIMINGS, true);
+
+        Settings settings = mock(Settings.class, withSettings().stubOnly());
+        given(settings.getProperty(any(Property.class))).willAnswer(invocation -> {
+            Property<?> property = invocation.getArgument(0);
+            return overrides.containsKey(property) ? overrides.get(property) : property.getDefaultValue();
+        });
+        return settings;
+    }
+
+    /**
+     * Count the warnings and errors that are logged, instead of printing them.
+     */
+    private void initLogger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                    errors.incrementAndGet();
+                    firstError.compareAndSet(null, record.getMessage()
+                            + (record.getThrown() == null ? "" : " " + record.getThrown()));
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        ConsoleLogger.setLogger(logger);
+        ConsoleLogger.setUseDebug(false);
+    }
+
+    private void countFiles(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.filter(Files::isRegularFile).forEach(path -> {
+                report.files++;
+                report.bytes += path.toFile().length();
+            });
+        }
+    }
+
+    /**
+     * Wrap a task so that an exception is logged like the scheduler of a server does, instead
+     * of stopping the executor from running it again.
+     */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException | Error ex) {
+                ConsoleLogger.severe("Task threw an exception:", ex);
+            }
+        };
+    }
+
+    private <T> T onMainThread(Callable<T> callable) throws InterruptedException {
+        try {
+            return mainThread.submit(callable).get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Error on the main thread", ex.getCause());
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + " - " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Counts the calls to a data source.
+     */
+    private static final class CountingDataSource implements DataSource {
+
+        private final DataSource dataSource;
+        private final LongAdder saves = new LongAdder();
+        private final LongAdder logoutSaves = new LongAdder();
+        private final LongAdder reads = new LongAdder();
+
+        CountingDataSource(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public void saveLogoutData(PWIPlayer player, boolean createTask) {
+            logoutSaves.increment();
+            dataSource.saveLogoutData(player, createTask);
+        }
+
+        @Override
+        public void saveToDatabase(Group group, GameMode gamemode, PWIPlayerSnapshot player) {
+            saves.increment();
+            dataSource.saveToDatabase(group, gamemode, player);
+        }
+
+        @Override
+        public void saveToDatabase(Map<ProfileKey, PWIPlayerSnapshot> saves) {
+            this.saves.add(saves.size());
+            dataSource.saveToDatabase(saves);
+        }
+
+        @Override
+        public void getFromDatabase(Group group, GameMode gamemode, Player player, DeserializeCause cause) {
+            reads.increment();
+            dataSource.getFromDatabase(group, gamemode, player, cause);
+        }
+
+        @Override
+        public PlayerSnapshot readSnapshot(Group group, GameMode gamemode, Player player) throws IOException {
+            reads.increment();
+            return dataSource.readSnapshot(group, gamemode, player);
+        }
+
+        @Override
+        public Location getLogoutData(Player player) {
+            return dataSource.getLogoutData(player);
+        }
+
+        @Override
+        public String getLogoutWorld(UUID uuid) throws IOException {
+            return dataSource.getLogoutWorld(uuid);
+        }
+
+        @Override
+        public void setGroupDefault(Player player, Group group) {
+            dataSource.setGroupDefault(player, group);
+        }
+
+        @Override
+        public void close() {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package me.gnat008.perworldinventory.load;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test for {@link LoadHarness}: runs a short, light load against each data source.
+ * As it runs in real time, it is only run with the load-test profile.
+ */
+public class LoadHarnessTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldRunLoadAgainstFlatFile() throws Exception {
+        // given / when
+        LoadReport report = runLightLoad("flatfile");
+
+        // then
+        assertLoadWasServed(report);
+    }
+
+    @Test
+    public void shouldRunLoadAgainstCompressedFlatFile() throws Exception {
+        // given / when
+        LoadReport report = runLightLoad("flatfile", "gzip");
+
+        // then
+        assertLoadWasServed(report);
+        assertThat(report.getTimings().getCompressedBytes(), greaterThan(0L));
+    }
+
+    @Test
+    public void shouldRunLoadAgainstLogStore() throws Exception {
+        // given / when
+        LoadReport report = runLightLoad("logstore");
+
+        // then
+        assertLoadWasServed(report);
+    }
+
+    @Test
+    public void shouldRunLoadAgainstSql() throws Exception {
+        // given / when
+        LoadReport report = runLightLoad("sql");
+
+        // then
+        assertLoadWasServed(report);
+    }
+
+    @Test
+    public void shouldRunLoadAgainstBundles() throws Exception {
+        // given / when
+        LoadReport report = runLightLoad("bundle");
+
+        // then
+        assertLoadWasServed(report);
+    }
+
+    private LoadReport runLightLoad(String dataSource) throws IOException, InterruptedException {
+        return runLightLoad(dataSource, "none");
+    }
+
+    private LoadReport runLightLoad(String dataSource, String compression) throws IOException, InterruptedException {
+        LoadProfile profile = new LoadProfile()
+                .players(50)
+                .groups(3)
+                .worldChangesPerSecond(40)
+                .gameModeChangesPerSecond(10)
+                .quitsPerSecond(5)
+                .durationSeconds(2)
+                .dataSource(dataSource)
+                .compression(compression)
+                .dataFolder(temporaryFolder.newFolder());
+        return new LoadHarness(profile).run();
+    }
+
+    private static void assertLoadWasServed(LoadReport report) {
+        assertThat(report.toString(), report.getErrors(), equalTo(0L));
+        assertThat(report.getWorldChanges().getCount(), greaterThan(0L));
+        assertThat(report.getGameModeChanges().getCount(), greaterThan(0L));
+        assertThat(report.getQuits().getCount(), greaterThan(0L));
+        assertThat(report.getUnfinished(), equalTo(0L));
+        // Everyone is saved when the plugin is disabled
+        assertThat(report.getSaves(), greaterThan(49L));
+        // More than the default data file
+        assertThat(report.getFiles(), greaterThan(1L));
+    }
+}
@@ -0,0 +1,174 @@
+package me.gnat008.perworldinventory.load;
+
+import java.io.File;
+
+/**
+ * What the {@link LoadHarness} simulates: how many players are online, how often they change
+ * worlds and gamemodes and quit, for how long, and which data source stores their data.
+ * <p>
+ * When the harness is run from the command line, every value can be set with a system property,
+ * e.g. {@code -Dload.players=2000 -Dload.world-changes=500 -Dload.data-source=logstore}.
+ */
+final class LoadProfile {
+
+    private int players = 1000;
+    private int groups = 4;
+    private double worldChangesPerSecond = 200;
+    private double gameModeChangesPerSecond = 20;
+    private double quitsPerSecond = 5;
+    private int durationSeconds = 60;
+    private String dataSource = "flatfile";
+    private String sqlUrl = "jdbc:h2:{data-folder}/players";
+    private String compression = "NONE";
+    private File dataFolder;
+    private long seed = 42;
+
+    /**
+     * Create a profile from the {@code load.*} system properties. Properties that are not set
+     * keep their default value.
+     *
+     * @return The profile.
+     */
+    static LoadProfile fromSystemProperties() {
+        LoadProfile profile = new LoadProfile();
+        profile.players = Integer.getInteger("load.players", profile.players);
+        profile.groups(Integer.getInteger("load.groups", profile.groups));
+        profile.worldChangesPerSecond = getDouble("load.world-changes", profile.worldChangesPerSecond);
+        profile.gameModeChangesPerSecond = getDouble("load.gamemode-changes", profile.gameModeChangesPerSecond);
+        profile.quitsPerSecond = getDouble("load.quits", profile.quitsPerSecond);
+        profile.durationSeconds = Integer.getInteger("load.duration", profile.durationSeconds);
+        profile.dataSource = System.getProperty("load.data-source", profile.dataSource);
+        profile.sqlUrl = System.getProperty("load.sql-url", profile.sqlUrl);
+        profile.compression = System.getProperty("load.compression", profile.compression);
+        profile.seed = Long.getLong("load.seed", profile.seed);
+
+        String folder = System.getProperty("load.folder");
+        if (folder != null) {
+            profile.dataFolder = new File(folder);
+        }
+        return profile;
+    }
+
+    private static double getDouble(String key, double defaultValue) {
+        String value = System.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /** The number of players that are online during the whole run. */
+    int getPlayers() {
+        return players;
+    }
+
+    LoadProfile players(int players) {
+        this.players = players;
+        return this;
+    }
+
+    /** The number of groups; each group has one world. Players only change worlds between groups. */
+    int getGroups() {
+        return groups;
+    }
+
+    LoadProfile groups(int groups) {
+        if (groups < 2) {
+            throw new IllegalArgumentException("At least 2 groups are needed to change between them, got " + groups);
+        }
+        this.groups = groups;
+        return this;
+    }
+
+    double getWorldChangesPerSecond() {
+        return worldChangesPerSecond;
+    }
+
+    LoadProfile worldChangesPerSecond(double worldChangesPerSecond) {
+        this.worldChangesPerSecond = worldChangesPerSecond;
+        return this;
+    }
+
+    double getGameModeChangesPerSecond() {
+        return gameModeChangesPerSecond;
+    }
+
+    LoadProfile gameModeChangesPerSecond(double gameModeChangesPerSecond) {
+        this.gameModeChangesPerSecond = gameModeChangesPerSecond;
+        return this;
+    }
+
+    /** Quits per second. A player who quits joins again right away, so the number of players stays the same. */
+    double getQuitsPerSecond() {
+        return quitsPerSecond;
+    }
+
+    LoadProfile quitsPerSecond(double quitsPerSecond) {
+        this.quitsPerSecond = quitsPerSecond;
+        return this;
+    }
+
+    int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    LoadProfile durationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+        return this;
+    }
+
+    /** The data source type, as in the config.yml file. */
+    String getDataSource() {
+        return dataSource;
+    }
+
+    LoadProfile dataSource(String dataSource) {
+        this.dataSource = dataSource;
+        return this;
+    }
+
+    /** The database URL when the data source is SQL. Defaults to an embedded H2 database in the data folder. */
+    String getSqlUrl() {
+        return sqlUrl;
+    }
+
+    LoadProfile sqlUrl(String sqlUrl) {
+        this.sqlUrl = sqlUrl;
+        return this;
+    }
+
+    /** How flat files are compressed, as in the config.yml file. */
+    String getCompression() {
+        return compression;
+    }
+
+    LoadProfile compression(String compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /** The plugin's data folder, or null to use a new temporary folder. */
+    File getDataFolder() {
+        return dataFolder;
+    }
+
+    LoadProfile dataFolder(File dataFolder) {
+        this.dataFolder = dataFolder;
+        return this;
+    }
+
+    /** The seed of the random choices, so that runs with the same profile do the same things. */
+    long getSeed() {
+        return seed;
+    }
+
+    LoadProfile seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return dataSource.toUpperCase() + ("NONE".equalsIgnoreCase(compression) ? "" : " (" + compression.toUpperCase() + ")")
+                + ", " + players + " players in " + groups + " groups for " + durationSeconds
+                + " s; per second: " + worldChangesPerSecond + " world changes, " + gameModeChangesPerSecond
+                + " gamemode changes, " + quitsPerSecond + " quits";
+    }
+}
@@ -0,0 +1,176 @@
+package me.gnat008.perworldinventory.load;
+
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import me.gnat008.perworldinventory.timings.LatencyHistogram;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
+import me.gnat008.perworldinventory.timings.Stage;
+
+import java.io.File;
+
+/**
+ * The results of a {@link LoadHarness} run.
+ */
+final class LoadReport {
+
+    private final LoadProfile profile;
+    private final long elapsedMillis;
+
+    final LatencyHistogram worldChanges = new LatencyHistogram();
+    final LatencyHistogram gameModeChanges = new LatencyHistogram();
+    final LatencyHistogram quits = new LatencyHistogram();
+    final LatencyHistogram tickLag = new LatencyHistogram();
+
+    long skipped;
+    long unfinished;
+    long saves;
+    long logoutSaves;
+    long reads;
+    long coalescedSaves;
+    double averageDrainMillis;
+    long shutdownMillis;
+    long files;
+    long bytes;
+    File dataFolder;
+    long errors;
+    String firstError;
+    PipelineTimings timings;
+
+    LoadReport(LoadProfile profile, long elapsedMillis) {
+        this.profile = profile;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /** World changes, from the teleport until the data of the new group is applied. */
+    LatencyHistogram getWorldChanges() {
+        return worldChanges;
+    }
+
+    /** Gamemode changes, from the gamemode change event until the data of the new gamemode is applied. */
+    LatencyHistogram getGameModeChanges() {
+        return gameModeChanges;
+    }
+
+    /** Quits, handling the quit event on the main thread. */
+    LatencyHistogram getQuits() {
+        return quits;
+    }
+
+    /** How late the main thread started each tick. */
+    LatencyHistogram getTickLag() {
+        return tickLag;
+    }
+
+    /** Actions that were not done because no idle player was found. */
+    long getSkipped() {
+        return skipped;
+    }
+
+    /** Actions whose data was still not applied when the run ended. */
+    long getUnfinished() {
+        return unfinished;
+    }
+
+    /** Calls to save data for a group and gamemode. */
+    long getSaves() {
+        return saves;
+    }
+
+    /** Calls to save the logout location. */
+    long getLogoutSaves() {
+        return logoutSaves;
+    }
+
+    /** Calls to read data, with or without applying it. */
+    long getReads() {
+        return reads;
+    }
+
+    /** Files in the data folder when the run ended. */
+    long getFiles() {
+        return files;
+    }
+
+    /** Size of the files in the data folder when the run ended. */
+    long getBytes() {
+        return bytes;
+    }
+
+    /** Errors and warnings that were logged, and exceptions thrown by tasks. */
+    long getErrors() {
+        return errors;
+    }
+
+    String getFirstError() {
+        return firstError;
+    }
+
+    /** Timings of the pipeline stages, and how much the data was compressed. */
+    PipelineTimings getTimings() {
+        return timings;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsedMillis / 1000.0;
+        StringBuilder builder = new StringBuilder();
+        builder.append("Load test: ").append(profile).append('\n');
+        builder.append("Latencies in ms are p50 / p95 / p99 / max").append('\n');
+        appendLatencies(builder, "World changes", worldChanges, seconds);
+        appendLatencies(builder, "Gamemode changes", gameModeChanges, seconds);
+        appendLatencies(builder, "Quits", quits, seconds);
+        appendLatencies(builder, "Main thread lag", tickLag, seconds);
+        builder.append("Skipped (no idle player): ").append(skipped)
+                .append(", unfinished at the end: ").append(unfinished).append('\n');
+        builder.append("Data source: ").append(saves).append(" saves (").append(rate(saves, seconds)).append("/s), ")
+                .append(logoutSaves).append(" logout saves, ").append(reads).append(" reads").append('\n');
+        builder.append("Save queue: ").append(coalescedSaves).append(" saves coalesced, average drain latency ")
+                .append(String.format("%.2f", averageDrainMillis)).append(" ms").append('\n');
+        builder.append("Shutdown: ").append(shutdownMillis).append(" ms").append('\n');
+        builder.append("Files: ").append(files).append(" files, ").append(bytes / 1024).append(" KiB in ")
+                .append(dataFolder).append('\n');
+        if (timings.getUncompressedBytes() > 0) {
+            builder.append("Compression: ").append(timings.getUncompressedBytes() / 1024).append(" KiB to ")
+                    .append(timings.getCompressedBytes() / 1024).append(" KiB (")
+                    .append(timings.getCompressedBytes() * 100 / timings.getUncompressedBytes()).append("%)").append('\n');
+        }
+        builder.append("Errors: ").append(errors);
+        if (firstError != null) {
+            builder.append(" (first: ").append(firstError).append(')');
+        }
+        builder.append('\n');
+
+        builder.append("Stages:").append('\n');
+        for (Stage stage : Stage.values()) {
+            appendStage(builder, stage, null);
+            for (DeserializeCause cause : DeserializeCause.values()) {
+                appendStage(builder, stage, cause);
+            }
+        }
+        return builder.toString();
+    }
+
+    private void appendStage(StringBuilder builder, Stage stage, DeserializeCause cause) {
+        LatencyHistogram histogram = timings.getHistogram(stage, cause);
+        if (histogram != null && histogram.getCount() > 0) {
+            String name = cause == null ? stage.getDisplayName() : stage.getDisplayName() + " (" + cause.name().toLowerCase() + ")";
+            appendLatencies(builder, "  " + name, histogram, elapsedMillis / 1000.0);
+        }
+    }
+
+    private static void appendLatencies(StringBuilder builder, String name, LatencyHistogram histogram, double seconds) {
+        builder.append(name).append(": ").append(histogram.getCount()).append(" (")
+                .append(rate(histogram.getCount(), seconds)).append("/s) ")
+                .append(toMillis(histogram.getPercentile(50))).append(" / ")
+                .append(toMillis(histogram.getPercentile(95))).append(" / ")
+                .append(toMillis(histogram.getPercentile(99))).append(" / ")
+                .append(toMillis(histogram.getMax())).append('\n');
+    }
+
+    private static String rate(long count, double seconds) {
+        return String.format("%.1f", seconds == 0 ? 0 : count / seconds);
+    }
+
+    private static String toMillis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,191 @@
+package me.gnat008.perworldinventory.load;
+
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.attribute.Attribute;
+import org.bukkit.attribute.AttributeInstance;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A player of the {@link LoadHarness}: a mock {@link Player} whose world, gamemode and inventories
+ * change like those of a real player. The mocks only answer calls and do not remember them, so
+ * they don't grow while the harness runs.
+ * <p>
+ * A player does one thing at a time: an action that loads data makes the player busy until the
+ * data is applied.
+ */
+final class SimulatedPlayer {
+
+    static final int INVENTORY_SIZE = 41;
+    static final int ENDER_CHEST_SIZE = 27;
+
+    private static final Material[] MATERIALS = {
+        Material.STONE, Material.DIRT, Material.COBBLESTONE, Material.LOG, Material.TORCH, Material.COOKED_BEEF,
+        Material.DIAMOND_SWORD, Material.IRON_PICKAXE, Material.BOW, Material.ARROW, Material.ENDER_PEARL
+    };
+
+    private final Player player;
+    private final UUID uuid;
+
+    private volatile World world;
+    private volatile GameMode gameMode = GameMode.SURVIVAL;
+    private volatile ItemStack[] inventory;
+    private volatile ItemStack[] enderChest;
+
+    /** When the current action started, in nanoseconds; 0 if the player is idle. Only used on the main thread. */
+    private long actionStart;
+    private DeserializeCause actionCause;
+
+    SimulatedPlayer(int number, World world, Random random) {
+        this.uuid = new UUID(0x5157L, number);
+        this.world = world;
+        this.inventory = fill(INVENTORY_SIZE, random);
+        this.enderChest = fill(ENDER_CHEST_SIZE, random);
+        this.player = createMock("Player" + number);
+    }
+
+    Player getPlayer() {
+        return player;
+    }
+
+    UUID getUuid() {
+        return uuid;
+    }
+
+    World getWorld() {
+        return world;
+    }
+
+    void setWorld(World world) {
+        this.world = world;
+    }
+
+    GameMode getGameMode() {
+        return gameMode;
+    }
+
+    void setGameMode(GameMode gameMode) {
+        this.gameMode = gameMode;
+    }
+
+    boolean isBusy() {
+        return actionStart != 0;
+    }
+
+    /**
+     * Mark the player as busy with an action that ends when data is loaded for the given cause.
+     *
+     * @param cause What the data will be loaded for.
+     */
+    void begin(DeserializeCause cause) {
+        actionStart = System.nanoTime();
+        actionCause = cause;
+    }
+
+    /**
+     * Mark the player as idle, if data was loaded for the action they were busy with.
+     *
+     * @param cause What the data was loaded for.
+     * @return The duration of the action in microseconds, or -1 if the player was not busy with this cause.
+     */
+    long finish(DeserializeCause cause) {
+        if (actionStart == 0 || actionCause != cause) {
+            return -1;
+        }
+
+        long micros = (System.nanoTime() - actionStart) / 1000;
+        actionStart = 0;
+        actionCause = null;
+        return micros;
+    }
+
+    /**
+     * Change an item in the player's inventory, so that there is something new to save.
+     * The array is replaced rather than changed, as the plugin may still be reading the old one.
+     *
+     * @param random The random to choose the item with.
+     */
+    void play(Random random) {
+        ItemStack[] contents = inventory.clone();
+        contents[random.nextInt(36)] = randomItem(random);
+        inventory = contents;
+    }
+
+    private Player createMock(String name) {
+        PlayerInventory playerInventory = mock(PlayerInventory.class, withSettings().stubOnly());
+        given(playerInventory.getSize()).willReturn(INVENTORY_SIZE);
+        given(playerInventory.getContents()).willAnswer(invocation -> inventory.clone());
+        given(playerInventory.getArmorContents()).willAnswer(invocation -> Arrays.copyOfRange(inventory, 36, 40));
+        willAnswer(invocation -> inventory = copyOf(invocation.getArgument(0), INVENTORY_SIZE))
+                .given(playerInventory).setContents(any(ItemStack[].class));
+        willAnswer(invocation -> inventory = new ItemStack[INVENTORY_SIZE]).given(playerInventory).clear();
+
+        Inventory enderInventory = mock(Inventory.class, withSettings().stubOnly());
+        given(enderInventory.getSize()).willReturn(ENDER_CHEST_SIZE);
+        given(enderInventory.getContents()).willAnswer(invocation -> enderChest.clone());
+        willAnswer(invocation -> enderChest = copyOf(invocation.getArgument(0), ENDER_CHEST_SIZE))
+                .given(enderInventory).setContents(any(ItemStack[].class));
+        willAnswer(invocation -> enderChest = new ItemStack[ENDER_CHEST_SIZE]).given(enderInventory).clear();
+
+        AttributeInstance maxHealth = mock(AttributeInstance.class, withSettings().stubOnly());
+        given(maxHealth.getValue()).willReturn(20.0);
+        given(maxHealth.getBaseValue()).willReturn(20.0);
+
+        Player mock = mock(Player.class, withSettings().stubOnly());
+        given(mock.getUniqueId()).willReturn(uuid);
+        given(mock.getName()).willReturn(name);
+        given(mock.getDisplayName()).willReturn(name);
+        given(mock.getWorld()).willAnswer(invocation -> world);
+        given(mock.getLocation()).willAnswer(invocation -> new Location(world, 0, 64, 0));
+        given(mock.getGameMode()).willAnswer(invocation -> gameMode);
+        willAnswer(invocation -> gameMode = invocation.getArgument(0)).given(mock).setGameMode(any(GameMode.class));
+        given(mock.getInventory()).willReturn(playerInventory);
+        given(mock.getEnderChest()).willReturn(enderInventory);
+        given(mock.getAttribute(Attribute.GENERIC_MAX_HEALTH)).willReturn(maxHealth);
+        given(mock.getMaxHealth()).willReturn(20.0);
+        given(mock.getHealth()).willReturn(20.0);
+        given(mock.getFoodLevel()).willReturn(20);
+        given(mock.getSaturation()).willReturn(5f);
+        given(mock.getMaximumAir()).willReturn(300);
+        given(mock.getRemainingAir()).willReturn(300);
+        given(mock.getActivePotionEffects()).willReturn(Collections.emptyList());
+        return mock;
+    }
+
+    private static ItemStack[] fill(int size, Random random) {
+        ItemStack[] items = new ItemStack[size];
+        for (int i = 0; i < size; i++) {
+            // About half of the slots are used
+            if (random.nextBoolean()) {
+                items[i] = randomItem(random);
+            }
+        }
+        return items;
+    }
+
+    private static ItemStack randomItem(Random random) {
+        Material material = MATERIALS[random.nextInt(MATERIALS.length)];
+        return new ItemStack(material, 1 + random.nextInt(material.getMaxStackSize()));
+    }
+
+    private static ItemStack[] copyOf(ItemStack[] items, int size) {
+        return Arrays.copyOf(items, size);
+    }
+}
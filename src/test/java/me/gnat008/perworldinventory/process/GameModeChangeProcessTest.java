@@ -9,6 +9,7 @@ import me.gnat008.perworldinventory.events.InventoryLoadEvent;
 import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.permission.PermissionManager;
 import me.gnat008.perworldinventory.permission.PlayerPermission;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
 import org.junit.Test;
@@ -40,6 +41,9 @@ public class GameModeChangeProcessTest {
     @Mock
     private Settings settings;
 
+    @Mock
+    private PipelineTimings timings;
+
     @Test
     public void shouldBypass() {
         // given
@@ -0,0 +1,100 @@
+package me.gnat008.perworldinventory.process;
+
+import me.gnat008.perworldinventory.BukkitService;
+import me.gnat008.perworldinventory.TestHelper;
+import me.gnat008.perworldinventory.data.players.PWIPlayerManager;
+import me.gnat008.perworldinventory.groups.Group;
+import me.gnat008.perworldinventory.groups.GroupDiff;
+import me.gnat008.perworldinventory.groups.GroupManager;
+import org.bukkit.GameMode;
+import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.entity.Player;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link GroupReloadProcess}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GroupReloadProcessTest {
+
+    @InjectMocks
+    private GroupReloadProcess process;
+
+    @Mock
+    private BukkitService bukkitService;
+
+    @Mock
+    private GroupManager groupManager;
+
+    @Mock
+    private InventoryChangeProcess inventoryChangeProcess;
+
+    @Mock
+    private PWIPlayerManager playerManager;
+
+    @Before
+    public void setUpLogger() {
+        TestHelper.initMockLogger();
+    }
+
+    @Test
+    public void shouldMovePlayersInWorldsOfOtherGroup() {
+        // given
+        Group survival = configuredGroup("survival", "world", "mining");
+        Group newSurvival = configuredGroup("survival", "world");
+        Group resources = configuredGroup("resources", "mining");
+
+        Player miner = mockPlayer("mining");
+        Player builder = mockPlayer("world");
+        given(bukkitService.getOnlinePlayers()).willReturn((Collection) Arrays.asList(miner, builder));
+        given(groupManager.getGroupFromWorld("mining")).willReturn(survival, resources);
+        given(groupManager.getGroupFromWorld("world")).willReturn(survival, newSurvival);
+        given(groupManager.getGroups()).willReturn(Collections.singletonList(survival), Arrays.asList(newSurvival, resources));
+        given(playerManager.reconcileGroups(any(GroupDiff.class))).willReturn(2);
+        FileConfiguration config = mock(FileConfiguration.class);
+
+        // when
+        GroupReloadProcess.Result result = process.reloadGroups(config);
+
+        // then
+        verify(groupManager).loadGroupsToMemory(config);
+        verify(inventoryChangeProcess).processWorldChangeOnSpawn(miner, survival, resources);
+        verify(inventoryChangeProcess, never()).processWorldChangeOnSpawn(builder, survival, newSurvival);
+        assertThat(result.getMovedPlayers(), equalTo(1));
+        assertThat(result.getFlushedProfiles(), equalTo(2));
+        assertThat(result.getDiff().getAdded(), contains("resources"));
+        assertThat(result.getDiff().getChanged(), contains("survival"));
+    }
+
+    private static Player mockPlayer(String worldName) {
+        Player player = mock(Player.class);
+        World world = mock(World.class);
+        given(world.getName()).willReturn(worldName);
+        given(player.getWorld()).willReturn(world);
+        return player;
+    }
+
+    private static Group configuredGroup(String name, String... worlds) {
+        return new Group(name, new HashSet<>(Arrays.asList(worlds)), GameMode.SURVIVAL, true);
+    }
+}
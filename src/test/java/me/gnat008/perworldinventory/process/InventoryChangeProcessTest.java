@@ -10,6 +10,7 @@ import me.gnat008.perworldinventory.events.InventoryLoadEvent;
 import me.gnat008.perworldinventory.groups.Group;
 import me.gnat008.perworldinventory.permission.PermissionManager;
 import me.gnat008.perworldinventory.permission.PlayerPermission;
+import me.gnat008.perworldinventory.timings.PipelineTimings;
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
 import org.junit.BeforeClass;
@@ -47,6 +48,9 @@ public class InventoryChangeProcessTest {
     @Mock
     private Settings settings;
 
+    @Mock
+    private PipelineTimings timings;
+
     @BeforeClass
     public static void initLogger() {
         TestHelper.initMockLogger();
@@ -0,0 +1,88 @@
+package me.gnat008.perworldinventory.timings;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldCountSmallValuesExactly() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+
+        // then
+        assertThat(histogram.getCount(), equalTo(50L));
+        assertThat(histogram.getMax(), equalTo(50L));
+        assertThat(histogram.getPercentile(50), equalTo(25L));
+        assertThat(histogram.getPercentile(100), equalTo(50L));
+    }
+
+    @Test
+    public void shouldHaveBucketsWithoutGaps() {
+        // given / when / then
+        for (int index = 0; index < LatencyHistogram.indexOf(1L << 20); index++) {
+            long highest = LatencyHistogram.highestValueOf(index);
+            assertThat(LatencyHistogram.indexOf(highest), equalTo(index));
+            assertThat(LatencyHistogram.indexOf(highest + 1), equalTo(index + 1));
+        }
+    }
+
+    @Test
+    public void shouldGetPercentilesWithinPrecision() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i);
+        }
+
+        // then
+        assertWithinPrecision(histogram.getPercentile(50), 50_000);
+        assertWithinPrecision(histogram.getPercentile(95), 95_000);
+        assertWithinPrecision(histogram.getPercentile(99), 99_000);
+        assertThat(histogram.getPercentile(100), equalTo(100_000L));
+    }
+
+    @Test
+    public void shouldClampOutOfRangeValues() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        // then
+        assertThat(histogram.getCount(), equalTo(2L));
+        assertThat(histogram.getPercentile(50), equalTo(0L));
+        assertThat(histogram.getMax(), equalTo((1L << 40) - 1));
+    }
+
+    @Test
+    public void shouldReturnZeroWhenEmpty() {
+        // given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // when / then
+        assertThat(histogram.getPercentile(99), equalTo(0L));
+        assertThat(histogram.getMax(), equalTo(0L));
+    }
+
+    private static void assertWithinPrecision(long actual, long expected) {
+        assertThat(actual, greaterThanOrEqualTo(expected));
+        assertThat(actual, lessThanOrEqualTo(expected + expected / 32));
+    }
+}
@@ -0,0 +1,88 @@
+package me.gnat008.perworldinventory.timings;
+
+import me.gnat008.perworldinventory.config.PwiProperties;
+import me.gnat008.perworldinventory.config.Settings;
+import me.gnat008.perworldinventory.data.serializers.DeserializeCause;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Tests for {@link PipelineTimings}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PipelineTimingsTest {
+
+    @Mock
+    private Settings settings;
+
+    @Test
+    public void shouldNotRecordWhenDisabled() {
+        // given
+        given(settings.getProperty(PwiProperties.ENABLE_TIMINGS)).willReturn(false);
+        PipelineTimings timings = new PipelineTimings(settings);
+
+        // when
+        long start = timings.start();
+        timings.record(Stage.READ, DeserializeCause.WORLD_CHANGE, start);
+
+        // then
+        assertThat(start, equalTo(0L));
+        assertThat(timings.getHistogram(Stage.READ, DeserializeCause.WORLD_CHANGE), nullValue());
+    }
+
+    @Test
+    public void shouldRecordPerStageAndCause() {
+        // given
+        given(settings.getProperty(PwiProperties.ENABLE_TIMINGS)).willReturn(true);
+        PipelineTimings timings = new PipelineTimings(settings);
+
+        // when
+        timings.record(Stage.READ, DeserializeCause.WORLD_CHANGE, timings.start());
+        timings.record(Stage.READ, DeserializeCause.WORLD_CHANGE, timings.start());
+        timings.record(Stage.READ, DeserializeCause.GAMEMODE_CHANGE, timings.start());
+        timings.record(Stage.DECODE, null, timings.start());
+
+        // then
+        assertThat(timings.getHistogram(Stage.READ, DeserializeCause.WORLD_CHANGE).getCount(), equalTo(2L));
+        assertThat(timings.getHistogram(Stage.READ, DeserializeCause.GAMEMODE_CHANGE).getCount(), equalTo(1L));
+        assertThat(timings.getHistogram(Stage.DECODE, null).getCount(), equalTo(1L));
+        assertThat(timings.getHistogram(Stage.DECODE, DeserializeCause.WORLD_CHANGE), nullValue());
+        assertThat(timings.getHistogram(Stage.APPLY, DeserializeCause.WORLD_CHANGE), nullValue());
+    }
+
+    @Test
+    public void shouldIgnoreStagesStartedWhileDisabled() {
+        // given
+        given(settings.getProperty(PwiProperties.ENABLE_TIMINGS)).willReturn(false);
+        PipelineTimings timings = new PipelineTimings(settings);
+        long start = timings.start();
+
+        // when
+        timings.setEnabled(true);
+        timings.record(Stage.APPLY, DeserializeCause.CHANGED_DEFAULTS, start);
+
+        // then
+        assertThat(timings.getHistogram(Stage.APPLY, DeserializeCause.CHANGED_DEFAULTS), nullValue());
+    }
+
+    @Test
+    public void shouldReset() {
+        // given
+        given(settings.getProperty(PwiProperties.ENABLE_TIMINGS)).willReturn(true);
+        PipelineTimings timings = new PipelineTimings(settings);
+        timings.record(Stage.PROCESS, DeserializeCause.WORLD_CHANGE, timings.start());
+
+        // when
+        timings.reset();
+
+        // then
+        assertThat(timings.getHistogram(Stage.PROCESS, DeserializeCause.WORLD_CHANGE), nullValue());
+    }
+}
@@ -0,0 +1,88 @@
+package me.gnat008.perworldinventory.util;
+
+import me.gnat008.perworldinventory.TestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Compression}.
+ */
+public class CompressionTest {
+
+    private static final byte[] JSON = repeat("{\"item\":\"rO0ABXNyABpvcmcuYnVra2l0LnV0aWwuaW8uV3JhcHBlcvI=\"},", 50)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Before
+    public void setup() {
+        TestHelper.initMockLogger();
+    }
+
+    @Test
+    public void shouldCompressAndDecompressAtEveryLevel() throws IOException {
+        for (int level = 1; level <= 9; level++) {
+            // given / when
+            byte[] compressed = Compression.GZIP.compress(JSON, level);
+
+            // then
+            assertTrue(Compression.isCompressed(compressed));
+            assertThat(compressed.length, lessThan(JSON.length / 4));
+            assertThat(Compression.decompress(new ByteArrayInputStream(compressed)), equalTo(JSON));
+        }
+    }
+
+    @Test
+    public void shouldNotCompressWithNone() {
+        // given / when
+        byte[] result = Compression.NONE.compress(JSON, 6);
+
+        // then
+        assertThat(result, sameInstance(JSON));
+    }
+
+    @Test
+    public void shouldNotDetectUncompressedData() {
+        // given
+        byte[] binary = {'P', 'W', 'I', 'B', 0, 0, 0, 3};
+
+        // when / then
+        assertFalse(Compression.isCompressed(JSON));
+        assertFalse(Compression.isCompressed(binary));
+        assertFalse(Compression.isCompressed(new byte[]{0x1f}));
+    }
+
+    @Test(expected = ZipException.class)
+    public void shouldFailToDecompressUncompressedData() throws IOException {
+        // given / when
+        Compression.decompress(new ByteArrayInputStream(JSON));
+
+        // then - exception
+    }
+
+    @Test
+    public void shouldFallBackToNoneForUnknownSetting() {
+        // given / when / then
+        assertThat(Compression.fromSetting("gzip "), equalTo(Compression.GZIP));
+        assertThat(Compression.fromSetting("lz4"), equalTo(Compression.NONE));
+        assertThat(Compression.fromSetting(null), equalTo(Compression.NONE));
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
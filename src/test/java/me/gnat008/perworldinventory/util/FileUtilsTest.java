@@ -0,0 +1,100 @@
+package me.gnat008.perworldinventory.util;
+
+import me.gnat008.perworldinventory.TestHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link FileUtils}.
+ */
+public class FileUtilsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File folder;
+
+    @Before
+    public void setup() throws IOException {
+        TestHelper.initMockLogger();
+        folder = temporaryFolder.newFolder();
+    }
+
+    @Test
+    public void shouldReplaceFileWithoutLeavingTemporaryFiles() throws IOException {
+        // given
+        File file = new File(folder, "test.json");
+        FileUtils.writeData(file, "{\"old\":true}", WriteDurability.FLUSH);
+
+        // when
+        FileUtils.writeData(file, "{\"new\":true}", WriteDurability.FLUSH);
+
+        // then
+        assertThat(read(file), equalTo("{\"new\":true}"));
+        assertThat(folder.list(), arrayContaining("test.json"));
+    }
+
+    @Test
+    public void shouldReplaceStaleTemporaryFile() throws IOException {
+        // given
+        File file = new File(folder, "test.json");
+        File staleTemp = new File(folder, "test.json.tmp");
+        Files.write(staleTemp.toPath(), "{\"stale\":true, \"left\":\"by a crash\"}".getBytes(Charset.defaultCharset()));
+
+        // when
+        FileUtils.writeData(file, "{\"new\":true}", WriteDurability.FLUSH);
+
+        // then
+        assertThat(read(file), equalTo("{\"new\":true}"));
+        assertThat(folder.list(), arrayContaining("test.json"));
+    }
+
+    @Test
+    public void shouldCreateMissingFoldersAndSync() throws IOException {
+        // given
+        File file = new File(folder, "uuid/test.json");
+
+        // when
+        FileUtils.writeData(file, "{}", WriteDurability.FSYNC);
+
+        // then
+        assertThat(read(file), equalTo("{}"));
+        assertThat(file.getParentFile().list(), arrayContaining("test.json"));
+    }
+
+    @Test
+    public void shouldOverwriteInPlace() throws IOException {
+        // given
+        File file = new File(folder, "test.json");
+        FileUtils.writeData(file, "{\"old\":true, \"longer\":true}", WriteDurability.NONE);
+
+        // when
+        FileUtils.writeData(file, "{\"new\":true}", WriteDurability.NONE);
+
+        // then
+        assertThat(read(file), equalTo("{\"new\":true}"));
+    }
+
+    @Test
+    public void shouldFallBackToFlushForUnknownDurability() {
+        // given / when / then
+        assertThat(WriteDurability.fromSetting(null), equalTo(WriteDurability.FLUSH));
+        assertThat(WriteDurability.fromSetting("bogus"), equalTo(WriteDurability.FLUSH));
+        assertThat(WriteDurability.fromSetting(" fsync "), equalTo(WriteDurability.FSYNC));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+    }
+}